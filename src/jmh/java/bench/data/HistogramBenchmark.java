@@ -0,0 +1,138 @@
+package bench.data;
+
+import jam.data.DataBase;
+import jam.data.Factory;
+import jam.data.Gate;
+import jam.data.Group;
+import jam.data.HistInt1D;
+import jam.data.HistInt2D;
+import java.awt.Polygon;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures incrementing histograms and checking gates, the calls a sort routine makes for every
+ * event. Channels are drawn beforehand from a fixed seed, partly outside the histograms and gates,
+ * and each invocation goes through all of them.
+ *
+ * @author Dale Visser
+ * @see test.data.GateTest
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HistogramBenchmark {
+
+  private static final int CHANNELS = 4096;
+
+  private static final int SIZE_1D = 1024;
+
+  private static final int SIZE_2D = 256;
+
+  private final transient int[] channelX = new int[CHANNELS];
+
+  private final transient int[] channelY = new int[CHANNELS];
+
+  private transient HistInt1D hist1D;
+
+  private transient HistInt2D hist2D;
+
+  private transient Gate gate1D;
+
+  private transient Gate gate2D;
+
+  /** Creates the histograms, gates and channels. */
+  @Setup(Level.Trial)
+  public void setup() {
+    final Group group = Factory.createGroup("HistogramBenchmark", Group.Type.FILE);
+    hist1D = (HistInt1D) Factory.createHistogram(group, new int[SIZE_1D], "h1");
+    hist2D = (HistInt2D) Factory.createHistogram(group, new int[SIZE_2D][SIZE_2D], "h2");
+    gate1D = new Gate("g1", hist1D);
+    gate1D.setLimits(SIZE_1D / 4, SIZE_1D / 2);
+    gate2D = new Gate("g2", hist2D);
+    final int low = SIZE_2D / 4;
+    final int high = 3 * SIZE_2D / 4;
+    gate2D.setLimits(
+        new Polygon(
+            new int[] {low, high, high, SIZE_2D / 2}, new int[] {low, low, high, high}, 4));
+    final Random random = new Random(1L);
+    for (int i = 0; i < CHANNELS; i++) {
+      channelX[i] = random.nextInt(SIZE_1D + 16) - 8;
+      channelY[i] = random.nextInt(SIZE_2D + 16) - 8;
+    }
+  }
+
+  /** Removes the histograms and gates. */
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    DataBase.getInstance().clearAllLists();
+  }
+
+  /** Increments a 1-d histogram. */
+  @Benchmark
+  @OperationsPerInvocation(CHANNELS)
+  public void inc1D() {
+    for (int i = 0; i < CHANNELS; i++) {
+      hist1D.inc(channelX[i]);
+    }
+  }
+
+  /** Increments a 2-d histogram. */
+  @Benchmark
+  @OperationsPerInvocation(CHANNELS)
+  public void inc2D() {
+    for (int i = 0; i < CHANNELS; i++) {
+      hist2D.inc(channelX[i] % SIZE_2D, channelY[i]);
+    }
+  }
+
+  /**
+   * Checks a 1-d gate.
+   *
+   * @return how many channels were in the gate
+   */
+  @Benchmark
+  @OperationsPerInvocation(CHANNELS)
+  public int inGate1D() {
+    int inside = 0;
+    for (int i = 0; i < CHANNELS; i++) {
+      if (gate1D.inGate(channelX[i])) {
+        inside++;
+      }
+    }
+    return inside;
+  }
+
+  /**
+   * Checks a 2-d gate.
+   *
+   * @return how many channels were in the gate
+   */
+  @Benchmark
+  @OperationsPerInvocation(CHANNELS)
+  public int inGate2D() {
+    int inside = 0;
+    for (int i = 0; i < CHANNELS; i++) {
+      if (gate2D.inGate(channelX[i] % SIZE_2D, channelY[i])) {
+        inside++;
+      }
+    }
+    return inside;
+  }
+}
@@ -0,0 +1,155 @@
+package bench.sort;
+
+import jam.data.EventBlock;
+import jam.sort.stream.AbstractEventInputStream.EventInputStatus;
+import jam.sort.stream.EventException;
+import jam.sort.stream.Kmax6InputStream;
+import jam.sort.stream.L002InputStream;
+import jam.sort.stream.YaleCAEN_InputStream;
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how fast each event stream decodes whole buffers into an <code>EventBlock</code>, as
+ * the sort daemon does. Scores are in events per second, so the formats can be compared.
+ *
+ * @author Dale Visser
+ * @see test.sort.EventBlockTest
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DecodeBenchmark {
+
+  /* events in each piece of data */
+  private static final int L002_EVENTS = 453;
+
+  private static final int YALE_CAEN_EVENTS = 302;
+
+  private static final int KMAX_BLOCKS = 16;
+
+  private transient ByteBuffer l002Buffer;
+
+  private transient L002InputStream l002;
+
+  private transient EventBlock l002Block;
+
+  private transient ByteBuffer yaleCAENBuffer;
+
+  private transient int yaleCAENStart;
+
+  private transient YaleCAEN_InputStream yaleCAEN;
+
+  private transient EventBlock yaleCAENBlock;
+
+  private transient byte[] kmaxBlocks;
+
+  private transient Kmax6InputStream kmax;
+
+  private transient EventBlock kmaxBlock;
+
+  /**
+   * Creates the streams and data to decode.
+   *
+   * @throws EventException if a header can't be read
+   */
+  @Setup(Level.Trial)
+  public void setup() throws EventException {
+    l002Buffer = ByteBuffer.wrap(EventData.createL002Buffer());
+    l002 = new L002InputStream(true, EventData.L002_EVENT_SIZE);
+    l002Block = new EventBlock(EventData.L002_EVENT_SIZE);
+    EventData.quietStreams();
+    final byte[] sample = EventData.readYaleCAENSample();
+    final int eventSize = YaleCAEN_InputStream.ZEROS.length;
+    yaleCAEN = new YaleCAEN_InputStream(true, eventSize);
+    final ByteArrayInputStream header = new ByteArrayInputStream(sample);
+    yaleCAEN.setInputStream(header);
+    if (!yaleCAEN.readHeader()) {
+      throw new IllegalStateException("Sample YaleCAEN data has no valid header.");
+    }
+    yaleCAENStart = sample.length - header.available();
+    yaleCAENBuffer = ByteBuffer.wrap(sample);
+    yaleCAENBlock = new EventBlock(eventSize);
+    kmaxBlocks = EventData.createKmaxBlocks(KMAX_BLOCKS);
+    kmax = new Kmax6InputStream(true, EventData.KMAX_EVENT_SIZE);
+    kmax.setInputStream(new ByteArrayInputStream(EventData.createKmaxHeader()));
+    if (!kmax.readHeader()) {
+      throw new IllegalStateException("Synthetic Kmax header wasn't valid.");
+    }
+    kmaxBlock = new EventBlock(EventData.KMAX_EVENT_SIZE);
+  }
+
+  /**
+   * Decodes one ring buffer of L002 events.
+   *
+   * @return the number of events decoded
+   * @throws EventException if decoding fails
+   */
+  @Benchmark
+  @OperationsPerInvocation(L002_EVENTS)
+  public int decodeL002() throws EventException {
+    l002Buffer.rewind();
+    l002.readBlock(l002Buffer, l002Block);
+    return l002Block.size();
+  }
+
+  /**
+   * Decodes every buffer of the sample YaleCAEN event file.
+   *
+   * @return the number of events decoded
+   * @throws EventException if decoding fails
+   */
+  @Benchmark
+  @OperationsPerInvocation(YALE_CAEN_EVENTS)
+  public int decodeYaleCAEN() throws EventException {
+    yaleCAENBuffer.position(yaleCAENStart);
+    int events = 0;
+    EventInputStatus status;
+    do {
+      status = yaleCAEN.readBlock(yaleCAENBuffer, yaleCAENBlock);
+      events += yaleCAENBlock.size();
+    } while (continues(status));
+    return events;
+  }
+
+  /**
+   * Decodes blocks of synthetic Kmax events.
+   *
+   * @return the number of events decoded
+   * @throws EventException if decoding fails
+   */
+  @Benchmark
+  @OperationsPerInvocation(KMAX_BLOCKS * EventData.KMAX_BLOCK_EVENTS)
+  public int decodeKmax6() throws EventException {
+    kmax.setInputStream(new ByteArrayInputStream(kmaxBlocks));
+    int events = 0;
+    while (kmax.readBlock(kmaxBlock) != EventInputStatus.END_FILE) {
+      events += kmaxBlock.size();
+    }
+    return events;
+  }
+
+  private static boolean continues(final EventInputStatus status) {
+    return status == EventInputStatus.EVENT
+        || status == EventInputStatus.SCALER_VALUE
+        || status == EventInputStatus.IGNORE
+        || status == EventInputStatus.END_BUFFER
+        || status == EventInputStatus.UNKNOWN_WORD;
+  }
+}
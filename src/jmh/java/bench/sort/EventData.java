@@ -0,0 +1,135 @@
+package bench.sort;
+
+import jam.sort.RingBuffer;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Synthetic and sample event data for the benchmarks, built once per trial.
+ *
+ * @author Dale Visser
+ */
+final class EventData {
+
+  /** Parameters per event in the L002 data. */
+  static final int L002_EVENT_SIZE = 16;
+
+  /** Parameters per event in the Kmax data. */
+  static final int KMAX_EVENT_SIZE = 8;
+
+  /** Kmax events per block. */
+  static final int KMAX_BLOCK_EVENTS = 64;
+
+  private static final String YALE_CAEN_SAMPLE = "test/sort/YaleCAENTestData.evn";
+
+  /* held so the level set isn't lost if the logger is collected */
+  private static final Logger STREAM_LOGGER = Logger.getLogger("jam.sort.stream");
+
+  private EventData() {
+    super();
+  }
+
+  /**
+   * Fills a ring-sized buffer with L002 events, each with a few parameters set, and scaler
+   * values now and then, ending it as the front end does.
+   *
+   * @return one buffer of L002 data
+   */
+  static byte[] createL002Buffer() {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream(RingBuffer.BUFFER_SIZE);
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      /* each event is 4 parameters of 2 words, and an end of event word */
+      final int eventBytes = (4 * 2 + 1) * Short.BYTES;
+      final int room = RingBuffer.BUFFER_SIZE - 2 * Short.BYTES - Short.BYTES - Integer.BYTES;
+      for (int i = 0; bytes.size() + eventBytes <= room; i++) {
+        for (int param = 0; param < 4; param++) {
+          out.writeShort(0x8000 + 1 + (i + 3 * param) % L002_EVENT_SIZE);
+          out.writeShort((i * 37 + param * 101) & 0xFFF);
+        }
+        out.writeShort(0xFFFF);
+        if (i % 100 == 99) {
+          out.writeShort(0x8801); // scaler
+          out.writeInt(i);
+        }
+      }
+      out.writeShort(0xFFF0); // end of buffer
+      out.flush();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return Arrays.copyOf(bytes.toByteArray(), RingBuffer.BUFFER_SIZE);
+  }
+
+  /**
+   * Creates a Kmax 6 header giving the size of type 5 events.
+   *
+   * @return the header
+   */
+  static byte[] createKmaxHeader() {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      out.write(new byte[354]);
+      for (int type = 1; type <= 5; type++) {
+        out.writeShort(type == 5 ? KMAX_EVENT_SIZE : 2);
+      }
+      out.write(new byte[54 + 316]);
+      out.flush();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Creates a number of Kmax 6 blocks of type 5 events.
+   *
+   * @param blocks number of blocks
+   * @return the blocks
+   */
+  static byte[] createKmaxBlocks(final int blocks) {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      for (int block = 0; block < blocks; block++) {
+        out.writeInt(5); // event type
+        out.writeInt(KMAX_BLOCK_EVENTS);
+        for (int i = 0; i < KMAX_BLOCK_EVENTS * KMAX_EVENT_SIZE; i++) {
+          out.writeInt((block * 31 + i * 7) & 0xFFF);
+        }
+      }
+      out.flush();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Stops the event streams logging the end of every run, which would swamp the benchmark output.
+   */
+  static void quietStreams() {
+    STREAM_LOGGER.setLevel(Level.WARNING);
+  }
+
+  /**
+   * Reads the sample YaleCAEN event file from the test resources.
+   *
+   * @return the whole file, header included
+   */
+  static byte[] readYaleCAENSample() {
+    try (InputStream input =
+        EventData.class.getClassLoader().getResourceAsStream(YALE_CAEN_SAMPLE)) {
+      if (input == null) {
+        throw new IllegalStateException("Missing test resource " + YALE_CAEN_SAMPLE);
+      }
+      return input.readAllBytes();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
@@ -0,0 +1,138 @@
+package bench.sort;
+
+import jam.sort.LinkedBlockingDequeRingBuffer;
+import jam.sort.LockFreeRingBuffer;
+import jam.sort.RingBuffer;
+import jam.sort.RingBufferFactory;
+import jam.sort.SimpleRingBuffer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the buffer throughput of each <code>RingBuffer</code> implementation, both with one
+ * thread putting and getting in turn, and with a producer and consumer thread as online. In the
+ * <code>handoff</code> group, a put into a full ring or a get from an empty one still counts as an
+ * operation, so read the <code>puts</code> and <code>gets</code> counters, which count only buffers
+ * actually transferred, rather than its primary score.
+ *
+ * @author Dale Visser
+ * @see test.sort.RingBufferTest
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RingBufferBenchmark {
+
+  /** Simple name of the implementation to measure. */
+  @Param({"SimpleRingBuffer", "LinkedBlockingDequeRingBuffer", "LockFreeRingBuffer"})
+  public String implementation;
+
+  private final transient RingBufferFactory factory = new RingBufferFactory();
+
+  private transient RingBuffer ring;
+
+  private transient byte[] putBuffer;
+
+  private transient byte[] getBuffer;
+
+  /** Creates an empty ring of the configured implementation. */
+  @Setup(Level.Iteration)
+  public void setup() {
+    final Class<? extends RingBuffer> ringClass;
+    if ("SimpleRingBuffer".equals(implementation)) {
+      ringClass = SimpleRingBuffer.class;
+    } else if ("LinkedBlockingDequeRingBuffer".equals(implementation)) {
+      ringClass = LinkedBlockingDequeRingBuffer.class;
+    } else {
+      ringClass = LockFreeRingBuffer.class;
+    }
+    ring = factory.create(ringClass, false);
+    putBuffer = factory.freshBuffer();
+    getBuffer = factory.freshBuffer();
+  }
+
+  /**
+   * Puts a buffer and gets it back on the same thread.
+   *
+   * @return the buffer gotten
+   * @throws InterruptedException never, since the ring isn't empty
+   */
+  @Benchmark
+  @Group("roundTrip")
+  public byte[] putThenGet() throws InterruptedException {
+    ring.tryPutBuffer(putBuffer);
+    ring.getBuffer(getBuffer);
+    return getBuffer;
+  }
+
+  /**
+   * Puts a buffer, if there's room, as <code>NetDaemon</code> does.
+   *
+   * @param transfers counts the buffers put
+   */
+  @Benchmark
+  @Group("handoff")
+  @GroupThreads(1)
+  public void put(final Transfers transfers) {
+    if (ring.tryPutBuffer(putBuffer)) {
+      transfers.puts++;
+    }
+  }
+
+  /**
+   * Gets a buffer, if there is one, as <code>SortDaemon</code> does. Checking first keeps the
+   * consumer from blocking when the iteration ends.
+   *
+   * @param transfers counts the buffers gotten
+   * @return the buffer gotten, or <code>null</code> if the ring was empty
+   * @throws InterruptedException never, since the ring isn't empty
+   */
+  @Benchmark
+  @Group("handoff")
+  @GroupThreads(1)
+  public byte[] get(final Transfers transfers) throws InterruptedException {
+    byte[] rval = null;
+    if (!ring.isEmpty()) {
+      ring.getBuffer(getBuffer);
+      transfers.gets++;
+      rval = getBuffer;
+    }
+    return rval;
+  }
+
+  /** Counts the buffers each thread of the <code>handoff</code> group actually moves. */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  public static class Transfers {
+
+    /** buffers put into the ring */
+    public long puts; // NOPMD
+
+    /** buffers gotten from the ring */
+    public long gets; // NOPMD
+
+    /** Zeroes the counts before each iteration. */
+    @Setup(Level.Iteration)
+    public void reset() {
+      puts = 0L;
+      gets = 0L;
+    }
+  }
+}
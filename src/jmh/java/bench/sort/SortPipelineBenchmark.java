@@ -0,0 +1,121 @@
+package bench.sort;
+
+import help.sortfiles.YaleCAENTestSortRoutine;
+import jam.data.DataBase;
+import jam.data.EventBlock;
+import jam.data.Factory;
+import jam.data.Group;
+import jam.data.Warehouse;
+import jam.sort.RingBuffer;
+import jam.sort.RingBufferFactory;
+import jam.sort.stream.YaleCAEN_InputStream;
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the whole online sorting path for the sample YaleCAEN data: each buffer is put in the
+ * sorting ring, taken out, decoded into an <code>EventBlock</code> and sorted by <code>
+ * YaleCAENTestSortRoutine</code>, as <code>SortDaemon</code> does with every buffer received.
+ * <code>SortDaemon</code> itself isn't run, since it loops until acquisition stops and reports to
+ * the GUI; this composes the same steps, without sampling. Scores are in events per second.
+ *
+ * @author Dale Visser
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SortPipelineBenchmark {
+
+  /* events in the sample data */
+  private static final int EVENTS = 302;
+
+  private transient byte[][] buffers;
+
+  private transient byte[] sortBuffer;
+
+  private transient RingBuffer ring;
+
+  private transient YaleCAEN_InputStream stream;
+
+  private transient EventBlock block;
+
+  private transient YaleCAENTestSortRoutine routine;
+
+  /**
+   * Creates the sort group and routine, and splits the sample data into ring buffers.
+   *
+   * @throws Exception if the sort routine fails to initialize or the header isn't valid
+   */
+  @Setup(Level.Trial)
+  public void setup() throws Exception { // NOPMD
+    Warehouse.getGroupCollection().clear();
+    Factory.createGroup(
+        Group.parseSortClassName(YaleCAENTestSortRoutine.class.getName()), Group.Type.SORT);
+    routine = new YaleCAENTestSortRoutine();
+    routine.initialize();
+    EventData.quietStreams();
+    final byte[] sample = EventData.readYaleCAENSample();
+    final int eventSize = YaleCAEN_InputStream.ZEROS.length;
+    stream = new YaleCAEN_InputStream(true, eventSize);
+    final ByteArrayInputStream header = new ByteArrayInputStream(sample);
+    stream.setInputStream(header);
+    if (!stream.readHeader()) {
+      throw new IllegalStateException("Sample YaleCAEN data has no valid header.");
+    }
+    final int start = sample.length - header.available();
+    final int count = (sample.length - start) / RingBuffer.BUFFER_SIZE;
+    buffers = new byte[count][];
+    for (int i = 0; i < count; i++) {
+      final int from = start + i * RingBuffer.BUFFER_SIZE;
+      buffers[i] = Arrays.copyOfRange(sample, from, from + RingBuffer.BUFFER_SIZE);
+    }
+    final RingBufferFactory factory = new RingBufferFactory();
+    ring = factory.create();
+    sortBuffer = factory.freshBuffer();
+    block = new EventBlock(eventSize);
+  }
+
+  /** Removes the sort group and its histograms. */
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    DataBase.getInstance().clearAllLists();
+  }
+
+  /**
+   * Passes every buffer of the sample data through the ring, decoder and sort routine.
+   *
+   * @return the number of events sorted
+   * @throws Exception if decoding or sorting fails
+   */
+  @Benchmark
+  @OperationsPerInvocation(EVENTS)
+  public int sortBuffers() throws Exception { // NOPMD
+    int sorted = 0;
+    for (byte[] buffer : buffers) {
+      ring.tryPutBuffer(buffer);
+      ring.getBuffer(sortBuffer);
+      stream.readBlock(ByteBuffer.wrap(sortBuffer), block);
+      routine.sortBlock(block);
+      sorted += block.size();
+    }
+    return sorted;
+  }
+}
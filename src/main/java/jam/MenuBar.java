@@ -102,6 +102,9 @@ final class MenuBar implements PropertyChangeListener {
         this.commandManager.createMenu(
             "Save Special",
             CommandNames.SAVE_SORT,
+            CommandNames.SAVE_SNAPSHOT,
+            CommandNames.COMPACT_SNAPSHOTS,
+            CommandNames.AUTOSAVE,
             CommandNames.SAVE_GROUP,
             CommandNames.SAVE_HISTOGRAMS,
             CommandNames.SAVE_GATES);
@@ -199,11 +202,15 @@ final class MenuBar implements PropertyChangeListener {
     mPrefer.add(this.commandManager.getMenuItem(PlotPreferences.ENABLE_SCROLLING));
     mPrefer.add(this.commandManager.getMenuItem(PlotPreferences.DISPLAY_LABELS));
     mPrefer.add(this.commandManager.getMenuItem(PlotPreferences.BLACK_BACKGROUND));
+    mPrefer.add(this.commandManager.getMenuItem(PlotPreferences.LIVE_VIEW));
+    mPrefer.add(this.commandManager.getMenuItem(PlotPreferences.LIVE_VIEW_RATE));
     mPrefer.addSeparator();
     mPrefer.add(this.commandManager.getMenuItem(PlotPreferences.AUTO_PEAK_FIND));
     mPrefer.add(this.commandManager.getMenuItem(CommandNames.SHOW_PEAK_FIND));
     mPrefer.addSeparator();
     mPrefer.add(this.commandManager.getMenuItem(HDFPrefs.SUPPRESS_EMPTY));
+    mPrefer.add(this.commandManager.getMenuItem(HDFPrefs.MAP_ON_OPEN));
+    mPrefer.add(this.commandManager.getMenuItem(HDFPrefs.COMPRESS));
     mPrefer.addSeparator();
     mPrefer.add(this.commandManager.getMenuItem(CommunicationPreferences.VERBOSE));
     mPrefer.add(this.commandManager.getMenuItem(CommunicationPreferences.DEBUG));
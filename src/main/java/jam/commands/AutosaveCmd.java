@@ -0,0 +1,159 @@
+package jam.commands;
+
+import com.google.inject.Inject;
+import jam.global.BroadcastEvent;
+import jam.global.JamStatus;
+import jam.global.QuerySortMode;
+import jam.global.SortMode;
+import jam.io.hdf.HDFAutosave;
+import jam.io.hdf.HDFIO;
+import jam.io.hdf.HDFPrefs;
+import jam.io.hdf.HDFileFilter;
+import jam.util.FileUtilities;
+import java.awt.Frame;
+import java.awt.GridLayout;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.io.File;
+import java.util.prefs.Preferences;
+import javax.swing.JFileChooser;
+import javax.swing.JLabel;
+import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.JSpinner;
+import javax.swing.SpinnerNumberModel;
+
+/**
+ * Command to start or stop periodically saving the sort group. Starting asks for the file to save
+ * to, the minutes between saves and the number of files to keep. Autosaving stops when sorting
+ * does.
+ *
+ * @author Dale Visser
+ * @see HDFAutosave
+ */
+final class AutosaveCmd extends AbstractCommand implements PropertyChangeListener {
+
+  private static final Preferences PREFS = HDFPrefs.PREFS;
+
+  private final transient Frame frame;
+  private final transient JamStatus status;
+  private final transient HDFAutosave autosave;
+  private final transient FileUtilities fileUtilities;
+
+  @Inject
+  AutosaveCmd(
+      final Frame frame,
+      final JamStatus status,
+      final HDFAutosave autosave,
+      final FileUtilities fileUtilities) {
+    super("Autosave Sort Group\u2026");
+    this.frame = frame;
+    this.status = status;
+    this.autosave = autosave;
+    this.fileUtilities = fileUtilities;
+    putValue(SHORT_DESCRIPTION, "Periodically save the sort group while sorting.");
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see jam.commands.AbstractCommand#execute(java.lang.Object[])
+   */
+  @Override
+  protected void execute(final Object[] cmdParams) {
+    if (cmdParams != null && cmdParams.length == 3) {
+      start((File) cmdParams[0], (Integer) cmdParams[1], (Integer) cmdParams[2]);
+    } else if (autosave.isRunning()) {
+      final int option =
+          JOptionPane.showConfirmDialog(
+              frame,
+              "Stop autosaving to " + autosave.getFile().getName() + "?",
+              "Autosave",
+              JOptionPane.YES_NO_OPTION);
+      if (option == JOptionPane.YES_OPTION) {
+        autosave.stop();
+      }
+    } else {
+      askAndStart();
+    }
+  }
+
+  private void askAndStart() {
+    final File previous = autosave.getFile();
+    final JFileChooser jfile =
+        new JFileChooser(previous == null ? HDFIO.getLastValidFile() : previous);
+    jfile.setFileFilter(new HDFileFilter(true));
+    final int option = jfile.showSaveDialog(frame);
+    /* don't do anything if it was cancel */
+    if (option == JFileChooser.APPROVE_OPTION && jfile.getSelectedFile() != null) {
+      final File file =
+          fileUtilities.changeExtension(
+              jfile.getSelectedFile().getAbsoluteFile(), "hdf", FileUtilities.APPEND_ONLY);
+      final JSpinner minutes =
+          new JSpinner(
+              new SpinnerNumberModel(PREFS.getInt(HDFPrefs.AUTOSAVE_MINUTES, 15), 1, null, 1));
+      final JSpinner keep =
+          new JSpinner(new SpinnerNumberModel(PREFS.getInt(HDFPrefs.AUTOSAVE_KEEP, 3), 1, 99, 1));
+      final JPanel panel = new JPanel(new GridLayout(0, 2, 5, 5));
+      panel.add(new JLabel("Minutes between saves"));
+      panel.add(minutes);
+      panel.add(new JLabel("Files to keep"));
+      panel.add(keep);
+      final int settings =
+          JOptionPane.showConfirmDialog(
+              frame, panel, "Autosave to " + file.getName(), JOptionPane.OK_CANCEL_OPTION);
+      if (settings == JOptionPane.OK_OPTION && fileUtilities.overWriteExistsConfirm(file)) {
+        start(file, (Integer) minutes.getValue(), (Integer) keep.getValue());
+      }
+    }
+  }
+
+  private void start(final File file, final int minutes, final int keep) {
+    if (!isSorting()) {
+      throw new IllegalStateException("Need to be in a sort mode to autosave sort group.");
+    }
+    PREFS.putInt(HDFPrefs.AUTOSAVE_MINUTES, minutes);
+    PREFS.putInt(HDFPrefs.AUTOSAVE_KEEP, keep);
+    autosave.start(file, minutes, keep);
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see jam.commands.AbstractCommand#executeParse(java.lang.String[])
+   */
+  @Override
+  protected void executeParse(final String[] cmdTokens) {
+    if (cmdTokens.length == 0) {
+      execute(null);
+    } else if ("off".equalsIgnoreCase(cmdTokens[0])) {
+      autosave.stop();
+    } else {
+      final int minutes =
+          cmdTokens.length > 1
+              ? Integer.parseInt(cmdTokens[1])
+              : PREFS.getInt(HDFPrefs.AUTOSAVE_MINUTES, 15);
+      final int keep =
+          cmdTokens.length > 2
+              ? Integer.parseInt(cmdTokens[2])
+              : PREFS.getInt(HDFPrefs.AUTOSAVE_KEEP, 3);
+      execute(new Object[] {new File(cmdTokens[0]), minutes, keep});
+    }
+  }
+
+  @Override
+  public void propertyChange(final PropertyChangeEvent evt) {
+    if (((BroadcastEvent) evt).getCommand() == BroadcastEvent.Command.SORT_MODE_CHANGED) {
+      final boolean sorting = isSorting();
+      if (!sorting) {
+        autosave.stop();
+      }
+      setEnabled(sorting);
+    }
+  }
+
+  private boolean isSorting() {
+    final QuerySortMode mode = this.status.getSortMode();
+    return mode == SortMode.OFFLINE || mode == SortMode.ONLINE_DISK || mode == SortMode.ON_NO_DISK;
+  }
+}
@@ -116,6 +116,15 @@ public final class CommandNames {
   /** Save sort hdf histograms */
   public static final String SAVE_SORT = "savesort";
 
+  /** Save what changed in the sort group since the last snapshot */
+  public static final String SAVE_SNAPSHOT = "savesnapshot";
+
+  /** Fold delta snapshots into a full snapshot */
+  public static final String COMPACT_SNAPSHOTS = "compactsnapshots";
+
+  /** Periodically save the sort group */
+  public static final String AUTOSAVE = "autosave";
+
   /** Read or zero scalers. */
   public static final String SCALERS = "scalers";
 
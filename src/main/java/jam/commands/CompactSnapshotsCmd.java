@@ -0,0 +1,132 @@
+package jam.commands;
+
+import com.google.inject.Inject;
+import jam.data.AbstractHistogram;
+import jam.data.DataBase;
+import jam.data.Group;
+import jam.data.Warehouse;
+import jam.data.control.AbstractControl;
+import jam.global.BroadcastEvent;
+import jam.global.Broadcaster;
+import jam.global.JamStatus;
+import jam.global.QuerySortMode;
+import jam.global.SortMode;
+import jam.io.hdf.HDFIO;
+import jam.io.hdf.HDFSnapshots;
+import jam.io.hdf.HDFileFilter;
+import jam.ui.SelectionTree;
+import java.awt.Frame;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.io.File;
+import java.util.List;
+import javax.swing.JFileChooser;
+
+/**
+ * Command to fold the delta snapshots of a full snapshot into it. The result is left open, as if
+ * the compacted file had been opened.
+ *
+ * @author Dale Visser
+ * @see HDFSnapshots#compact(File, HDFIO.AsyncListener)
+ */
+final class CompactSnapshotsCmd extends AbstractCommand
+    implements PropertyChangeListener, HDFIO.AsyncListener {
+
+  private transient File openFile = null;
+
+  private final transient Frame frame;
+
+  private final transient JamStatus status;
+
+  private final transient HDFSnapshots snapshots;
+
+  private final transient Broadcaster broadcaster;
+
+  @Inject
+  CompactSnapshotsCmd(
+      final Frame frame,
+      final JamStatus status,
+      final HDFSnapshots snapshots,
+      final Broadcaster broadcaster) {
+    super("Compact snapshots\u2026");
+    this.frame = frame;
+    this.status = status;
+    this.snapshots = snapshots;
+    this.broadcaster = broadcaster;
+    putValue(
+        SHORT_DESCRIPTION, "Fold the delta snapshots of a sort group snapshot into a full file.");
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see jam.commands.AbstractCommand#execute(java.lang.Object[])
+   */
+  @Override
+  protected void execute(final Object[] cmdParams) {
+    File file = null;
+    if (cmdParams != null && cmdParams.length > 0) {
+      file = (File) cmdParams[0];
+    }
+    if (file == null) { // No file given
+      final JFileChooser fileChooser = new JFileChooser(HDFIO.getLastValidFile());
+      fileChooser.setFileFilter(new HDFileFilter(true));
+      final int option = fileChooser.showOpenDialog(frame);
+      // Don't do anything if it was cancel
+      if (option == JFileChooser.APPROVE_OPTION && fileChooser.getSelectedFile() != null) {
+        file = fileChooser.getSelectedFile();
+      }
+    }
+    if (file != null) {
+      openFile = file;
+      DataBase.getInstance().clearAllLists();
+      this.broadcaster.broadcast(BroadcastEvent.Command.HISTOGRAM_NEW);
+      snapshots.compact(file, this);
+    }
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see jam.commands.AbstractCommand#executeParse(java.lang.String[])
+   */
+  @Override
+  protected void executeParse(final String[] cmdTokens) {
+    if (cmdTokens.length == 0) {
+      execute(null);
+    } else {
+      execute(new Object[] {new File(cmdTokens[0])});
+    }
+  }
+
+  /** Called when compaction is completed. */
+  public void completedIO(final String message, final String errorMessage) {
+    status.setOpenFile(openFile);
+    openFile = null;
+    AbstractControl.setupAll();
+    this.broadcaster.broadcast(BroadcastEvent.Command.HISTOGRAM_ADD);
+    AbstractHistogram firstHist = null;
+    final List<Group> groups = Warehouse.getGroupCollection().getList();
+    if (!groups.isEmpty()) {
+      final Group firstGroup = groups.get(0);
+      status.setCurrentGroup(firstGroup);
+      if (!firstGroup.histograms.getList().isEmpty()) {
+        firstHist = firstGroup.histograms.getList().get(0);
+        SelectionTree.setCurrentHistogram(firstHist);
+      }
+    }
+    this.broadcaster.broadcast(BroadcastEvent.Command.HISTOGRAM_SELECT, firstHist);
+  }
+
+  @Override
+  public void propertyChange(PropertyChangeEvent evt) {
+    if (((BroadcastEvent) evt).getCommand() == BroadcastEvent.Command.SORT_MODE_CHANGED) {
+      enable();
+    }
+  }
+
+  private void enable() {
+    final QuerySortMode mode = status.getSortMode();
+    setEnabled(mode == SortMode.FILE || mode == SortMode.NO_SORT);
+  }
+}
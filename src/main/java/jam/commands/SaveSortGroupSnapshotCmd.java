@@ -0,0 +1,128 @@
+package jam.commands;
+
+import com.google.inject.Inject;
+import jam.data.Group;
+import jam.data.Warehouse;
+import jam.global.BroadcastEvent;
+import jam.global.JamStatus;
+import jam.global.QuerySortMode;
+import jam.global.SortMode;
+import jam.io.hdf.HDFIO;
+import jam.io.hdf.HDFSnapshots;
+import jam.io.hdf.HDFileFilter;
+import jam.util.FileUtilities;
+import java.awt.Frame;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.io.File;
+import javax.swing.JFileChooser;
+
+/**
+ * Command to save a snapshot of the sort group. The first snapshot asks for a file, and writes the
+ * whole group to it. Later ones write only what changed since to a delta file beside it.
+ *
+ * @author Dale Visser
+ * @see HDFSnapshots
+ */
+final class SaveSortGroupSnapshotCmd extends AbstractCommand implements PropertyChangeListener {
+
+  private final transient Frame frame;
+  private final transient JamStatus status;
+  private final transient HDFSnapshots snapshots;
+  private final transient FileUtilities fileUtilities;
+
+  @Inject
+  SaveSortGroupSnapshotCmd(
+      final Frame frame,
+      final JamStatus status,
+      final HDFSnapshots snapshots,
+      final FileUtilities fileUtilities) {
+    super("Save sort group snapshot");
+    this.frame = frame;
+    this.status = status;
+    this.snapshots = snapshots;
+    this.fileUtilities = fileUtilities;
+    putValue(
+        SHORT_DESCRIPTION,
+        "Save the sort group, writing only what changed since the last snapshot.");
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see jam.commands.AbstractCommand#execute(java.lang.Object[])
+   */
+  @Override
+  protected void execute(final Object[] cmdParams) {
+    File file = null;
+    if (cmdParams != null && cmdParams.length > 0) {
+      file = (File) cmdParams[0];
+    }
+    saveSnapshot(file);
+  }
+
+  private void saveSnapshot(final File file) {
+    final QuerySortMode mode = this.status.getSortMode();
+    if (mode == SortMode.ONLINE_DISK || mode == SortMode.ON_NO_DISK || mode == SortMode.OFFLINE) {
+      final Group sortGroup = Warehouse.getSortGroupGetter().getSortGroup();
+      if (sortGroup != null) {
+        File base = file == null ? snapshots.getBase() : withExtension(file);
+        if (base == null) { // No chain started
+          final JFileChooser jfile = new JFileChooser(HDFIO.getLastValidFile());
+          jfile.setFileFilter(new HDFileFilter(true));
+          final int option = jfile.showSaveDialog(frame);
+          /* don't do anything if it was cancel */
+          if (option == JFileChooser.APPROVE_OPTION && jfile.getSelectedFile() != null) {
+            base = withExtension(jfile.getSelectedFile());
+            if (!fileUtilities.overWriteExistsConfirm(base)) {
+              base = null; // NOPMD
+            }
+          }
+        }
+        if (base != null) {
+          snapshots.writeSnapshot(
+              base,
+              sortGroup,
+              (message, errorMessage) -> {
+                if (errorMessage.length() > 0) {
+                  LOGGER.severe(errorMessage);
+                }
+              });
+        }
+      }
+    } else { // No sort group
+      throw new IllegalStateException("Need to be in a sort mode to save sort group.");
+    }
+  }
+
+  private File withExtension(final File file) {
+    return fileUtilities.changeExtension(file.getAbsoluteFile(), "hdf", FileUtilities.APPEND_ONLY);
+  }
+
+  /*
+   * (non-Javadoc)
+   *
+   * @see jam.commands.AbstractCommand#executeParse(java.lang.String[])
+   */
+  @Override
+  protected void executeParse(final String[] cmdTokens) {
+    if (cmdTokens.length == 0) {
+      execute(null);
+    } else {
+      execute(new Object[] {new File(cmdTokens[0])});
+    }
+  }
+
+  @Override
+  public void propertyChange(PropertyChangeEvent evt) {
+    if (((BroadcastEvent) evt).getCommand() == BroadcastEvent.Command.SORT_MODE_CHANGED) {
+      enable();
+    }
+  }
+
+  private void enable() {
+    final QuerySortMode mode = this.status.getSortMode();
+    setEnabled(
+        mode == SortMode.OFFLINE || mode == SortMode.ONLINE_DISK || mode == SortMode.ON_NO_DISK);
+  }
+}
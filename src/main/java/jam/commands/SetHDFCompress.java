@@ -0,0 +1,22 @@
+package jam.commands;
+
+import jam.io.hdf.HDFPrefs;
+
+/**
+ * Whether histogram counts are compressed when saving HDF files.
+ *
+ * @author Dale Visser
+ */
+final class SetHDFCompress extends AbstractSetBooleanPreference {
+
+  SetHDFCompress() {
+    super();
+    putValue(NAME, "Compress histograms when saving");
+    putValue(
+        SHORT_DESCRIPTION,
+        "Deflate the counts of histograms written to HDF files, where it makes them smaller.");
+    preferencesNode = HDFPrefs.PREFS;
+    key = HDFPrefs.COMPRESS;
+    defaultState = false;
+  }
+}
@@ -0,0 +1,22 @@
+package jam.commands;
+
+import jam.io.hdf.HDFPrefs;
+
+/**
+ * Whether histograms opened from HDF files are read only when first viewed.
+ *
+ * @author Dale Visser
+ */
+final class SetHDFMapOnOpen extends AbstractSetBooleanPreference {
+
+  SetHDFMapOnOpen() {
+    super();
+    putValue(NAME, "Read histograms from files when first viewed");
+    putValue(
+        SHORT_DESCRIPTION,
+        "Map opened HDF files into memory, and read each histogram's counts only when needed.");
+    preferencesNode = HDFPrefs.PREFS;
+    key = HDFPrefs.MAP_ON_OPEN;
+    defaultState = false;
+  }
+}
@@ -0,0 +1,22 @@
+package jam.commands;
+
+import jam.plot.PlotPreferences;
+
+/**
+ * Turns live view on or off. While on, displayed histograms are redrawn as their counts change,
+ * e.g., while sorting.
+ *
+ * @author Dale Visser
+ * @see SetLiveViewRate
+ */
+final class SetLiveView extends AbstractSetBooleanPreference {
+
+  SetLiveView() {
+    super();
+    putValue(NAME, "Live View");
+    putValue(SHORT_DESCRIPTION, "Redraw displayed histograms as their counts change.");
+    preferencesNode = PlotPreferences.PREFS;
+    key = PlotPreferences.LIVE_VIEW;
+    defaultState = false;
+  }
+}
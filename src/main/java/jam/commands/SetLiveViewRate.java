@@ -0,0 +1,72 @@
+package jam.commands;
+
+import com.google.inject.Inject;
+import jam.global.CommandListenerException;
+import jam.plot.PlotPreferences;
+import java.awt.Frame;
+import java.util.prefs.Preferences;
+import javax.swing.JOptionPane;
+import javax.swing.JSpinner;
+import javax.swing.SpinnerNumberModel;
+
+/**
+ * Sets the most times per second live view redraws displayed histograms. Asks for the rate, unless
+ * given one.
+ *
+ * @author Dale Visser
+ * @see SetLiveView
+ */
+final class SetLiveViewRate extends AbstractCommand {
+
+  private static final Preferences PREFS = PlotPreferences.PREFS;
+
+  private static final int MAX_RATE = 30;
+
+  private final transient Frame frame;
+
+  @Inject
+  SetLiveViewRate(final Frame frame) {
+    super("Live View Rate\u2026");
+    this.frame = frame;
+    putValue(SHORT_DESCRIPTION, "Set the most times per second live view redraws histograms.");
+  }
+
+  @Override
+  protected void execute(final Object[] cmdParams) {
+    if (cmdParams != null && cmdParams.length > 0 && cmdParams[0] instanceof Integer) {
+      setRate((Integer) cmdParams[0]);
+    } else {
+      final int rate =
+          PREFS.getInt(PlotPreferences.LIVE_VIEW_RATE, PlotPreferences.DEFAULT_LIVE_VIEW_RATE);
+      final JSpinner spinner =
+          new JSpinner(new SpinnerNumberModel(Math.min(MAX_RATE, rate), 1, MAX_RATE, 1));
+      final int option =
+          JOptionPane.showConfirmDialog(
+              frame, spinner, "Live view frames per second", JOptionPane.OK_CANCEL_OPTION);
+      if (option == JOptionPane.OK_OPTION) {
+        setRate((Integer) spinner.getValue());
+      }
+    }
+  }
+
+  private void setRate(final int rate) {
+    if (rate < 1 || rate > MAX_RATE) {
+      throw new IllegalArgumentException(
+          "Live view rate must be from 1 to " + MAX_RATE + " frames per second.");
+    }
+    PREFS.putInt(PlotPreferences.LIVE_VIEW_RATE, rate);
+  }
+
+  @Override
+  protected void executeParse(final String[] cmdTokens) throws CommandListenerException {
+    if (cmdTokens.length == 0) {
+      execute(null);
+    } else {
+      try {
+        execute(new Object[] {Integer.valueOf(cmdTokens[0])});
+      } catch (NumberFormatException nfe) {
+        throw new CommandListenerException("Live view rate must be a whole number.", nfe);
+      }
+    }
+  }
+}
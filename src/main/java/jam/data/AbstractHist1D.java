@@ -133,6 +133,7 @@ public abstract class AbstractHist1D extends AbstractHistogram {
       System.arraycopy(errs, 0, errors, 0, max);
       errorsSet = true;
     }
+    markChanged();
   }
 
   /**
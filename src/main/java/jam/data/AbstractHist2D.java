@@ -10,6 +10,9 @@ package jam.data;
  */
 public abstract class AbstractHist2D extends AbstractHistogram {
 
+  /** downsampled counts, created when first asked for */
+  private transient CountsPyramid pyramid;
+
   /**
    * Called by implementing subclasses.
    *
@@ -47,4 +50,36 @@ public abstract class AbstractHist2D extends AbstractHistogram {
    * @param counts to be in the channel, rounded to <code>int</code>, if necessary
    */
   public abstract void setCounts(int chX, int chY, double counts);
+
+  /**
+   * Copies the counts into the given array of rows, without allocating a copy of the counts.
+   * Channels outside the given array's bounds are left out.
+   *
+   * @param dest array indexed by x-channel, then y-channel
+   */
+  public abstract void copyCounts(double[][] dest);
+
+  /**
+   * Copies the counts of one x-channel into the given array, without waiting on threads
+   * incrementing the histogram.
+   *
+   * @param chX x-channel to copy
+   * @param dest indexed by y-channel, at least <code>getSizeY()</code> long
+   */
+  abstract void copyRow(int chX, double[] dest);
+
+  /**
+   * Returns the downsampled counts of this histogram, which are kept up to date with the counts
+   * as they are asked for.
+   *
+   * @return the pyramid of downsampled counts
+   */
+  public final CountsPyramid getPyramid() {
+    synchronized (this) {
+      if (pyramid == null) {
+        pyramid = new CountsPyramid(this);
+      }
+      return pyramid;
+    }
+  }
 }
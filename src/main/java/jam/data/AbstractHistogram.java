@@ -11,6 +11,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 /**
  * Class containing spectra and the routines to perform operations on them.
@@ -50,6 +52,13 @@ public abstract class AbstractHistogram implements DataElement {
 
   private static final SortedMap<Integer, AbstractHistogram> NUMBER_MAP = new TreeMap<>();
 
+  /** advanced by each snapshot, so that histograms changed since then can be found */
+  private static final AtomicInteger CHANGE_EPOCH = new AtomicInteger(1);
+
+  /** raises <code>lastChange</code>, which must never go back to an earlier epoch */
+  private static final AtomicIntegerFieldUpdater<AbstractHistogram> LAST_CHANGE =
+      AtomicIntegerFieldUpdater.newUpdater(AbstractHistogram.class, "lastChange");
+
   /** default axis labels */
   private static final String X_LABEL = "Channels";
 
@@ -186,6 +195,12 @@ public abstract class AbstractHistogram implements DataElement {
   /** whether this histogram has been cleared to an unusable state */
   protected transient boolean clear = false;
 
+  /** where to read counts from when first needed, <code>null</code> once they have been read */
+  private transient volatile CountsSource deferred; // NOPMD
+
+  /** the change epoch in which counts, errors or gates were last changed */
+  private transient volatile int lastChange = CHANGE_EPOCH.get(); // NOPMD
+
   /** Name of group histogram belongs to */
   private transient String groupName;
 
@@ -320,6 +335,80 @@ public abstract class AbstractHistogram implements DataElement {
 
   protected abstract void clearCounts();
 
+  /**
+   * Has this histogram's counts read from the given source when they are first needed, instead of
+   * holding them now. Until then, the histogram holds no array of counts.
+   *
+   * @param source of the counts, or <code>null</code> to drop any counts not yet read
+   */
+  final void deferCounts(final CountsSource source) {
+    deferred = source;
+  }
+
+  /**
+   * @return where this histogram's counts will be read from, or <code>null</code> if they have
+   *     already been read
+   */
+  public final CountsSource getDeferredCounts() {
+    return deferred;
+  }
+
+  /**
+   * Reads this histogram's counts from their source now, if they haven't been read yet.
+   * Subclasses call this before touching their counts. Others may call it before making the
+   * source unreadable, e.g., by overwriting a file.
+   */
+  public final void loadDeferredCounts() {
+    if (deferred != null) {
+      synchronized (this) {
+        final CountsSource source = deferred;
+        if (source != null) {
+          installCounts(source.readCounts());
+          deferred = null;
+        }
+      }
+    }
+  }
+
+  /**
+   * Records that this histogram has changed, after the change has been made. The mark is only
+   * written the first time in each change epoch, so that threads incrementing the counts don't
+   * contend on it. It only ever moves forward, so that a thread which read an older epoch can't
+   * hide a change marked in a newer one.
+   */
+  protected final void markChanged() {
+    final int epoch = CHANGE_EPOCH.get();
+    if (lastChange < epoch) {
+      LAST_CHANGE.accumulateAndGet(this, epoch, Math::max);
+    }
+  }
+
+  /**
+   * Starts a new change epoch. Call just before reading histograms to save them, so that any change
+   * not included in what is read is marked with the new epoch.
+   *
+   * @return the new epoch, to pass to <code>changedSince()</code> at the next save
+   */
+  public static int startChangeEpoch() {
+    return CHANGE_EPOCH.incrementAndGet();
+  }
+
+  /**
+   * @param epoch as returned by <code>startChangeEpoch()</code>
+   * @return whether the counts, errors or gates have changed since the epoch started, or this
+   *     histogram was created since
+   */
+  public final boolean changedSince(final int epoch) {
+    return lastChange >= epoch;
+  }
+
+  /**
+   * Takes counts read from a deferred source as this histogram's own.
+   *
+   * @param counts as returned by <code>CountsSource.readCounts()</code>
+   */
+  protected abstract void installCounts(Object counts);
+
   private void clearInfo() {
     gates.clear();
     labelX = EMPTY_STRING;
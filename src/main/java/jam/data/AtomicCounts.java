@@ -0,0 +1,77 @@
+package jam.data;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Lock-free access to the elements of an <code>int[]</code> of counts, in the manner of <code>
+ * AtomicIntegerArray</code>, but on a plain array, so that the same array may still be copied in
+ * bulk or wrapped in a buffer. Incrementing threads add to channels atomically, and never wait on
+ * threads which are reading or flushing counts.
+ *
+ * <p>A snapshot taken while counts are being added sees, for each channel, a value the channel
+ * actually had at some moment during the copy, and nothing is ever lost or counted twice.
+ *
+ * @author Dale Visser
+ * @see HistInt1D
+ * @see HistInt2D
+ */
+final class AtomicCounts {
+
+  private static final VarHandle ELEMENTS = MethodHandles.arrayElementVarHandle(int[].class);
+
+  private AtomicCounts() {
+    super();
+  }
+
+  /**
+   * Atomically adds one to a channel.
+   *
+   * @param counts array of counts
+   * @param index of the channel
+   */
+  static void increment(final int[] counts, final int index) {
+    ELEMENTS.getAndAdd(counts, index, 1);
+  }
+
+  /**
+   * Atomically adds each of the given counts to the corresponding channel. Zero counts are skipped,
+   * so sparse additions touch only the channels they change.
+   *
+   * @param counts array of counts to add to
+   * @param offset index in <code>counts</code> of the channel to add <code>add[0]</code> to
+   * @param add counts to add
+   * @param length number of channels to add
+   */
+  static void addAll(final int[] counts, final int offset, final int[] add, final int length) {
+    for (int i = 0; i < length; i++) {
+      final int value = add[i];
+      if (value != 0) {
+        ELEMENTS.getAndAdd(counts, offset + i, value);
+      }
+    }
+  }
+
+  /**
+   * Reads a channel, seeing the latest atomic addition to it.
+   *
+   * @param counts array of counts
+   * @param index of the channel
+   * @return the count in the channel
+   */
+  static int get(final int[] counts, final int index) {
+    return (int) ELEMENTS.getAcquire(counts, index);
+  }
+
+  /**
+   * Copies counts without waiting on incrementing threads.
+   *
+   * @param counts array of counts
+   * @param dest array to copy into
+   * @param length number of channels to copy
+   */
+  static void snapshot(final int[] counts, final int[] dest, final int length) {
+    VarHandle.acquireFence();
+    System.arraycopy(counts, 0, dest, 0, length);
+  }
+}
@@ -0,0 +1,387 @@
+package jam.data;
+
+import java.util.Arrays;
+
+/**
+ * Downsampled summaries of the counts in a 2-d histogram, so that large histograms can be shown
+ * and measured without visiting every channel. Level <code>n</code> divides the channels into
+ * square tiles <code>2<sup>n</sup></code> channels on a side, and holds the minimum, maximum and
+ * sum of the counts in each tile. Level 0 is the channels themselves.
+ *
+ * <p>A level is built the first time it is asked for, and built again the next time it is asked
+ * for after the counts have changed. It is built from the nearest finer level still current, if
+ * any, and otherwise from the counts.
+ *
+ * @author Dale Visser
+ * @see AbstractHist2D#getPyramid()
+ */
+public final class CountsPyramid {
+
+  private final transient AbstractHist2D histogram;
+
+  /* built levels, indexed by level, null where not built yet */
+  private final transient Tiles[] levels;
+
+  CountsPyramid(final AbstractHist2D histogram) {
+    super();
+    this.histogram = histogram;
+    final int size = Math.max(histogram.getSizeX(), histogram.getSizeY());
+    levels = new Tiles[Integer.SIZE - Integer.numberOfLeadingZeros(Math.max(0, size - 1)) + 1];
+  }
+
+  /**
+   * Returns the coarsest level, at which one tile covers the whole histogram.
+   *
+   * @return the coarsest level
+   */
+  public int getTopLevel() {
+    return levels.length - 1;
+  }
+
+  /**
+   * Returns the tiles of the given level, building them first if they aren't current.
+   *
+   * @param level from 1 to <code>getTopLevel()</code>
+   * @return the tiles of the level
+   * @throws IllegalArgumentException if there is no such level
+   */
+  public Tiles getTiles(final int level) {
+    if (level < 1 || level > getTopLevel()) {
+      throw new IllegalArgumentException(
+          "Level " + level + " isn't between 1 and " + getTopLevel() + ".");
+    }
+    synchronized (levels) {
+      Tiles tiles = levels[level];
+      if (!isCurrent(tiles)) {
+        tiles = build(level);
+        levels[level] = tiles;
+      }
+      return tiles;
+    }
+  }
+
+  private boolean isCurrent(final Tiles tiles) {
+    return tiles != null && !histogram.changedSince(tiles.epoch);
+  }
+
+  private Tiles build(final int level) {
+    Tiles finer = null;
+    for (int lower = level - 1; finer == null && lower > 0; lower--) {
+      if (isCurrent(levels[lower])) {
+        finer = levels[lower];
+      }
+    }
+    final Tiles rval;
+    if (finer == null) {
+      /* counts changed from here on will mark the histogram as changed since */
+      rval = new Tiles(level, AbstractHistogram.startChangeEpoch());
+      rval.addCounts(histogram);
+    } else {
+      rval = new Tiles(level, finer.epoch);
+      rval.addTiles(finer);
+    }
+    return rval;
+  }
+
+  /**
+   * Summarizes the counts in a rectangle of channels, using the tiles of the given level that lie
+   * wholly inside it, and reading the rest of the channels from the histogram. The result is exact
+   * at any level; a level whose tiles are much smaller than the rectangle, but more than a few
+   * channels on a side, is fastest.
+   *
+   * @param level to use the tiles of, or 0 to read every channel
+   * @param minX lowest x-channel
+   * @param minY lowest y-channel
+   * @param maxX highest x-channel
+   * @param maxY highest y-channel
+   * @return the minimum, maximum and sum of the counts in the rectangle
+   */
+  public Summary summarize(
+      final int level, final int minX, final int minY, final int maxX, final int maxY) {
+    final int lowX = Math.max(0, minX);
+    final int lowY = Math.max(0, minY);
+    final int highX = Math.min(histogram.getSizeX() - 1, maxX);
+    final int highY = Math.min(histogram.getSizeY() - 1, maxY);
+    final Summary rval = new Summary();
+    /* range of tiles wholly inside, possibly empty */
+    final int firstX = (lowX + (1 << level) - 1) >> level;
+    final int firstY = (lowY + (1 << level) - 1) >> level;
+    final int lastX = ((highX + 1) >> level) - 1;
+    final int lastY = ((highY + 1) >> level) - 1;
+    if (level == 0 || firstX > lastX || firstY > lastY) {
+      rval.addChannels(histogram, lowX, lowY, highX, highY);
+    } else {
+      final Tiles tiles = getTiles(level);
+      for (int tileX = firstX; tileX <= lastX; tileX++) {
+        for (int tileY = firstY; tileY <= lastY; tileY++) {
+          rval.add(tiles.index(tileX, tileY), tiles);
+        }
+      }
+      /* the channels around the tiles: full-height strips left and right, then below and above */
+      final int insideLowX = firstX << level;
+      final int insideHighX = ((lastX + 1) << level) - 1;
+      rval.addChannels(histogram, lowX, lowY, insideLowX - 1, highY);
+      rval.addChannels(histogram, insideHighX + 1, lowY, highX, highY);
+      rval.addChannels(histogram, insideLowX, lowY, insideHighX, (firstY << level) - 1);
+      rval.addChannels(histogram, insideLowX, (lastY + 1) << level, insideHighX, highY);
+    }
+    return rval;
+  }
+
+  /**
+   * Summarizes the counts in a rectangle of channels, using whichever tiles are already current
+   * and small enough to help.
+   *
+   * @param minX lowest x-channel
+   * @param minY lowest y-channel
+   * @param maxX highest x-channel
+   * @param maxY highest y-channel
+   * @return the minimum, maximum and sum of the counts in the rectangle
+   * @see #summarize(int, int, int, int, int)
+   */
+  public Summary summarize(final int minX, final int minY, final int maxX, final int maxY) {
+    /* tiles no more than a quarter of the rectangle's shorter side */
+    final int side = Math.min(maxX - minX, maxY - minY) + 1;
+    int level = Math.min(getTopLevel(), Integer.SIZE - 1 - Integer.numberOfLeadingZeros(side) - 2);
+    synchronized (levels) {
+      while (level > 0 && !isCurrent(levels[level])) {
+        level--;
+      }
+    }
+    return summarize(Math.max(0, level), minX, minY, maxX, maxY);
+  }
+
+  /**
+   * Copies the maxima of a rectangle of tiles of the given level. The tiles of level 0 are the
+   * channels.
+   *
+   * @param level to copy from
+   * @param originX lowest x-tile to copy
+   * @param originY lowest y-tile to copy
+   * @param dest indexed by x-tile, then y-tile, counted from the origin; tiles beyond the edges of
+   *     the histogram are left alone
+   */
+  public void copyMaxima(
+      final int level, final int originX, final int originY, final double[][] dest) {
+    if (level == 0) {
+      final int sizeX = Math.min(dest.length, histogram.getSizeX() - originX);
+      for (int x = 0; x < sizeX; x++) {
+        final double[] row = dest[x];
+        final int sizeY = Math.min(row.length, histogram.getSizeY() - originY);
+        for (int y = 0; y < sizeY; y++) {
+          row[y] = histogram.getCounts(originX + x, originY + y);
+        }
+      }
+    } else {
+      final Tiles tiles = getTiles(level);
+      final int sizeX = Math.min(dest.length, tiles.sizeX - originX);
+      for (int x = 0; x < sizeX; x++) {
+        final double[] row = dest[x];
+        final int sizeY = Math.min(row.length, tiles.sizeY - originY);
+        for (int y = 0; y < sizeY; y++) {
+          row[y] = tiles.maximum[tiles.index(originX + x, originY + y)];
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns how many tiles of the given level span the given number of channels.
+   *
+   * @param level of the tiles
+   * @param channels number of channels
+   * @return the number of tiles
+   */
+  public static int tilesSpanning(final int level, final int channels) {
+    return channels <= 0 ? 0 : ((channels - 1) >> level) + 1;
+  }
+
+  /**
+   * The minimum, maximum and sum of the counts in each tile of one level, as they were when the
+   * level was built. Never changed after that.
+   */
+  public final class Tiles {
+
+    private final transient int level;
+
+    /* change epoch current when the counts were read */
+    private final transient int epoch;
+
+    private final transient int sizeX;
+
+    private final transient int sizeY;
+
+    /* row-major, indexed like the histogram's counts */
+    private final transient double[] minimum;
+
+    private final transient double[] maximum;
+
+    private final transient double[] sum;
+
+    Tiles(final int level, final int epoch) {
+      this.level = level;
+      this.epoch = epoch;
+      sizeX = tilesSpanning(level, histogram.getSizeX());
+      sizeY = tilesSpanning(level, histogram.getSizeY());
+      minimum = new double[sizeX * sizeY];
+      maximum = new double[minimum.length];
+      sum = new double[minimum.length];
+      Arrays.fill(minimum, Double.POSITIVE_INFINITY);
+      Arrays.fill(maximum, Double.NEGATIVE_INFINITY);
+    }
+
+    private int index(final int tileX, final int tileY) {
+      return tileX * sizeY + tileY;
+    }
+
+    private void addCounts(final AbstractHist2D source) {
+      final double[] row = new double[source.getSizeY()];
+      for (int x = 0; x < source.getSizeX(); x++) {
+        source.copyRow(x, row);
+        final int offset = (x >> level) * sizeY;
+        for (int tileY = 0; tileY < sizeY; tileY++) {
+          /* the row's run of channels in the tile, gathered before storing */
+          final int end = Math.min(row.length, (tileY + 1) << level);
+          double low = row[tileY << level];
+          double high = low;
+          double total = 0.0;
+          for (int y = tileY << level; y < end; y++) {
+            final double counts = row[y];
+            if (counts < low) {
+              low = counts;
+            } else if (counts > high) {
+              high = counts;
+            }
+            total += counts;
+          }
+          final int index = offset + tileY;
+          minimum[index] = Math.min(minimum[index], low);
+          maximum[index] = Math.max(maximum[index], high);
+          sum[index] += total;
+        }
+      }
+    }
+
+    private void addTiles(final Tiles finer) {
+      final int shift = level - finer.level;
+      for (int x = 0; x < finer.sizeX; x++) {
+        final int offset = (x >> shift) * sizeY;
+        for (int y = 0; y < finer.sizeY; y++) {
+          final int index = offset + (y >> shift);
+          final int from = finer.index(x, y);
+          minimum[index] = Math.min(minimum[index], finer.minimum[from]);
+          maximum[index] = Math.max(maximum[index], finer.maximum[from]);
+          sum[index] += finer.sum[from];
+        }
+      }
+    }
+
+    /**
+     * @return the level of these tiles
+     */
+    public int getLevel() {
+      return level;
+    }
+
+    /**
+     * @return the number of tiles along x
+     */
+    public int getSizeX() {
+      return sizeX;
+    }
+
+    /**
+     * @return the number of tiles along y
+     */
+    public int getSizeY() {
+      return sizeY;
+    }
+
+    /**
+     * @param tileX x-index of the tile
+     * @param tileY y-index of the tile
+     * @return the fewest counts in any channel of the tile
+     */
+    public double getMinimum(final int tileX, final int tileY) {
+      return minimum[index(tileX, tileY)];
+    }
+
+    /**
+     * @param tileX x-index of the tile
+     * @param tileY y-index of the tile
+     * @return the most counts in any channel of the tile
+     */
+    public double getMaximum(final int tileX, final int tileY) {
+      return maximum[index(tileX, tileY)];
+    }
+
+    /**
+     * @param tileX x-index of the tile
+     * @param tileY y-index of the tile
+     * @return the total counts in the tile
+     */
+    public double getSum(final int tileX, final int tileY) {
+      return sum[index(tileX, tileY)];
+    }
+  }
+
+  /**
+   * The minimum, maximum and sum of the counts in a region. An empty region has a minimum of
+   * positive infinity, a maximum of negative infinity and a sum of zero.
+   */
+  public static final class Summary {
+
+    private transient double minimum = Double.POSITIVE_INFINITY;
+
+    private transient double maximum = Double.NEGATIVE_INFINITY;
+
+    private transient double sum;
+
+    Summary() {
+      super();
+    }
+
+    private void add(final int index, final Tiles tiles) {
+      minimum = Math.min(minimum, tiles.minimum[index]);
+      maximum = Math.max(maximum, tiles.maximum[index]);
+      sum += tiles.sum[index];
+    }
+
+    private void addChannels(
+        final AbstractHist2D histogram,
+        final int minX,
+        final int minY,
+        final int maxX,
+        final int maxY) {
+      for (int x = minX; x <= maxX; x++) {
+        for (int y = minY; y <= maxY; y++) {
+          final double counts = histogram.getCounts(x, y);
+          minimum = Math.min(minimum, counts);
+          maximum = Math.max(maximum, counts);
+          sum += counts;
+        }
+      }
+    }
+
+    /**
+     * @return the fewest counts in any channel of the region
+     */
+    public double getMinimum() {
+      return minimum;
+    }
+
+    /**
+     * @return the most counts in any channel of the region
+     */
+    public double getMaximum() {
+      return maximum;
+    }
+
+    /**
+     * @return the total counts in the region
+     */
+    public double getSum() {
+      return sum;
+    }
+  }
+}
@@ -0,0 +1,19 @@
+package jam.data;
+
+/**
+ * Supplies the counts of a histogram which are only read when first needed, e.g., from a file
+ * opened for viewing. Histograms read from their source at most once.
+ *
+ * @author Dale Visser
+ * @see AbstractHistogram#getDeferredCounts()
+ */
+public interface CountsSource {
+
+  /**
+   * Reads the counts. 2-d counts are given in the same row-major order histograms store them in,
+   * with the channel <code>(x, y)</code> at index <code>x * sizeY + y</code>.
+   *
+   * @return <code>int[]</code> or <code>double[]</code>, according to the histogram's type
+   */
+  Object readCounts();
+}
@@ -0,0 +1,198 @@
+package jam.data;
+
+import java.util.Arrays;
+
+/**
+ * A reusable block of decoded events, stored column-wise so that a whole buffer can be decoded in
+ * one pass and sorted without a call into the event stream for each event. Only the parameters
+ * present in each event are stored, as parallel arrays of parameter indices and values. An array of
+ * offsets marks where each event's entries begin.
+ *
+ * <p>Sort routines which want the usual <code>int[]</code> form of an event may get it from
+ * <code>expand()</code>. This fills in a single dense array, which <code>clearExpanded()</code>
+ * zeroes again by touching only the parameters the event had, or <code>clearAllExpanded()</code>
+ * zeroes in full, in case the sort routine wrote into it.
+ *
+ * @author Dale Visser
+ * @see Sorter#sortBlock(EventBlock)
+ * @see jam.sort.stream.AbstractEventInputStream#readBlock(EventBlock)
+ */
+public final class EventBlock {
+
+  private static final int INITIAL_EVENTS = 256;
+
+  private static final int INITIAL_ENTRIES = 1024;
+
+  private transient int eventSize;
+
+  /** parameter index of each entry */
+  private transient int[] params = new int[INITIAL_ENTRIES];
+
+  /** value of each entry */
+  private transient int[] values = new int[INITIAL_ENTRIES];
+
+  /** index of each event's first entry, followed by the number of entries */
+  private transient int[] offsets = new int[INITIAL_EVENTS + 1];
+
+  private transient int events;
+
+  private transient int entries;
+
+  /** dense form of one event, all zeroes except between expand() and clearing */
+  private transient int[] expanded;
+
+  /**
+   * Creates an empty block.
+   *
+   * @param eventSize the number of parameters per event
+   */
+  public EventBlock(final int eventSize) {
+    super();
+    setEventSize(eventSize);
+  }
+
+  /**
+   * @return the number of parameters per event
+   */
+  public int getEventSize() {
+    return eventSize;
+  }
+
+  /**
+   * Sets the number of parameters per event, and empties the block. Parameters at or beyond this
+   * index are dropped as they are added, just as event streams drop them when reading into an
+   * array.
+   *
+   * @param size the number of parameters per event
+   */
+  public void setEventSize(final int size) {
+    eventSize = size;
+    expanded = new int[size];
+    clear();
+  }
+
+  /** Empties the block, ready to decode another buffer into. */
+  public void clear() {
+    events = 0;
+    entries = 0;
+  }
+
+  /**
+   * Adds a parameter to the event being decoded.
+   *
+   * @param param index of the parameter
+   * @param value of the parameter
+   */
+  public void add(final int param, final int value) {
+    if (param >= 0 && param < eventSize) {
+      if (entries == params.length) {
+        params = Arrays.copyOf(params, 2 * entries);
+        values = Arrays.copyOf(values, 2 * entries);
+      }
+      params[entries] = param;
+      values[entries] = value;
+      entries++;
+    }
+  }
+
+  /** Finishes the event being decoded, so that further parameters go into the next event. */
+  public void endEvent() {
+    events++;
+    if (events == offsets.length) {
+      offsets = Arrays.copyOf(offsets, 2 * events);
+    }
+    offsets[events] = entries;
+  }
+
+  /**
+   * Adds a whole event given in the usual dense form. Zero values are skipped, since they are
+   * indistinguishable from absent parameters in that form.
+   *
+   * @param event parameter values indexed by parameter
+   * @param length number of parameters of <code>event</code> to look at
+   */
+  public void addEvent(final int[] event, final int length) {
+    final int limit = Math.min(length, eventSize);
+    for (int param = 0; param < limit; param++) {
+      if (event[param] != 0) {
+        add(param, event[param]);
+      }
+    }
+    endEvent();
+  }
+
+  /**
+   * @return the number of complete events in the block
+   */
+  public int size() {
+    return events;
+  }
+
+  /**
+   * @param event index of an event in the block
+   * @return index of the event's first entry
+   */
+  public int getStart(final int event) {
+    return offsets[event];
+  }
+
+  /**
+   * @param event index of an event in the block
+   * @return index after the event's last entry
+   */
+  public int getEnd(final int event) {
+    return offsets[event + 1];
+  }
+
+  /**
+   * @param entry index of an entry
+   * @return the parameter index of the entry
+   */
+  public int getParameter(final int entry) {
+    return params[entry];
+  }
+
+  /**
+   * @param entry index of an entry
+   * @return the value of the entry
+   */
+  public int getValue(final int entry) {
+    return values[entry];
+  }
+
+  /**
+   * Gets an event in the usual dense form. The same array is returned every time, and must be
+   * cleared with <code>clearExpanded()</code> or <code>clearAllExpanded()</code> before the next
+   * event is expanded.
+   *
+   * @param event index of an event in the block
+   * @return parameter values indexed by parameter, zero for parameters absent from the event
+   */
+  public int[] expand(final int event) {
+    final int end = offsets[event + 1];
+    for (int entry = offsets[event]; entry < end; entry++) {
+      expanded[params[entry]] = values[entry];
+    }
+    return expanded;
+  }
+
+  /**
+   * Zeroes the parameters of the given event in the array returned by <code>expand()</code>.
+   *
+   * @param event index of the most recently expanded event
+   */
+  public void clearExpanded(final int event) {
+    final int end = offsets[event + 1];
+    for (int entry = offsets[event]; entry < end; entry++) {
+      expanded[params[entry]] = 0;
+    }
+  }
+
+  /**
+   * Zeroes every parameter in the array returned by <code>expand()</code>, including any the sort
+   * routine wrote into.
+   */
+  public void clearAllExpanded() {
+    Arrays.fill(expanded, 0);
+  }
+}
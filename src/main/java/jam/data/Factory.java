@@ -124,6 +124,29 @@ public final class Factory {
     return createHistogram(group, array, name, title, null, null);
   }
 
+  /**
+   * Creates a new histogram whose counts are only read from the given source when first needed.
+   *
+   * @param group group to create histogram in
+   * @param type of histogram
+   * @param sizeX number of x-channels
+   * @param sizeY number of y-channels, ignored for 1d histograms
+   * @param name unique identifier
+   * @param title verbose description
+   * @param source supplies the counts
+   * @return a newly created histogram
+   */
+  public static AbstractHistogram createHistogram(
+      final Group group,
+      final HistogramType type,
+      final int sizeX,
+      final int sizeY,
+      final String name,
+      final String title,
+      final CountsSource source) {
+    return group.createDeferredHistogram(type, sizeX, sizeY, name, title, source);
+  }
+
   protected static NameValueCollection<AbstractHistogram> createHistogramCollection() {
     return new HistogramCollection();
   }
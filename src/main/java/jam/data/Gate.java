@@ -4,6 +4,8 @@ import injection.GuiceInjector;
 import jam.global.Nameable;
 import jam.util.StringUtilities;
 import java.awt.Polygon;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -11,6 +13,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * A gate, used for data sorting, belongs to a histogram which determines what type of gate it is.
@@ -29,8 +32,6 @@ public final class Gate implements DataElement {
   /** Maximum number of characters in the histogram name. */
   public static final int NAME_LENGTH = 16;
 
-  private static final boolean[][] NO_AREA = new boolean[0][0];
-
   /* static structures to hold all gates */
   private static final Map<String, Gate> TABLE = // NOPMD
       Collections.synchronizedMap(new HashMap<String, Gate>());
@@ -46,7 +47,7 @@ public final class Gate implements DataElement {
   public static void clearList() {
     synchronized (GATE_LOCK) {
       for (Gate gate : LIST) {
-        gate.insideGate = NO_AREA;
+        gate.mask = GateMask.EMPTY;
         gate.bananaGate.reset();
       }
       LIST.clear();
@@ -131,7 +132,7 @@ public final class Gate implements DataElement {
 
   private final transient String histUniqueName; // histogram gate belongs to
 
-  private transient boolean insideGate[][]; // true if point inside 2d gate
+  private transient volatile GateMask mask = GateMask.EMPTY; // channels inside 2d gate
 
   private transient boolean isSet;
 
@@ -148,6 +149,12 @@ public final class Gate implements DataElement {
 
   private transient int upperLimit; // upper limit for 1d gate
 
+  /* running total of counts in the gate, kept for integer histograms */
+  private final transient LongAdder area = new LongAdder();
+
+  /* whether area is up to date, i.e., the counts have only been added to since it was counted */
+  private transient volatile boolean areaCurrent;
+
   /**
    * Constructs a new gate with the given name, and belonging to the given <code>Histogram</code>.
    * Names will be adjusted to 12 characters if they aren't that length already.
@@ -181,19 +188,47 @@ public final class Gate implements DataElement {
   }
 
   /**
-   * Gets the number of counts in the gate for the histogram which the gate belongs to.
+   * Gets the number of counts in the gate for the histogram which the gate belongs to. For integer
+   * histograms, this is a running total kept as counts are added, so is quick to get. It is only
+   * recounted from the histogram after its counts have been set or zeroed, or the limits changed.
+   * The running total isn't reset to recount it, so no counts are lost, but a count added while it
+   * is being recounted may be counted twice, until the next recount.
    *
    * @return sum of counts in gate
    */
   public double getArea() {
-    return (dimensions == 1) ? getArea1d() : getArea2d();
+    final AbstractHistogram histogram = AbstractHistogram.getHistogram(histUniqueName);
+    final jam.data.HistogramType histogramType = histogram.getType();
+    final double rval;
+    if (histogramType == jam.data.HistogramType.ONE_DIM_INT
+        || histogramType == jam.data.HistogramType.TWO_DIM_INT) {
+      if (!areaCurrent) {
+        synchronized (area) {
+          if (!areaCurrent) {
+            /* set first, so a change made while counting has it counted again */
+            areaCurrent = true;
+            final long before = area.sum();
+            area.add((long) countArea(histogram) - before);
+          }
+        }
+      }
+      rval = area.sum();
+    } else {
+      rval = countArea(histogram);
+    }
+    return rval;
   }
 
-  private double getArea1d() {
-    final AbstractHistogram histogram = AbstractHistogram.getHistogram(histUniqueName);
+  private double countArea(final AbstractHistogram histogram) {
+    return (dimensions == 1) ? getArea1d(histogram) : getArea2d(histogram);
+  }
+
+  private double getArea1d(final AbstractHistogram histogram) {
     final jam.data.HistogramType histogramType = histogram.getType();
     double rval = 0.0;
-    if (histogramType == jam.data.HistogramType.ONE_D_DOUBLE) {
+    if (!isSet) {
+      rval = 0.0; // no channels
+    } else if (histogramType == jam.data.HistogramType.ONE_D_DOUBLE) {
       final double[] counts = ((HistDouble1D) histogram).getCounts();
       for (int i = lowerLimit; i <= upperLimit; i++) {
         rval += counts[i];
@@ -207,28 +242,29 @@ public final class Gate implements DataElement {
     return rval;
   }
 
-  private double getArea2d() {
-    final AbstractHistogram histogram = AbstractHistogram.getHistogram(histUniqueName);
+  private double getArea2d(final AbstractHistogram histogram) {
     final jam.data.HistogramType histogramType = histogram.getType();
+    final GateMask inside = mask;
+    final int maxX = Math.min(sizeX, inside.getMaxX());
+    final int maxY = Math.min(sizeY, inside.getMaxY());
     double rval = 0.0;
     if (histogramType == jam.data.HistogramType.TWO_DIM_INT) {
-      int intSum = 0;
-      final int[][] counts2d = ((HistInt2D) histogram).getCounts();
-      for (int i = 0; i < sizeX; i++) {
-        for (int j = 0; j < sizeY; j++) {
-          if (insideGate[i][j]) {
-            intSum += counts2d[i][j];
+      long intSum = 0L;
+      final IntBuffer counts2d = ((HistInt2D) histogram).getCountsView();
+      for (int i = inside.getMinX(); i < maxX && counts2d.hasRemaining(); i++) {
+        for (int j = inside.getMinY(); j < maxY; j++) {
+          if (inside.contains(i, j)) {
+            intSum += counts2d.get(i * sizeY + j);
           }
         }
       }
-
       rval = intSum;
     } else { // 2d double
-      final double[][] counts2d = ((HistDouble2D) histogram).getCounts();
-      for (int i = 0; i < sizeX; i++) {
-        for (int j = 0; j < sizeY; j++) {
-          if (insideGate[i][j]) {
-            rval += counts2d[i][j];
+      final DoubleBuffer counts2d = ((HistDouble2D) histogram).getCountsView();
+      for (int i = inside.getMinX(); i < maxX && counts2d.hasRemaining(); i++) {
+        for (int j = inside.getMinY(); j < maxY; j++) {
+          if (inside.contains(i, j)) {
+            rval += counts2d.get(i * sizeY + j);
           }
         }
       }
@@ -236,6 +272,67 @@ public final class Gate implements DataElement {
     return rval;
   }
 
+  /**
+   * Adds a count to the running area, if the channel is in this 1-d gate.
+   *
+   * @param channel incremented
+   */
+  void countArea(final int channel) {
+    if (isSet && channel >= lowerLimit && channel <= upperLimit) {
+      area.increment();
+    }
+  }
+
+  /**
+   * Adds a count to the running area, if the channel is in this 2-d gate.
+   *
+   * @param channelX x-channel incremented
+   * @param channelY y-channel incremented
+   */
+  void countArea(final int channelX, final int channelY) {
+    if (mask.contains(channelX, channelY)) {
+      area.increment();
+    }
+  }
+
+  /**
+   * Adds the counts in this gate, out of those being added to the histogram, to the running area.
+   *
+   * @param add counts, in the same row-major layout as the histogram's
+   * @param stride number of y-channels per row, ignored for 1-d gates
+   */
+  void addArea(final int[] add, final int stride) {
+    long sum = 0L;
+    if (dimensions == 1) {
+      if (isSet) {
+        final int max = Math.min(upperLimit, add.length - 1);
+        for (int i = lowerLimit; i <= max; i++) {
+          sum += add[i];
+        }
+      }
+    } else {
+      final GateMask inside = mask;
+      final int maxX = Math.min(sizeX, inside.getMaxX());
+      final int maxY = Math.min(Math.min(sizeY, stride), inside.getMaxY());
+      for (int i = inside.getMinX(); i < maxX; i++) {
+        for (int j = inside.getMinY(); j < maxY; j++) {
+          final int index = i * stride + j;
+          if (index < add.length && inside.contains(i, j)) {
+            sum += add[index];
+          }
+        }
+      }
+    }
+    if (sum != 0L) {
+      area.add(sum);
+    }
+  }
+
+  /** Has the area counted again from the histogram when next asked for. */
+  void recountArea() {
+    areaCurrent = false;
+  }
+
   /**
    * Returns the <code>Polygon</code> object corresponding to a 2-d gate.
    *
@@ -351,23 +448,27 @@ public final class Gate implements DataElement {
   }
 
   /**
-   * Returns the limits for the <code>Gate</code> of type <code>TWO_DIMENSION</code>, actually a
-   * boolean array to quickly mask when sorting.
+   * Returns the limits for the <code>Gate</code> of type <code>TWO_DIMENSION</code>, expanded into
+   * a new boolean array. Prefer <code>getMask()</code>, which doesn't copy.
    *
    * @return a 2-d array of <code>boolean</code>'s which are true for channels inside the gate
    * @throws UnsupportedOperationException thrown if called for 1d gate
    */
   public boolean[][] getLimits2d() {
+    return getMask().toArray(sizeX, sizeY);
+  }
+
+  /**
+   * Returns the channels inside a gate of type <code>TWO_DIMENSION</code>.
+   *
+   * @return the compiled gate, empty if the gate isn't set
+   * @throws UnsupportedOperationException thrown if called for 1d gate
+   */
+  public GateMask getMask() {
     if (dimensions != 2) {
-      throw new UnsupportedOperationException("getLimits2d(): can only be called for 2D gates.");
-    }
-    final int lenX = insideGate.length;
-    final int lenY = insideGate[0].length;
-    final boolean[][] rval = new boolean[lenX][lenY];
-    for (int i = 0; i < lenX; i++) {
-      System.arraycopy(insideGate[i], 0, rval[i], 0, lenY);
+      throw new UnsupportedOperationException("getMask(): can only be called for 2D gates.");
     }
-    return rval;
+    return mask;
   }
 
   /**
@@ -403,14 +504,10 @@ public final class Gate implements DataElement {
    * @throws UnsupportedOperationException thrown if called for 1d gate
    */
   public boolean inGate(final int channelX, final int channelY) {
-    boolean inside = false; // default value if not all conditions are met
     if (dimensions != 2) {
       throw new UnsupportedOperationException("inGate(int,int): can only be called for 2D gates");
     }
-    if (isSet && (channelX >= 0) && (channelX < sizeX) && (channelY >= 0) && (channelY < sizeY)) {
-      inside = insideGate[channelX][channelY];
-    }
-    return inside;
+    return mask.contains(channelX, channelY); // empty unless set, and within the histogram
   }
 
   /**
@@ -442,6 +539,8 @@ public final class Gate implements DataElement {
       upperLimit = lower;
     }
     isSet = true;
+    recountArea();
+    markHistogramChanged();
   }
 
   /**
@@ -459,14 +558,17 @@ public final class Gate implements DataElement {
       throw new UnsupportedOperationException(
           "setLimits(Polygon): can only be called for 2D gates.");
     }
-    // set points true if in polygon
-    for (int i = 0; i < sizeX; i++) {
-      for (int j = 0; j < sizeY; j++) {
-        // to make sure we zero all (old) points
-        insideGate[i][j] = gatePoly.contains(i, j);
-      }
-    }
+    mask = GateMask.fill(gatePoly, sizeX, sizeY);
     isSet = true;
+    recountArea();
+    markHistogramChanged();
+  }
+
+  private void markHistogramChanged() {
+    final AbstractHistogram histogram = AbstractHistogram.getHistogram(histUniqueName);
+    if (histogram != null) {
+      histogram.markChanged();
+    }
   }
 
   /**
@@ -510,8 +612,10 @@ public final class Gate implements DataElement {
       lowerLimit = 0;
       upperLimit = 0;
     } else if (dimensions == 2) {
-      insideGate = new boolean[sizeX][sizeY];
+      mask = GateMask.EMPTY;
       bananaGate.reset();
     }
+    recountArea();
+    markHistogramChanged();
   }
 }
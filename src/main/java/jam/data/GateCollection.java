@@ -1,13 +1,16 @@
 package jam.data;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
 /**
- * Used for accessing gates in memory.
+ * Used for accessing gates in memory. Also passes the changes to an integer histogram's counts on
+ * to its gates, which keep running totals of their areas.
  *
  * @author Dale Visser
+ * @see Gate#getArea()
  */
 public final class GateCollection {
 
@@ -16,6 +19,9 @@ public final class GateCollection {
   /** gates that belong to this histogram */
   private final transient List<DataElement> gates = new ArrayList<>();
 
+  /* copy of the gates, replaced when one is added, for threads incrementing counts */
+  private transient volatile Gate[] areaGates = new Gate[0];
+
   GateCollection(final int dim) {
     this.dimensions = dim;
   }
@@ -31,6 +37,12 @@ public final class GateCollection {
       synchronized (this) {
         if (!gates.contains(gate)) {
           gates.add(gate);
+          if (gate instanceof Gate) {
+            final Gate[] current = areaGates;
+            final Gate[] added = Arrays.copyOf(current, current.length + 1);
+            added[current.length] = (Gate) gate;
+            areaGates = added;
+          }
         }
       }
     } else {
@@ -40,7 +52,55 @@ public final class GateCollection {
   }
 
   void clear() {
-    gates.clear();
+    synchronized (this) {
+      gates.clear();
+      areaGates = new Gate[0];
+    }
+  }
+
+  /**
+   * Adds a count in the given channel to the areas of the gates containing it.
+   *
+   * @param channel incremented in a 1-d histogram
+   */
+  void countArea(final int channel) {
+    for (Gate gate : areaGates) {
+      gate.countArea(channel);
+    }
+  }
+
+  /**
+   * Adds a count in the given channel to the areas of the gates containing it.
+   *
+   * @param channelX x-channel incremented in a 2-d histogram
+   * @param channelY y-channel incremented in a 2-d histogram
+   */
+  void countArea(final int channelX, final int channelY) {
+    for (Gate gate : areaGates) {
+      gate.countArea(channelX, channelY);
+    }
+  }
+
+  /**
+   * Adds counts being added to the histogram to the areas of the gates.
+   *
+   * @param add counts, in the same row-major layout as the histogram's
+   * @param stride number of y-channels per row, or 1 for a 1-d histogram
+   */
+  void addArea(final int[] add, final int stride) {
+    for (Gate gate : areaGates) {
+      gate.addArea(add, stride);
+    }
+  }
+
+  /**
+   * Has the gates recount their areas when next asked, after the counts were changed other than
+   * by adding to them.
+   */
+  void recountAreas() {
+    for (Gate gate : areaGates) {
+      gate.recountArea();
+    }
   }
 
   /**
@@ -0,0 +1,212 @@
+package jam.data;
+
+import java.awt.Polygon;
+import java.util.Arrays;
+
+/**
+ * The channels inside a 2-d gate, compiled from its polygon. Only the bounding box of the gate is
+ * stored, one bit per channel, so that <code>contains()</code> rejects most channels with a few
+ * comparisons, and touches a single word otherwise.
+ *
+ * <p>The mask is filled a row of constant y at a time, by finding where each edge of the polygon
+ * crosses the row, rather than testing every channel. The channels set are exactly those for which
+ * <code>Polygon.contains(x, y)</code> is true. Instances are immutable.
+ *
+ * @author Dale Visser
+ * @see Gate#setLimits(Polygon)
+ */
+public final class GateMask {
+
+  /** A mask containing no channels. */
+  public static final GateMask EMPTY = new GateMask(0, 0, 0, 0, new long[0]);
+
+  private final transient int minX;
+
+  private final transient int minY;
+
+  /** width of the bounding box, i.e., the number of bits in a row */
+  private final transient int width;
+
+  private final transient int height;
+
+  private final transient long[] bits;
+
+  private GateMask(
+      final int minX, final int minY, final int width, final int height, final long[] bits) {
+    super();
+    this.minX = minX;
+    this.minY = minY;
+    this.width = width;
+    this.height = height;
+    this.bits = bits;
+  }
+
+  /**
+   * Compiles the channels of a histogram which are inside the given polygon.
+   *
+   * @param polygon the gate's outline
+   * @param sizeX number of x-channels in the histogram
+   * @param sizeY number of y-channels in the histogram
+   * @return the channels inside the polygon
+   */
+  public static GateMask fill(final Polygon polygon, final int sizeX, final int sizeY) {
+    GateMask rval = EMPTY;
+    final int npoints = polygon.npoints;
+    if (npoints > 2) {
+      final int[] xpoints = polygon.xpoints;
+      final int[] ypoints = polygon.ypoints;
+      int lowX = Integer.MAX_VALUE;
+      int highX = Integer.MIN_VALUE;
+      int lowY = Integer.MAX_VALUE;
+      int highY = Integer.MIN_VALUE;
+      for (int i = 0; i < npoints; i++) {
+        lowX = Math.min(lowX, xpoints[i]);
+        highX = Math.max(highX, xpoints[i]);
+        lowY = Math.min(lowY, ypoints[i]);
+        highY = Math.max(highY, ypoints[i]);
+      }
+      /* Polygon.contains() excludes the right and bottom edges of the bounding box */
+      final int fromX = Math.max(0, lowX);
+      final int toX = Math.min(sizeX, highX);
+      final int fromY = Math.max(0, lowY);
+      final int toY = Math.min(sizeY, highY);
+      if (fromX < toX && fromY < toY) {
+        rval = scan(polygon, fromX, toX, fromY, toY);
+      }
+    }
+    return rval;
+  }
+
+  private static GateMask scan(
+      final Polygon polygon, final int fromX, final int toX, final int fromY, final int toY) {
+    final int width = toX - fromX;
+    final int height = toY - fromY;
+    final long[] bits = new long[(int) (((long) width * height + Long.SIZE - 1) / Long.SIZE)];
+    final int[] crossings = new int[polygon.npoints];
+    for (int y = fromY; y < toY; y++) {
+      final int count = crossRow(polygon, y, crossings);
+      Arrays.sort(crossings, 0, count);
+      final int rowStart = (y - fromY) * width;
+      for (int i = 0; i + 1 < count; i += 2) {
+        final int start = Math.max(fromX, crossings[i]);
+        final int end = Math.min(toX, crossings[i + 1]);
+        if (start < end) {
+          setRange(bits, rowStart + start - fromX, rowStart + end - fromX);
+        }
+      }
+    }
+    return new GateMask(fromX, fromY, width, height, bits);
+  }
+
+  /**
+   * Finds, for each edge crossing the given row, the lowest x which the edge doesn't count as being
+   * to the right of, using the same arithmetic as <code>Polygon.contains()</code>. A channel is
+   * inside when an odd number of these limits are greater than its x.
+   *
+   * @param polygon the gate's outline
+   * @param y the row
+   * @param crossings filled with the limit of each edge crossing the row
+   * @return the number of edges crossing the row
+   */
+  private static int crossRow(final Polygon polygon, final int y, final int[] crossings) {
+    final int npoints = polygon.npoints;
+    int count = 0;
+    int lastx = polygon.xpoints[npoints - 1];
+    int lasty = polygon.ypoints[npoints - 1];
+    for (int i = 0; i < npoints; i++) {
+      final int curx = polygon.xpoints[i];
+      final int cury = polygon.ypoints[i];
+      if (cury != lasty && y >= Math.min(cury, lasty) && y < Math.max(cury, lasty)) {
+        final int originX = cury < lasty ? curx : lastx;
+        final int originY = cury < lasty ? cury : lasty;
+        final double offset = (double) (y - originY) / (lasty - cury) * (lastx - curx);
+        final int limit = originX + (int) Math.ceil(offset);
+        crossings[count] =
+            Math.max(Math.min(curx, lastx), Math.min(Math.max(curx, lastx), limit));
+        count++;
+      }
+      lastx = curx;
+      lasty = cury;
+    }
+    return count;
+  }
+
+  private static void setRange(final long[] bits, final int from, final int to) {
+    final int firstWord = from >>> 6;
+    final int lastWord = (to - 1) >>> 6;
+    final long firstMask = -1L << from;
+    final long lastMask = -1L >>> -to;
+    if (firstWord == lastWord) {
+      bits[firstWord] |= firstMask & lastMask;
+    } else {
+      bits[firstWord] |= firstMask;
+      Arrays.fill(bits, firstWord + 1, lastWord, -1L);
+      bits[lastWord] |= lastMask;
+    }
+  }
+
+  /**
+   * Returns whether the given channel is inside the gate.
+   *
+   * @param channelX x-channel
+   * @param channelY y-channel
+   * @return <code>true</code> if the channel is inside
+   */
+  public boolean contains(final int channelX, final int channelY) {
+    final int relX = channelX - minX;
+    final int relY = channelY - minY;
+    boolean rval = false;
+    if (relX >= 0 && relX < width && relY >= 0 && relY < height) {
+      final int index = relY * width + relX;
+      rval = (bits[index >>> 6] & (1L << index)) != 0;
+    }
+    return rval;
+  }
+
+  /**
+   * @return lowest x-channel which may be inside
+   */
+  public int getMinX() {
+    return minX;
+  }
+
+  /**
+   * @return one past the highest x-channel which may be inside
+   */
+  public int getMaxX() {
+    return minX + width;
+  }
+
+  /**
+   * @return lowest y-channel which may be inside
+   */
+  public int getMinY() {
+    return minY;
+  }
+
+  /**
+   * @return one past the highest y-channel which may be inside
+   */
+  public int getMaxY() {
+    return minY + height;
+  }
+
+  /**
+   * Expands the mask into an array of flags.
+   *
+   * @param sizeX number of x-channels
+   * @param sizeY number of y-channels
+   * @return flags indexed by <code>[x][y]</code>, true for channels inside the gate
+   */
+  public boolean[][] toArray(final int sizeX, final int sizeY) {
+    final boolean[][] rval = new boolean[sizeX][sizeY];
+    final int maxX = Math.min(sizeX, getMaxX());
+    final int maxY = Math.min(sizeY, getMaxY());
+    for (int x = minX; x < maxX; x++) {
+      for (int y = minY; y < maxY; y++) {
+        rval[x][y] = contains(x, y);
+      }
+    }
+    return rval;
+  }
+}
@@ -183,6 +183,27 @@ public final class Group implements Nameable {
     return result;
   }
 
+  AbstractHistogram createDeferredHistogram(
+      final HistogramType type,
+      final int sizeX,
+      final int sizeY,
+      final String name,
+      final String title,
+      final CountsSource source) {
+    final AbstractHistogram result;
+    if (type == HistogramType.ONE_DIM_INT) {
+      result = new HistInt1D(title, null, null, sizeX, source);
+    } else if (type == HistogramType.ONE_D_DOUBLE) {
+      result = new HistDouble1D(title, null, null, sizeX, source);
+    } else if (type == HistogramType.TWO_DIM_INT) {
+      result = new HistInt2D(title, null, null, sizeX, sizeY, source);
+    } else { // TWO_D_DOUBLE
+      result = new HistDouble2D(title, null, null, sizeX, sizeY, source);
+    }
+    addGroupInfoToHist(result, name);
+    return result;
+  }
+
   private void addGroupInfoToHist(final AbstractHistogram hist, final String name) {
     hist.setName(
         STRING_UTILITIES.makeUniqueName(
@@ -4,6 +4,7 @@
 package jam.data;
 
 import jam.data.func.CalibrationFunctionCollection;
+import java.nio.DoubleBuffer;
 import java.util.Arrays;
 
 /**
@@ -22,6 +23,23 @@ public final class HistDouble1D extends AbstractHist1D {
     initCounts(countsIn);
   }
 
+  HistDouble1D(
+      final String title,
+      final String axisLabelX,
+      final String axisLabelY,
+      final int size,
+      final CountsSource source) {
+    super(jam.data.HistogramType.ONE_D_DOUBLE, size, title, axisLabelX, axisLabelY);
+    countsDouble = EMPTY;
+    deferCounts(source);
+  }
+
+  @Override
+  protected void installCounts(final Object loaded) {
+    final double[] doubles = (double[]) loaded;
+    countsDouble = doubles.length == getSizeX() ? doubles : Arrays.copyOf(doubles, getSizeX());
+  }
+
   private void initCounts(final double[] countsIn) {
     countsDouble = new double[getSizeX()];
     System.arraycopy(countsIn, 0, countsDouble, 0, countsIn.length);
@@ -34,6 +52,7 @@ public final class HistDouble1D extends AbstractHist1D {
    */
   @Override
   public double getCounts(final int channel) {
+    loadDeferredCounts();
     synchronized (this) {
       return countsDouble[channel];
     }
@@ -46,9 +65,11 @@ public final class HistDouble1D extends AbstractHist1D {
    */
   @Override
   public void setCounts(final int channel, final double counts) {
+    loadDeferredCounts();
     synchronized (this) {
       countsDouble[channel] = counts;
     }
+    markChanged();
   }
 
   /*
@@ -58,6 +79,7 @@ public final class HistDouble1D extends AbstractHist1D {
    */
   @Override
   public double[] getErrors() {
+    loadDeferredCounts();
     synchronized (this) {
       final int length = countsDouble.length;
       if (!hasErrorsSet()) {
@@ -85,6 +107,7 @@ public final class HistDouble1D extends AbstractHist1D {
   @Override
   protected void clearCounts() {
     synchronized (this) {
+      deferCounts(null);
       countsDouble = EMPTY;
       unsetErrors();
       setCalibration(CalibrationFunctionCollection.NO_CALIBRATION);
@@ -96,13 +119,27 @@ public final class HistDouble1D extends AbstractHist1D {
    * @return a copy of this histogram's counts
    */
   public double[] getCounts() {
+    loadDeferredCounts();
     synchronized (this) {
       return countsDouble.clone();
     }
   }
 
+  /**
+   * Returns a read-only view of the counts, without copying them.
+   *
+   * @return a read-only view of the counts
+   */
+  public DoubleBuffer getCountsView() {
+    loadDeferredCounts();
+    synchronized (this) {
+      return DoubleBuffer.wrap(countsDouble).asReadOnlyBuffer();
+    }
+  }
+
   @Override
   protected void getCounts(final double[] array) {
+    loadDeferredCounts();
     synchronized (this) {
       final int max = Math.min(countsDouble.length, array.length);
       System.arraycopy(countsDouble, 0, array, 0, max);
@@ -121,8 +158,10 @@ public final class HistDouble1D extends AbstractHist1D {
    */
   @Override
   public void setZero() {
+    loadDeferredCounts();
     Arrays.fill(countsDouble, 0);
     unsetErrors();
+    markChanged();
   }
 
   /*
@@ -136,7 +175,9 @@ public final class HistDouble1D extends AbstractHist1D {
       throw new IllegalArgumentException("Expected array for type " + getType());
     }
     double[] doubles = (double[]) countsIn;
+    loadDeferredCounts();
     System.arraycopy(doubles, 0, countsDouble, 0, Math.min(doubles.length, getSizeX()));
+    markChanged();
   }
 
   /*
@@ -150,9 +191,11 @@ public final class HistDouble1D extends AbstractHist1D {
       throw new IllegalArgumentException("Expected array for type " + getType());
     }
     addCounts((double[]) countsIn);
+    markChanged();
   }
 
   private void addCounts(final double[] countsIn) {
+    loadDeferredCounts();
     synchronized (this) {
       final double[] temp = countsIn.clone();
       final int max = Math.min(temp.length, getSizeX()) - 1;
@@ -169,6 +212,7 @@ public final class HistDouble1D extends AbstractHist1D {
    */
   @Override
   public double getArea() {
+    loadDeferredCounts();
     final int size = getSizeX();
     double sum = 0.0;
     for (int i = 0; i < size; i++) {
@@ -3,15 +3,22 @@
  */
 package jam.data;
 
+import java.nio.DoubleBuffer;
 import java.util.Arrays;
 
 /**
+ * A 2-dimensional histogram of floating point counts, stored in a single row-major array with the
+ * channel <code>(x, y)</code> at index <code>x * sizeY + y</code>.
+ *
  * @author <a href="mailto:dwvisser@users.sourceforge.net">Dale W Visser</a>
  */
 public final class HistDouble2D extends AbstractHist2D {
 
-  /* array to hold counts for 2d double */
-  private transient double[][] counts2dD;
+  /* row-major array to hold counts for 2d double */
+  private transient double[] counts2dD;
+
+  /** number of channels along y, i.e., the length of a row in <code>counts2dD</code> */
+  private final transient int stride;
 
   HistDouble2D(
       final String title,
@@ -25,7 +32,29 @@ public final class HistDouble2D extends AbstractHist2D {
         title,
         axisLabelX,
         axisLabelY);
-    initCounts(countsIn);
+    stride = getSizeY();
+    counts2dD = new double[getSizeX() * stride];
+    setCountsArray(countsIn);
+  }
+
+  HistDouble2D(
+      final String title,
+      final String axisLabelX,
+      final String axisLabelY,
+      final int sizeX,
+      final int sizeY,
+      final CountsSource source) {
+    super(jam.data.HistogramType.TWO_D_DOUBLE, sizeX, sizeY, title, axisLabelX, axisLabelY);
+    stride = sizeY;
+    counts2dD = EMPTY;
+    deferCounts(source);
+  }
+
+  @Override
+  protected void installCounts(final Object loaded) {
+    final double[] doubles = (double[]) loaded;
+    final int length = getSizeX() * stride;
+    counts2dD = doubles.length == length ? doubles : Arrays.copyOf(doubles, length);
   }
 
   /*
@@ -39,26 +68,25 @@ public final class HistDouble2D extends AbstractHist2D {
       throw new IllegalArgumentException("Expected array for type " + getType());
     }
     addCountsArray((double[][]) countsIn);
+    markChanged();
   }
 
   private void addCountsArray(final double[][] countsIn) {
+    loadDeferredCounts();
     synchronized (this) {
-      final int len = countsIn.length;
-      double[][] temp = new double[len][];
-      final int maxX = Math.min(getSizeX(), len) - 1;
-      final int maxY = Math.min(getSizeY(), countsIn[0].length) - 1;
-      for (int i = 0; i <= maxX; i++) {
-        temp[i] = countsIn[i].clone();
-      }
-      for (int x = maxX; x >= 0; x--) {
-        for (int y = maxY; y >= 0; y--) {
-          counts2dD[x][y] += temp[x][y];
+      final int maxX = Math.min(counts2dD.length / Math.max(1, stride), countsIn.length);
+      final int maxY = Math.min(stride, countsIn[0].length);
+      for (int x = 0; x < maxX; x++) {
+        final double[] row = countsIn[x];
+        final int offset = x * stride;
+        for (int y = 0; y < maxY; y++) {
+          counts2dD[offset + y] += row[y];
         }
       }
     }
   }
 
-  private static final double[][] EMPTY = new double[0][0];
+  private static final double[] EMPTY = new double[0];
 
   /*
    * (non-Javadoc)
@@ -68,6 +96,7 @@ public final class HistDouble2D extends AbstractHist2D {
   @Override
   protected void clearCounts() {
     synchronized (this) {
+      deferCounts(null);
       counts2dD = EMPTY;
       clear = true;
     }
@@ -80,13 +109,10 @@ public final class HistDouble2D extends AbstractHist2D {
    */
   @Override
   public double getArea() {
-    final int size = getSizeX();
+    loadDeferredCounts();
     double sum = 0.0;
-    for (int i = 0; i < size; i++) {
-      final int sizeY = getSizeY();
-      for (int j = 0; j < sizeY; j++) {
-        sum += counts2dD[i][j];
-      }
+    for (double count : counts2dD) {
+      sum += count;
     }
     return sum;
   }
@@ -97,19 +123,68 @@ public final class HistDouble2D extends AbstractHist2D {
   }
 
   /**
+   * Returns a copy of the counts as an array of rows. Callers which don't need that form should
+   * prefer <code>copyCounts()</code> or <code>getCountsView()</code>.
+   *
    * @return a copy of this histograms counts.
    */
   public double[][] getCounts() {
+    loadDeferredCounts();
     synchronized (this) {
-      final int len = counts2dD.length;
-      double[][] rval = new double[len][];
-      for (int i = 0; i < len; i++) {
-        rval[i] = counts2dD[i].clone();
+      final int sizeX = counts2dD.length == 0 ? 0 : getSizeX();
+      final double[][] rval = new double[sizeX][];
+      for (int x = 0; x < sizeX; x++) {
+        rval[x] = Arrays.copyOfRange(counts2dD, x * stride, (x + 1) * stride);
       }
       return rval;
     }
   }
 
+  /**
+   * Copies the counts into the given row-major array.
+   *
+   * @param dest at least <code>sizeX * sizeY</code> long
+   */
+  public void copyCounts(final double[] dest) {
+    loadDeferredCounts();
+    synchronized (this) {
+      System.arraycopy(counts2dD, 0, dest, 0, counts2dD.length);
+    }
+  }
+
+  @Override
+  public void copyCounts(final double[][] dest) {
+    loadDeferredCounts();
+    synchronized (this) {
+      final int sizeX = Math.min(dest.length, counts2dD.length / Math.max(1, stride));
+      for (int x = 0; x < sizeX; x++) {
+        System.arraycopy(counts2dD, x * stride, dest[x], 0, Math.min(dest[x].length, stride));
+      }
+    }
+  }
+
+  @Override
+  void copyRow(final int chX, final double[] dest) {
+    loadDeferredCounts();
+    synchronized (this) {
+      if (counts2dD.length > 0) {
+        System.arraycopy(counts2dD, chX * stride, dest, 0, stride);
+      }
+    }
+  }
+
+  /**
+   * Returns a read-only view of the row-major counts, without copying them.
+   *
+   * @return a read-only view of the counts
+   */
+  public DoubleBuffer getCountsView() {
+    loadDeferredCounts();
+    synchronized (this) {
+      return DoubleBuffer.wrap(counts2dD).asReadOnlyBuffer();
+    }
+  }
+
   /*
    * (non-Javadoc)
    *
@@ -117,14 +192,8 @@ public final class HistDouble2D extends AbstractHist2D {
    */
   @Override
   public double getCounts(final int chX, final int chY) {
-    return counts2dD[chX][chY];
-  }
-
-  private void initCounts(final double[][] countsIn) {
-    counts2dD = new double[getSizeX()][getSizeY()];
-    for (int i = 0; i < countsIn.length; i++) { // copy arrays
-      System.arraycopy(countsIn[i], 0, counts2dD[i], 0, countsIn[0].length);
-    }
+    loadDeferredCounts();
+    return counts2dD[chX * stride + chY];
   }
 
   /*
@@ -134,7 +203,9 @@ public final class HistDouble2D extends AbstractHist2D {
    */
   @Override
   public void setCounts(final int chX, final int chY, final double counts) {
-    counts2dD[chX][chY] = counts;
+    loadDeferredCounts();
+    counts2dD[chX * stride + chY] = counts;
+    markChanged();
   }
 
   /*
@@ -148,14 +219,16 @@ public final class HistDouble2D extends AbstractHist2D {
       throw new IllegalArgumentException("Expected array for type " + getType());
     }
     setCountsArray((double[][]) countsIn);
+    markChanged();
   }
 
   private void setCountsArray(final double[][] countsIn) {
+    loadDeferredCounts();
     synchronized (this) {
-      final int loopLen = Math.min(countsIn.length, counts2dD.length);
-      for (int i = 0; i < loopLen; i++) {
+      final int loopLen = Math.min(countsIn.length, counts2dD.length / Math.max(1, stride));
+      for (int x = 0; x < loopLen; x++) {
         System.arraycopy(
-            countsIn[i], 0, counts2dD[i], 0, Math.min(countsIn[i].length, counts2dD[i].length));
+            countsIn[x], 0, counts2dD, x * stride, Math.min(countsIn[x].length, stride));
       }
     }
   }
@@ -167,9 +240,8 @@ public final class HistDouble2D extends AbstractHist2D {
    */
   @Override
   public void setZero() {
-    final int size = getSizeX();
-    for (int i = 0; i < size; i++) {
-      Arrays.fill(counts2dD[i], 0);
-    }
+    loadDeferredCounts();
+    Arrays.fill(counts2dD, 0);
+    markChanged();
   }
 }
@@ -4,6 +4,8 @@
 package jam.data;
 
 import jam.data.func.CalibrationFunctionCollection;
+import java.lang.invoke.VarHandle;
+import java.nio.IntBuffer;
 import java.util.Arrays;
 
 /**
@@ -14,7 +16,11 @@ import java.util.Arrays;
 public final class HistInt1D extends AbstractHist1D {
   private static final int[] EMPTY_INT = new int[0];
 
-  private int counts[]; // array to hold counts for 1d int
+  /** array to hold counts for 1d int, incremented without locking */
+  private transient volatile int[] counts; // NOPMD
+
+  /** private counts of a thread attached to <code>HistogramShards</code> */
+  private final transient ThreadLocal<int[]> shard = new ThreadLocal<>();
 
   /**
    * Create a new 1-d <code>Histogram</code> with the counts known and with axes labeled.
@@ -30,6 +36,33 @@ public final class HistInt1D extends AbstractHist1D {
     initCounts(countsIn);
   }
 
+  /**
+   * Create a new 1-d <code>Histogram</code> whose counts are read when first needed.
+   *
+   * @param title lengthier title of histogram, displayed on plot
+   * @param axisLabelX label displayed for x-axis on plot
+   * @param axisLabelY label displayed for y-axis on plot
+   * @param size number of channels
+   * @param source supplies an <code>int[]</code> of counts
+   */
+  HistInt1D(
+      final String title,
+      final String axisLabelX,
+      final String axisLabelY,
+      final int size,
+      final CountsSource source) {
+    super(jam.data.HistogramType.ONE_DIM_INT, size, title, axisLabelX, axisLabelY);
+    counts = EMPTY_INT;
+    deferCounts(source);
+  }
+
+  @Override
+  protected void installCounts(final Object loaded) {
+    final int[] ints = (int[]) loaded;
+    counts = ints.length == getSizeX() ? ints : Arrays.copyOf(ints, getSizeX());
+    getGateCollection().recountAreas();
+  }
+
   /**
    * Adds the given counts to this histogram.
    *
@@ -42,22 +75,23 @@ public final class HistInt1D extends AbstractHist1D {
       throw new IllegalArgumentException("Expected array for type " + getType());
     }
     addCountsArray((int[]) add);
+    getGateCollection().recountAreas();
+    markChanged();
   }
 
   private void addCountsArray(final int[] countsIn) {
-    synchronized (this) {
-      final int[] temp = countsIn.clone();
-      final int max = Math.min(countsIn.length, getSizeX()) - 1;
-      for (int i = max; i >= 0; i--) {
-        counts[i] += temp[i];
-      }
-    }
+    loadDeferredCounts();
+    final int[] temp = countsIn.clone();
+    final int[] current = counts;
+    AtomicCounts.addAll(current, 0, temp, Math.min(temp.length, current.length));
   }
 
   @Override
   protected void clearCounts() {
     synchronized (this) {
+      deferCounts(null);
       counts = EMPTY_INT;
+      getGateCollection().recountAreas();
       unsetErrors();
       setCalibration(CalibrationFunctionCollection.NO_CALIBRATION);
       clear = true;
@@ -71,14 +105,13 @@ public final class HistInt1D extends AbstractHist1D {
    */
   @Override
   public double getArea() {
-    synchronized (this) {
-      final int size = getSizeX();
-      double sum = 0.0;
-      for (int i = 0; i < size; i++) {
-        sum += counts[i];
-      }
-      return sum;
+    loadDeferredCounts();
+    VarHandle.acquireFence();
+    long sum = 0L;
+    for (int count : counts) {
+      sum += count;
     }
+    return sum;
   }
 
   @Override
@@ -87,24 +120,48 @@ public final class HistInt1D extends AbstractHist1D {
   }
 
   /**
-   * Returns the counts in the histogram as an array of the appropriate type. It is necessary to
-   * cast the returned array with <code>(int [])</code>.
+   * Returns a snapshot of the counts in the histogram, taken without waiting on threads
+   * incrementing it.
    *
    * @return <code>int []</code>
    */
   public int[] getCounts() {
-    synchronized (this) {
-      return counts.clone();
-    }
+    loadDeferredCounts();
+    final int[] current = counts;
+    final int[] rval = new int[current.length];
+    AtomicCounts.snapshot(current, rval, current.length);
+    return rval;
+  }
+
+  /**
+   * Copies a snapshot of the counts into the given array.
+   *
+   * @param dest at least <code>sizeX</code> long
+   */
+  public void copyCounts(final int[] dest) {
+    loadDeferredCounts();
+    final int[] current = counts;
+    AtomicCounts.snapshot(current, dest, current.length);
+  }
+
+  /**
+   * Returns a read-only view of the counts, without copying them. Counts incremented while the
+   * view is being read may or may not be seen.
+   *
+   * @return a read-only view of the counts
+   */
+  public IntBuffer getCountsView() {
+    loadDeferredCounts();
+    VarHandle.acquireFence();
+    return IntBuffer.wrap(counts).asReadOnlyBuffer();
   }
 
   @Override
   protected void getCounts(final double[] array) {
-    synchronized (this) {
-      final int max = Math.min(array.length, counts.length);
-      for (int i = 0; i < max; i++) {
-        array[i] = counts[i];
-      }
+    final int[] snapshot = getCounts();
+    final int max = Math.min(array.length, snapshot.length);
+    for (int i = 0; i < max; i++) {
+      array[i] = snapshot[i];
     }
   }
 
@@ -116,9 +173,8 @@ public final class HistInt1D extends AbstractHist1D {
    */
   @Override
   public double getCounts(final int channel) {
-    synchronized (this) {
-      return counts[channel];
-    }
+    loadDeferredCounts();
+    return AtomicCounts.get(counts, channel);
   }
 
   /**
@@ -129,15 +185,16 @@ public final class HistInt1D extends AbstractHist1D {
   @Override
   public double[] getErrors() {
     synchronized (this) {
-      final int length = counts.length;
       if (errors == null) {
+        final int[] snapshot = getCounts();
+        final int length = snapshot.length;
         errors = new double[length];
         for (int i = 0; i < length; i++) {
-          if (counts[i] == 0) {
+          if (snapshot[i] == 0) {
             /* set errors according to Poisson with error = 1 */
             errors[i] = 1.0;
           } else {
-            errors[i] = Math.sqrt(counts[i]);
+            errors[i] = Math.sqrt(snapshot[i]);
           }
         }
       }
@@ -147,7 +204,10 @@ public final class HistInt1D extends AbstractHist1D {
 
   /**
    * Increments the counts by one in the given channel. Must be a histogram of type <code>
-   * ONE_DIM_INT</code>.
+   * ONE_DIM_INT</code>. The count is added atomically, without locking, and to the running areas of
+   * the gates containing the channel. If the calling thread is attached to <code>HistogramShards
+   * </code>, the count goes to its private shard instead, and only becomes visible when the shard
+   * is flushed.
    *
    * @param dataWord the channel to be incremented
    * @exception UnsupportedOperationException thrown if method called for inappropriate type of
@@ -162,14 +222,58 @@ public final class HistInt1D extends AbstractHist1D {
     } else if (dataWord < 0) {
       incCh = 0;
     }
-    synchronized (this) {
-      counts[incCh]++;
+    final int[] local = HistogramShards.isActive() ? localShard() : null;
+    if (local == null) {
+      loadDeferredCounts();
+      AtomicCounts.increment(counts, incCh);
+      getGateCollection().countArea(incCh);
+      markChanged();
+    } else {
+      local[incCh]++;
+    }
+  }
+
+  /**
+   * @return the calling thread's private counts, or <code>null</code> if it isn't attached
+   */
+  private int[] localShard() {
+    int[] local = shard.get();
+    if (local == null) {
+      final HistogramShards owner = HistogramShards.current();
+      if (owner != null) {
+        local = new int[getSizeX()];
+        shard.set(local);
+        owner.register(new CountsShard(local));
+      }
+    }
+    return local;
+  }
+
+  private final class CountsShard implements HistogramShards.Shard {
+    private final transient int[] local;
+
+    CountsShard(final int[] local) {
+      this.local = local;
+    }
+
+    public void flush() {
+      loadDeferredCounts();
+      final int[] current = counts;
+      AtomicCounts.addAll(current, 0, local, Math.min(local.length, current.length));
+      getGateCollection().addArea(local, 1);
+      Arrays.fill(local, 0);
+      markChanged();
+    }
+
+    public void remove() {
+      shard.remove();
     }
   }
 
   private void initCounts(final int[] countsIn) {
-    counts = new int[getSizeX()];
-    System.arraycopy(countsIn, 0, counts, 0, countsIn.length);
+    final int[] initial = new int[getSizeX()];
+    System.arraycopy(countsIn, 0, initial, 0, countsIn.length);
+    counts = initial;
   }
 
   /**
@@ -180,9 +284,12 @@ public final class HistInt1D extends AbstractHist1D {
    */
   @Override
   public void setCounts(final int channel, final double count) {
+    loadDeferredCounts();
     synchronized (this) {
       counts[channel] = (int) Math.round(count);
     }
+    getGateCollection().recountAreas();
+    markChanged();
   }
 
   /**
@@ -197,17 +304,23 @@ public final class HistInt1D extends AbstractHist1D {
       throw new IllegalArgumentException("Expected array for type " + getType());
     }
     int[] ints = (int[]) countsIn;
+    loadDeferredCounts();
     synchronized (this) {
       System.arraycopy(ints, 0, counts, 0, Math.min(ints.length, getSizeX()));
     }
+    getGateCollection().recountAreas();
+    markChanged();
   }
 
   /** Zeroes all the counts in this histogram. */
   @Override
   public void setZero() {
+    loadDeferredCounts();
     synchronized (this) {
       Arrays.fill(counts, 0);
       unsetErrors();
     }
+    getGateCollection().recountAreas();
+    markChanged();
   }
 }
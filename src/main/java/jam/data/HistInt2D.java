@@ -3,18 +3,28 @@
  */
 package jam.data;
 
+import java.lang.invoke.VarHandle;
+import java.nio.IntBuffer;
 import java.util.Arrays;
 
 /**
- * The 2-dimensional histogram class to use for online and offline sorting.
+ * The 2-dimensional histogram class to use for online and offline sorting. Counts are stored in a
+ * single row-major array, with the channel <code>(x, y)</code> at index <code>x * sizeY + y</code>.
  *
  * @author <a href="mailto:dwvisser@users.sourceforge.net">Dale W Visser </a>
  */
 public final class HistInt2D extends AbstractHist2D {
 
-  private transient int counts2d[][]; // array to hold counts for 2d inc
+  /** row-major array to hold counts for 2d int, incremented without locking */
+  private transient volatile int[] counts2d; // NOPMD
 
-  private static final int[][] EMPTY = new int[0][0];
+  /** number of channels along y, i.e., the length of a row in <code>counts2d</code> */
+  private final transient int stride;
+
+  /** private counts of a thread attached to <code>HistogramShards</code> */
+  private final transient ThreadLocal<int[]> shard = new ThreadLocal<>();
+
+  private static final int[] EMPTY = new int[0];
 
   /**
    * Create a new 2-d histogram with counts known (must be square histogram) and with the axis label
@@ -37,14 +47,40 @@ public final class HistInt2D extends AbstractHist2D {
         title,
         axisLabelX,
         axisLabelY);
-    initCounts(countsIn);
+    stride = getSizeY();
+    counts2d = new int[getSizeX() * stride];
+    setCountsArray(countsIn);
   }
 
-  private void initCounts(final int[][] countsIn) {
-    counts2d = new int[getSizeX()][getSizeY()];
-    for (int i = 0; i < countsIn.length; i++) { // copy arrays
-      System.arraycopy(countsIn[i], 0, counts2d[i], 0, countsIn[0].length);
-    }
+  /**
+   * Create a new 2-d histogram whose counts are read when first needed.
+   *
+   * @param title lengthier title of histogram, displayed on plot
+   * @param axisLabelX label displayed for x-axis on plot
+   * @param axisLabelY label displayed for y-axis on plot
+   * @param sizeX number of x-channels
+   * @param sizeY number of y-channels
+   * @param source supplies a row-major <code>int[]</code> of counts
+   */
+  HistInt2D(
+      final String title,
+      final String axisLabelX,
+      final String axisLabelY,
+      final int sizeX,
+      final int sizeY,
+      final CountsSource source) {
+    super(jam.data.HistogramType.TWO_DIM_INT, sizeX, sizeY, title, axisLabelX, axisLabelY);
+    stride = sizeY;
+    counts2d = EMPTY;
+    deferCounts(source);
+  }
+
+  @Override
+  protected void installCounts(final Object loaded) {
+    final int[] ints = (int[]) loaded;
+    final int length = getSizeX() * stride;
+    counts2d = ints.length == length ? ints : Arrays.copyOf(ints, length);
+    getGateCollection().recountAreas();
   }
 
   /**
@@ -56,7 +92,8 @@ public final class HistInt2D extends AbstractHist2D {
    */
   @Override
   public double getCounts(final int chX, final int chY) {
-    return counts2d[chX][chY];
+    loadDeferredCounts();
+    return AtomicCounts.get(counts2d, chX * stride + chY);
   }
 
   /**
@@ -68,7 +105,10 @@ public final class HistInt2D extends AbstractHist2D {
    */
   @Override
   public void setCounts(final int chX, final int chY, final double counts) {
-    counts2d[chX][chY] = (int) Math.round(counts);
+    loadDeferredCounts();
+    counts2d[chX * stride + chY] = (int) Math.round(counts);
+    getGateCollection().recountAreas();
+    markChanged();
   }
 
   /*
@@ -79,28 +119,81 @@ public final class HistInt2D extends AbstractHist2D {
   @Override
   protected void clearCounts() {
     synchronized (this) {
+      deferCounts(null);
       counts2d = EMPTY;
+      getGateCollection().recountAreas();
       clear = true;
     }
   }
 
   /**
-   * Returns the counts in the histogram as an array of the appropriate type. It is necessary to
-   * cast the returned array with <code>(int [][])</code>.
+   * Returns a copy of the counts in the histogram as an array of rows. Callers which don't need
+   * that form should prefer <code>copyCounts()</code> or <code>getCountsView()</code>. Like them,
+   * this takes a snapshot without waiting on threads incrementing the histogram.
    *
    * @return <code>int [][]</code>
    */
   public int[][] getCounts() {
-    synchronized (this) {
-      final int len = counts2d.length;
-      int[][] rval = new int[len][];
-      for (int i = 0; i < len; i++) {
-        rval[i] = counts2d[i].clone();
+    loadDeferredCounts();
+    final int[] current = counts2d;
+    final int sizeX = current.length == 0 ? 0 : getSizeX();
+    final int[][] rval = new int[sizeX][stride];
+    for (int x = 0; x < sizeX; x++) {
+      System.arraycopy(current, x * stride, rval[x], 0, stride);
+    }
+    return rval;
+  }
+
+  /**
+   * Copies a snapshot of the counts into the given row-major array.
+   *
+   * @param dest at least <code>sizeX * sizeY</code> long
+   */
+  public void copyCounts(final int[] dest) {
+    loadDeferredCounts();
+    final int[] current = counts2d;
+    AtomicCounts.snapshot(current, dest, current.length);
+  }
+
+  @Override
+  public void copyCounts(final double[][] dest) {
+    final IntBuffer view = getCountsView();
+    final int sizeX = Math.min(dest.length, view.limit() / Math.max(1, stride));
+    for (int x = 0; x < sizeX; x++) {
+      final double[] row = dest[x];
+      final int offset = x * stride;
+      final int sizeY = Math.min(row.length, stride);
+      for (int y = 0; y < sizeY; y++) {
+        row[y] = view.get(offset + y);
+      }
+    }
+  }
+
+  @Override
+  void copyRow(final int chX, final double[] dest) {
+    loadDeferredCounts();
+    VarHandle.acquireFence();
+    final int[] current = counts2d;
+    if (current.length > 0) {
+      final int offset = chX * stride;
+      for (int y = 0; y < stride; y++) {
+        dest[y] = current[offset + y];
       }
-      return rval;
     }
   }
 
+  /**
+   * Returns a read-only view of the row-major counts, without copying them. Counts incremented
+   * while the view is being read may or may not be seen.
+   *
+   * @return a read-only view of the counts
+   */
+  public IntBuffer getCountsView() {
+    loadDeferredCounts();
+    VarHandle.acquireFence();
+    return IntBuffer.wrap(counts2d).asReadOnlyBuffer();
+  }
+
   @Override
   public double getCount() {
     return getArea();
@@ -109,10 +202,10 @@ public final class HistInt2D extends AbstractHist2D {
   /** Zeroes all the counts in this histogram. */
   @Override
   public void setZero() {
-    final int size = getSizeX();
-    for (int i = 0; i < size; i++) {
-      Arrays.fill(counts2d[i], 0);
-    }
+    loadDeferredCounts();
+    Arrays.fill(counts2d, 0);
+    getGateCollection().recountAreas();
+    markChanged();
   }
 
   /**
@@ -136,6 +229,8 @@ public final class HistInt2D extends AbstractHist2D {
               + ".");
     }
     setCountsArray((int[][]) countsIn);
+    getGateCollection().recountAreas();
+    markChanged();
   }
 
   /**
@@ -150,6 +245,8 @@ public final class HistInt2D extends AbstractHist2D {
       throw new IllegalArgumentException("Expected array for type " + getType());
     }
     addCountsArray((int[][]) countsIn);
+    getGateCollection().recountAreas();
+    markChanged();
   }
 
   /**
@@ -159,47 +256,44 @@ public final class HistInt2D extends AbstractHist2D {
    */
   @Override
   public double getArea() {
-    final int size = getSizeX();
-    double sum = 0.0;
-    for (int i = 0; i < size; i++) {
-      final int sizeY = getSizeY();
-      for (int j = 0; j < sizeY; j++) {
-        sum += counts2d[i][j];
-      }
+    loadDeferredCounts();
+    VarHandle.acquireFence();
+    long sum = 0L;
+    for (int count : counts2d) {
+      sum += count;
     }
     return sum;
   }
 
   private void setCountsArray(final int[][] countsIn) {
+    loadDeferredCounts();
     synchronized (this) {
-      final int loopLen = Math.min(counts2d.length, countsIn.length);
-      for (int i = 0; i < loopLen; i++) {
+      final int loopLen = Math.min(counts2d.length / Math.max(1, stride), countsIn.length);
+      for (int x = 0; x < loopLen; x++) {
         System.arraycopy(
-            countsIn[i], 0, counts2d[i], 0, Math.min(countsIn[i].length, counts2d[i].length));
+            countsIn[x], 0, counts2d, x * stride, Math.min(countsIn[x].length, stride));
       }
     }
   }
 
   private void addCountsArray(final int[][] countsIn) {
-    final int len = countsIn.length;
-    synchronized (this) {
-      final int maxX = Math.min(getSizeX(), len) - 1;
-      final int[][] temp = new int[countsIn.length][];
-      for (int i = 0; i <= maxX; i++) {
-        temp[i] = countsIn[i].clone();
-      }
-      final int maxY = Math.min(getSizeY(), countsIn[0].length) - 1;
-      for (int x = maxX; x >= 0; x--) {
-        for (int y = maxY; y >= 0; y--) {
-          counts2d[x][y] += temp[x][y];
-        }
-      }
+    loadDeferredCounts();
+    final int[] current = counts2d;
+    final int maxX = Math.min(current.length / Math.max(1, stride), countsIn.length);
+    final int maxY = Math.min(stride, countsIn[0].length);
+    final int[] row = new int[maxY];
+    for (int x = 0; x < maxX; x++) {
+      System.arraycopy(countsIn[x], 0, row, 0, maxY);
+      AtomicCounts.addAll(current, x * stride, row, maxY);
     }
   }
 
   /**
    * Increments the counts by one in the given channel. Must be a histogram of type <code>
-   * TWO_DIM_INT</code>.
+   * TWO_DIM_INT</code>. The count is added atomically, without locking, and to the running areas of
+   * the gates containing the channel. If the calling thread is attached to <code>HistogramShards
+   * </code>, the count goes to its private shard instead, and only becomes visible when the shard
+   * is flushed.
    *
    * @param dataWordX the x-channel to be incremented
    * @param dataWordY the y-channel to be incremented
@@ -222,8 +316,52 @@ public final class HistInt2D extends AbstractHist2D {
     } else if (dataWordY < 0) {
       incY = 0;
     }
-    synchronized (this) {
-      counts2d[incX][incY]++;
+    final int index = incX * stride + incY;
+    final int[] local = HistogramShards.isActive() ? localShard() : null;
+    if (local == null) {
+      loadDeferredCounts();
+      AtomicCounts.increment(counts2d, index);
+      getGateCollection().countArea(incX, incY);
+      markChanged();
+    } else {
+      local[index]++;
+    }
+  }
+
+  /**
+   * @return the calling thread's private counts, or <code>null</code> if it isn't attached
+   */
+  private int[] localShard() {
+    int[] local = shard.get();
+    if (local == null) {
+      final HistogramShards owner = HistogramShards.current();
+      if (owner != null) {
+        local = new int[getSizeX() * stride];
+        shard.set(local);
+        owner.register(new CountsShard(local));
+      }
+    }
+    return local;
+  }
+
+  private final class CountsShard implements HistogramShards.Shard {
+    private final transient int[] local;
+
+    CountsShard(final int[] local) {
+      this.local = local;
+    }
+
+    public void flush() {
+      loadDeferredCounts();
+      final int[] current = counts2d;
+      AtomicCounts.addAll(current, 0, local, Math.min(local.length, current.length));
+      getGateCollection().addArea(local, stride);
+      Arrays.fill(local, 0);
+      markChanged();
+    }
+
+    public void remove() {
+      shard.remove();
     }
   }
 }
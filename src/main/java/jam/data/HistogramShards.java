@@ -0,0 +1,103 @@
+package jam.data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A sorting thread's private copies ("shards") of the integer histograms it increments. While a
+ * thread is attached, <code>HistInt1D.inc()</code> and <code>HistInt2D.inc()</code> called from
+ * that thread count into a shard allocated on first use, instead of taking the histogram's lock for
+ * every event. The owning thread periodically calls <code>flush()</code>, which adds each shard
+ * into its visible histogram under that histogram's lock and zeroes the shard.
+ *
+ * <p>Threads which never attach are unaffected, and keep incrementing the visible histograms
+ * directly.
+ *
+ * @author Dale Visser
+ * @see HistInt1D#inc(int)
+ * @see HistInt2D#inc(int, int)
+ */
+public final class HistogramShards {
+
+  /** One histogram's private counts, as seen by the thread owning them. */
+  interface Shard {
+    /** Adds the private counts to the visible histogram, and zeroes them. */
+    void flush();
+
+    /** Forgets the private counts, so the histogram no longer sees this thread as sharded. */
+    void remove();
+  }
+
+  private static final ThreadLocal<HistogramShards> CURRENT = new ThreadLocal<>();
+
+  /** number of attached threads, so unattached increments can skip the thread-local lookup */
+  private static final AtomicInteger ATTACHED = new AtomicInteger();
+
+  private final transient List<Shard> shards = new ArrayList<>();
+
+  private HistogramShards() {
+    super();
+  }
+
+  /**
+   * Attaches the calling thread, so that its increments go to private shards from now on.
+   *
+   * @return the calling thread's shards
+   */
+  public static HistogramShards attach() {
+    HistogramShards result = CURRENT.get();
+    if (result == null) {
+      result = new HistogramShards();
+      CURRENT.set(result);
+      ATTACHED.incrementAndGet();
+    }
+    return result;
+  }
+
+  /**
+   * @return whether any thread is currently attached
+   */
+  static boolean isActive() {
+    return ATTACHED.get() > 0;
+  }
+
+  /**
+   * @return the calling thread's shards, or <code>null</code> if it isn't attached
+   */
+  static HistogramShards current() {
+    return CURRENT.get();
+  }
+
+  void register(final Shard shard) {
+    shards.add(shard);
+  }
+
+  /**
+   * Adds every shard into its visible histogram and zeroes it. Must be called from the owning
+   * thread.
+   */
+  public void flush() {
+    for (Shard shard : shards) {
+      shard.flush();
+    }
+  }
+
+  /**
+   * Flushes, then detaches the calling thread. Must be called from the owning thread.
+   *
+   * @throws IllegalStateException if called from a thread other than the owner
+   */
+  public void detach() {
+    if (CURRENT.get() != this) {
+      throw new IllegalStateException("Shards may only be detached by their own thread.");
+    }
+    flush();
+    for (Shard shard : shards) {
+      shard.remove();
+    }
+    shards.clear();
+    CURRENT.remove();
+    ATTACHED.decrementAndGet();
+  }
+}
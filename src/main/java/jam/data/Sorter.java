@@ -14,6 +14,9 @@ package jam.data;
  *   <dd>called each time the monitors are updated
  * </dl>
  *
+ * <p>It may also override <code>sortBlock</code>, which is called with each buffer of events when
+ * sorting online.
+ *
  * @author Ken Swartz
  * @version 0.9
  * @since JDK 1.1
@@ -67,4 +70,39 @@ public interface Sorter {
    *     controlling thread
    */
   void sort(int[] dataWords) throws Exception; // NOPMD
+
+  /**
+   * Returns whether <code>sort()</code> never writes into the array it is given, e.g., to hold
+   * calculated parameters. If so, only the parameters present in each event need to be zeroed
+   * before the next, rather than the whole array. By default, routines aren't assumed to leave
+   * their events unchanged.
+   *
+   * @return <code>true</code> if events may be cleared sparsely
+   */
+  default boolean leavesEventsUnchanged() {
+    return false;
+  }
+
+  /**
+   * Called to process every event in a block decoded from one buffer. By default, calls <code>
+   * sort()</code> with each event in turn, reusing a single array which is zeroed between calls.
+   * Only the parameters present in the previous event are zeroed if <code>leavesEventsUnchanged()
+   * </code>. Routines may override this to work directly with the block's columns.
+   *
+   * @param block events to process
+   * @exception Exception any exceptions caught by calls in this method should be thrown up to the
+   *     controlling thread
+   */
+  default void sortBlock(final EventBlock block) throws Exception { // NOPMD
+    final int size = block.size();
+    final boolean sparse = leavesEventsUnchanged();
+    for (int event = 0; event < size; event++) {
+      sort(block.expand(event));
+      if (sparse) {
+        block.clearExpanded(event);
+      } else {
+        block.clearAllExpanded();
+      }
+    }
+  }
 }
@@ -3,13 +3,12 @@ package jam.data.control;
 import static javax.swing.SwingConstants.RIGHT;
 
 import com.google.inject.Inject;
+import jam.data.AbstractHist2D;
 import jam.data.AbstractHistogram;
 import jam.data.DataElement;
 import jam.data.DataException;
 import jam.data.DataUtility;
 import jam.data.Gate;
-import jam.data.HistDouble2D;
-import jam.data.HistInt2D;
 import jam.data.HistogramType;
 import jam.global.BroadcastEvent;
 import jam.global.Broadcaster;
@@ -295,12 +294,9 @@ public final class Projections extends AbstractManipulation {
    * non-javadoc: Does the work of projecting a histogram
    */
   private void project() throws DataException {
-    double[][] counts2d;
     final AbstractHistogram hfrom = AbstractHistogram.getHistogram(hfromname);
-    counts2d =
-        (hfrom.getType() == HistogramType.TWO_D_DOUBLE)
-            ? ((HistDouble2D) hfrom).getCounts()
-            : this.numberUtilities.intToDouble2DArray(((HistInt2D) hfrom).getCounts());
+    final double[][] counts2d = new double[hfrom.getSizeX()][hfrom.getSizeY()];
+    ((AbstractHist2D) hfrom).copyCounts(counts2d);
     final String name = (String) cto.getSelectedItem();
     final Object selected = cchan.getSelectedItem();
     final boolean between = BETWEEN.equals(selected);
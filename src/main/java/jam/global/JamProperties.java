@@ -349,6 +349,14 @@ public final class JamProperties {
     PROPERTIES.setProperty(PropertyKeys.TARGET_PORT, "5003");
     PROPERTIES.setProperty(PropertyKeys.HOST_DATA_IP, "localhost");
     PROPERTIES.setProperty(PropertyKeys.HOST_DATA_P_RECV, "10205");
+    PROPERTIES.setProperty(
+        PropertyKeys.RING_BUFFER_CLASS, "jam.sort.LinkedBlockingDequeRingBuffer");
+    PROPERTIES.setProperty(PropertyKeys.RING_BUFFER_WAIT, "yield");
+    PROPERTIES.setProperty(PropertyKeys.RING_BUFFER_HANDOFF, Boolean.FALSE.toString());
+    PROPERTIES.setProperty(PropertyKeys.RING_BUFFER_SIZE, "8192");
+    PROPERTIES.setProperty(PropertyKeys.RING_BUFFER_COUNT, "256");
+    PROPERTIES.setProperty(PropertyKeys.RING_BUFFER_OFF_HEAP, Boolean.FALSE.toString());
+    PROPERTIES.setProperty(PropertyKeys.SORT_THREADS, "1");
   }
 
   /** Load default user properties. */
@@ -65,6 +65,45 @@ public final class PropertyKeys {
   /** Default path to the folder for writing out the console log. */
   public static final String LOG_PATH = "log.path";
 
+  /**
+   * Fully qualified name of the <code>RingBuffer</code> implementation used to pass online data
+   * between threads.
+   *
+   * @see jam.sort.RingBufferFactory
+   */
+  public static final String RING_BUFFER_CLASS = "ring.class";
+
+  /**
+   * How a lock-free ring buffer waits for data: <code>spin</code>, <code>yield</code> or <code>
+   * park</code>.
+   *
+   * @see jam.sort.LockFreeRingBuffer.WaitStrategy
+   */
+  public static final String RING_BUFFER_WAIT = "ring.wait";
+
+  /**
+   * Whether online data is handed between daemons in pooled, reference-counted buffers instead of
+   * being copied into each ring buffer.
+   *
+   * @see jam.sort.HandoffRingBuffer
+   */
+  public static final String RING_BUFFER_HANDOFF = "ring.handoff";
+
+  /** Size in bytes of a single ring buffer. Must match the size of the front end's packets. */
+  public static final String RING_BUFFER_SIZE = "ring.bufferSize";
+
+  /** Number of buffers in each ring buffer, rounded up to a power of 2. */
+  public static final String RING_BUFFER_COUNT = "ring.buffers";
+
+  /**
+   * A ring buffer is close to full, and online sorting starts sampling events, when fewer than this
+   * many buffers are free. Defaults to 1/16 of the number of buffers.
+   */
+  public static final String RING_BUFFER_CLOSE_TO_FULL = "ring.closeToFull";
+
+  /** Whether ring buffers keep their data in direct (off-heap) memory, where supported. */
+  public static final String RING_BUFFER_OFF_HEAP = "ring.offHeap";
+
   /** Path to search for and load sort routines. */
   public static final String SORT_CLASSPATH = "sort.classpath";
 
@@ -75,6 +114,14 @@ public final class PropertyKeys {
    */
   public static final String SORT_ROUTINE = "sort.routine";
 
+  /**
+   * Number of threads used to sort online buffers, or offline event files. Only sort routines
+   * implementing <code>StatelessSorter</code> are sorted with more than one thread.
+   *
+   * @see jam.sort.StatelessSorter
+   */
+  public static final String SORT_THREADS = "sort.threads";
+
   /** Front end's IP address for communicating with Jam. */
   public static final String TARGET_IP = "target.IP";
 
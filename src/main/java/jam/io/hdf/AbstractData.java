@@ -2,8 +2,10 @@ package jam.io.hdf;
 
 import injection.GuiceInjector;
 import jam.util.StringUtilities;
+import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.*;
 import java.util.logging.Logger;
 
@@ -20,19 +22,6 @@ public abstract class AbstractData {
   protected static final Logger LOGGER =
       Logger.getLogger(AbstractData.class.getPackage().getName());
 
-  private static final byte[] CLEARBYTES = new byte[0];
-
-  /** List of Data Objects in the file. */
-  private static List<AbstractData> objectList =
-      Collections.synchronizedList(new ArrayList<AbstractData>());
-
-  /** Count for references, to make sure references are unique Reference count, starts at 1 */
-  private static short refCount = 1;
-
-  /** Map of Data Objects in file with tag/ref as key */
-  private static Map<Integer, AbstractData> tagRefMap =
-      Collections.synchronizedMap(new HashMap<Integer, AbstractData>());
-
   /** inverse of TYPES map */
   protected static final Map<Class<? extends AbstractData>, Short> TAGS = new HashMap<>();
 
@@ -60,49 +49,12 @@ public abstract class AbstractData {
     TYPES.put(Constants.DFTAG_VG, VirtualGroup.class);
     TYPES.put(Constants.DFTAG_VH, VDataDescription.class);
     TYPES.put(Constants.DFTAG_VS, VData.class);
+    TYPES.put(Constants.DFTAG_COMPRESSED, CompressedData.class);
     for (Short tag : TYPES.keySet()) {
       TAGS.put(TYPES.get(tag), tag);
     }
   }
 
-  /**
-   * Adds the data object to the list of objects. The reference number is expected to have been
-   * previously assigned, but is checked to be unique for the object tag.
-   *
-   * @param data data object
-   */
-  protected static void addDataObjectToList(final AbstractData data) {
-    final Integer key = calculateKey(data.getClass(), data.getRef());
-    if (tagRefMap.containsKey(key)) {
-      throw new IllegalArgumentException(
-          "Can't add to list of DataObjects as DataOjbect with the same tag and ref exists.");
-    }
-    tagRefMap.put(key, data);
-    objectList.add(data);
-  }
-
-  /*
-   * non-javadoc: Create a unique key given then tag an ref numbers.
-   */
-  private static <T extends AbstractData> int calculateKey(final Class<T> tag, final short ref) {
-    final int tagInt = TAGS.get(tag);
-    final int refInt = ref;
-    final int key = (tagInt << 16) + refInt;
-    LOGGER.finer(" Key tag " + tagInt + " ref " + refInt + " key " + key);
-    return key;
-  }
-
-  /** Clear the lists of all data objects. */
-  protected static void clearAll() {
-    // set all object data to none
-    for (AbstractData dataObject : objectList) {
-      dataObject.bytes = ByteBuffer.wrap(CLEARBYTES);
-    }
-    objectList.clear();
-    tagRefMap.clear();
-    refCount = 1;
-  }
-
   protected static final <T extends AbstractData> T create(
       final byte[] bytes, final Class<T> tag, final short ref) throws HDFException {
     T dataObject = createDataObject(tag);
@@ -137,36 +89,13 @@ public abstract class AbstractData {
     return rval;
   }
 
-  /*
-   * non-javadoc: Create a new ref that is unque for the given tag The HDF
-   * standard requires that for a particular tag type, each instance have a
-   * unique ref.
-   *
-   * @return a reference number for the given HDF object @param refs the map
-   * for a given tag type
-   */
-  protected static <T extends AbstractData> short createUniqueRef(final Class<T> tag) {
-    if (tag == null) {
-      throw new IllegalArgumentException("null tag not acceptable.");
-    }
-    // Add 1 as its a good guess
-    refCount++;
-    // see if a unique object already exists
-    Integer key = calculateKey(tag, refCount);
-    while (tagRefMap.containsKey(key)) {
-      refCount++;
-      key = calculateKey(tag, refCount);
-    }
-    return refCount;
-  }
-
   /**
-   * Get the list of all data objects.
+   * Get the list of all data objects in the calling thread's registry.
    *
    * @return list of all objects
    */
   protected static List<AbstractData> getDataObjectList() {
-    return Collections.unmodifiableList(objectList);
+    return DataObjectRegistry.current().getObjects();
   }
 
   /**
@@ -176,12 +105,7 @@ public abstract class AbstractData {
    * @param <T> type of data object to return
    */
   public static <T extends AbstractData> T getObject(final Class<T> tag, final short ref) {
-    T match = null;
-    final Integer key = calculateKey(tag, ref);
-    if (tagRefMap.containsKey(key)) {
-      match = tag.cast(tagRefMap.get(key));
-    }
-    return match;
+    return DataObjectRegistry.current().getObject(tag, ref);
   }
 
   protected static void interpretBytesAll() throws HDFException {
@@ -238,19 +162,23 @@ public abstract class AbstractData {
   /** contains the 2-byte tag for the data type */
   protected short tag;
 
+  /** the file's objects, including this one */
+  private final transient DataObjectRegistry registry;
+
   /**
-   * Creates a new HDF DataObject, belonging to the specified <code>HDFile</code>. My approach is to
-   * have a separate HDFile object for each physical HDF file on disk. Each <code>HDFile</code>
-   * object handles the bookkeeping of the HDF File Header (see NCSA HDF: Specifications and
-   * Developer's Guide v3.2).
+   * Creates a new HDF DataObject, belonging to the registry bound to the calling thread. My
+   * approach is to have a separate HDFile object for each physical HDF file on disk. Each <code>
+   * HDFile</code> object handles the bookkeeping of the HDF File Header (see NCSA HDF:
+   * Specifications and Developer's Guide v3.2), and owns the registry of its objects.
    *
    * @param tag The hdf tag of the new object.
    */
   AbstractData(final short tag) {
     super();
     this.tag = tag;
-    this.ref = createUniqueRef(TYPES.get(tag));
-    addDataObjectToList(this); // ref gets set in this call
+    registry = DataObjectRegistry.current();
+    this.ref = registry.createUniqueRef(TYPES.get(tag));
+    registry.add(this); // ref gets set in this call
   }
 
   /*
@@ -265,6 +193,42 @@ public abstract class AbstractData {
     return length;
   }
 
+  /**
+   * Returns the number of bytes this object occupies in the file. Override when the size is known
+   * without building the bytes.
+   *
+   * @return size in bytes
+   */
+  protected int getByteLength() {
+    return getBytes().capacity();
+  }
+
+  /**
+   * Writes the bytes of this object at its offset in the file. Override to write large objects in
+   * pieces, rather than building all their bytes first.
+   *
+   * @param channel of the file being written
+   * @param chunk scratch buffer, which overrides may fill and write repeatedly
+   * @throws IOException if the write fails
+   */
+  protected void writeBytes(final FileChannel channel, final ByteBuffer chunk) throws IOException {
+    final ByteBuffer source = ByteBuffer.wrap(getBytes().array());
+    long position = offset;
+    while (source.hasRemaining()) {
+      position += channel.write(source, position);
+    }
+  }
+
+  /**
+   * Returns the tag written in this object's data descriptor, which differs from <code>getTag()
+   * </code> only for special elements.
+   *
+   * @return tag for the data descriptor block
+   */
+  protected short getDescriptorTag() {
+    return tag;
+  }
+
   protected int getOffset() {
     return offset;
   }
@@ -377,25 +341,7 @@ public abstract class AbstractData {
    * @param newref 2 bytes
    */
   protected final void setRef(final short newref) {
-    // Remove object with old ref
-    final Integer key = calculateKey(getClass(), ref);
-    if (tagRefMap.containsKey(key)) {
-      tagRefMap.remove(key);
-
-      // Add
-      final Integer keyNew = calculateKey(getClass(), newref);
-      // Check for collision
-      if (tagRefMap.containsKey(key)) {
-        throw new IllegalArgumentException(
-            "Can't set reference on DataObject as one the reference already exists.");
-      }
-      ref = newref;
-      tagRefMap.put(keyNew, this);
-
-    } else {
-      throw new IllegalArgumentException(
-          "DataObject not in object table, so cannot change reference");
-    }
+    registry.changeRef(this, newref);
   }
 
   private void setTag(final short newTag) {
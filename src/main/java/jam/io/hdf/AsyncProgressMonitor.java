@@ -1,12 +1,14 @@
 package jam.io.hdf;
 
 import java.awt.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.swing.*;
 
 /**
- * Progress bar that can be called from asyncronize (non ui) thread
+ * Progress bar that can be called from asyncronize (non ui) thread. Several threads may call
+ * <code>increment()</code> at once.
  *
  * @author Ken Swartz
  */
@@ -17,7 +19,7 @@ public class AsyncProgressMonitor {
 
   private static final int MIN = 0;
 
-  private transient int count;
+  private final transient AtomicInteger count = new AtomicInteger();
 
   private final transient Component frame;
 
@@ -28,6 +30,38 @@ public class AsyncProgressMonitor {
     this.frame = frame;
   }
 
+  /**
+   * @return a monitor which shows nothing, for work done in the background
+   */
+  static AsyncProgressMonitor silent() {
+    return new AsyncProgressMonitor(null) {
+      @Override
+      protected void close() {
+        // shows nothing
+      }
+
+      @Override
+      protected void increment() {
+        // shows nothing
+      }
+
+      @Override
+      protected void setNote(final String note) {
+        // shows nothing
+      }
+
+      @Override
+      protected void setProgress(final int value) {
+        // shows nothing
+      }
+
+      @Override
+      protected void setup(final String message, final String note, final int max) {
+        // shows nothing
+      }
+    };
+  }
+
   protected void close() {
     final Runnable runner = () -> monitor.close();
     try {
@@ -38,8 +72,8 @@ public class AsyncProgressMonitor {
   }
 
   protected void increment() {
-    count++;
-    final Runnable runner = () -> monitor.setProgress(count);
+    count.incrementAndGet();
+    final Runnable runner = () -> monitor.setProgress(count.get());
     try {
       SwingUtilities.invokeAndWait(runner);
     } catch (Exception e) {
@@ -66,7 +100,7 @@ public class AsyncProgressMonitor {
   }
 
   protected void setup(final String message, final String note, final int max) {
-    count = 0;
+    count.set(0);
     final Runnable runner =
         () -> {
           monitor = new ProgressMonitor(frame, message, note, MIN, max);
@@ -0,0 +1,39 @@
+package jam.io.hdf;
+
+import static jam.io.hdf.Constants.DFTAG_COMPRESSED;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Class to represent the <em>Compressed Data</em> of an HDF special element. The element itself,
+ * e.g., a <code>ScientificData</code>, holds only a header giving the compression method and the
+ * reference number of this object, which holds the compressed bytes.
+ *
+ * @author Dale Visser
+ * @see ScientificData#compress()
+ */
+final class CompressedData extends AbstractData {
+
+  CompressedData() {
+    super(DFTAG_COMPRESSED);
+  }
+
+  CompressedData(final byte[] compressed) { // NOPMD
+    super(DFTAG_COMPRESSED);
+    bytes = ByteBuffer.wrap(compressed);
+  }
+
+  /**
+   * @param infile file this object was read from
+   * @return the compressed bytes, read from the file if they weren't read with the rest of it
+   * @throws HDFException if the bytes can't be read
+   */
+  byte[] getCompressedBytes(final HDFile infile) throws HDFException {
+    return bytes == null ? infile.lazyReadData(this) : bytes.array();
+  }
+
+  @Override
+  public void interpretBytes() {
+    // nothing to do
+  }
+}
@@ -88,6 +88,25 @@ public final class Constants {
    */
   public static final short DFTAG_SD = 702;
 
+  /**
+   * HDF tag for the compressed bytes of a special element
+   *
+   * @see CompressedData
+   */
+  public static final short DFTAG_COMPRESSED = 40;
+
+  /** Set in the data descriptor tag of a special element, e.g., compressed scientific data. */
+  public static final short SPECIAL_TAG = 0x4000;
+
+  /** Special element code for compressed data. */
+  public static final short SPECIAL_COMP = 3;
+
+  /** Compression model code for <em>standard I/O</em>, the only model HDF defines. */
+  public static final short COMP_MODEL_STDIO = 0;
+
+  /** Compression code for zlib <em>deflate</em>. */
+  public static final short COMP_CODE_DEFLATE = 4;
+
   /**
    * HDF tag for Scientific data dimension records
    *
@@ -33,6 +33,15 @@ final class ConvertHDFObjToJamObj {
 
   private transient HDFile inHDF;
 
+  /** if not <code>null</code>, where counts read in <code>ADD</code> mode are kept */
+  private transient DetachedCounts detached;
+
+  /** whether opened histograms map their counts, to be read when first needed */
+  private transient boolean mapCounts;
+
+  /** whether gates missing when reloading a file are created */
+  private transient boolean createGates;
+
   @Inject
   ConvertHDFObjToJamObj(final StringUtilities stringUtilities) {
     super();
@@ -44,7 +53,11 @@ final class ConvertHDFObjToJamObj {
     final AbstractHistogram histogram =
         group.histograms.get(stringUtilities.makeLength(name, AbstractHistogram.NAME_LENGTH));
     if (histogram != null) {
-      histogram.addCounts(histData);
+      if (detached == null) {
+        histogram.addCounts(histData);
+      } else {
+        detached.addHistogram(histogram, histData);
+      }
     }
     return histogram;
   }
@@ -142,7 +155,8 @@ final class ConvertHDFObjToJamObj {
       final String histName = hist.getFullName();
       final String gateNameMod = stringUtilities.makeLength(gateName, Gate.NAME_LENGTH);
       final String gateFullName = stringUtilities.makeFullName(histName, gateNameMod);
-      gate = Gate.getGate(gateFullName);
+      final Gate existing = Gate.getGate(gateFullName);
+      gate = existing == null && createGates ? makeGate(hist, gateName) : existing;
     }
     if (gate != null) {
       if (gate.getDimensionality() == 1) { // 1-d gate
@@ -358,7 +372,18 @@ final class ConvertHDFObjToJamObj {
     final String name = attr.getName();
     final String title = attr.getTitle();
     final int number = attr.getNumber();
-    if (mode.isOpenMode()) {
+    final MappedCounts mapped =
+        mode.isOpenMode() && mapCounts
+            ? sciData.mapCounts(inHDF, histDim == 2 ? sizeX * sizeY : sizeX)
+            : null;
+    if (mapped != null) {
+      final HistogramType type = histogramType(histDim, histNumType);
+      rval = Factory.createHistogram(group, type, sizeX, sizeY, name, title, mapped);
+      rval.setNumber(number);
+      if (sdErr != null) {
+        ((AbstractHist1D) rval).setErrors(sdErr.getData1dD(inHDF, sizeX));
+      }
+    } else if (mode.isOpenMode()) {
       final Object histData = sciData.getData(inHDF, histDim, histNumType, sizeX, sizeY);
       Object histErrData = null;
       if (sdErr != null) {
@@ -422,7 +447,11 @@ final class ConvertHDFObjToJamObj {
       /* make if OPEN, retrieve if RELOAD */
       final var param = produceParameter(mode, dataName);
       if (param != null) {
-        param.setValue(data.getFloat(i, 1));
+        if (detached == null) {
+          param.setValue(data.getFloat(i, 1));
+        } else {
+          detached.setParameter(param, data.getFloat(i, 1));
+        }
       }
     }
     return numParams;
@@ -459,7 +488,11 @@ final class ConvertHDFObjToJamObj {
       if (scaler != null) {
         final int fileValue = data.getInteger(i, 2);
         if (mode == FileOpenMode.ADD) {
-          scaler.setValue(scaler.getValue() + fileValue);
+          if (detached == null) {
+            scaler.setValue(scaler.getValue() + fileValue);
+          } else {
+            detached.addScaler(scaler, fileValue);
+          }
         } else {
           scaler.setValue(fileValue);
         }
@@ -675,6 +708,19 @@ final class ConvertHDFObjToJamObj {
     return hist == null ? null : new Gate(name, hist);
   }
 
+  private static HistogramType histogramType(final int histDim, final byte histNumType)
+      throws HDFException {
+    final HistogramType rval;
+    if (histDim == 1) {
+      rval = histNumType == NumberType.INT ? HistogramType.ONE_DIM_INT : HistogramType.ONE_D_DOUBLE;
+    } else if (histDim == 2) {
+      rval = histNumType == NumberType.INT ? HistogramType.TWO_DIM_INT : HistogramType.TWO_D_DOUBLE;
+    } else {
+      throw new HDFException("Unknown histogram data type");
+    }
+    return rval;
+  }
+
   AbstractHistogram openHistogram(
       final Group group,
       final String name,
@@ -736,4 +782,34 @@ final class ConvertHDFObjToJamObj {
   void setInFile(final HDFile inFile) {
     inHDF = inFile;
   }
+
+  /**
+   * Sets whether histograms created when opening a file map their counts, to be read only when
+   * first needed, instead of reading them now.
+   *
+   * @param map whether to map counts
+   */
+  void setMapCounts(final boolean map) {
+    mapCounts = map;
+  }
+
+  /**
+   * Sets whether reloading a file creates the gates in it which don't exist yet, instead of
+   * skipping them.
+   *
+   * @param create whether to create missing gates
+   */
+  void setCreateGates(final boolean create) {
+    createGates = create;
+  }
+
+  /**
+   * Keeps counts read in <code>ADD</code> mode apart from the histograms and scalers they belong
+   * to, instead of adding them immediately.
+   *
+   * @param counts to add counts to, or <code>null</code> to add directly to histograms
+   */
+  void setDetachedCounts(final DetachedCounts counts) {
+    detached = counts;
+  }
 }
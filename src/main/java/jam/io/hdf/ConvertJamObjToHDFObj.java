@@ -21,7 +21,10 @@ import jam.util.StringUtilities;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.lang.reflect.UndeclaredThrowableException;
+import java.nio.IntBuffer;
+import java.util.Arrays;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Convert a Jam data objects to a hdf data objects
@@ -32,6 +35,11 @@ final class ConvertJamObjToHDFObj {
 
   private final transient StringUtilities stringUtilities;
 
+  private transient boolean compressCounts;
+
+  /** integer counts are snapshotted into this, reused from one histogram to the next */
+  private transient int[] snapshot = new int[0];
+
   /** Constructs a Jam-to-HDF object converter. */
   @Inject
   ConvertJamObjToHDFObj(final StringUtilities stringUtilities) {
@@ -39,6 +47,15 @@ final class ConvertJamObjToHDFObj {
     this.stringUtilities = stringUtilities;
   }
 
+  /**
+   * Sets whether histogram counts are written compressed, where that makes them smaller.
+   *
+   * @param compress whether to compress counts
+   */
+  void setCompressCounts(final boolean compress) {
+    compressCounts = compress;
+  }
+
   /*
    * non-javadoc: Add default objects always needed.
    *
@@ -188,19 +205,45 @@ final class ConvertJamObjToHDFObj {
     final HistogramType type = hist.getType();
     ScientificData sciData;
     AbstractHist1D hist1d = null;
+    /*
+     * Integer counts may be incremented by sorting while they're written, so are
+     * snapshotted each time they're compressed or written. Double counts are
+     * only ever set, so are read through views.
+     */
     if (type == HistogramType.ONE_DIM_INT) {
-      sciData = new ScientificData(((HistInt1D) hist).getCounts());
+      final HistInt1D histInt = (HistInt1D) hist;
+      sciData =
+          new ScientificData(
+              NumberType.INT,
+              hist.getSizeX(),
+              () -> snapshotCounts(hist.getSizeX(), histInt::copyCounts));
       hist1d = (AbstractHist1D) hist;
     } else if (type == HistogramType.ONE_D_DOUBLE) {
-      sciData = new ScientificData(((HistDouble1D) hist).getCounts());
+      sciData =
+          new ScientificData(
+              NumberType.DOUBLE, hist.getSizeX(), ((HistDouble1D) hist)::getCountsView);
       hist1d = (AbstractHist1D) hist;
     } else if (type == HistogramType.TWO_DIM_INT) {
-      sciData = new ScientificData(((HistInt2D) hist).getCounts());
+      final HistInt2D histInt = (HistInt2D) hist;
+      sciData =
+          new ScientificData(
+              NumberType.INT,
+              hist.getSizeX(),
+              hist.getSizeY(),
+              () -> snapshotCounts(hist.getSizeX() * hist.getSizeY(), histInt::copyCounts));
     } else if (type == HistogramType.TWO_D_DOUBLE) {
-      sciData = new ScientificData(((HistDouble2D) hist).getCounts());
+      sciData =
+          new ScientificData(
+              NumberType.DOUBLE,
+              hist.getSizeX(),
+              hist.getSizeY(),
+              ((HistDouble2D) hist)::getCountsView);
     } else {
       throw new IllegalArgumentException("HDFIO encountered a Histogram of unknown type.");
     }
+    if (compressCounts) {
+      sciData.compress();
+    }
     ndg.addDataObject(sciData);
     if (hist1d != null && hist1d.hasErrorsSet()) { // Add errors
       ScientificDataDimension sddErr = null;
@@ -221,6 +264,21 @@ final class ConvertJamObjToHDFObj {
     return ndg;
   }
 
+  /*
+   * non-javadoc: Snapshots integer counts into the reused array, which only
+   * holds them until the next histogram's are snapshotted. Writes are made
+   * one at a time, by the thread holding the lock of the HDFIO using this.
+   */
+  private IntBuffer snapshotCounts(final int size, final Consumer<int[]> copier) {
+    if (snapshot.length < size) {
+      snapshot = new int[size];
+    } else {
+      Arrays.fill(snapshot, 0, size, 0);
+    }
+    copier.accept(snapshot);
+    return IntBuffer.wrap(snapshot, 0, size);
+  }
+
   /*
    * non-javadoc: Converts a gate to a Virtual group @param g the gate to
    * convert @exception HDFException thrown if unrecoverable error occurs
@@ -0,0 +1,187 @@
+package jam.io.hdf;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The data objects of one HDF file, indexed by tag and reference number. Each <code>HDFile</code>
+ * owns one, so that several files may be read or written at once on different threads.
+ *
+ * <p>Data objects register themselves when constructed, with the registry bound to the constructing
+ * thread by <code>bind()</code>. The static lookups in <code>AbstractData</code> likewise search
+ * the bound registry. It is an error to construct or look up data objects on a thread with no
+ * registry bound.
+ *
+ * @author Dale Visser
+ * @see HDFile#getRegistry()
+ */
+final class DataObjectRegistry {
+
+  /** Restores the previously bound registry when closed. */
+  final class Binding implements AutoCloseable {
+    private final transient DataObjectRegistry previous;
+
+    private Binding(final DataObjectRegistry previous) {
+      this.previous = previous;
+    }
+
+    @Override
+    public void close() {
+      if (previous == null) {
+        CURRENT.remove();
+      } else {
+        CURRENT.set(previous);
+      }
+    }
+  }
+
+  private static final byte[] CLEARBYTES = new byte[0];
+
+  private static final ThreadLocal<DataObjectRegistry> CURRENT = new ThreadLocal<>();
+
+  /** List of Data Objects in the file. */
+  private final transient List<AbstractData> objectList =
+      Collections.synchronizedList(new ArrayList<>());
+
+  /** Count for references, to make sure references are unique Reference count, starts at 1 */
+  private transient short refCount = 1;
+
+  /** Map of Data Objects in file with tag/ref as key */
+  private final transient Map<Integer, AbstractData> tagRefMap =
+      Collections.synchronizedMap(new HashMap<>());
+
+  DataObjectRegistry() {
+    super();
+  }
+
+  /**
+   * @return the registry bound to the calling thread
+   * @throws IllegalStateException if no registry is bound to the calling thread
+   */
+  static DataObjectRegistry current() {
+    final DataObjectRegistry bound = CURRENT.get();
+    if (bound == null) {
+      throw new IllegalStateException("No HDF data object registry bound to this thread.");
+    }
+    return bound;
+  }
+
+  /**
+   * Binds this registry to the calling thread, until the returned binding is closed.
+   *
+   * @return binding to close when done with this registry
+   */
+  Binding bind() {
+    final Binding rval = new Binding(CURRENT.get());
+    CURRENT.set(this);
+    return rval;
+  }
+
+  /*
+   * non-javadoc: Create a unique key given then tag an ref numbers.
+   */
+  private static <T extends AbstractData> int calculateKey(final Class<T> tag, final short ref) {
+    final int tagInt = AbstractData.TAGS.get(tag);
+    final int refInt = ref;
+    final int key = (tagInt << 16) + refInt;
+    AbstractData.LOGGER.finer(" Key tag " + tagInt + " ref " + refInt + " key " + key);
+    return key;
+  }
+
+  /**
+   * Adds the data object to the list of objects. The reference number is expected to have been
+   * previously assigned, but is checked to be unique for the object tag.
+   *
+   * @param data data object
+   */
+  void add(final AbstractData data) {
+    synchronized (this) {
+      final Integer key = calculateKey(data.getClass(), data.getRef());
+      if (tagRefMap.containsKey(key)) {
+        throw new IllegalArgumentException(
+            "Can't add to list of DataObjects as DataOjbect with the same tag and ref exists.");
+      }
+      tagRefMap.put(key, data);
+      objectList.add(data);
+    }
+  }
+
+  /** Clear the lists of all data objects. */
+  void clear() {
+    synchronized (this) {
+      // set all object data to none
+      for (AbstractData dataObject : objectList) {
+        dataObject.bytes = ByteBuffer.wrap(CLEARBYTES);
+      }
+      objectList.clear();
+      tagRefMap.clear();
+      refCount = 1;
+    }
+  }
+
+  /*
+   * non-javadoc: Create a new ref that is unque for the given tag The HDF
+   * standard requires that for a particular tag type, each instance have a
+   * unique ref.
+   */
+  <T extends AbstractData> short createUniqueRef(final Class<T> tag) {
+    if (tag == null) {
+      throw new IllegalArgumentException("null tag not acceptable.");
+    }
+    synchronized (this) {
+      // Add 1 as its a good guess
+      refCount++;
+      // see if a unique object already exists
+      Integer key = calculateKey(tag, refCount);
+      while (tagRefMap.containsKey(key)) {
+        refCount++;
+        key = calculateKey(tag, refCount);
+      }
+      return refCount;
+    }
+  }
+
+  /**
+   * @return unmodifiable list of all data objects, in the order they were added
+   */
+  List<AbstractData> getObjects() {
+    return Collections.unmodifiableList(objectList);
+  }
+
+  /**
+   * @param tag tag of HDF object
+   * @param ref <em>unique</em> reference number in file
+   * @param <T> type of data object to return
+   * @return object with the matching tag and ref, or <code>null</code>
+   */
+  <T extends AbstractData> T getObject(final Class<T> tag, final short ref) {
+    return tag.cast(tagRefMap.get(calculateKey(tag, ref)));
+  }
+
+  /**
+   * Moves a data object to a new reference number.
+   *
+   * @param data the object
+   * @param newref 2 bytes
+   */
+  void changeRef(final AbstractData data, final short newref) {
+    synchronized (this) {
+      // Remove object with old ref
+      final Integer key = calculateKey(data.getClass(), data.getRef());
+      if (tagRefMap.containsKey(key)) {
+        tagRefMap.remove(key);
+        // Add
+        final Integer keyNew = calculateKey(data.getClass(), newref);
+        data.ref = newref;
+        tagRefMap.put(keyNew, data);
+      } else {
+        throw new IllegalArgumentException(
+            "DataObject not in object table, so cannot change reference");
+      }
+    }
+  }
+}
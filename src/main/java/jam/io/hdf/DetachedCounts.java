@@ -0,0 +1,176 @@
+package jam.io.hdf;
+
+import jam.data.AbstractHistogram;
+import jam.data.DataParameter;
+import jam.data.Scaler;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Counts read from one or more HDF files for adding into existing histograms and scalers, held
+ * apart from them until all the files have been read. Partial sums from different files are
+ * combined with <code>merge()</code>, and only <code>applyTo()</code> touches the histograms.
+ *
+ * <p>Instances are not thread-safe, but each is only ever used by one thread at a time.
+ *
+ * @author Dale Visser
+ * @see ParallelHDFAdder
+ */
+final class DetachedCounts {
+
+  private final transient Map<AbstractHistogram, Object> histograms = new IdentityHashMap<>();
+
+  private final transient Map<Scaler, Integer> scalers = new IdentityHashMap<>();
+
+  private final transient Map<DataParameter, Double> parameters = new IdentityHashMap<>();
+
+  private final transient List<String> errors = new ArrayList<>();
+
+  DetachedCounts() {
+    super();
+  }
+
+  /**
+   * Adds counts read for a histogram.
+   *
+   * @param histogram to eventually add the counts to
+   * @param counts array of counts, as returned by <code>ScientificData.getData()</code>
+   */
+  void addHistogram(final AbstractHistogram histogram, final Object counts) {
+    final Object sum = histograms.get(histogram);
+    if (sum == null) {
+      histograms.put(histogram, counts);
+    } else if (sum.getClass() == counts.getClass()) {
+      histograms.put(histogram, sum(sum, counts));
+    } else {
+      errors.add("Can't add counts of different types to " + histogram.getFullName());
+    }
+  }
+
+  /**
+   * Adds a value read for a scaler.
+   *
+   * @param scaler to eventually add the value to
+   * @param value read from a file
+   */
+  void addScaler(final Scaler scaler, final int value) {
+    scalers.merge(scaler, value, Integer::sum);
+  }
+
+  /**
+   * Sets the value read for a parameter. Parameters aren't summed, so the value from the last file
+   * wins.
+   *
+   * @param parameter to eventually set
+   * @param value read from a file
+   */
+  void setParameter(final DataParameter parameter, final double value) {
+    parameters.put(parameter, value);
+  }
+
+  /**
+   * Records that a file couldn't be read.
+   *
+   * @param message describing the problem
+   */
+  void addError(final String message) {
+    errors.add(message);
+  }
+
+  /**
+   * @return messages for the files which couldn't be read
+   */
+  List<String> getErrors() {
+    return Collections.unmodifiableList(errors);
+  }
+
+  /**
+   * Adds the counts read from later files into these. Arrays in either may be reused.
+   *
+   * @param later counts from files after the ones in this
+   * @return this
+   */
+  DetachedCounts merge(final DetachedCounts later) {
+    for (Map.Entry<AbstractHistogram, Object> entry : later.histograms.entrySet()) {
+      addHistogram(entry.getKey(), entry.getValue());
+    }
+    for (Map.Entry<Scaler, Integer> entry : later.scalers.entrySet()) {
+      addScaler(entry.getKey(), entry.getValue());
+    }
+    parameters.putAll(later.parameters);
+    errors.addAll(later.errors);
+    return this;
+  }
+
+  /**
+   * Adds the counts into their histograms and scalers, and sets the parameters.
+   *
+   * @return number of histograms added to
+   */
+  int applyTo() {
+    for (Map.Entry<AbstractHistogram, Object> entry : histograms.entrySet()) {
+      entry.getKey().addCounts(entry.getValue());
+    }
+    for (Map.Entry<Scaler, Integer> entry : scalers.entrySet()) {
+      final Scaler scaler = entry.getKey();
+      scaler.setValue(scaler.getValue() + entry.getValue());
+    }
+    for (Map.Entry<DataParameter, Double> entry : parameters.entrySet()) {
+      entry.getKey().setValue(entry.getValue());
+    }
+    return histograms.size();
+  }
+
+  /*
+   * non-javadoc: Sums two arrays of counts of the same type, into whichever is larger, so that
+   * channels beyond the end of the smaller are kept.
+   */
+  private static Object sum(final Object left, final Object right) {
+    final Object rval;
+    if (left instanceof int[]) {
+      rval = sum((int[]) left, (int[]) right);
+    } else if (left instanceof double[]) {
+      rval = sum((double[]) left, (double[]) right);
+    } else if (left instanceof int[][]) {
+      final int[][] big = larger((int[][]) left, (int[][]) right);
+      final int[][] small = big == left ? (int[][]) right : (int[][]) left;
+      for (int x = 0; x < small.length; x++) {
+        big[x] = sum(big[x], small[x]);
+      }
+      rval = big;
+    } else {
+      final double[][] big = larger((double[][]) left, (double[][]) right);
+      final double[][] small = big == left ? (double[][]) right : (double[][]) left;
+      for (int x = 0; x < small.length; x++) {
+        big[x] = sum(big[x], small[x]);
+      }
+      rval = big;
+    }
+    return rval;
+  }
+
+  private static <T> T[] larger(final T[] left, final T[] right) {
+    return left.length >= right.length ? left : right;
+  }
+
+  private static int[] sum(final int[] left, final int[] right) {
+    final int[] big = left.length >= right.length ? left : right;
+    final int[] small = big == left ? right : left;
+    for (int i = 0; i < small.length; i++) {
+      big[i] += small[i];
+    }
+    return big;
+  }
+
+  private static double[] sum(final double[] left, final double[] right) {
+    final double[] big = left.length >= right.length ? left : right;
+    final double[] small = big == left ? right : left;
+    for (int i = 0; i < small.length; i++) {
+      big[i] += small[i];
+    }
+    return big;
+  }
+}
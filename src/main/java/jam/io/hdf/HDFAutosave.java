@@ -0,0 +1,220 @@
+package jam.io.hdf;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import jam.data.Group;
+import jam.data.Warehouse;
+import jam.sort.ThreadPriorities;
+import jam.util.FileUtilities;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Periodically saves the sort group while sorting, so that a crash loses at most one period of
+ * sorted data. Saves are written on a low priority thread of their own, through an
+ * <code>HDFIO</code> of their own, so they neither wait on nor hold up saves made from the GUI.
+ * The counts of each integer histogram are snapshotted, without waiting on the sort thread, just
+ * before they're written, so that each histogram is written as it was at one moment. Histograms
+ * are snapshotted one after another, not all at once, so counts sorted meanwhile may be in some
+ * histograms and not others.
+ *
+ * <p>Each save is first written beside the autosave file, and only then rotated into place. The
+ * latest save is the autosave file itself, e.g. <code>run.hdf</code>, and earlier ones are kept as
+ * <code>run-1.hdf</code>, <code>run-2.hdf</code>, etc., up to the number of files to keep.
+ *
+ * @author Dale Visser
+ * @see HDFPrefs#AUTOSAVE_MINUTES
+ */
+@Singleton
+public final class HDFAutosave {
+
+  private static final Logger LOGGER = Logger.getLogger(HDFAutosave.class.getPackage().getName());
+
+  private static final String EXTENSION = ".hdf";
+
+  private final transient HDFIO hdfio;
+
+  private final transient ScheduledExecutorService executor =
+      Executors.newSingleThreadScheduledExecutor(
+          runnable -> {
+            final Thread thread = new Thread(runnable, "HDF Autosave");
+            thread.setPriority(ThreadPriorities.AUTOSAVE);
+            thread.setDaemon(true);
+            return thread;
+          });
+
+  /* guarded by this */
+  private transient ScheduledFuture<?> task;
+
+  private transient File file;
+
+  private transient int keep;
+
+  /**
+   * Creates the autosave scheduler.
+   *
+   * @param jamToHDF converts between objects and hdf
+   * @param hdfToJam converts from hdf to objects
+   * @param adder adds the counts in several files at once
+   * @param fileUtilities the file utility object
+   */
+  @Inject
+  HDFAutosave(
+      final ConvertJamObjToHDFObj jamToHDF,
+      final ConvertHDFObjToJamObj hdfToJam,
+      final ParallelHDFAdder adder,
+      final FileUtilities fileUtilities) {
+    super();
+    hdfio = new HDFIO(jamToHDF, hdfToJam, adder, fileUtilities);
+  }
+
+  /**
+   * Starts saving the sort group periodically, replacing any previous schedule. The first save is
+   * made after one period.
+   *
+   * @param autosaveFile latest save is written to this file
+   * @param minutes between saves
+   * @param keepFiles number of files to keep, including the latest
+   */
+  public void start(final File autosaveFile, final int minutes, final int keepFiles) {
+    if (minutes < 1 || keepFiles < 1) {
+      throw new IllegalArgumentException("Need a period and number of files of at least 1.");
+    }
+    synchronized (this) {
+      stop();
+      file = autosaveFile.getAbsoluteFile();
+      keep = keepFiles;
+      final File target = file;
+      task =
+          executor.scheduleWithFixedDelay(
+              () -> save(target, keepFiles), minutes, minutes, TimeUnit.MINUTES);
+      LOGGER.info(
+          "Autosaving the sort group every " + minutes + " minutes to " + target.getName() + ".");
+    }
+  }
+
+  /** Stops saving periodically. A save already being written is finished. */
+  public void stop() {
+    synchronized (this) {
+      if (task != null) {
+        task.cancel(false);
+        task = null; // NOPMD
+        LOGGER.info("Stopped autosaving to " + file.getName() + ".");
+      }
+    }
+  }
+
+  /**
+   * Saves now, on the autosave thread, and waits until done. Periodic saves carry on as scheduled. A
+   * save which fails is logged, as periodic ones are.
+   *
+   * @throws IllegalStateException if saves aren't scheduled
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public void saveNow() throws InterruptedException {
+    final File target;
+    final int keepFiles;
+    synchronized (this) {
+      if (task == null) {
+        throw new IllegalStateException("Autosave isn't running.");
+      }
+      target = file;
+      keepFiles = keep;
+    }
+    try {
+      executor.submit(() -> save(target, keepFiles)).get();
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Autosave to " + target.getName() + " failed.", e);
+    }
+  }
+
+  /**
+   * @return whether saves are scheduled
+   */
+  public boolean isRunning() {
+    synchronized (this) {
+      return task != null;
+    }
+  }
+
+  /**
+   * @return file the latest save is written to, or <code>null</code> if never started
+   */
+  public File getFile() {
+    synchronized (this) {
+      return file;
+    }
+  }
+
+  /*
+   * non-javadoc: Runs on the autosave thread. Nothing thrown may escape, or
+   * later saves would be cancelled.
+   */
+  private void save(final File target, final int keep) {
+    final Group sortGroup = Warehouse.getSortGroupGetter().getSortGroup();
+    if (sortGroup != null) {
+      final File temp = new File(target.getParentFile(), target.getName() + ".tmp");
+      try {
+        final String error = hdfio.writeGroup(temp, sortGroup);
+        if (error.length() == 0) {
+          rotate(target, keep);
+          Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+          LOGGER.fine("Autosaved " + target.getName());
+        } else {
+          LOGGER.severe("Autosave failed: " + error);
+        }
+      } catch (IOException | RuntimeException e) {
+        LOGGER.log(Level.SEVERE, "Autosave to " + target.getName() + " failed.", e);
+      }
+    }
+  }
+
+  /**
+   * Moves each kept save along to the next older name, replacing the oldest.
+   *
+   * @param target latest save
+   * @param keep number of files to keep, including the latest
+   * @throws IOException if a file couldn't be moved
+   */
+  static void rotate(final File target, final int keep) throws IOException {
+    for (int number = keep - 2; number >= 0; number--) {
+      final File older = getOlder(target, number);
+      if (older.isFile()) {
+        Files.move(
+            older.toPath(),
+            getOlder(target, number + 1).toPath(),
+            StandardCopyOption.REPLACE_EXISTING);
+      }
+    }
+  }
+
+  /**
+   * @param target latest save
+   * @param number how many saves before the latest
+   * @return the file holding that save
+   */
+  static File getOlder(final File target, final int number) {
+    final File rval;
+    if (number == 0) {
+      rval = target;
+    } else {
+      final String name = target.getName();
+      final String stem =
+          name.toLowerCase(Locale.US).endsWith(EXTENSION)
+              ? name.substring(0, name.length() - EXTENSION.length())
+              : name;
+      rval = new File(target.getParentFile(), stem + "-" + number + EXTENSION);
+    }
+    return rval;
+  }
+}
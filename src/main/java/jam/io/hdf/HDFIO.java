@@ -3,6 +3,7 @@ package jam.io.hdf;
 import com.google.inject.Inject;
 import jam.data.AbstractHist1D;
 import jam.data.AbstractHistogram;
+import jam.data.CountsSource;
 import jam.data.DataElement;
 import jam.data.DataParameter;
 import jam.data.DataUtility;
@@ -97,7 +98,7 @@ public final class HDFIO implements DataIO {
     }
   }
 
-  private static void setLastValidFile(final File file) {
+  static void setLastValidFile(final File file) {
     synchronized (LVF_MONITOR) {
       lastGoodFile = file;
       PREFERENCES.put(LAST_FILE_KEY, file.getAbsolutePath());
@@ -130,6 +131,8 @@ public final class HDFIO implements DataIO {
 
   private final transient ConvertJamObjToHDFObj jamToHDF;
 
+  private final transient ParallelHDFAdder adder;
+
   private transient int paramCount = 0;
 
   private transient int scalerCount = 0;
@@ -142,6 +145,9 @@ public final class HDFIO implements DataIO {
 
   private final transient JamStatus status;
 
+  /** whether files written become the last valid file */
+  private final transient boolean interactive;
+
   /**
    * Class constructor handed references to the main class and message handler.
    *
@@ -149,6 +155,7 @@ public final class HDFIO implements DataIO {
    * @param status application status
    * @param jamToHDF converts between objects and hdf
    * @param hdfToJam converts from hdf to objects
+   * @param adder adds the counts in several files at once
    * @param fileUtilities the file utility object
    */
   @Inject
@@ -157,13 +164,40 @@ public final class HDFIO implements DataIO {
       final JamStatus status,
       final ConvertJamObjToHDFObj jamToHDF,
       final ConvertHDFObjToJamObj hdfToJam,
+      final ParallelHDFAdder adder,
       final FileUtilities fileUtilities) {
     super();
     asyncMonitor = new AsyncProgressMonitor(parent);
     this.jamToHDF = jamToHDF;
     this.hdfToJam = hdfToJam;
+    this.adder = adder;
     this.status = status;
     this.fileUtilities = fileUtilities;
+    interactive = true;
+  }
+
+  /**
+   * Creates an instance for writing files in the background, which shows no progress and doesn't
+   * change the last valid file.
+   *
+   * @param jamToHDF converts between objects and hdf
+   * @param hdfToJam converts from hdf to objects
+   * @param adder adds the counts in several files at once
+   * @param fileUtilities the file utility object
+   */
+  HDFIO(
+      final ConvertJamObjToHDFObj jamToHDF,
+      final ConvertHDFObjToJamObj hdfToJam,
+      final ParallelHDFAdder adder,
+      final FileUtilities fileUtilities) {
+    super();
+    asyncMonitor = AsyncProgressMonitor.silent();
+    this.jamToHDF = jamToHDF;
+    this.hdfToJam = hdfToJam;
+    this.adder = adder;
+    this.status = null; // NOPMD
+    this.fileUtilities = fileUtilities;
+    interactive = false;
   }
 
   /**
@@ -188,10 +222,11 @@ public final class HDFIO implements DataIO {
       gateCount = 0;
       scalerCount = 0;
       paramCount = 0;
-      try {
-        AbstractData.clearAll();
+      final DataObjectRegistry registry = new DataObjectRegistry();
+      final DataObjectRegistry.Binding binding = registry.bind();
+      try (binding) {
         // Read in objects
-        inHDF = new HDFile(inFile, "r", asyncMonitor, MonitorSteps.READ_WRITE);
+        inHDF = new HDFile(inFile, "r", asyncMonitor, MonitorSteps.READ_WRITE, registry);
         inHDF.setLazyLoadData(true);
         /*
          * read file into set of AbstractHData's, set their internal
@@ -201,6 +236,7 @@ public final class HDFIO implements DataIO {
         AbstractData.interpretBytesAll();
         asyncMonitor.increment();
         final String fileName = fileUtilities.removeExtensionFileName(inFile.getName());
+        hdfToJam.setMapCounts(HDFPrefs.PREFS.getBoolean(HDFPrefs.MAP_ON_OPEN, false));
         if (hdfToJam.hasVGroupRootGroup()) {
           convertHDFToJam(mode, fileName, existingGroups, histAttrList);
         } else {
@@ -222,13 +258,153 @@ public final class HDFIO implements DataIO {
         /* destroys reference to HDFile (and its AbstractHData's) */
         inHDF = null; // NOPMD
       }
-      AbstractData.clearAll();
+      registry.clear();
       setLastValidFile(inFile);
       uiMessage = message.toString();
       return rval;
     }
   }
 
+  /**
+   * Writes a snapshot of a group on the calling thread. Empty histograms are written too, since in
+   * a delta snapshot they replace counts which have since been zeroed.
+   *
+   * @param file to write to
+   * @param group to write the scalers and parameters of
+   * @param histograms in the group to write
+   * @return error message, empty if the snapshot was written
+   */
+  String writeSnapshot(
+      final File file, final Group group, final List<AbstractHistogram> histograms) {
+    synchronized (this) {
+      uiErrorMsg = "";
+      asyncWriteFile(file, Collections.singletonList(group), histograms, true, true, false);
+      if (uiErrorMsg.length() == 0) {
+        LOGGER.info(uiMessage);
+      }
+      return uiErrorMsg;
+    }
+  }
+
+  /**
+   * Writes a group on the calling thread, without asking before overwriting. Unlike <code>
+   * writeFile()</code>, this returns only when the file is written, e.g., for use from scripts.
+   *
+   * @param file to write to
+   * @param group to write
+   * @return error message, empty if the file was written
+   */
+  public String writeGroup(final File file, final Group group) {
+    synchronized (this) {
+      uiErrorMsg = "";
+      asyncWriteFile(
+          file,
+          Collections.singletonList(group),
+          group.histograms.getList(),
+          true,
+          true,
+          HDFPrefs.PREFS.getBoolean(HDFPrefs.SUPPRESS_EMPTY, true));
+      return uiErrorMsg;
+    }
+  }
+
+  /**
+   * Opens a full snapshot on the calling thread, then reloads each delta snapshot written after it
+   * in turn, replacing the objects it contains. Gates defined since the full snapshot are created.
+   *
+   * @param base full snapshot
+   * @param deltas delta snapshots, oldest first
+   * @return error message, empty if all were read
+   */
+  String readSnapshots(final File base, final List<File> deltas) {
+    synchronized (this) {
+      uiErrorMsg = "";
+      asyncMonitor.setup(
+          "Reading HDF snapshots",
+          "Reading Objects",
+          (MonitorSteps.READ_WRITE + MonitorSteps.OVERHEAD_READ) * (deltas.size() + 1));
+      firstLoadedGroup = null; // NOPMD
+      try {
+        boolean read = asyncReadFileGroup(base, FileOpenMode.OPEN, null, null);
+        hdfToJam.setCreateGates(true);
+        for (int i = 0; read && uiErrorMsg.length() == 0 && i < deltas.size(); i++) {
+          read = asyncReadFileGroup(deltas.get(i), FileOpenMode.RELOAD, GROUPS.getList(), null);
+        }
+      } finally {
+        hdfToJam.setCreateGates(false);
+        asyncMonitor.close();
+      }
+      return uiErrorMsg;
+    }
+  }
+
+  /**
+   * Writes all groups and histograms on the calling thread, without asking before overwriting.
+   * Empty histograms are written too, as in snapshots, so that compacting snapshots keeps them.
+   *
+   * @param file to write to
+   * @return error message, empty if the file was written
+   */
+  String writeAll(final File file) {
+    synchronized (this) {
+      uiErrorMsg = "";
+      final List<AbstractHistogram> histograms = new ArrayList<>();
+      for (Group group : GROUPS.getList()) {
+        histograms.addAll(group.histograms.getList());
+      }
+      asyncWriteFile(file, GROUPS.getList(), histograms, true, true, false);
+      return uiErrorMsg;
+    }
+  }
+
+  /*
+   * non-javadoc: Opens the first file if requested, then adds the counts in
+   * the rest on a pool of threads.
+   */
+  private void readAndAddFiles(
+      final FileOpenMode mode,
+      final List<File> inFiles,
+      final List<Group> groupList,
+      final List<HistogramAttributes> histAttributeList) {
+    List<File> addFiles = inFiles;
+    List<Group> addGroups = groupList;
+    if (mode == FileOpenMode.ADD_OPEN_ONE) {
+      asyncReadFileGroup(inFiles.get(0), FileOpenMode.OPEN, groupList, histAttributeList);
+      displayMessage();
+      addFiles = inFiles.subList(1, inFiles.size());
+      addGroups = GROUPS.getList();
+    }
+    asyncAddFiles(addFiles, addGroups, histAttributeList);
+    displayMessage();
+  }
+
+  /**
+   * Adds the counts in several HDF files at once.
+   *
+   * @param inFiles files to add
+   * @param existingGroups groups to add counts to
+   * @param histAttrList attributes of histograms to add to, null if all
+   */
+  private void asyncAddFiles(
+      final List<File> inFiles,
+      final List<Group> existingGroups,
+      final List<HistogramAttributes> histAttrList) {
+    synchronized (this) {
+      final StringBuilder message = new StringBuilder(54);
+      message.append("Adding counts in ").append(inFiles.size()).append(" files");
+      try {
+        histCount =
+            adder.add(
+                inFiles, existingGroups, histAttrList, asyncMonitor, MonitorSteps.READ_WRITE);
+        message.append(" (").append(histCount).append(" histograms)");
+      } catch (HDFException e) {
+        uiErrorMsg = e.getMessage();
+      }
+      setLastValidFile(inFiles.get(inFiles.size() - 1));
+      uiMessage = message.toString();
+    }
+  }
+
   private void createOutputMessage(
       final File inFile,
       final FileOpenMode mode,
@@ -275,13 +451,15 @@ public final class HDFIO implements DataIO {
    *
    * @param writeScalers whether to write out histograms scalers @param
    * writeParams whether to write out gates, calibration and parameters
+   * @param suppressEmpty whether to skip histograms with no counts
    */
   private void asyncWriteFile(
       final File file,
       final List<Group> groups,
       final List<AbstractHistogram> histograms,
       final boolean writeData,
-      final boolean writeSettings) {
+      final boolean writeSettings,
+      final boolean suppressEmpty) {
     synchronized (this) {
       final StringBuilder message = new StringBuilder(60);
       /* reset all counters */
@@ -290,20 +468,20 @@ public final class HDFIO implements DataIO {
       gateCount = 0;
       scalerCount = 0;
       paramCount = 0;
-      AbstractData.clearAll();
-      jamToHDF.addDefaultDataObjects(file.getPath());
       asyncMonitor.setup(
           "Saving HDF file",
           "Converting Objects",
           MonitorSteps.READ_WRITE + MonitorSteps.OVERHEAD_WRITE);
-      final Preferences preferences = HDFPrefs.PREFS;
-      final boolean suppressEmpty = preferences.getBoolean(HDFPrefs.SUPPRESS_EMPTY, true);
+      jamToHDF.setCompressCounts(HDFPrefs.PREFS.getBoolean(HDFPrefs.COMPRESS, false));
       asyncMonitor.increment();
       HDFile out = null;
-      try {
+      final DataObjectRegistry registry = new DataObjectRegistry();
+      final DataObjectRegistry.Binding binding = registry.bind();
+      try (binding) {
+        jamToHDF.addDefaultDataObjects(file.getPath());
         convertJamToHDF(groups, histograms, writeData, writeSettings, suppressEmpty);
-
-        out = new HDFile(file, "rw", asyncMonitor, MonitorSteps.READ_WRITE);
+        loadCountsMappedFrom(file);
+        out = new HDFile(file, "rw", asyncMonitor, MonitorSteps.READ_WRITE, registry);
         asyncMonitor.setNote("Writing Data Objects");
         out.writeFile();
         asyncMonitor.setNote("Closing File");
@@ -324,8 +502,10 @@ public final class HDFIO implements DataIO {
         asyncMonitor.close();
       }
 
-      AbstractData.clearAll();
-      setLastValidFile(file);
+      registry.clear();
+      if (interactive) {
+        setLastValidFile(file);
+      }
       uiMessage = message.toString();
     }
   }
@@ -488,6 +668,19 @@ public final class HDFIO implements DataIO {
     }
   }
 
+  /*
+   * non-javadoc: Histograms opened from a file which haven't read their
+   * counts yet need to before it is overwritten.
+   */
+  static void loadCountsMappedFrom(final File file) {
+    for (AbstractHistogram hist : AbstractHistogram.getHistogramList()) {
+      final CountsSource source = hist.getDeferredCounts();
+      if (source instanceof MappedCounts && ((MappedCounts) source).isFrom(file)) {
+        hist.loadDeferredCounts();
+      }
+    }
+  }
+
   private void setFirstLoadedGroupIfNull(final Group currentGroup) {
     /* Keep track of first loaded group */
     if (firstLoadedGroup == null) {
@@ -798,10 +991,11 @@ public final class HDFIO implements DataIO {
       rval.clear();
       throw new HDFException("File:" + inFile.getPath() + " is not an HDF file.");
     }
-    try {
-      AbstractData.clearAll();
+    final DataObjectRegistry registry = new DataObjectRegistry();
+    final DataObjectRegistry.Binding binding = registry.bind();
+    try (binding) {
       /* Read in histogram names */
-      inHDF = new HDFile(inFile, "r");
+      inHDF = new HDFile(inFile, "r", null, 0, registry);
       inHDF.setLazyLoadData(true);
       inHDF.readFile();
       AbstractData.interpretBytesAll();
@@ -827,7 +1021,7 @@ public final class HDFIO implements DataIO {
       }
       inHDF = null; // NOPMD
     }
-    AbstractData.clearAll();
+    registry.clear();
     return rval;
   }
 
@@ -878,20 +1072,17 @@ public final class HDFIO implements DataIO {
                 (MonitorSteps.READ_WRITE + MonitorSteps.OVERHEAD_READ) * numberFiles);
             firstLoadedGroup = null; // NOPMD
             try {
-              // Loop for all files
-              for (int i = 0; i < inFiles.size(); i++) {
-                File inFile = inFiles.get(i);
-                if (mode == FileOpenMode.ADD_OPEN_ONE) {
-                  if (i == 0) {
-                    asyncReadFileGroup(inFile, FileOpenMode.OPEN, groupList, histAttributeList);
-                  } else {
-                    final List<Group> groupListOpen = GROUPS.getList();
-                    asyncReadFileGroup(inFile, FileOpenMode.ADD, groupListOpen, histAttributeList);
-                  }
-                } else {
-                  asyncReadFileGroup(inFile, mode, groupList, histAttributeList);
+              if (numberFiles > 1
+                  && (mode == FileOpenMode.ADD_OPEN_ONE || mode == FileOpenMode.ADD)) {
+                readAndAddFiles(mode, inFiles, groupList, histAttributeList);
+              } else {
+                // Loop for all files, a lone file to add to being opened
+                final FileOpenMode fileMode =
+                    mode == FileOpenMode.ADD_OPEN_ONE ? FileOpenMode.OPEN : mode;
+                for (File inFile : inFiles) {
+                  asyncReadFileGroup(inFile, fileMode, groupList, histAttributeList);
+                  displayMessage();
                 }
-                displayMessage();
               }
             } catch (Exception e) {
               uiErrorMsg = "Unknown Error reading file: " + e;
@@ -931,7 +1122,10 @@ public final class HDFIO implements DataIO {
         new AbstractSwingWorker() {
           @Override
           public Object construct() {
-            HDFIO.this.asyncWriteFile(file, groups, histograms, writeData, wrtSettings);
+            final boolean suppressEmpty =
+                HDFPrefs.PREFS.getBoolean(HDFPrefs.SUPPRESS_EMPTY, true);
+            HDFIO.this.asyncWriteFile(
+                file, groups, histograms, writeData, wrtSettings, suppressEmpty);
             return null;
           }
 
@@ -18,4 +18,19 @@ public final class HDFPrefs {
 
   /** Name for the empty write preference. */
   public static final String SUPPRESS_EMPTY = "Write Empty Histograms/Gates";
+
+  /**
+   * Name for the preference to read opened histograms' counts only when first needed, off by
+   * default.
+   */
+  public static final String MAP_ON_OPEN = "MapHistogramsOnOpen";
+
+  /** Name for the preference to write histogram counts compressed. */
+  public static final String COMPRESS = "CompressHistograms";
+
+  /** Name for the preference giving the minutes between autosaves of the sort group. */
+  public static final String AUTOSAVE_MINUTES = "AutosaveMinutes";
+
+  /** Name for the preference giving the number of autosave files kept. */
+  public static final String AUTOSAVE_KEEP = "AutosaveKeep";
 }
@@ -0,0 +1,235 @@
+package jam.io.hdf;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import jam.data.AbstractHistogram;
+import jam.data.Group;
+import jam.util.AbstractSwingWorker;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Writes a chain of snapshots of the sort group during a long run. The first snapshot of a chain is
+ * a full HDF file. Each later one is a <em>delta</em> file beside it, containing only the
+ * histograms whose counts, errors or gates changed since the previous snapshot, along with the
+ * group's scalers and parameters, which are small. Deltas are ordinary HDF files, named <code>
+ * run-delta0001.hdf</code>, etc., for a full snapshot <code>run.hdf</code>.
+ *
+ * <p>Compacting a chain opens the full snapshot, reloads each delta over it in turn, and writes the
+ * result back over the full snapshot, removing the deltas. Snapshots are written, and chains
+ * compacted, on a worker thread.
+ *
+ * @author Dale Visser
+ * @see AbstractHistogram#changedSince(int)
+ */
+@Singleton
+public final class HDFSnapshots {
+
+  private static final Logger LOGGER = Logger.getLogger(HDFSnapshots.class.getPackage().getName());
+
+  private static final String DELTA = "-delta";
+
+  private static final String EXTENSION = ".hdf";
+
+  private final transient HDFIO hdfio;
+
+  /* guarded by this */
+  private transient File base;
+
+  private transient Group group;
+
+  private transient int epoch;
+
+  private transient int nextDelta;
+
+  /**
+   * Creates the snapshot writer.
+   *
+   * @param hdfio reads and writes the HDF files
+   */
+  @Inject
+  HDFSnapshots(final HDFIO hdfio) {
+    super();
+    this.hdfio = hdfio;
+  }
+
+  /**
+   * @return full snapshot of the current chain, or <code>null</code> if none has been written
+   */
+  public File getBase() {
+    synchronized (this) {
+      return base;
+    }
+  }
+
+  /**
+   * Writes a snapshot of the given group. If the last snapshot was of the same group to the same
+   * full snapshot, only what changed since is written, to the next delta file. Otherwise, a new
+   * chain is started with a full snapshot, after which any old deltas of that file are deleted.
+   *
+   * @param file full snapshot of the chain
+   * @param sortGroup group to write
+   * @param listener notified on the event thread when done
+   */
+  public void writeSnapshot(
+      final File file, final Group sortGroup, final HDFIO.AsyncListener listener) {
+    final AbstractSwingWorker worker =
+        new AbstractSwingWorker() {
+          private transient String error = "";
+
+          @Override
+          public Object construct() {
+            error = writeSnapshotNow(file, sortGroup);
+            return null;
+          }
+
+          @Override
+          public void finished() {
+            final String message = error.length() == 0 ? "Saved snapshot of " + file.getName() : "";
+            listener.completedIO(message, error);
+          }
+        };
+    worker.start();
+  }
+
+  /*
+   * non-javadoc: Starts the new change epoch before the histograms are read,
+   * so that nothing changing while they are written is missed next time.
+   */
+  private String writeSnapshotNow(final File file, final Group sortGroup) {
+    synchronized (this) {
+      final boolean full = !file.equals(base) || sortGroup != group;
+      final File target = full ? file : getDelta(file, nextDelta);
+      final int previous = epoch;
+      final int started = AbstractHistogram.startChangeEpoch();
+      final List<AbstractHistogram> histograms = new ArrayList<>();
+      for (AbstractHistogram hist : sortGroup.histograms.getList()) {
+        if (full || hist.changedSince(previous)) {
+          histograms.add(hist);
+        }
+      }
+      final String error = hdfio.writeSnapshot(target, sortGroup, histograms);
+      if (error.length() == 0) {
+        if (full) {
+          deleteFiles(findDeltas(file));
+        }
+        base = file;
+        group = sortGroup;
+        epoch = started;
+        nextDelta = full ? 1 : nextDelta + 1;
+      } else if (full) {
+        base = null; // NOPMD
+      } else {
+        /* keep the previous epoch, so the failed delta's changes are written next time */
+        LOGGER.warning("Next snapshot will include changes not saved in " + target.getName());
+      }
+      return error;
+    }
+  }
+
+  /**
+   * Folds the deltas of a full snapshot into it, leaving the result open as the current data.
+   *
+   * @param file full snapshot
+   * @param listener notified on the event thread when done
+   */
+  public void compact(final File file, final HDFIO.AsyncListener listener) {
+    final AbstractSwingWorker worker =
+        new AbstractSwingWorker() {
+          private transient String message = "";
+
+          private transient String error = "";
+
+          @Override
+          public Object construct() {
+            synchronized (HDFSnapshots.this) {
+              final List<File> deltas = findDeltas(file);
+              error = hdfio.readSnapshots(file, deltas);
+              if (error.length() == 0 && !deltas.isEmpty()) {
+                error = rewrite(file, deltas);
+              }
+              if (error.length() == 0) {
+                message = "Compacted " + file.getName() + " and " + deltas.size() + " deltas";
+              }
+              if (file.equals(base)) {
+                base = null; // NOPMD
+              }
+            }
+            return null;
+          }
+
+          @Override
+          public void finished() {
+            if (error.length() > 0) {
+              LOGGER.severe(error);
+            }
+            listener.completedIO(message, error);
+          }
+        };
+    worker.start();
+  }
+
+  /*
+   * non-javadoc: Writes the data in memory beside the full snapshot, and only
+   * then replaces it, so an error leaves the chain as it was.
+   */
+  private String rewrite(final File file, final List<File> deltas) {
+    final File temp = new File(file.getAbsoluteFile().getParentFile(), file.getName() + ".tmp");
+    String rval = hdfio.writeAll(temp);
+    if (rval.length() == 0) {
+      HDFIO.loadCountsMappedFrom(file);
+      try {
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        HDFIO.setLastValidFile(file);
+        deleteFiles(deltas);
+      } catch (IOException e) {
+        rval = "Replacing " + file.getName() + ": " + e.getMessage();
+      }
+    }
+    return rval;
+  }
+
+  private static File getDelta(final File file, final int number) {
+    return new File(
+        file.getAbsoluteFile().getParentFile(),
+        String.format(Locale.US, "%s%s%04d%s", getStem(file), DELTA, number, EXTENSION));
+  }
+
+  private static String getStem(final File file) {
+    final String name = file.getName();
+    return name.toLowerCase(Locale.US).endsWith(EXTENSION)
+        ? name.substring(0, name.length() - EXTENSION.length())
+        : name;
+  }
+
+  /**
+   * Finds the deltas written after a full snapshot.
+   *
+   * @param file full snapshot
+   * @return deltas in the order they were written
+   */
+  static List<File> findDeltas(final File file) {
+    final List<File> rval = new ArrayList<>();
+    for (int number = 1; getDelta(file, number).isFile(); number++) {
+      rval.add(getDelta(file, number));
+    }
+    return rval;
+  }
+
+  private static void deleteFiles(final List<File> files) {
+    for (File delete : files) {
+      try {
+        Files.deleteIfExists(delete.toPath());
+      } catch (IOException e) {
+        LOGGER.log(Level.WARNING, "Couldn't delete " + delete.getName(), e);
+      }
+    }
+  }
+}
@@ -6,11 +6,16 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.List;
 import java.util.logging.Logger;
 
 /**
- * Class which reads and writes DataObjects to and from HDF files on disk.
+ * Class which reads and writes DataObjects to and from HDF files on disk. Each instance keeps the
+ * objects of its file in its own registry, so different files may be handled on different threads
+ * at once.
  *
  * @author Dale Visser
  * @author Ken Swartz
@@ -33,6 +38,9 @@ public final class HDFile extends RandomAccessFile {
 
   private static final Logger LOGGER = Logger.getLogger(HDFile.class.getPackage().getName());
 
+  /** size of the buffer large data objects are written through */
+  private static final int WRITE_CHUNK = 64 * 1024;
+
   /**
    * Check if a file is an HDF file
    *
@@ -59,6 +67,11 @@ public final class HDFile extends RandomAccessFile {
 
   private final transient int stepsToTake;
 
+  /** this file's data objects */
+  private final transient DataObjectRegistry registry;
+
+  private final transient File file;
+
   /**
    * Constructor called with a <code>File</code> object, and an access mode.
    *
@@ -81,9 +94,38 @@ public final class HDFile extends RandomAccessFile {
    */
   HDFile(final File file, final String mode, final AsyncProgressMonitor progMon, final int steps)
       throws FileNotFoundException {
+    this(file, mode, progMon, steps, new DataObjectRegistry());
+  }
+
+  /**
+   * Constructor for writing data objects which have already been created in the given registry.
+   *
+   * @param file file to be accessed
+   * @param mode "r" or "rw"
+   * @param progMon progress monitor
+   * @param steps to take to completion
+   * @param registry data objects of the file
+   * @exception FileNotFoundException if given file not found
+   */
+  HDFile(
+      final File file,
+      final String mode,
+      final AsyncProgressMonitor progMon,
+      final int steps,
+      final DataObjectRegistry registry)
+      throws FileNotFoundException {
     super(file, mode);
+    this.file = file;
     monitor = progMon;
     stepsToTake = steps;
+    this.registry = registry;
+  }
+
+  /**
+   * @return the data objects read from, or to be written to, this file
+   */
+  DataObjectRegistry getRegistry() {
+    return registry;
   }
 
   /*
@@ -183,6 +225,30 @@ public final class HDFile extends RandomAccessFile {
     return lazyLoadData;
   }
 
+  /**
+   * @return the file on disk
+   */
+  File getFile() {
+    return file;
+  }
+
+  /**
+   * Maps the bytes of a data object into memory, without reading them. The mapping remains valid
+   * after this file is closed.
+   *
+   * @param dataObject created with an offset and length, but not read
+   * @return read-only view of the object's bytes
+   * @throws HDFException if the file can't be mapped
+   */
+  MappedByteBuffer mapData(final AbstractData dataObject) throws HDFException {
+    try {
+      return getChannel()
+          .map(FileChannel.MapMode.READ_ONLY, dataObject.getOffset(), dataObject.getLength());
+    } catch (IOException e) {
+      throw new HDFException("Problem mapping data object. ", e);
+    }
+  }
+
   /*
    * non-javadoc: Lazy load the bytes for an object
    */
@@ -227,7 +293,7 @@ public final class HDFile extends RandomAccessFile {
   }
 
   /**
-   * Reads file into set of DataObject's and sets their internal variables.
+   * Reads file into set of DataObject's in this file's registry and sets their internal variables.
    *
    * @exception HDFException unrecoverable error
    */
@@ -235,7 +301,8 @@ public final class HDFile extends RandomAccessFile {
     int countObjct = 0;
     lazyLoadNum = 0;
     lazyCount = 0;
-    try {
+    final DataObjectRegistry.Binding binding = registry.bind();
+    try (binding) {
       if (!checkMagicWord()) {
         throw new HDFException("Not an hdf file.");
       }
@@ -275,9 +342,12 @@ public final class HDFile extends RandomAccessFile {
   private void loadDataObject(final short tag, final short ref, final int offset, final int length)
       throws HDFException, IOException {
     // Load scientific data as last moment needed
-    if (lazyLoadData && tag == Constants.DFTAG_SD) {
-      AbstractData.create(ScientificData.class, ref, offset, length);
+    if (lazyLoadData && (tag == Constants.DFTAG_SD || tag == Constants.DFTAG_COMPRESSED)) {
+      AbstractData.create(AbstractData.TYPES.get(tag), ref, offset, length);
       lazyLoadNum++;
+    } else if (tag == (Constants.DFTAG_SD | Constants.SPECIAL_TAG)) {
+      final byte[] header = readBytes(offset, length);
+      AbstractData.create(header, ScientificData.class, ref).setCompressed();
     } else {
       final byte[] bytes = readBytes(offset, length);
       AbstractData.create(bytes, AbstractData.TYPES.get(tag), ref);
@@ -315,7 +385,7 @@ public final class HDFile extends RandomAccessFile {
      * numDD's + offset to next (always 0 here) + size12 for
      * tag/ref/offset/length info
      */
-    final int size = AbstractData.getDataObjectList().size();
+    final int size = registry.getObjects().size();
     return 2 + 4 + 12 * size;
   }
 
@@ -328,22 +398,24 @@ public final class HDFile extends RandomAccessFile {
       final int initOffset = sizeDataDescriptorBlock() + 4;
       // file header
       int counter = initOffset;
-      for (AbstractData dataObject : AbstractData.getDataObjectList()) {
+      for (AbstractData dataObject : registry.getObjects()) {
         dataObject.refreshBytes();
         dataObject.setOffset(counter);
-        counter += dataObject.getBytes().capacity();
+        counter += dataObject.getByteLength();
       }
     }
   }
 
   /*
    * non-javadoc: Called after all <code>DataObject</code> objects have been
-   * created.
+   * created. Objects are written through one bounded buffer, so that large
+   * ones needn't have all their bytes in memory at once.
    *
    * @exception HDFException thrown if err occurs during file write
    */
   private void writeAllObjects() throws HDFException {
-    final List<AbstractData> objectList = AbstractData.getDataObjectList();
+    final List<AbstractData> objectList = registry.getObjects();
+    final ByteBuffer chunk = ByteBuffer.allocateDirect(WRITE_CHUNK);
     int countObjct = 0;
     final int numObjSteps = getNumberObjctProgressStep(objectList.size(), FractionTime.WRITE_ALL);
     writeLoop:
@@ -351,10 +423,10 @@ public final class HDFile extends RandomAccessFile {
       if (countObjct % numObjSteps == 0 && monitor != null) {
         monitor.increment();
       }
-      if (dataObject.getBytes().capacity() == 0) {
+      if (dataObject.getByteLength() == 0) {
         break writeLoop;
       }
-      writeDataObject(dataObject);
+      writeDataObject(dataObject, chunk);
       countObjct++;
     }
   }
@@ -364,16 +436,16 @@ public final class HDFile extends RandomAccessFile {
    */
   private void writeDataDescriptorBlock() throws HDFException {
     synchronized (this) {
-      final List<AbstractData> objectList = AbstractData.getDataObjectList();
+      final List<AbstractData> objectList = registry.getObjects();
       try {
         seek(HEADER_BYTES); // skip header
         writeShort(objectList.size()); // number of DD's
         writeInt(0); // no additional descriptor block
         for (AbstractData dataObject : objectList) {
-          writeShort(dataObject.getTag());
+          writeShort(dataObject.getDescriptorTag());
           writeShort(dataObject.getRef());
           writeInt(dataObject.getOffset());
-          writeInt(dataObject.getBytes().capacity());
+          writeInt(dataObject.getByteLength());
           // Debug
           LOGGER.fine(
               "Write Tag "
@@ -383,7 +455,7 @@ public final class HDFile extends RandomAccessFile {
                   + " offset "
                   + dataObject.getOffset()
                   + " length "
-                  + dataObject.getBytes().capacity());
+                  + dataObject.getByteLength());
         }
       } catch (IOException e) {
         throw new HDFException("Problem writing DD block.", e);
@@ -395,12 +467,13 @@ public final class HDFile extends RandomAccessFile {
    * Given a data object, writes out the appropriate bytes to the file on disk.
    *
    * @param data HDF data element
+   * @param chunk scratch buffer for writing in pieces
    * @exception HDFException thrown if unrecoverable error occurs
    */
-  private void writeDataObject(final AbstractData data) throws HDFException {
+  private void writeDataObject(final AbstractData data, final ByteBuffer chunk)
+      throws HDFException {
     try {
-      seek(data.getOffset());
-      write(data.getBytes().array());
+      data.writeBytes(getChannel(), chunk);
     } catch (IOException e) {
       throw new HDFException("Problem writing HDF data object.", e);
     }
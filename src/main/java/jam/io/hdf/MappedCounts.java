@@ -0,0 +1,68 @@
+package jam.io.hdf;
+
+import jam.data.CountsSource;
+import java.io.File;
+import java.nio.ByteBuffer;
+
+/**
+ * Counts of a histogram left in an HDF file, and read through a memory-mapped view of the file
+ * only when the histogram first needs them. Until then, the only memory they use is address space,
+ * so opening a large file to look at one histogram doesn't read the rest.
+ *
+ * <p>The mapping stays valid after the file is closed. Overwriting the file invalidates it, so
+ * histograms should load their counts first. Even then, the mapping is only released when garbage
+ * collected, and until it is, some platforms (Windows in particular) refuse to overwrite or replace
+ * the file. For that reason, mapping opened files is off by default.
+ *
+ * @author Dale Visser
+ * @see HDFIO#readFile(jam.io.FileOpenMode, File)
+ */
+final class MappedCounts implements CountsSource {
+
+  private final transient File file;
+
+  private final transient ByteBuffer view;
+
+  private final transient byte numberType;
+
+  private final transient int length;
+
+  /**
+   * @param file the counts are in
+   * @param view mapped bytes of the counts, in file order
+   * @param numberType <code>NumberType.INT</code> or <code>NumberType.DOUBLE</code>
+   * @param length number of channels
+   */
+  MappedCounts(final File file, final ByteBuffer view, final byte numberType, final int length) {
+    super();
+    this.file = file.getAbsoluteFile();
+    this.view = view;
+    this.numberType = numberType;
+    this.length = length;
+  }
+
+  /**
+   * @param other a file
+   * @return whether these counts are mapped from the given file
+   */
+  boolean isFrom(final File other) {
+    return file.equals(other.getAbsoluteFile());
+  }
+
+  @Override
+  public Object readCounts() {
+    /* duplicate, so that concurrent reads don't share a position */
+    final ByteBuffer data = view.duplicate();
+    final Object rval;
+    if (numberType == NumberType.INT) {
+      final int[] counts = new int[length];
+      data.asIntBuffer().get(counts, 0, Math.min(length, data.remaining() / Integer.BYTES));
+      rval = counts;
+    } else {
+      final double[] counts = new double[length];
+      data.asDoubleBuffer().get(counts, 0, Math.min(length, data.remaining() / Double.BYTES));
+      rval = counts;
+    }
+    return rval;
+  }
+}
@@ -0,0 +1,193 @@
+package jam.io.hdf;
+
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import jam.data.Group;
+import jam.data.NameValueCollection;
+import jam.data.Warehouse;
+import jam.io.FileOpenMode;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Adds the counts in several HDF files into the histograms and scalers of existing groups, reading
+ * the files on a pool of threads, one file per thread at a time. Each file is decoded into its own
+ * <code>DetachedCounts</code>, with its own data object registry, and the partial sums are merged
+ * pairwise, each pair as soon as both halves are ready, until only the total is left. Only then
+ * are the histograms themselves touched, once each.
+ *
+ * <p>As with adding files one at a time, gates and calibrations aren't read, and parameters take
+ * their values from the last file in the list.
+ *
+ * @author Dale Visser
+ * @see HDFIO#readFile(FileOpenMode, List, List, List)
+ */
+final class ParallelHDFAdder {
+
+  private static final NameValueCollection<Group> GROUPS = Warehouse.getGroupCollection();
+
+  private final transient Provider<ConvertHDFObjToJamObj> converters;
+
+  private final transient int threads;
+
+  /**
+   * Creates a new adder, reading as many files at once as there are processors.
+   *
+   * @param converters creates a converter for each file
+   */
+  @Inject
+  ParallelHDFAdder(final Provider<ConvertHDFObjToJamObj> converters) {
+    this(converters, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Creates a new adder.
+   *
+   * @param converters creates a converter for each file
+   * @param threads number of files to read at once
+   */
+  ParallelHDFAdder(final Provider<ConvertHDFObjToJamObj> converters, final int threads) {
+    super();
+    this.converters = converters;
+    this.threads = threads;
+  }
+
+  /**
+   * Reads the given files, and adds their counts to the given groups. Counts from files which are
+   * read without error are added even if others fail.
+   *
+   * @param files to read
+   * @param groups existing groups to add counts to
+   * @param histAttributes histograms to add to, or <code>null</code> for all
+   * @param monitor progress monitor, incremented <code>steps + 1</code> times per file
+   * @param steps number of progress steps for reading each file
+   * @return number of histograms added to
+   * @throws HDFException if any file couldn't be read
+   */
+  int add(
+      final List<File> files,
+      final List<Group> groups,
+      final List<HistogramAttributes> histAttributes,
+      final AsyncProgressMonitor monitor,
+      final int steps)
+      throws HDFException {
+    final AtomicInteger threadNumber = new AtomicInteger();
+    final ExecutorService executor =
+        Executors.newFixedThreadPool(
+            Math.min(threads, Math.max(1, files.size())),
+            runnable -> {
+              final Thread thread =
+                  new Thread(runnable, "HDF Add Worker " + threadNumber.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            });
+    final DetachedCounts total;
+    try {
+      List<CompletableFuture<DetachedCounts>> level = new ArrayList<>();
+      for (File file : files) {
+        level.add(
+            CompletableFuture.supplyAsync(
+                () -> readFile(file, groups, histAttributes, monitor, steps), executor));
+      }
+      while (level.size() > 1) {
+        final List<CompletableFuture<DetachedCounts>> next = new ArrayList<>();
+        for (int i = 0; i + 1 < level.size(); i += 2) {
+          final CompletableFuture<DetachedCounts> later = level.get(i + 1);
+          next.add(level.get(i).thenCombineAsync(later, DetachedCounts::merge, executor));
+        }
+        if (level.size() % 2 == 1) {
+          next.add(level.get(level.size() - 1));
+        }
+        level = next;
+      }
+      total = level.isEmpty() ? new DetachedCounts() : level.get(0).join();
+    } catch (CompletionException ce) {
+      throw new HDFException("Add worker stopped due to exception.", ce.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+    final int rval = total.applyTo();
+    final List<String> errors = total.getErrors();
+    if (!errors.isEmpty()) {
+      throw new HDFException(String.join("; ", errors));
+    }
+    return rval;
+  }
+
+  private DetachedCounts readFile(
+      final File file,
+      final List<Group> groups,
+      final List<HistogramAttributes> histAttributes,
+      final AsyncProgressMonitor monitor,
+      final int steps) {
+    final DetachedCounts rval = new DetachedCounts();
+    final ConvertHDFObjToJamObj converter = converters.get();
+    converter.setDetachedCounts(rval);
+    final DataObjectRegistry registry = new DataObjectRegistry();
+    final DataObjectRegistry.Binding binding = registry.bind();
+    try (binding;
+        HDFile inHDF = new HDFile(file, "r", monitor, steps, registry)) {
+      inHDF.setLazyLoadData(true);
+      inHDF.readFile();
+      AbstractData.interpretBytesAll();
+      converter.setInFile(inHDF);
+      if (converter.hasVGroupRootGroup()) {
+        readGroups(converter, groups, histAttributes);
+      } else {
+        readOriginal(converter, groups.get(0), histAttributes);
+      }
+    } catch (IOException | HDFException | RuntimeException e) { // NOPMD
+      /* e.g., a truncated file gives IllegalStateException, which mustn't stop the others */
+      rval.addError("Reading file: '" + file.getName() + "', Exception " + e.toString());
+    } finally {
+      registry.clear();
+    }
+    monitor.increment();
+    return rval;
+  }
+
+  private void readGroups(
+      final ConvertHDFObjToJamObj converter,
+      final List<Group> groups,
+      final List<HistogramAttributes> histAttributes)
+      throws HDFException {
+    final List<String> empty = Collections.emptyList();
+    for (VirtualGroup groupVGroup : converter.findGroups(groups)) {
+      final String groupName = converter.readVirtualGroupName(groupVGroup);
+      if (converter.containsGroup(groupName, groups)) {
+        final Group group = GROUPS.get(groupName);
+        for (VirtualGroup histVGroup : converter.findHistograms(groupVGroup, empty)) {
+          converter.convertHistogram(group, histVGroup, histAttributes, FileOpenMode.ADD);
+        }
+        final List<VirtualGroup> scalerList = converter.findScalers(groupVGroup);
+        if (!scalerList.isEmpty()) {
+          converter.convertScalers(group, scalerList.get(0), FileOpenMode.ADD);
+        }
+        final List<VirtualGroup> paramList = converter.findParameters(groupVGroup);
+        if (!paramList.isEmpty()) {
+          converter.convertParameters(paramList.get(0), FileOpenMode.ADD);
+        }
+      }
+    }
+  }
+
+  private void readOriginal(
+      final ConvertHDFObjToJamObj converter,
+      final Group group,
+      final List<HistogramAttributes> histAttributes)
+      throws HDFException {
+    converter.convertHistogramsOriginal(group, FileOpenMode.ADD, histAttributes);
+    final VDataDescription vddScalers = converter.findScalersOriginal();
+    if (vddScalers != null) {
+      converter.convertScalers(group, vddScalers, FileOpenMode.ADD);
+    }
+  }
+}
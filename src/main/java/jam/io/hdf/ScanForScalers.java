@@ -43,18 +43,21 @@ public class ScanForScalers {
       final File infile)
       throws IOException, HDFException {
     updater.updateProgressBar("Processing " + infile.getName(), index);
-    try (final HDFile inHDF = new HDFile(infile, "r")) {
+    final DataObjectRegistry registry = new DataObjectRegistry();
+    final DataObjectRegistry.Binding binding = registry.bind();
+    try (binding;
+        HDFile inHDF = new HDFile(infile, "r", null, 0, registry)) {
       inHDF.seek(0);
       inHDF.readFile();
+      if (index == firstRun) {
+        writeHeaderLine(carriage, outText);
+      }
+      outText.append(index);
+      for (int value : getScalerValues()) {
+        outText.append(TAB).append(value);
+      }
+      outText.append(carriage);
     }
-    if (index == firstRun) {
-      writeHeaderLine(carriage, outText);
-    }
-    outText.append(index);
-    for (int value : getScalerValues()) {
-      outText.append(TAB).append(value);
-    }
-    outText.append(carriage);
   }
 
   private void writeHeaderLine(final char carriage, final StringBuffer outText) {
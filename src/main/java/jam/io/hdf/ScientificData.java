@@ -1,12 +1,26 @@
 package jam.io.hdf;
 
-import static jam.io.hdf.Constants.DFTAG_SD;
+import static jam.io.hdf.Constants.*;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.Buffer;
 import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.util.function.Supplier;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
 
 /**
  * Class to represent an HDF <em>Scientific Data</em> data object.
  *
+ * <p>The data may be stored as a compressed special element, in which case the bytes of this
+ * object are only a header, and the deflated data is in a separate <code>CompressedData</code>.
+ *
  * @version 0.5 November 98
  * @author <a href="mailto:dwvisser@users.sourceforge.net">Dale Visser </a>
  * @since JDK1.1
@@ -15,6 +29,12 @@ final class ScientificData extends AbstractData {
 
   private static final String REF_MSG = "AbstractHData mode not properly set: Ref# ";
 
+  /** bytes in the header of a compressed special element using deflate */
+  private static final int COMP_HEADER_LENGTH = 16;
+
+  /** size of the pieces counts are converted to bytes in */
+  private static final int CHUNK_BYTES = 64 * 1024;
+
   private enum InputMode {
     /**
      * indicates normal mode of operation, where <code>bytes</code> is read in when instantizing,
@@ -27,13 +47,18 @@ final class ScientificData extends AbstractData {
 
   private transient int byteLength;
 
-  private transient int[] counts;
-
-  private transient int[][] counts2d;
+  /** whether this is a compressed special element */
+  private transient boolean compressed;
 
-  private transient double[][] counts2dD;
+  /** deflated counts, when writing compressed */
+  private transient CompressedData compressedData;
 
-  private transient double[] countsD;
+  /**
+   * supplies a view of the row-major counts to write, an <code>IntBuffer</code> or <code>
+   * DoubleBuffer</code>, asked for once each time the counts are compressed or written, then read a
+   * chunk at a time
+   */
+  private transient Supplier<? extends Buffer> countsView;
 
   private transient InputMode inputMode;
 
@@ -55,49 +80,53 @@ final class ScientificData extends AbstractData {
   }
 
   ScientificData(double[] counts) { // NOPMD
-    super(DFTAG_SD); // sets tag
-    numberType = NumberType.DOUBLE;
-    inputMode = InputMode.STORE;
-    rank = 1;
-    sizeX = counts.length;
-    byteLength = NumberType.DOUBLE_SIZE * sizeX; // see p. 6-34 HDF 4.1r2
-    // specs
-    this.countsD = counts;
+    this(NumberType.DOUBLE, counts.length, () -> DoubleBuffer.wrap(counts));
   }
 
-  ScientificData(double[][] counts2d) { // NOPMD
-    super(DFTAG_SD); // sets tag
-    numberType = NumberType.DOUBLE;
-    inputMode = InputMode.STORE;
-    rank = 2;
-    sizeX = counts2d.length;
-    sizeY = counts2d[0].length;
-    byteLength = NumberType.DOUBLE_SIZE * sizeX * sizeY;
-    // see p. 6-34 HDF 4.1r2 specs
-    this.counts2dD = counts2d;
-  }
-
-  ScientificData(int[] counts) { // NOPMD
+  /**
+   * Creates 1-d data to write, whose counts are read from the given views while writing. All the
+   * chunks written or compressed are read from the same view, so a view which is a snapshot of
+   * the counts is written whole, as it was taken.
+   *
+   * @param numberType <code>NumberType.INT</code> or <code>NumberType.DOUBLE</code>
+   * @param sizeX number of channels
+   * @param countsView supplies an <code>IntBuffer</code> or <code>DoubleBuffer</code> view of the
+   *     counts, which may be shorter than <code>sizeX</code> if the rest are zero
+   */
+  ScientificData(
+      final byte numberType, final int sizeX, final Supplier<? extends Buffer> countsView) {
     super(DFTAG_SD); // sets tag
-    numberType = NumberType.INT;
+    this.numberType = numberType;
     inputMode = InputMode.STORE;
     rank = 1;
-    sizeX = counts.length;
-    byteLength = NumberType.INT_SIZE * sizeX; // see p. 6-34 HDF 4.1r2
-    // specs
-    this.counts = counts;
+    this.sizeX = sizeX;
+    byteLength = getElementSize() * sizeX; // see p. 6-34 HDF 4.1r2 specs
+    this.countsView = countsView;
   }
 
-  ScientificData(int[][] counts2d) { // NOPMD
+  /**
+   * Creates 2-d data to write, whose counts are read from the given views while writing, as for
+   * 1-d data.
+   *
+   * @param numberType <code>NumberType.INT</code> or <code>NumberType.DOUBLE</code>
+   * @param sizeX number of channels in x
+   * @param sizeY number of channels in y
+   * @param countsView supplies an <code>IntBuffer</code> or <code>DoubleBuffer</code> view of the
+   *     row-major counts, which may be shorter than <code>sizeX * sizeY</code> if the rest are zero
+   */
+  ScientificData(
+      final byte numberType,
+      final int sizeX,
+      final int sizeY,
+      final Supplier<? extends Buffer> countsView) {
     super(DFTAG_SD); // sets tag
-    numberType = NumberType.INT;
+    this.numberType = numberType;
     inputMode = InputMode.STORE;
     rank = 2;
-    sizeX = counts2d.length;
-    sizeY = counts2d[0].length;
-    byteLength = NumberType.INT_SIZE * sizeX * sizeY; // see p. 6-34 HDF
-    // 4.1r2 specs
-    this.counts2d = counts2d;
+    this.sizeX = sizeX;
+    this.sizeY = sizeY;
+    byteLength = getElementSize() * sizeX * sizeY; // see p. 6-34 HDF 4.1r2 specs
+    this.countsView = countsView;
   }
 
   /**
@@ -108,31 +137,132 @@ final class ScientificData extends AbstractData {
   @Override
   protected ByteBuffer getBytes() {
     bytes = ByteBuffer.allocate(byteLength);
-    switch (rank) {
-      case 1:
-        for (int i = 0; i < sizeX; i++) { // write out data type
-          if (numberType == NumberType.INT) {
-            bytes.putInt(counts[i]);
-          } else {
-            bytes.putDouble(countsD[i]);
-          }
+    fillChunk(bytes, countsView.get(), 0, byteLength / getElementSize());
+    return bytes;
+  }
+
+  /**
+   * @return whether this object was created from counts, to be written to a file
+   */
+  private boolean hasCounts() {
+    return countsView != null;
+  }
+
+  @Override
+  protected int getByteLength() {
+    final int rval;
+    if (compressedData != null) {
+      rval = COMP_HEADER_LENGTH;
+    } else if (hasCounts()) {
+      rval = byteLength;
+    } else {
+      rval = super.getByteLength();
+    }
+    return rval;
+  }
+
+  @Override
+  protected short getDescriptorTag() {
+    return compressed ? (short) (tag | SPECIAL_TAG) : tag;
+  }
+
+  /** Marks this as read from a compressed special element, whose bytes are only a header. */
+  void setCompressed() {
+    compressed = true;
+  }
+
+  /**
+   * Deflates the counts to be written into a separate compressed data object, so that this object
+   * is written as a compressed special element. The counts are left uncompressed if that wouldn't
+   * make them smaller.
+   */
+  void compress() {
+    if (hasCounts()) {
+      final ByteArrayOutputStream out = new ByteArrayOutputStream();
+      final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+      try (DeflaterOutputStream deflating = new DeflaterOutputStream(out, deflater, CHUNK_BYTES)) {
+        final ByteBuffer chunk = ByteBuffer.allocate(CHUNK_BYTES);
+        final Buffer view = countsView.get();
+        final int total = byteLength / getElementSize();
+        final int perChunk = CHUNK_BYTES / getElementSize();
+        for (int start = 0; start < total; start += perChunk) {
+          fillChunk(chunk, view, start, Math.min(perChunk, total - start));
+          deflating.write(chunk.array(), 0, chunk.limit());
         }
-        break;
-      case 2:
-        for (int i = 0; i < sizeX; i++) { // write out data type
-          for (int j = 0; j < sizeY; j++) {
-            if (numberType == NumberType.INT) {
-              bytes.putInt(counts2d[i][j]);
-            } else {
-              bytes.putDouble(counts2dD[i][j]);
-            }
-          }
+      } catch (IOException e) {
+        throw new IllegalStateException("SD_" + tag + ", couldn't compress counts.", e);
+      } finally {
+        deflater.end();
+      }
+      if (out.size() + COMP_HEADER_LENGTH < byteLength) {
+        compressedData = new CompressedData(out.toByteArray());
+        compressed = true;
+      }
+    }
+  }
+
+  private int getElementSize() {
+    return numberType == NumberType.INT ? NumberType.INT_SIZE : NumberType.DOUBLE_SIZE;
+  }
+
+  /*
+   * non-javadoc: Puts the given counts from the view in the chunk, ready to
+   * be read. Counts beyond the end of the view are zero.
+   *
+   * @throws IllegalStateException if the rank is not 1 or 2
+   */
+  private void fillChunk(
+      final ByteBuffer chunk, final Buffer view, final int start, final int count) {
+    if (rank != 1 && rank != 2) {
+      throw new IllegalStateException("SD_" + tag + ", bad value for rank: " + rank);
+    }
+    chunk.clear();
+    final int available = Math.max(0, Math.min(count, view.limit() - start));
+    if (numberType == NumberType.INT) {
+      final IntBuffer ints = chunk.asIntBuffer();
+      ints.put(0, (IntBuffer) view, start, available);
+      for (int i = available; i < count; i++) {
+        ints.put(i, 0);
+      }
+    } else {
+      final DoubleBuffer doubles = chunk.asDoubleBuffer();
+      doubles.put(0, (DoubleBuffer) view, start, available);
+      for (int i = available; i < count; i++) {
+        doubles.put(i, 0.0);
+      }
+    }
+    chunk.limit(count * getElementSize());
+  }
+
+  /**
+   * Writes the counts straight from their view, a chunk at a time, without building the whole
+   * byte representation. Compressed counts are written by their own object, and only the header
+   * locating them is written here.
+   *
+   * @throws IllegalStateException if the rank is not 1 or 2
+   */
+  @Override
+  protected void writeBytes(final FileChannel channel, final ByteBuffer chunk) throws IOException {
+    if (compressedData != null) {
+      final ByteBuffer header = getCompressionHeader();
+      long position = offset;
+      while (header.hasRemaining()) {
+        position += channel.write(header, position);
+      }
+    } else if (hasCounts()) {
+      final Buffer view = countsView.get();
+      final int total = byteLength / getElementSize();
+      final int perChunk = chunk.capacity() / getElementSize();
+      long position = offset;
+      for (int start = 0; start < total; start += perChunk) {
+        fillChunk(chunk, view, start, Math.min(perChunk, total - start));
+        while (chunk.hasRemaining()) {
+          position += channel.write(chunk, position);
         }
-        break;
-      default:
-        throw new IllegalStateException("SD_" + tag + ", bad value for rank: " + rank);
+      }
+    } else {
+      super.writeBytes(channel, chunk);
     }
-    return bytes;
   }
 
   /*
@@ -201,12 +331,10 @@ final class ScientificData extends AbstractData {
       throw new HDFException("getData2d called on wrong type of SD.");
     }
     final byte[] localBytes = getLocalBytes(infile);
-    int[][] output = new int[xlen][ylen];
-    final ByteBuffer buffer = ByteBuffer.wrap(localBytes);
+    final int[][] output = new int[xlen][ylen];
+    final IntBuffer buffer = ByteBuffer.wrap(localBytes).asIntBuffer();
     for (int i = 0; i < xlen; i++) {
-      for (int j = 0; j < ylen; j++) {
-        output[i][j] = buffer.getInt();
-      }
+      buffer.get(output[i]);
     }
     bytes = ByteBuffer.allocate(0); // empty it
     return output;
@@ -218,17 +346,91 @@ final class ScientificData extends AbstractData {
       throw new HDFException("getData2dD called on wrong type of SD.");
     }
     final byte[] localBytes = getLocalBytes(infile);
-    double[][] output = new double[xlen][ylen];
-    final ByteBuffer buffer = ByteBuffer.wrap(localBytes);
+    final double[][] output = new double[xlen][ylen];
+    final DoubleBuffer buffer = ByteBuffer.wrap(localBytes).asDoubleBuffer();
     for (int i = 0; i < xlen; i++) {
-      for (int j = 0; j < ylen; j++) {
-        output[i][j] = buffer.getDouble();
-      }
+      buffer.get(output[i]);
     }
     bytes = ByteBuffer.allocate(0); // empty it
     return output;
   }
 
+  /**
+   * Maps the counts in the file into memory instead of reading them, if they weren't read with the
+   * rest of the file.
+   *
+   * @param infile file this object was read from
+   * @param length number of channels
+   * @return source of the counts, or <code>null</code> if they have already been read, or are
+   *     compressed
+   * @throws HDFException if the file can't be mapped
+   */
+  MappedCounts mapCounts(final HDFile infile, final int length) throws HDFException {
+    MappedCounts rval = null;
+    if (inputMode == InputMode.WAIT_TO_READ && !compressed) {
+      rval = new MappedCounts(infile.getFile(), infile.mapData(this), numberType, length);
+    }
+    return rval;
+  }
+
+  /*
+   * non-javadoc: The special element header, as laid out by HDF 4 for the
+   * "standard I/O" model and deflate coder.
+   */
+  private ByteBuffer getCompressionHeader() {
+    final ByteBuffer rval = ByteBuffer.allocate(COMP_HEADER_LENGTH);
+    rval.putShort(SPECIAL_COMP);
+    rval.putShort((short) 0); // header version
+    rval.putInt(byteLength);
+    rval.putShort(compressedData.getRef());
+    rval.putShort(COMP_MODEL_STDIO);
+    rval.putShort(COMP_CODE_DEFLATE);
+    rval.putShort((short) Deflater.BEST_SPEED);
+    rval.flip();
+    return rval;
+  }
+
+  /*
+   * non-javadoc: Inflates the data located by a special element header.
+   */
+  private byte[] decompress(final HDFile infile, final byte[] header) throws HDFException {
+    final ByteBuffer buffer = ByteBuffer.wrap(header);
+    final short special = buffer.getShort();
+    buffer.getShort(); // header version
+    final int length = buffer.getInt();
+    final short dataRef = buffer.getShort();
+    buffer.getShort(); // model, "standard I/O" being the only one
+    final short coder = buffer.getShort();
+    if (special != SPECIAL_COMP || coder != COMP_CODE_DEFLATE) {
+      throw new HDFException("SD ref#" + ref + ": unsupported special element or compression.");
+    }
+    final CompressedData data = infile.getRegistry().getObject(CompressedData.class, dataRef);
+    if (data == null) {
+      throw new HDFException("SD ref#" + ref + ": compressed data missing.");
+    }
+    final byte[] rval = new byte[length];
+    final Inflater inflater = new Inflater();
+    try {
+      inflater.setInput(data.getCompressedBytes(infile));
+      int done = 0;
+      while (done < length && !inflater.finished()) {
+        final int inflated = inflater.inflate(rval, done, length - done);
+        if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          break;
+        }
+        done += inflated;
+      }
+      if (done < length) {
+        throw new HDFException("SD ref#" + ref + ": compressed data truncated.");
+      }
+    } catch (DataFormatException e) {
+      throw new HDFException("SD ref#" + ref + ": corrupt compressed data.", e);
+    } finally {
+      inflater.end();
+    }
+    return rval;
+  }
+
   private byte[] getLocalBytes(final HDFile infile) throws HDFException {
     final byte[] localBytes;
     switch (inputMode) {
@@ -241,7 +443,7 @@ final class ScientificData extends AbstractData {
       default:
         throw new HDFException(REF_MSG + ref);
     }
-    return localBytes;
+    return compressed ? decompress(infile, localBytes) : localBytes;
   }
 
   protected int getNumberType() {
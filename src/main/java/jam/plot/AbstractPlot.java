@@ -100,12 +100,22 @@ abstract class AbstractPlot implements PreferenceChangeListener, Dimensional, Pl
    * Autoscale the counts scale. Set maximum scale to 110 percent of maximum number of counts in
    * view. Can't call refresh because we need to use the counts before refreshing.
    */
-  protected final void autoCounts() {
+  protected void autoCounts() {
     final AbstractHistogram plotHist = getHistogram();
     copyCounts(plotHist);
-    limits.setMinimumCounts(110 * findMinimumCounts() / 100);
-    if (findMaximumCounts() > 5) {
-      limits.setMaximumCounts(110 * findMaximumCounts() / 100);
+    setAutoCounts(findMinimumCounts(), findMaximumCounts());
+  }
+
+  /**
+   * Sets the counts scale to 110 percent of the given extremes of the counts in view, and repaints.
+   *
+   * @param minCounts fewest counts in view
+   * @param maxCounts most counts in view
+   */
+  protected final void setAutoCounts(final int minCounts, final int maxCounts) {
+    limits.setMinimumCounts(110 * minCounts / 100);
+    if (maxCounts > 5) {
+      limits.setMaximumCounts(110 * maxCounts / 100);
     } else {
       limits.setMaximumCounts(5);
     }
@@ -508,6 +518,17 @@ abstract class AbstractPlot implements PreferenceChangeListener, Dimensional, Pl
     panel.repaint();
   }
 
+  /**
+   * Returns whether the plot has finished drawing, and has had nothing to draw for the given time.
+   * Plots drawn on the event thread are always idle.
+   *
+   * @param millis time wanted since the plot was last drawn
+   * @return whether the plot can be refreshed without keeping it busy drawing
+   */
+  protected boolean isIdleFor(final long millis) {
+    return true;
+  }
+
   protected abstract void removeOverlays();
 
   /** Reset state */
@@ -3,6 +3,7 @@ package jam.plot;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import jam.data.AbstractHist1D;
+import jam.data.AbstractHist2D;
 import jam.data.AbstractHistogram;
 import jam.data.DataUtility;
 import jam.data.peaks.GaussianConstants;
@@ -220,8 +221,8 @@ public final class Action {
       } else { // 2D histogram
         synchronized (cursorBin) {
           textOut.messageOut(getCoordString(cursorBin));
-          final double[][] counts = (double[][]) currentPlot.getCounts();
-          final double area = inquire.getArea(counts, lim1, cursorBin);
+          final AbstractHist2D histogram = (AbstractHist2D) currentPlot.getHistogram();
+          final double area = inquire.getArea(histogram, lim1, cursorBin);
           currentPlot.markChannel(cursorBin);
           currentPlot.markArea(lim1, cursorBin);
           textOut.messageOut(":  Area = " + numFormat.format(area), MessageHandler.END);
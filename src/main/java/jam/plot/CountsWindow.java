@@ -0,0 +1,135 @@
+package jam.plot;
+
+import jam.data.AbstractHist2D;
+import jam.data.CountsPyramid;
+import java.awt.Rectangle;
+
+/**
+ * The counts a 2d plot keeps for drawing: the maximum counts in each tile of one level of a
+ * histogram's <code>CountsPyramid</code>, over the channels shown and as many again around them,
+ * so that the plot can be panned a little without fetching counts again.
+ *
+ * @author Dale Visser
+ * @see CountsPyramid
+ */
+final class CountsWindow {
+
+  /** window with no tiles, for when there is nothing to draw */
+  static final CountsWindow EMPTY = new CountsWindow(null, -1, 0, 0, 0, new double[0][0]);
+
+  private final transient AbstractHist2D histogram;
+
+  /** version of the counts, as counted by whoever fetched them */
+  private final transient int version;
+
+  private final transient int level;
+
+  private final transient int originX;
+
+  private final transient int originY;
+
+  private final transient double[][] maxima;
+
+  private CountsWindow(
+      final AbstractHist2D histogram,
+      final int version,
+      final int level,
+      final int originX,
+      final int originY,
+      final double[][] maxima) {
+    super();
+    this.histogram = histogram;
+    this.version = version;
+    this.level = level;
+    this.originX = originX;
+    this.originY = originY;
+    this.maxima = maxima;
+  }
+
+  /**
+   * Fetches the tiles of the given level covering the given channels, and half as many again on
+   * each side, as far as the edges of the histogram.
+   *
+   * @param histogram to fetch from
+   * @param level of the tiles, 0 for channels
+   * @param channels to cover
+   * @param version of the counts, to tell this fetch from later ones
+   * @return the maxima of the tiles
+   */
+  static CountsWindow fetch(
+      final AbstractHist2D histogram,
+      final int level,
+      final Rectangle channels,
+      final int version) {
+    final int marginX = channels.width / 2;
+    final int marginY = channels.height / 2;
+    final int originX = Math.max(0, channels.x - marginX) >> level;
+    final int originY = Math.max(0, channels.y - marginY) >> level;
+    final int endX =
+        CountsPyramid.tilesSpanning(
+            level, Math.min(histogram.getSizeX(), channels.x + channels.width + marginX));
+    final int endY =
+        CountsPyramid.tilesSpanning(
+            level, Math.min(histogram.getSizeY(), channels.y + channels.height + marginY));
+    final double[][] maxima =
+        new double[Math.max(0, endX - originX)][Math.max(0, endY - originY)];
+    histogram.getPyramid().copyMaxima(level, originX, originY, maxima);
+    return new CountsWindow(histogram, version, level, originX, originY, maxima);
+  }
+
+  /**
+   * @param levelIn level wanted
+   * @param channels wanted
+   * @return whether this window has the given level's tiles for all the given channels
+   */
+  boolean covers(final int levelIn, final Rectangle channels) {
+    return levelIn == level
+        && maxima.length > 0
+        && channels.x >> level >= originX
+        && channels.y >> level >= originY
+        && (channels.x + channels.width - 1) >> level < originX + maxima.length
+        && (channels.y + channels.height - 1) >> level < originY + maxima[0].length;
+  }
+
+  /**
+   * @return the histogram fetched from, <code>null</code> if none
+   */
+  AbstractHist2D getHistogram() {
+    return histogram;
+  }
+
+  /**
+   * @return the version of the counts given when fetched
+   */
+  int getVersion() {
+    return version;
+  }
+
+  /**
+   * @return the level of the tiles, 0 for channels
+   */
+  int getLevel() {
+    return level;
+  }
+
+  /**
+   * @return the x-index of the first tile
+   */
+  int getOriginX() {
+    return originX;
+  }
+
+  /**
+   * @return the y-index of the first tile
+   */
+  int getOriginY() {
+    return originY;
+  }
+
+  /**
+   * @return the most counts in each tile, indexed by x-tile, then y-tile, counted from the origin
+   */
+  double[][] getMaxima() {
+    return maxima;
+  }
+}
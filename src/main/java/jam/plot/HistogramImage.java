@@ -0,0 +1,127 @@
+package jam.plot;
+
+import jam.plot.color.ColorLookup;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+/**
+ * The channels of a 2d plot rendered into an image at screen resolution, so the plot is drawn with
+ * one <code>drawImage()</code> instead of a rectangle per channel. Where a pixel covers several
+ * channels, it shows the one with the most counts, so that peaks stay visible when zoomed out.
+ * Channels with no more than the minimum counts are left transparent. When zoomed out far enough,
+ * the channels given are tiles of a <code>CountsPyramid</code>, each holding the most counts in
+ * its channels.
+ *
+ * <p><code>PlotRenderer</code> creates the images on its own thread, and draws the latest one
+ * finished whenever the plot is painted.
+ *
+ * @author Dale Visser
+ * @see Painter
+ * @see PlotRenderer
+ */
+final class HistogramImage {
+
+  private HistogramImage() {
+    super();
+  }
+
+  /**
+   * Renders the given channels into a new image, whose top left corner is to be drawn at the left
+   * edge of the first x-channel and the top edge of the last y-channel.
+   *
+   * @param counts counts of the channels available, indexed <code>[x][y]</code>
+   * @param minX index in <code>counts</code> of the lowest x-channel shown
+   * @param minY index in <code>counts</code> of the lowest y-channel shown
+   * @param edgesX left pixel of each x-channel shown, and of the one after
+   * @param edgesY bottom pixel of each y-channel shown, and of the one after
+   * @param minCounts counts a channel must exceed to be colored
+   * @param colors color for the counts of each channel
+   * @return the image, or <code>null</code> if no channels or pixels are shown
+   */
+  static BufferedImage render(
+      final double[][] counts,
+      final int minX,
+      final int minY,
+      final int[] edgesX,
+      final int[] edgesY,
+      final int minCounts,
+      final ColorLookup colors) {
+    BufferedImage rval = null;
+    if (edgesX.length >= 2 && edgesY.length >= 2) {
+      /* columns left to right, rows top to bottom */
+      final int[][] columns = spanChannels(edgesX, edgesX[0], false);
+      final int[][] rows = spanChannels(edgesY, edgesY[edgesY.length - 1] + 1, true);
+      final int width = columns[0].length;
+      final int height = rows[0].length;
+      if (width > 0 && height > 0) {
+        rval = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        final int[] pixels = ((DataBufferInt) rval.getRaster().getDataBuffer()).getData();
+        for (int row = 0; row < height; row++) {
+          final int firstY = minY + rows[0][row];
+          final int lastY = minY + rows[1][row];
+          for (int column = 0; column < width; column++) {
+            final int lastX = minX + columns[1][column];
+            double most = Double.NEGATIVE_INFINITY;
+            for (int x = minX + columns[0][column]; x <= lastX; x++) {
+              final double[] countsX = counts[x];
+              for (int y = firstY; y <= lastY; y++) {
+                most = Math.max(most, countsX[y]);
+              }
+            }
+            pixels[row * width + column] = most > minCounts ? colors.getRGB(most) : 0;
+          }
+        }
+      }
+    }
+    return rval;
+  }
+
+  /*
+   * non-javadoc: Finds the first and last channel, counted from the first shown, covering each
+   * pixel. A channel narrower than a pixel is given the pixel it starts in.
+   *
+   * @param edges screen position of the start of each channel, and of the one after
+   * @param origin screen position of the first pixel
+   * @param descending whether positions decrease with channel, as for y, where each channel covers
+   * the pixels above its start, up to and including the start of the next
+   * @return first and last channel for each pixel
+   */
+  private static int[][] spanChannels(
+      final int[] edges, final int origin, final boolean descending) {
+    final int channels = edges.length - 1;
+    final int size = Math.abs(edges[channels] - edges[0]);
+    final int[][] rval = new int[2][size];
+    Arrays.fill(rval[0], -1);
+    for (int channel = 0; channel < channels; channel++) {
+      int from;
+      int to;
+      if (descending) {
+        from = edges[channel + 1] + 1 - origin;
+        to = edges[channel] + 1 - origin;
+      } else {
+        from = edges[channel] - origin;
+        to = edges[channel + 1] - origin;
+      }
+      if (to <= from) { // narrower than a pixel
+        from = descending ? to - 1 : from;
+        to = from + 1;
+      }
+      for (int pixel = Math.max(0, from); pixel < Math.min(size, to); pixel++) {
+        if (rval[0][pixel] < 0) {
+          rval[0][pixel] = channel;
+        }
+        rval[1][pixel] = channel;
+      }
+    }
+    /* pixels no channel started in, which rounding can leave, take the one before */
+    for (int pixel = 0; pixel < size; pixel++) {
+      if (rval[0][pixel] < 0) {
+        final int previous = pixel == 0 ? 0 : rval[1][pixel - 1];
+        rval[0][pixel] = previous;
+        rval[1][pixel] = previous;
+      }
+    }
+    return rval;
+  }
+}
@@ -2,6 +2,8 @@ package jam.plot;
 
 import jam.data.*;
 import jam.plot.common.Scale;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
@@ -171,18 +173,19 @@ final class Limits {
       final int chminY,
       final int chmaxY) {
     int maxCounts = DEFAULTMAXCOUNTS;
+    final int stride = hist.getSizeY();
     if (hist instanceof HistDouble2D) {
-      final double[][] counts2d = ((HistDouble2D) hist).getCounts();
-      for (int i = chminX; i <= chmaxX; i++) {
+      final DoubleBuffer counts2d = ((HistDouble2D) hist).getCountsView();
+      for (int i = chminX; i <= chmaxX && counts2d.hasRemaining(); i++) {
         for (int j = chminY; j <= chmaxY; j++) {
-          maxCounts = Math.max(maxCounts, (int) counts2d[i][j]);
+          maxCounts = Math.max(maxCounts, (int) counts2d.get(i * stride + j));
         }
       }
     } else { // instanceof int [][]
-      final int[][] counts2d = ((HistInt2D) hist).getCounts();
-      for (int i = chminX; i <= chmaxX; i++) {
+      final IntBuffer counts2d = ((HistInt2D) hist).getCountsView();
+      for (int i = chminX; i <= chmaxX && counts2d.hasRemaining(); i++) {
         for (int j = chminY; j <= chmaxY; j++) {
-          maxCounts = Math.max(maxCounts, counts2d[i][j]);
+          maxCounts = Math.max(maxCounts, counts2d.get(i * stride + j));
         }
       }
     }
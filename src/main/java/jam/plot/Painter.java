@@ -2,7 +2,11 @@ package jam.plot;
 
 import static javax.swing.SwingConstants.*;
 
+import jam.data.AbstractHist2D;
+import jam.data.CountsPyramid;
 import jam.data.Dimensional;
+import jam.data.GateMask;
+import jam.plot.color.ColorLookup;
 import jam.plot.color.ColorScale;
 import jam.plot.color.DiscreteColorScale;
 import jam.plot.color.GradientColorScale;
@@ -798,81 +802,103 @@ final class Painter {
     }
   }
 
-  /*
-   * non-javadoc: Draw a 2d plot.
-   *
-   * @param counts the counts to be displayed @param colors the colors to use
+  /**
+   * Draws a 2d plot in discrete colors, over the whole range of channels shown.
    *
-   * @since Version 0.5
+   * @param renderer renders the plot
+   * @param histogram the histogram to be displayed
+   * @param level of detail, as a level of the histogram's <code>CountsPyramid</code>
+   * @param colors the colors to use
+   * @see PlotRenderer
    */
   protected void drawHist2d(
-      final double[][] counts,
-      final int minChanX,
-      final int minChanY,
-      final int maxChanX,
-      final int maxChanY,
+      final PlotRenderer renderer,
+      final AbstractHist2D histogram,
+      final int level,
       final DiscreteColorScale colors) {
-    final int minCount = getMinimumCounts();
-    colors.setRange(minCount, getMaximumCounts());
-    /* for each bin */
-    for (int j = minChanY; j <= maxChanY; j++) {
-      for (int i = minChanX; i <= maxChanX; i++) {
-        final double count = counts[i][j];
-        /* quickly check if above lower limit */
-        if (count > minCount) {
-          /*
-           * Constructing a color lookup array would be faster, but
-           * this seems to draw fast enough.
-           */
-          final int xValue = toViewHorzLin(i);
-          final int yValue = toViewVertLin(j);
-          final int channelWidth = toViewHorzLin(i + 1) - xValue;
-          final int channelHeight = yValue - toViewVertLin(j + 1);
-          /* check for min counts first as these are most likely */
-          final Color paint = colors.getColor(count);
-          graphics2d.setColor(paint);
-          /* inline for speed */
-          graphics2d.fillRect(xValue, yValue - channelHeight + 1, channelWidth, channelHeight);
-        }
-      }
-    }
+    colors.setRange(getMinimumCounts(), getMaximumCounts());
+    drawHist2d(renderer, histogram, level, ColorLookup.of(colors));
   }
 
-  /*
-   * non-javadoc: Draw a 2d plot.
-   *
-   * @param counts the counts to be displayed @param colors the colors to use
+  /**
+   * Draws a 2d plot in a smooth gradient of colors, over the whole range of channels shown.
    *
-   * @since Version 0.5
+   * @param renderer renders the plot
+   * @param histogram the histogram to be displayed
+   * @param level of detail, as a level of the histogram's <code>CountsPyramid</code>
+   * @see PlotRenderer
    */
   protected void drawHist2d(
-      final double[][] counts,
-      final int minChanX,
-      final int minChanY,
-      final int maxChanX,
-      final int maxChanY) {
-    ColorScale colors;
+      final PlotRenderer renderer, final AbstractHist2D histogram, final int level) {
+    final Scale scale;
     synchronized (limitsLock) {
-      colors = GradientColorScale.getScale(plotLimits.getScale());
+      scale = plotLimits.getScale();
     }
+    final ColorScale colors = GradientColorScale.getScale(scale);
     final int minCount = getMinimumCounts();
-    colors.setRange(minCount, getMaximumCounts());
-    /* loop over channels */
-    for (int j = minChanY; j <= maxChanY; j++) {
-      for (int i = minChanX; i <= maxChanX; i++) {
-        final double count = counts[i][j];
-        /* quickly check above lower limit */
-        if (count > minCount) {
-          graphics2d.setColor(colors.getColor(count));
-          /* inline for speed */
-          final int xValue = toViewHorzLin(i);
-          final int yValue = toViewVertLin(j);
-          final int channelWidth = toViewHorzLin(i + 1) - xValue;
-          final int channelHeight = yValue - toViewVertLin(j + 1);
-          graphics2d.fillRect(xValue, yValue - channelHeight + 1, channelWidth, channelHeight);
-        } // end of loop for each point
-      }
+    final int maxCount = getMaximumCounts();
+    colors.setRange(minCount, maxCount);
+    drawHist2d(renderer, histogram, level, ColorLookup.of(colors, scale, minCount, maxCount));
+  }
+
+  /*
+   * non-javadoc: Draws the whole plot as an image, so that repaints of part of it, e.g., while
+   * setting a gate, can reuse the image. Each tile is drawn from the first of its channels shown
+   * to the last. When printing, the image is rendered before returning.
+   */
+  private void drawHist2d(
+      final PlotRenderer renderer,
+      final AbstractHist2D histogram,
+      final int level,
+      final ColorLookup colors) {
+    final int minChanX;
+    final int maxChanX;
+    synchronized (limitsLock) {
+      minChanX = plotLimits.getMinimumX();
+      maxChanX = plotLimits.getMaximumX();
+    }
+    final int minChanY = getMinimumY();
+    final int maxChanY = getMaximumY();
+    final int firstX = minChanX >> level;
+    final int lastX =
+        Math.min(CountsPyramid.tilesSpanning(level, histogram.getSizeX()) - 1, maxChanX >> level);
+    final int firstY = minChanY >> level;
+    final int lastY =
+        Math.min(CountsPyramid.tilesSpanning(level, histogram.getSizeY()) - 1, maxChanY >> level);
+    final int[] edgesX = new int[Math.max(0, lastX - firstX + 2)];
+    for (int i = 0; i < edgesX.length; i++) {
+      edgesX[i] =
+          toViewHorzLin(Math.min(maxChanX + 1, Math.max(minChanX, (firstX + i) << level)));
+    }
+    final int[] edgesY = new int[Math.max(0, lastY - firstY + 2)];
+    for (int j = 0; j < edgesY.length; j++) {
+      edgesY[j] =
+          toViewVertLin(Math.min(maxChanY + 1, Math.max(minChanY, (firstY + j) << level)));
     }
+    final Rectangle channels =
+        new Rectangle(minChanX, minChanY, maxChanX - minChanX + 1, maxChanY - minChanY + 1);
+    renderer.draw(
+        graphics2d,
+        new PlotRenderer.Frame(
+            histogram,
+            level,
+            channels,
+            firstX,
+            firstY,
+            edgesX,
+            edgesY,
+            getMinimumCounts(),
+            colors),
+        pageformat != null);
+  }
+
+  /**
+   * Returns the size of the plot area, as of the last update.
+   *
+   * @return width and height in pixels, zero before the first update
+   */
+  protected Dimension getPlotSize() {
+    return new Dimension(view.getWidth(), view.getHeight());
   }
 
   /*
@@ -898,19 +924,19 @@ final class Painter {
   /**
    * Draw a 2d Gate
    *
-   * @param gate the array to be displayed
+   * @param gate the channels to be displayed
    */
-  protected void drawGate2d(final boolean[][] gate) {
+  protected void drawGate2d(final GateMask gate) {
     if (gate != null) {
       int minX, maxX;
       synchronized (limitsLock) {
-        minX = plotLimits.getMinimumX();
-        maxX = plotLimits.getMaximumX();
+        minX = Math.max(plotLimits.getMinimumX(), gate.getMinX());
+        maxX = Math.min(plotLimits.getMaximumX(), gate.getMaxX() - 1);
       }
-      final int maxY = getMaximumY();
-      for (int j = getMinimumY(); j <= maxY; j++) { // for each point
+      final int maxY = Math.min(getMaximumY(), gate.getMaxY() - 1);
+      for (int j = Math.max(getMinimumY(), gate.getMinY()); j <= maxY; j++) { // for each point
         for (int i = minX; i <= maxX; i++) {
-          if (gate[i][j]) { // if inside gate
+          if (gate.contains(i, j)) { // if inside gate
             final int xValue = toViewHorzLin(i);
             final int yValue = toViewVertLin(j);
             final int channelWidth = toViewHorzLin(i + 1) - xValue;
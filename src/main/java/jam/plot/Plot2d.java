@@ -11,6 +11,7 @@ import jam.plot.common.Scale;
 import java.awt.*;
 import java.awt.event.MouseEvent;
 import java.util.List;
+import java.util.function.Supplier;
 import java.util.prefs.PreferenceChangeEvent;
 import javax.swing.*;
 
@@ -22,8 +23,6 @@ import javax.swing.*;
  */
 final class Plot2d extends AbstractPlot {
 
-  private static final double[][] EMPTY = new double[0][0];
-
   private static final String X_LABEL_2D = "Channels";
 
   private static final String Y_LABEL_2D = "Channels";
@@ -31,10 +30,8 @@ final class Plot2d extends AbstractPlot {
   /** areaMark is a rectangle in channel space */
   private final transient Rectangle areaMark = new Rectangle();
 
-  // only used in one method, but don't want to keep creating
-  private final transient Rectangle clipBounds = new Rectangle(); // NOPMD
-
-  private transient double[][] counts2d = EMPTY;
+  /** renders the counts, at the level of detail matching the zoom */
+  private final transient PlotRenderer renderer = new PlotRenderer(panel);
 
   /** last pixel point added to gate list */
   private final transient Point lastGatePoint = new Point();
@@ -71,26 +68,36 @@ final class Plot2d extends AbstractPlot {
 
   @Override
   protected void copyCounts(final AbstractHistogram hist) {
-    final HistogramType type = hist.getType();
     size = new Size(hist.getSizeX(), hist.getSizeY());
-    counts2d = new double[size.getSizeX()][size.getSizeY()];
-    if (type == HistogramType.TWO_DIM_INT) {
-      copyCounts2dInt((HistInt2D) hist);
-    } else { // must be floating point
-      final double[][] counts2dDble = ((HistDouble2D) hist).getCounts();
-      for (int i = 0; i < hist.getSizeX(); i++) {
-        System.arraycopy(counts2dDble[i], 0, counts2d[i], 0, hist.getSizeY());
-      }
-    }
+    /* fetched by the renderer, as the plot may not have been laid out for the limits yet */
+    renderer.refresh();
+  }
+
+  @Override
+  protected boolean isIdleFor(final long millis) {
+    return renderer.isIdleFor(millis);
   }
 
-  private void copyCounts2dInt(final HistInt2D hist) {
-    final int[][] counts2dInt = hist.getCounts();
-    for (int i = 0; i < hist.getSizeX(); i++) {
-      for (int j = 0; j < hist.getSizeY(); j++) {
-        counts2d[i][j] = counts2dInt[i][j];
+  /*
+   * non-javadoc: Returns the coarsest level of the histogram's pyramid whose tiles are no bigger
+   * than a pixel along either axis, so that drawing and autoscaling visit about as many tiles as
+   * there are pixels.
+   */
+  private int getLevel() {
+    final Dimension plotSize = painter.getPlotSize();
+    int level = 0;
+    if (plotSize.width > 0 && plotSize.height > 0) {
+      final int channelsX = (limits.getMaximumX() - limits.getMinimumX() + 1) / plotSize.width;
+      final int channelsY = (limits.getMaximumY() - limits.getMinimumY() + 1) / plotSize.height;
+      final int channels = Math.min(channelsX, channelsY);
+      if (channels > 1) {
+        final CountsPyramid pyramid = ((AbstractHist2D) getHistogram()).getPyramid();
+        level =
+            Math.min(
+                pyramid.getTopLevel(), Integer.SIZE - 1 - Integer.numberOfLeadingZeros(channels));
       }
     }
+    return level;
   }
 
   @Override
@@ -106,7 +113,7 @@ final class Plot2d extends AbstractPlot {
   protected void displayHistogram(final AbstractHistogram hist) {
     synchronized (this) {
       if (hist == null) {
-        counts2d = EMPTY;
+        renderer.refresh();
       }
       super.displayHistogram(hist);
     }
@@ -171,23 +178,7 @@ final class Plot2d extends AbstractPlot {
    */
   @Override
   protected int findMaximumCounts() {
-    int chminX = limits.getMinimumX();
-    int chmaxX = limits.getMaximumX();
-    int chminY = limits.getMinimumY();
-    int chmaxY = limits.getMaximumY();
-    int maxCounts = 0;
-    chminX = getChannelMin(chminX);
-    chminY = getChannelMin(chminY);
-    chmaxX = getChannelMax(chmaxX, size.getSizeX());
-    chmaxY = getChannelMax(chmaxY, size.getSizeY());
-    for (int i = chminX; i <= chmaxX; i++) {
-      for (int j = chminY; j <= chmaxY; j++) {
-        if (counts2d[i][j] > maxCounts) {
-          maxCounts = (int) counts2d[i][j];
-        }
-      }
-    }
-    return maxCounts;
+    return (int) Math.max(0.0, summarizeShown().get().getMaximum());
   }
 
   /**
@@ -197,23 +188,37 @@ final class Plot2d extends AbstractPlot {
    */
   @Override
   protected int findMinimumCounts() {
-    int chminX = limits.getMinimumX();
-    int chmaxX = limits.getMaximumX();
-    int chminY = limits.getMinimumY();
-    int chmaxY = limits.getMaximumY();
-    int minCounts = 0;
-    chminX = getChannelMin(chminX);
-    chminY = getChannelMin(chminY);
-    chmaxX = getChannelMax(chmaxX, size.getSizeX());
-    chmaxY = getChannelMax(chmaxY, size.getSizeY());
-    for (int i = chminX; i <= chmaxX; i++) {
-      for (int j = chminY; j <= chmaxY; j++) {
-        if (counts2d[i][j] < minCounts) {
-          minCounts = (int) counts2d[i][j];
-        }
-      }
-    }
-    return minCounts;
+    return (int) Math.min(0.0, summarizeShown().get().getMinimum());
+  }
+
+  /**
+   * Autoscales the counts like other plots, but finds the extremes of the counts on the rendering
+   * thread.
+   */
+  @Override
+  protected void autoCounts() {
+    copyCounts(getHistogram());
+    renderer.compute(
+        summarizeShown(),
+        summary ->
+            setAutoCounts(
+                (int) Math.min(0.0, summary.getMinimum()),
+                (int) Math.max(0.0, summary.getMaximum())));
+  }
+
+  /*
+   * non-javadoc: Returns a task summarizing the channels shown, less any left out by the options,
+   * using the tiles that are drawn. The channels are chosen when this is called, so that the task
+   * can run on another thread.
+   */
+  private Supplier<CountsPyramid.Summary> summarizeShown() {
+    final int chminX = getChannelMin(limits.getMinimumX());
+    final int chminY = getChannelMin(limits.getMinimumY());
+    final int chmaxX = getChannelMax(limits.getMaximumX(), size.getSizeX());
+    final int chmaxY = getChannelMax(limits.getMaximumY(), size.getSizeY());
+    final int level = getLevel();
+    final CountsPyramid pyramid = ((AbstractHist2D) getHistogram()).getPyramid();
+    return () -> pyramid.summarize(level, chminX, chminY, chmaxX, chmaxY);
   }
 
   @Override
@@ -282,16 +287,17 @@ final class Plot2d extends AbstractPlot {
    */
   @Override
   protected double getCount(final Bin point) {
-    return counts2d[point.getX()][point.getY()];
+    return ((AbstractHist2D) getHistogram()).getCounts(point.getX(), point.getY());
   }
 
   /**
-   * Get the counts for the displayed 2d histogram.
+   * Get the counts as last drawn for the displayed 2d histogram: the most counts in each tile of
+   * the level of detail matching the zoom, around the channels shown.
    *
-   * @return the counts for the displayed 2d histogram
+   * @return the counts as drawn for the displayed 2d histogram
    */
   public Object getCounts() {
-    return counts2d;
+    return renderer.getCounts().getMaxima();
   }
 
   public int getDimensionality() {
@@ -404,7 +410,7 @@ final class Plot2d extends AbstractPlot {
     if (options.isNoFillMode()) {
       paintPolyGate(graphics2d);
     } else {
-      painter.drawGate2d(currentGate.getLimits2d());
+      painter.drawGate2d(currentGate.getMask());
     }
   }
 
@@ -419,19 +425,14 @@ final class Plot2d extends AbstractPlot {
     final AbstractHistogram plotHist = getHistogram();
     final Scale scale = limits.getScale();
     context.setColor(plotColorMap.getHistogram());
-    context.getClipBounds(clipBounds);
-    final int minX = painter.toDataHorz((int) clipBounds.getMinX());
-    final int maxX = painter.toDataHorz((int) clipBounds.getMaxX());
-    final int minY = painter.toDataVert((int) clipBounds.getMaxY());
-    final int maxY = painter.toDataVert((int) clipBounds.getMinY());
     final DiscreteColorScale dcs = DiscreteColorScale.getScale(scale);
     if (isSmoothColorScale()) {
-      painter.drawHist2d(counts2d, minX, minY, maxX, maxY);
+      painter.drawHist2d(renderer, (AbstractHist2D) plotHist, getLevel());
       context.setPaintMode();
       context.setColor(plotColorMap.getForeground());
       painter.drawScale2d();
     } else {
-      painter.drawHist2d(counts2d, minX, minY, maxX, maxY, dcs);
+      painter.drawHist2d(renderer, (AbstractHist2D) plotHist, getLevel(), dcs);
       context.setPaintMode();
       context.setColor(plotColorMap.getForeground());
       painter.drawScale2d(dcs);
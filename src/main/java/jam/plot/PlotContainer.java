@@ -258,6 +258,21 @@ public final class PlotContainer implements PlotContainerSelectListener {
     }
   }
 
+  /** Only refresh the counts of the plot if it has a histogram, keeping gates, fits and marks. */
+  protected void refresh() {
+    if (hasData) {
+      getPlot().refresh();
+    }
+  }
+
+  /**
+   * @param millis time wanted since the plot was last drawn
+   * @return whether the plot has finished drawing, and had nothing to draw for the given time
+   */
+  protected boolean isIdleFor(final long millis) {
+    return getPlot().isIdleFor(millis);
+  }
+
   /**
    * @return currently selected subplot
    */
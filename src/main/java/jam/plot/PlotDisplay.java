@@ -1,7 +1,10 @@
 package jam.plot;
 
+import static jam.plot.PlotPreferences.DEFAULT_LIVE_VIEW_RATE;
 import static jam.plot.PlotPreferences.DISPLAY_LABELS;
 import static jam.plot.PlotPreferences.ENABLE_SCROLLING;
+import static jam.plot.PlotPreferences.LIVE_VIEW;
+import static jam.plot.PlotPreferences.LIVE_VIEW_RATE;
 import static jam.plot.PlotPreferences.PREFS;
 
 import com.google.inject.Inject;
@@ -25,11 +28,16 @@ import java.awt.print.PageFormat;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 import java.util.prefs.PreferenceChangeEvent;
 import java.util.prefs.PreferenceChangeListener;
 import javax.swing.JPanel;
 import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 
 /**
  * This class is a display routine for plots. It is implemented by <code>Display</code>.
@@ -80,6 +88,15 @@ public final class PlotDisplay extends JPanel
 
   private final transient Broadcaster broadcaster;
 
+  /** Redraws displayed histograms as their counts change, while live view is on */
+  private final transient Timer liveView = new Timer(1000, event -> refreshChanged());
+
+  /** Change epoch started at the last live view frame */
+  private transient int liveEpoch;
+
+  /** Plots with changed counts, waiting for their last frame to be drawn */
+  private final transient Set<PlotContainer> staleContainers = new HashSet<>();
+
   /**
    * Constructor called by all constructors
    *
@@ -214,6 +231,74 @@ public final class PlotDisplay extends JPanel
     PREFS.addPreferenceChangeListener(this);
     isScrolling = PREFS.getBoolean(ENABLE_SCROLLING, false);
     isAxisLabels = PREFS.getBoolean(DISPLAY_LABELS, true);
+    setLiveView();
+  }
+
+  /* non-javadoc: Starts or stops live view, and sets its frame rate, from the preferences. */
+  private void setLiveView() {
+    final int period = 1000 / Math.max(1, PREFS.getInt(LIVE_VIEW_RATE, DEFAULT_LIVE_VIEW_RATE));
+    liveView.setDelay(period);
+    liveView.setInitialDelay(period);
+    if (!PREFS.getBoolean(LIVE_VIEW, false)) {
+      liveView.stop();
+      staleContainers.clear();
+    } else if (!liveView.isRunning()) {
+      /* older than any epoch, so that the first frame brings every plot up to date */
+      liveEpoch = 0;
+      liveView.start();
+    }
+  }
+
+  /*
+   * non-javadoc: Live view frame. Refreshes the displayed plots whose histograms have changed since
+   * the last frame, and the overlays if any of them have. Checking costs a few reads, so nothing is
+   * done while counts aren't changing. A plot still drawing, or that finished drawing within the
+   * time between frames, is refreshed at a later frame, so that drawing large 2d plots always
+   * leaves at least that much time to sorting.
+   */
+  private void refreshChanged() {
+    final int since = liveEpoch;
+    final List<PlotContainer> shown =
+        plotContainers.subList(0, currentView == null ? 0 : currentView.getNumberHists());
+    final List<AbstractHist1D> overlays =
+        AbstractHistogram.getHistogramList(status.getOverlayHistograms(), AbstractHist1D.class);
+    if (anyChangedSince(shown, overlays, since)) {
+      /* counts changed from here on will mark their histograms as changed since */
+      liveEpoch = AbstractHistogram.startChangeEpoch();
+      for (PlotContainer container : shown) {
+        if (container.hasHistogram() && container.getHistogram().changedSince(since)) {
+          staleContainers.add(container);
+        }
+      }
+      for (AbstractHist1D overlay : overlays) {
+        if (overlay.changedSince(since)) {
+          overlayHistogram(overlays);
+          break;
+        }
+      }
+    }
+    final Iterator<PlotContainer> stale = staleContainers.iterator();
+    while (stale.hasNext()) {
+      final PlotContainer container = stale.next();
+      if (!shown.contains(container) || !container.hasHistogram()) {
+        stale.remove();
+      } else if (container.isIdleFor(liveView.getDelay())) {
+        container.refresh();
+        stale.remove();
+      }
+    }
+  }
+
+  private static boolean anyChangedSince(
+      final List<PlotContainer> containers, final List<AbstractHist1D> overlays, final int epoch) {
+    boolean rval = false;
+    for (PlotContainer container : containers) {
+      rval |= container.hasHistogram() && container.getHistogram().changedSince(epoch);
+    }
+    for (AbstractHist1D overlay : overlays) {
+      rval |= overlay.changedSince(epoch);
+    }
+    return rval;
   }
 
   /**
@@ -256,13 +341,18 @@ public final class PlotDisplay extends JPanel
     final String key = pce.getKey();
     final String newValue = pce.getNewValue();
 
-    if (key.equals(PlotPreferences.ENABLE_SCROLLING)) {
-      isScrolling = Boolean.parseBoolean(newValue);
-    } else if (key.equals(PlotPreferences.DISPLAY_LABELS)) {
-      isAxisLabels = Boolean.parseBoolean(newValue);
+    if (key.equals(LIVE_VIEW) || key.equals(LIVE_VIEW_RATE)) {
+      /* only the timer changes, so gates and fits stay as they are */
+      SwingUtilities.invokeLater(this::setLiveView);
+    } else {
+      if (key.equals(PlotPreferences.ENABLE_SCROLLING)) {
+        isScrolling = Boolean.parseBoolean(newValue);
+      } else if (key.equals(PlotPreferences.DISPLAY_LABELS)) {
+        isAxisLabels = Boolean.parseBoolean(newValue);
+      }
+      updateLayout();
+      update();
     }
-    updateLayout();
-    update();
   }
 
   /**
@@ -1,5 +1,6 @@
 package jam.plot;
 
+import jam.data.AbstractHist2D;
 import jam.data.peaks.GaussianConstants;
 
 /** Class to perform simple fits such as area and centroid */
@@ -32,24 +33,14 @@ final class PlotFit {
 
   /*
    * non-javadoc: Get the area for a 2 d histogram bounded by the rectangle
-   * x1, y1, x2, y2
+   * x1, y1, x2, y2, adding up whole tiles of its pyramid where it can
    */
-  protected double getArea(final double[][] counts, final Bin bin1, final Bin bin2) {
-    final int xpos1 = bin1.getX();
-    final int xpos2 = bin2.getX();
-    final int ypos1 = bin1.getY();
-    final int ypos2 = bin2.getY();
-    final int xmin = Math.min(xpos1, xpos2);
-    final int xmax = Math.max(xpos1, xpos2);
-    final int ymin = Math.min(ypos1, ypos2);
-    final int ymax = Math.max(ypos1, ypos2);
-    double area = 0;
-    for (int i = xmin; i <= xmax; i++) { // sum up counts
-      for (int j = ymin; j <= ymax; j++) {
-        area += counts[i][j];
-      }
-    }
-    return area;
+  protected double getArea(final AbstractHist2D histogram, final Bin bin1, final Bin bin2) {
+    final int xmin = Math.min(bin1.getX(), bin2.getX());
+    final int xmax = Math.max(bin1.getX(), bin2.getX());
+    final int ymin = Math.min(bin1.getY(), bin2.getY());
+    final int ymax = Math.max(bin1.getY(), bin2.getY());
+    return histogram.getPyramid().summarize(xmin, ymin, xmax, ymax).getSum();
   }
 
   /*
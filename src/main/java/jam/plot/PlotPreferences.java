@@ -47,4 +47,13 @@ public final class PlotPreferences {
 
   /** Preference for whether to draw axis labels. */
   public static final String DISPLAY_LABELS = "DisplayAxisLabels";
+
+  /** Preference for whether to redraw displayed histograms as their counts change. */
+  public static final String LIVE_VIEW = "LiveView";
+
+  /** Preference for the most times per second to redraw displayed histograms in live view. */
+  public static final String LIVE_VIEW_RATE = "LiveViewRate";
+
+  /** Default for <code>LIVE_VIEW_RATE</code>. */
+  public static final int DEFAULT_LIVE_VIEW_RATE = 4;
 }
@@ -0,0 +1,330 @@
+package jam.plot;
+
+import jam.data.AbstractHist2D;
+import jam.plot.color.ColorLookup;
+import jam.sort.ThreadPriorities;
+import java.awt.Component;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.swing.SwingUtilities;
+
+/**
+ * Renders a 2d plot into an image on a background thread, so that fetching the counts of large
+ * histograms and coloring them never holds up the event thread. Each time the plot is painted, it
+ * asks for a frame and draws the last one finished, as long as it has the same layout on screen.
+ * When a frame is finished, the plot is repainted to show it.
+ *
+ * <p>Only the latest frame asked for is waiting to be rendered at any time. A request replaces any
+ * that hasn't been started, so frames asked for while panning or while counts pour in are dropped
+ * rather than queued. The thread is shared by all plots, and runs at a priority above sorting.
+ *
+ * @author Dale Visser
+ * @see HistogramImage
+ */
+final class PlotRenderer {
+
+  private static final Logger LOGGER = Logger.getLogger(PlotRenderer.class.getPackage().getName());
+
+  private static final ExecutorService EXECUTOR =
+      Executors.newSingleThreadExecutor(
+          runnable -> {
+            final Thread thread = new Thread(runnable, "Plot Renderer");
+            thread.setPriority(ThreadPriorities.RENDER);
+            thread.setDaemon(true);
+            return thread;
+          });
+
+  /** repainted when a frame is finished */
+  private final transient Component component;
+
+  /** frame waiting to be rendered, if any */
+  private final transient AtomicReference<Request> pending = new AtomicReference<>();
+
+  /** whether a task to render the pending frame is on the thread */
+  private final transient AtomicBoolean scheduled = new AtomicBoolean();
+
+  /** last frame asked for */
+  private transient volatile Request requested; // NOPMD
+
+  /** last frame finished */
+  private transient volatile Rendered rendered; // NOPMD
+
+  /** counts used for the last frame finished */
+  private transient volatile CountsWindow window = CountsWindow.EMPTY; // NOPMD
+
+  /** incremented whenever the counts need fetching again */
+  private transient volatile int version; // NOPMD
+
+  /** when the thread last ran out of frames to render, in milliseconds */
+  private transient volatile long finished; // NOPMD
+
+  PlotRenderer(final Component component) {
+    super();
+    this.component = component;
+  }
+
+  /**
+   * Fetches the counts again for the next frame, even if the frame is otherwise the same as the
+   * last.
+   */
+  void refresh() {
+    synchronized (this) {
+      version++;
+    }
+  }
+
+  /**
+   * @return the counts used for the last frame finished
+   */
+  CountsWindow getCounts() {
+    return window;
+  }
+
+  /**
+   * @param millis time wanted since the last frame
+   * @return whether no frame is waiting or being rendered, and none has been finished within the
+   *     given time
+   */
+  boolean isIdleFor(final long millis) {
+    return !scheduled.get() && System.currentTimeMillis() - finished >= millis;
+  }
+
+  /**
+   * Asks for the given frame and draws the last frame finished, if it has the same layout.
+   *
+   * @param graphics to draw on
+   * @param frame to ask for
+   * @param wait whether to render the frame right away, on this thread, e.g., for printing
+   */
+  void draw(final Graphics2D graphics, final Frame frame, final boolean wait) {
+    final Request request = new Request(frame, version);
+    Rendered shown = rendered;
+    if (wait) {
+      shown = render(request, CountsWindow.EMPTY);
+    } else if (!request.equals(requested)) {
+      requested = request;
+      pending.set(request);
+      schedule();
+    }
+    if (shown != null && shown.image != null && shown.request.frame.hasLayoutOf(frame)) {
+      final int top = frame.edgesY[frame.edgesY.length - 1] + 1;
+      graphics.drawImage(shown.image, frame.edgesX[0], top, null);
+    }
+  }
+
+  /**
+   * Computes something from the counts on the rendering thread, after any frame being rendered,
+   * and hands the result to the event thread.
+   *
+   * @param <T> type of the result
+   * @param task computes the result
+   * @param result receives the result on the event thread
+   */
+  <T> void compute(final Supplier<T> task, final Consumer<T> result) {
+    EXECUTOR.execute(
+        () -> {
+          try {
+            final T value = task.get();
+            SwingUtilities.invokeLater(() -> result.accept(value));
+          } catch (RuntimeException re) {
+            LOGGER.log(Level.WARNING, "Couldn't compute from plot counts.", re);
+          }
+        });
+  }
+
+  private void schedule() {
+    if (scheduled.compareAndSet(false, true)) {
+      EXECUTOR.execute(this::renderPending);
+    }
+  }
+
+  private void renderPending() {
+    Request request = pending.getAndSet(null);
+    while (request != null) {
+      try {
+        final Rendered done = render(request, window);
+        window = done.window;
+        rendered = done;
+        SwingUtilities.invokeLater(component::repaint);
+      } catch (RuntimeException re) {
+        LOGGER.log(Level.WARNING, "Couldn't render plot.", re);
+      }
+      request = pending.getAndSet(null);
+    }
+    finished = System.currentTimeMillis();
+    scheduled.set(false);
+    /* a request may have arrived after the last check, but before the flag was cleared */
+    if (pending.get() != null) {
+      schedule();
+    }
+  }
+
+  /*
+   * non-javadoc: Renders the frame, reusing the given counts if they're for the same version of the
+   * same histogram, and cover the channels shown.
+   */
+  private static Rendered render(final Request request, final CountsWindow counts) {
+    final Frame frame = request.frame;
+    CountsWindow fetched = counts;
+    if (fetched.getHistogram() != frame.histogram
+        || fetched.getVersion() != request.version
+        || !fetched.covers(frame.level, frame.channels)) {
+      fetched = CountsWindow.fetch(frame.histogram, frame.level, frame.channels, request.version);
+    }
+    final BufferedImage image =
+        HistogramImage.render(
+            fetched.getMaxima(),
+            frame.firstX - fetched.getOriginX(),
+            frame.firstY - fetched.getOriginY(),
+            frame.edgesX,
+            frame.edgesY,
+            frame.minCounts,
+            frame.colors);
+    return new Rendered(request, image, fetched);
+  }
+
+  /**
+   * What to draw: which tiles of which histogram, where on screen, and in what colors.
+   *
+   * @see Painter
+   */
+  static final class Frame {
+
+    private final transient AbstractHist2D histogram;
+
+    private final transient int level;
+
+    private final transient Rectangle channels;
+
+    private final transient int firstX;
+
+    private final transient int firstY;
+
+    private final transient int[] edgesX;
+
+    private final transient int[] edgesY;
+
+    private final transient int minCounts;
+
+    private final transient ColorLookup colors;
+
+    /**
+     * @param histogram to draw
+     * @param level of the tiles to draw, 0 for channels
+     * @param channels shown, with the lowest channels at the origin
+     * @param firstX first x-tile shown
+     * @param firstY first y-tile shown
+     * @param edgesX left pixel of each x-tile shown, and of the one after
+     * @param edgesY bottom pixel of each y-tile shown, and of the one after
+     * @param minCounts counts a tile must exceed to be colored
+     * @param colors color for the counts of each tile
+     */
+    Frame(
+        final AbstractHist2D histogram,
+        final int level,
+        final Rectangle channels,
+        final int firstX,
+        final int firstY,
+        final int[] edgesX,
+        final int[] edgesY,
+        final int minCounts,
+        final ColorLookup colors) {
+      this.histogram = histogram;
+      this.level = level;
+      this.channels = new Rectangle(channels);
+      this.firstX = firstX;
+      this.firstY = firstY;
+      this.edgesX = edgesX;
+      this.edgesY = edgesY;
+      this.minCounts = minCounts;
+      this.colors = colors;
+    }
+
+    /**
+     * @param other frame to compare with
+     * @return whether the other frame puts the same tiles in the same places
+     */
+    boolean hasLayoutOf(final Frame other) {
+      return histogram == other.histogram
+          && level == other.level
+          && firstX == other.firstX
+          && firstY == other.firstY
+          && Arrays.equals(edgesX, other.edgesX)
+          && Arrays.equals(edgesY, other.edgesY);
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+      boolean rval = this == other;
+      if (!rval && other instanceof Frame) {
+        final Frame frame = (Frame) other;
+        rval =
+            hasLayoutOf(frame)
+                && minCounts == frame.minCounts
+                && channels.equals(frame.channels)
+                && colors.equals(frame.colors);
+      }
+      return rval;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * Arrays.hashCode(edgesX) + Arrays.hashCode(edgesY);
+    }
+  }
+
+  /** A frame, and the version of the counts it's to be drawn with. */
+  private static final class Request {
+
+    private final transient Frame frame;
+
+    private final transient int version;
+
+    Request(final Frame frame, final int version) {
+      this.frame = frame;
+      this.version = version;
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+      boolean rval = this == other;
+      if (!rval && other instanceof Request) {
+        final Request request = (Request) other;
+        rval = version == request.version && frame.equals(request.frame);
+      }
+      return rval;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * frame.hashCode() + version;
+    }
+  }
+
+  /** A finished frame. */
+  private static final class Rendered {
+
+    private final transient Request request;
+
+    /** <code>null</code> if there was nothing to draw */
+    private final transient BufferedImage image;
+
+    private final transient CountsWindow window;
+
+    Rendered(final Request request, final BufferedImage image, final CountsWindow window) {
+      this.request = request;
+      this.image = image;
+      this.window = window;
+    }
+  }
+}
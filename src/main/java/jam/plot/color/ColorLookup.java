@@ -0,0 +1,133 @@
+package jam.plot.color;
+
+import jam.plot.common.Scale;
+import java.util.Arrays;
+
+/**
+ * A color scale precomputed as packed RGB values, so that a whole plot can be colored without
+ * creating a <code>Color</code> or taking a lock per channel. Discrete scales are looked up exactly
+ * by their thresholds. Gradient scales are sampled at <code>GRADIENT_SIZE</code> counts between
+ * the low and high ends of the range, spaced the same way as the counts scale, and counts beyond
+ * the range get the color at its nearer end.
+ *
+ * @author Dale Visser
+ * @see ColorScale
+ */
+public final class ColorLookup {
+
+  /** Number of colors a gradient scale is sampled at. */
+  public static final int GRADIENT_SIZE = 1024;
+
+  private final transient int[] rgb;
+
+  /* upper count limit for each color of a discrete scale, null for gradients */
+  private final transient int[] thresholds;
+
+  private final transient boolean logScale;
+
+  private final transient double low;
+
+  private final transient double high;
+
+  private ColorLookup(
+      final int[] rgb,
+      final int[] thresholds,
+      final boolean logScale,
+      final double low,
+      final double high) {
+    super();
+    this.rgb = rgb;
+    this.thresholds = thresholds;
+    this.logScale = logScale;
+    this.low = low;
+    this.high = high;
+  }
+
+  /**
+   * Precomputes a discrete color scale, as it currently is.
+   *
+   * @param colors with its range already set
+   * @return the lookup table
+   */
+  public static ColorLookup of(final DiscreteColorScale colors) {
+    final int[] thresholds = colors.getColorThresholds();
+    final int[] rgb = new int[thresholds.length];
+    for (int k = 0; k < rgb.length; k++) {
+      rgb[k] = colors.getColorByIndex(k).getRGB();
+    }
+    return new ColorLookup(rgb, thresholds, false, 0.0, 0.0);
+  }
+
+  /**
+   * Precomputes a gradient color scale over the given range of counts.
+   *
+   * @param colors with its range already set
+   * @param scale whether to space the samples linearly or logarithmically
+   * @param minCounts low end of the range
+   * @param maxCounts high end of the range
+   * @return the lookup table
+   */
+  public static ColorLookup of(
+      final ColorScale colors, final Scale scale, final int minCounts, final int maxCounts) {
+    final boolean log = scale == Scale.LOG;
+    final double lowEnd = Math.max(1.0, minCounts);
+    final double highEnd = Math.max(lowEnd + 1.0, maxCounts);
+    final int[] rgb = new int[GRADIENT_SIZE];
+    for (int i = 0; i < GRADIENT_SIZE; i++) {
+      final double fraction = (double) i / (GRADIENT_SIZE - 1);
+      final double counts =
+          log
+              ? lowEnd * Math.pow(highEnd / lowEnd, fraction)
+              : lowEnd + fraction * (highEnd - lowEnd);
+      rgb[i] = colors.getColor(counts).getRGB();
+    }
+    return new ColorLookup(rgb, null, log, lowEnd, highEnd);
+  }
+
+  /**
+   * Returns the color for a channel given its counts.
+   *
+   * @param counts in the channel
+   * @return the color as packed, opaque ARGB
+   */
+  public int getRGB(final double counts) {
+    final int index;
+    if (thresholds == null) {
+      final double fraction =
+          logScale
+              ? Math.log(counts / low) / Math.log(high / low)
+              : (counts - low) / (high - low);
+      index = (int) Math.round(Math.max(0.0, Math.min(1.0, fraction)) * (GRADIENT_SIZE - 1));
+    } else {
+      int color = thresholds.length - 1;
+      for (int k = 0; k < thresholds.length; k++) {
+        if (counts <= thresholds[k]) {
+          color = k;
+          break;
+        }
+      }
+      index = color;
+    }
+    return rgb[index];
+  }
+
+  @Override
+  public boolean equals(final Object other) {
+    boolean rval = this == other;
+    if (!rval && other instanceof ColorLookup) {
+      final ColorLookup lookup = (ColorLookup) other;
+      rval =
+          logScale == lookup.logScale
+              && low == lookup.low
+              && high == lookup.high
+              && Arrays.equals(thresholds, lookup.thresholds)
+              && Arrays.equals(rgb, lookup.rgb);
+    }
+    return rval;
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * Arrays.hashCode(rgb) + Arrays.hashCode(thresholds);
+  }
+}
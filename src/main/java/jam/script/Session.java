@@ -9,6 +9,8 @@ import jam.data.control.HistogramZero;
 import jam.global.BroadcastEvent;
 import jam.global.Broadcaster;
 import jam.global.CommandListener;
+import jam.global.JamProperties;
+import jam.global.PropertyKeys;
 import jam.global.RunState;
 import jam.io.FileOpenMode;
 import jam.io.hdf.HDFIO;
@@ -259,7 +261,7 @@ public final class Session implements PropertyChangeListener {
   /**
    * @return the number of events that were sorted offline
    */
-  public int getEventsSorted() {
+  public long getEventsSorted() {
     return this.sortControl.getEventsSorted();
   }
 
@@ -335,6 +337,22 @@ public final class Session implements PropertyChangeListener {
     LOGGER.log(Level.INFO, "Set file for pre-sorted events" + eventsOut.getAbsolutePath());
   }
 
+  /**
+   * Sets the number of event files <code>beginSort()</code> sorts at once. Only takes effect if the
+   * sort routine implements <code>StatelessSorter</code>, and no event output file has been set.
+   *
+   * @param threads number of files to sort at once
+   * @see jam.sort.StatelessSorter
+   * @see PropertyKeys#SORT_THREADS
+   */
+  public void setSortThreads(final int threads) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("Need at least one sort thread, got " + threads);
+    }
+    JamProperties.getProperties().setProperty(PropertyKeys.SORT_THREADS, String.valueOf(threads));
+    LOGGER.log(Level.INFO, "Set number of sort threads to " + threads);
+  }
+
   /**
    * Completes the task equivalent of specifying the settings in Jam's dialog for setting up offline
    * sorting. That is, calling this defines the classpath to sort routines, the fully qualified name
@@ -7,6 +7,7 @@ import jam.sort.stream.EventException;
 import java.io.File;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 
@@ -247,6 +248,20 @@ public abstract class AbstractStorageDaemon extends GoodThread {
     sortFiles = sortFilesList.iterator();
   }
 
+  /**
+   * Removes the files not yet opened from the list of files to sort, so they can be read some other
+   * way.
+   *
+   * @return the files which haven't been opened yet
+   */
+  public List<File> takeRemainingFiles() {
+    final List<File> result = new ArrayList<>();
+    while (sortFiles != null && sortFiles.hasNext()) {
+      result.add(sortFiles.next());
+    }
+    return result;
+  }
+
   /**
    * Sets the number of files processed.
    *
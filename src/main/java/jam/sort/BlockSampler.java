@@ -0,0 +1,61 @@
+package jam.sort;
+
+import jam.data.EventBlock;
+import jam.data.Sorter;
+
+/**
+ * Passes a sampled subset of each block of events to a sort routine. When every event is to be
+ * sorted, the whole block is handed to <code>Sorter.sortBlock()</code>. Otherwise, one event in
+ * every <code>interval</code> is expanded and passed to <code>Sorter.sort()</code>, counting across
+ * block boundaries. Each sorting thread needs its own instance.
+ *
+ * @author Dale Visser
+ * @see Sorter#sortBlock(EventBlock)
+ */
+final class BlockSampler {
+
+  /** events to go by before the next is sorted */
+  private transient int eventsToSample;
+
+  BlockSampler() {
+    super();
+  }
+
+  /**
+   * Sorts a block of events.
+   *
+   * @param sorter the sort routine
+   * @param block the events
+   * @param sampling whether to sort any events at all
+   * @param interval sort one event in this many
+   * @return the number of events sorted
+   * @throws Exception if the sort routine throws one
+   */
+  int sort(final Sorter sorter, final EventBlock block, final boolean sampling, final int interval)
+      throws Exception { // NOPMD
+    int sorted = 0;
+    if (sampling) {
+      if (interval <= 1) {
+        sorter.sortBlock(block);
+        sorted = block.size();
+      } else {
+        final int size = block.size();
+        final boolean sparse = sorter.leavesEventsUnchanged();
+        for (int event = 0; event < size; event++) {
+          eventsToSample--;
+          if (eventsToSample <= 0) {
+            sorter.sort(block.expand(event));
+            if (sparse) {
+              block.clearExpanded(event);
+            } else {
+              block.clearAllExpanded();
+            }
+            sorted++;
+            eventsToSample = interval;
+          }
+        }
+      }
+    }
+    return sorted;
+  }
+}
@@ -0,0 +1,106 @@
+package jam.sort;
+
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * A fixed-size pool of <code>PooledBuffer</code>'s, allocated up front so that online acquisition
+ * produces no garbage. Buffers return to the pool automatically when their last reference is
+ * released.
+ *
+ * @author Dale Visser
+ * @see PooledBuffer
+ */
+public final class BufferPool {
+
+  private final transient ArrayBlockingQueue<PooledBuffer> free;
+
+  private final transient int capacity;
+
+  private final transient RingGeometry geometry;
+
+  /**
+   * Creates a pool large enough that a producer feeding the given number of rings never finds it
+   * empty unless one of the rings is full.
+   *
+   * @param rings number of rings buffers will be handed to
+   * @param geometry size of each buffer, and number of buffers in each ring
+   * @return a new pool
+   */
+  public static BufferPool forRings(final int rings, final RingGeometry geometry) {
+    /* one buffer in each consumer's hands */
+    return forRings(rings, geometry, rings);
+  }
+
+  /**
+   * Creates a pool large enough that a producer feeding the given number of rings never finds it
+   * empty unless one of the rings is full, when the consumers may hold on to more than one buffer
+   * each, e.g., while sorting on several threads.
+   *
+   * @param rings number of rings buffers will be handed to
+   * @param geometry size of each buffer, and number of buffers in each ring
+   * @param held most buffers taken from the rings that the consumers hold at once, in total
+   * @return a new pool
+   * @see SortDaemon#getBuffersHeld(jam.data.Sorter)
+   */
+  public static BufferPool forRings(
+      final int rings, final RingGeometry geometry, final int held) {
+    /* every ring full, plus the consumers' buffers, plus the producer's */
+    return new BufferPool(rings * geometry.getNumberBuffers() + held + 1, geometry);
+  }
+
+  /**
+   * Creates a new pool. Buffers are always on the heap, since <code>DatagramSocket</code> receives
+   * into arrays.
+   *
+   * @param capacity number of buffers in the pool
+   * @param geometry size of each buffer, and geometry of the rings fed from this pool
+   */
+  public BufferPool(final int capacity, final RingGeometry geometry) {
+    super();
+    this.capacity = capacity;
+    this.geometry = geometry;
+    free = new ArrayBlockingQueue<>(capacity);
+    for (int i = 0; i < capacity; i++) {
+      free.add(new PooledBuffer(this, geometry.getBufferSize()));
+    }
+  }
+
+  /**
+   * @return size of each buffer, and geometry of the rings fed from this pool
+   */
+  public RingGeometry getGeometry() {
+    return geometry;
+  }
+
+  /**
+   * Takes a buffer out of the pool without waiting. The caller holds the only reference to it.
+   *
+   * @return a buffer, or <code>null</code> if the pool is empty
+   */
+  public PooledBuffer tryAcquire() {
+    final PooledBuffer result = free.poll();
+    if (result != null) {
+      result.acquired();
+    }
+    return result;
+  }
+
+  /** Called by a buffer when its last reference is released. */
+  void giveBack(final PooledBuffer buffer) {
+    free.offer(buffer);
+  }
+
+  /**
+   * @return the number of buffers the pool was created with
+   */
+  public int getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * @return the number of buffers currently in the pool
+   */
+  public int getAvailable() {
+    return free.size();
+  }
+}
@@ -2,6 +2,7 @@ package jam.sort;
 
 import injection.GuiceInjector;
 import jam.sort.stream.EventException;
+import jam.sort.stream.MappedEventFile;
 import jam.util.NumberUtilities;
 import java.io.*;
 import java.nio.ByteOrder;
@@ -15,7 +16,8 @@ import java.util.logging.Level;
  */
 public final class DiskDaemon extends AbstractStorageDaemon {
 
-  private transient BufferedInputStream bis;
+  /** event file being read, mapped into memory */
+  private transient MappedEventFile mappedInput;
 
   private transient BufferedOutputStream bos;
 
@@ -61,7 +63,7 @@ public final class DiskDaemon extends AbstractStorageDaemon {
   public void closeEventInputFile() throws SortException {
     if (inputFileOpen) {
       try {
-        bis.close();
+        mappedInput.close();
         inputFileOpen = false;
       } catch (IOException ioe) {
         throw new SortException("Unable to close file [DiskDaemon]", ioe);
@@ -112,7 +114,7 @@ public final class DiskDaemon extends AbstractStorageDaemon {
    */
   @Override
   public InputStream getEventInputFileStream() throws SortException {
-    return bis;
+    return mappedInput;
   }
 
   /* implementations of StorageDeamon abstract methods */
@@ -134,7 +136,8 @@ public final class DiskDaemon extends AbstractStorageDaemon {
   }
 
   /**
-   * Open file to write events to.
+   * Open file to read events from. The file is mapped into memory in large windows, so the event
+   * stream may decode straight from the page cache.
    *
    * @exception SortException exception that sends message to console
    */
@@ -147,9 +150,8 @@ public final class DiskDaemon extends AbstractStorageDaemon {
       throw exception;
     }
     try {
-      final FileInputStream fis = new FileInputStream(file);
-      bis = new BufferedInputStream(fis, RingBuffer.BUFFER_SIZE);
-      eventInput.setInputStream(bis);
+      mappedInput = new MappedEventFile(file);
+      eventInput.setInputStream(mappedInput);
       inputFile = file;
       inputFileOpen = true;
     } catch (IOException ioe) {
@@ -263,25 +265,39 @@ public final class DiskDaemon extends AbstractStorageDaemon {
    */
   private void writeLoop() throws IOException {
     final NumberUtilities numberUtilities = GuiceInjector.getObjectInstance(NumberUtilities.class);
-    final byte[] buffer = GuiceInjector.getObjectInstance(RingBufferFactory.class).freshBuffer();
+    final byte[] buffer = new byte[ringBuffer.getGeometry().getBufferSize()];
     final int offset = buffer.length - 2;
+    final HandoffRingBuffer handoffRing =
+        (ringBuffer instanceof HandoffRingBuffer) ? (HandoffRingBuffer) ringBuffer : null;
     /*
      * checkState() waits until state is STOP (return value=false) or RUN
      * (return value=true)
      */
     while (checkState()) {
       // read from pipe and write file
+      final short last2bytes;
       try {
-        ringBuffer.getBuffer(buffer);
+        if (handoffRing == null) {
+          ringBuffer.getBuffer(buffer);
+          bos.write(buffer);
+          last2bytes = numberUtilities.bytesToShort(buffer, offset, ByteOrder.BIG_ENDIAN);
+        } else {
+          final PooledBuffer pooled = handoffRing.take();
+          try {
+            final byte[] shared = pooled.array();
+            bos.write(shared);
+            last2bytes = numberUtilities.bytesToShort(shared, offset, ByteOrder.BIG_ENDIAN);
+          } finally {
+            pooled.release();
+          }
+        }
       } catch (InterruptedException e) {
         // Not using IOException(Throwable) constructor to retain
         // J2SE 5 compatibility.
         throw new IOException(e.getMessage()); // NOPMD
       }
-      bos.write(buffer);
       bufferCount++;
       // check for end-of-run marker
-      final short last2bytes = numberUtilities.bytesToShort(buffer, offset, ByteOrder.BIG_ENDIAN);
       if (eventInput.isEndRun(last2bytes)) {
         // tell control we are done
         fileCount++;
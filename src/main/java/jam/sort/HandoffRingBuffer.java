@@ -0,0 +1,177 @@
+package jam.sort;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * A <code>RingBuffer</code> which passes <code>PooledBuffer</code> references instead of copying
+ * data. <code>NetDaemon</code> receives each packet straight into a pooled buffer and hands the
+ * same instance to both the sorting and storage rings, each of which holds its own reference. The
+ * buffer goes back to the pool once both <code>SortDaemon</code> and <code>DiskDaemon</code> have
+ * released it. The copying methods of <code>RingBuffer</code> still work, for clients which don't
+ * know about handoff.
+ *
+ * @author Dale Visser
+ * @see BufferPool
+ */
+public final class HandoffRingBuffer implements RingBuffer {
+
+  private transient ArrayBlockingQueue<PooledBuffer> ring;
+
+  private final transient BufferPool pool;
+
+  private final transient boolean hasRing;
+
+  /**
+   * Creates a new ring buffer with or without a backing queue.
+   *
+   * @param empty whether this is a no-capacity ring buffer
+   * @param pool where buffers come from and return to
+   */
+  HandoffRingBuffer(final boolean empty, final BufferPool pool) {
+    super();
+    this.pool = pool;
+    hasRing = !empty; // NOPMD
+    if (hasRing) {
+      ring = new ArrayBlockingQueue<>(pool.getGeometry().getNumberBuffers());
+    }
+  }
+
+  /**
+   * @return the size, number and threshold of buffers in this ring
+   */
+  public RingGeometry getGeometry() {
+    return pool.getGeometry();
+  }
+
+  /**
+   * @return the pool buffers passed through this ring belong to
+   */
+  public BufferPool getPool() {
+    return pool;
+  }
+
+  /**
+   * Puts a reference to the given buffer into the ring. The ring takes its own reference, so the
+   * caller still has to release theirs.
+   *
+   * @param buffer incoming data
+   * @return true if successful, false if full
+   */
+  public boolean tryPut(final PooledBuffer buffer) {
+    assert !isNull() : "Attempted tryPut() on 'null' ring buffer.";
+    final boolean success = ring.offer(buffer.retain());
+    if (!success) {
+      buffer.release();
+    }
+    return success;
+  }
+
+  /**
+   * Takes the next buffer out of the ring, blocking until one is available. The caller owns the
+   * returned reference, and must release it when done reading.
+   *
+   * @return the next buffer
+   * @throws InterruptedException if the thread is interrupted
+   */
+  public PooledBuffer take() throws InterruptedException {
+    assert !isNull() : "Attempted take() on 'null' ring buffer.";
+    return ring.take();
+  }
+
+  /**
+   * @return whether this buffer was created with no capacity
+   */
+  public boolean isNull() {
+    return !hasRing;
+  }
+
+  /**
+   * Copies the passed array into a pooled buffer in the ring.
+   *
+   * @param inBuffer incoming data
+   * @return true if successful, false if full or the pool is exhausted
+   */
+  public boolean tryPutBuffer(final byte[] inBuffer) {
+    assert !isNull() : "Attempted putBuffer() on 'null' ring buffer.";
+    final PooledBuffer buffer = pool.tryAcquire();
+    boolean success = false;
+    if (buffer != null) {
+      System.arraycopy(inBuffer, 0, buffer.array(), 0, inBuffer.length);
+      success = tryPut(buffer);
+      buffer.release();
+    }
+    return success;
+  }
+
+  /**
+   * Passes back a copy of the current buffer in the given <code>byte</code> array. Blocks until the
+   * buffer becomes available.
+   *
+   * @param out array to copy the next buffer into
+   * @throws InterruptedException if the thread is interrupted
+   */
+  public void getBuffer(final byte[] out) throws InterruptedException {
+    final PooledBuffer buffer = take();
+    System.arraycopy(buffer.array(), 0, out, 0, out.length);
+    buffer.release();
+  }
+
+  /** Clear all buffers from the ring, releasing them. For test purposes only. */
+  public void clear() {
+    if (hasRing) {
+      final List<PooledBuffer> drained = new ArrayList<>(ring.size());
+      ring.drainTo(drained);
+      for (PooledBuffer buffer : drained) {
+        buffer.release();
+      }
+    }
+  }
+
+  /**
+   * Tells you if the ring buffer is empty. Used to check if you have read all the buffers in the
+   * ring.
+   *
+   * @return true if there are no buffers in the ring.
+   */
+  public boolean isEmpty() {
+    return isNull() || ring.isEmpty();
+  }
+
+  /**
+   * Tells if the ring buffer is full.
+   *
+   * @return <code>true</code> if there are no more available buffers
+   */
+  public boolean isFull() {
+    return isNull() || ring.remainingCapacity() == 0;
+  }
+
+  /**
+   * Get the number of buffers available to have data put in them.
+   *
+   * @return the number of available buffers
+   */
+  public int getAvailableBuffers() {
+    return isNull() ? 0 : ring.remainingCapacity();
+  }
+
+  /**
+   * Gets whether the ring buffer is close to filling, defined as approximately 97% full.
+   *
+   * @return <code>true</code> if the ring buffer is close to filling
+   */
+  public boolean isCloseToFull() {
+    return isNull() || ring.remainingCapacity() < getGeometry().getCloseToCapacity();
+  }
+
+  /**
+   * Gets the number of buffers filled with data.
+   *
+   * @return the number of used buffers
+   */
+  public int getUsedBuffers() {
+    return isNull() ? 0 : ring.size();
+  }
+}
@@ -16,24 +16,45 @@ public final class LinkedBlockingDequeRingBuffer implements RingBuffer {
 
   private transient ArrayBlockingQueue<byte[]> ring;
 
-  private final transient LinkedBlockingDeque<byte[]> poolStack =
-      new LinkedBlockingDeque<>(NUMBER_BUFFERS);
+  private final transient LinkedBlockingDeque<byte[]> poolStack;
 
   private final transient boolean hasRing;
 
+  private final transient RingGeometry geometry;
+
   /**
    * Creates a new ring buffer with or without a backing deque.
    *
    * @param empty whether this is a no-capacity ring buffer
    */
   protected LinkedBlockingDequeRingBuffer(final boolean empty) {
+    this(empty, RingGeometry.DEFAULT);
+  }
+
+  /**
+   * Creates a new ring buffer with or without a backing deque. Buffers are always allocated on the
+   * heap, since they are handed between the ring and its pool.
+   *
+   * @param empty whether this is a no-capacity ring buffer
+   * @param geometry size and number of buffers
+   */
+  protected LinkedBlockingDequeRingBuffer(final boolean empty, final RingGeometry geometry) {
     super();
+    this.geometry = geometry;
+    poolStack = new LinkedBlockingDeque<>(geometry.getNumberBuffers());
     hasRing = !empty; // NOPMD
     if (hasRing) {
-      ring = new ArrayBlockingQueue<>(NUMBER_BUFFERS);
+      ring = new ArrayBlockingQueue<>(geometry.getNumberBuffers());
     }
   }
 
+  /**
+   * @return the size, number and threshold of buffers in this ring
+   */
+  public RingGeometry getGeometry() {
+    return geometry;
+  }
+
   /**
    * @return whether this buffer was created with no capacity
    */
@@ -63,7 +84,7 @@ public final class LinkedBlockingDequeRingBuffer implements RingBuffer {
     if (rval == null) {
       rval = inBuffer.clone();
     } else {
-      System.arraycopy(inBuffer, 0, rval, 0, BUFFER_SIZE);
+      System.arraycopy(inBuffer, 0, rval, 0, rval.length);
     }
     return rval;
   }
@@ -72,8 +93,9 @@ public final class LinkedBlockingDequeRingBuffer implements RingBuffer {
     if (inbuffer == null) {
       throw new IllegalArgumentException("null buffer reference");
     }
-    if (inbuffer.length != BUFFER_SIZE) {
-      throw new IllegalArgumentException("buffer capacity expected to be " + BUFFER_SIZE);
+    if (inbuffer.length != geometry.getBufferSize()) {
+      throw new IllegalArgumentException(
+          "buffer capacity expected to be " + geometry.getBufferSize());
     }
   }
 
@@ -94,8 +116,9 @@ public final class LinkedBlockingDequeRingBuffer implements RingBuffer {
     assert !isNull() : "Attempted getBuffer() on 'null' ring buffer.";
     this.validateBuffer(out);
     final byte[] bufferFromRing = ring.take();
-    System.arraycopy(bufferFromRing, 0, out, 0, RingBuffer.BUFFER_SIZE);
-    poolStack.addFirst(bufferFromRing);
+    System.arraycopy(bufferFromRing, 0, out, 0, out.length);
+    /* The producer may have allocated one extra buffer while we held this one. */
+    poolStack.offerFirst(bufferFromRing);
   }
 
   /**
@@ -132,7 +155,7 @@ public final class LinkedBlockingDequeRingBuffer implements RingBuffer {
    * @return <code>true</code> if the ring buffer is close to filling
    */
   public boolean isCloseToFull() {
-    return isNull() || ring.remainingCapacity() < CLOSE_TO_CAPACITY;
+    return isNull() || ring.remainingCapacity() < geometry.getCloseToCapacity();
   }
 
   /**
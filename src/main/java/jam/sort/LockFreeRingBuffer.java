@@ -0,0 +1,290 @@
+package jam.sort;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Locale;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <code>LockFreeRingBuffer</code> is a single-producer, single-consumer ring of pre-allocated
+ * buffers. Exactly one thread (e.g., <code>NetDaemon</code>) may call <code>tryPutBuffer()</code>,
+ * and exactly one thread (e.g., <code>SortDaemon</code>) may call <code>getBuffer()</code>. No
+ * monitor is ever taken: the producer publishes a filled slot by advancing the tail sequence with
+ * release semantics, and the consumer frees a slot by advancing the head sequence the same way. The
+ * two sequences are padded onto separate cache lines so the threads do not falsely share them.
+ *
+ * @author Dale Visser
+ * @see RingBufferFactory
+ */
+public final class LockFreeRingBuffer implements RingBuffer {
+
+  /** How the consumer waits in <code>getBuffer()</code> when the ring is empty. */
+  public enum WaitStrategy {
+    /** Busy-spin. Lowest latency, but burns a whole core while waiting. */
+    SPIN,
+
+    /** Calls <code>Thread.yield()</code> between checks. */
+    YIELD,
+
+    /** Parks the consumer thread briefly between checks. Gentlest on the CPU. */
+    PARK;
+
+    /**
+     * Parses a wait strategy, ignoring case.
+     *
+     * @param name "spin", "yield" or "park"
+     * @return the matching strategy, or <code>YIELD</code> if not recognized
+     */
+    public static WaitStrategy parse(final String name) {
+      WaitStrategy result = YIELD;
+      if (name != null) {
+        try {
+          result = valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException iae) {
+          result = YIELD;
+        }
+      }
+      return result;
+    }
+  }
+
+  /** Nanoseconds to park per iteration for <code>WaitStrategy.PARK</code>. */
+  private static final long PARK_NANOS = 50_000L;
+
+  private final transient int mask;
+
+  private final transient int capacity;
+
+  private final transient RingGeometry geometry;
+
+  private final transient SlotStore slots;
+
+  /** sequence number of the next buffer to be read, written only by the consumer */
+  private final transient Sequence head = new Sequence();
+
+  /** sequence number of the next buffer to be written, written only by the producer */
+  private final transient Sequence tail = new Sequence();
+
+  private final transient WaitStrategy waitStrategy;
+
+  /**
+   * Creates a new ring buffer which waits using <code>WaitStrategy.YIELD</code>.
+   *
+   * @param empty whether this is a no-capacity ring buffer
+   */
+  protected LockFreeRingBuffer(final boolean empty) {
+    this(empty, RingGeometry.DEFAULT, WaitStrategy.YIELD);
+  }
+
+  /**
+   * Creates a new ring buffer which waits using <code>WaitStrategy.YIELD</code>.
+   *
+   * @param empty whether this is a no-capacity ring buffer
+   * @param geometry size and number of buffers, and whether they are off-heap
+   */
+  protected LockFreeRingBuffer(final boolean empty, final RingGeometry geometry) {
+    this(empty, geometry, WaitStrategy.YIELD);
+  }
+
+  /**
+   * Creates a new ring buffer.
+   *
+   * @param empty whether this is a no-capacity ring buffer
+   * @param geometry size and number of buffers, and whether they are off-heap
+   * @param waitStrategy how <code>getBuffer()</code> waits on an empty ring
+   */
+  protected LockFreeRingBuffer(
+      final boolean empty, final RingGeometry geometry, final WaitStrategy waitStrategy) {
+    super();
+    this.geometry = geometry;
+    capacity = geometry.getNumberBuffers();
+    mask = capacity - 1;
+    slots = SlotStore.create(geometry, empty);
+    this.waitStrategy = waitStrategy;
+  }
+
+  /**
+   * @return the size, number and threshold of buffers in this ring
+   */
+  public RingGeometry getGeometry() {
+    return geometry;
+  }
+
+  /**
+   * @return how this ring waits on an empty ring
+   */
+  public WaitStrategy getWaitStrategy() {
+    return waitStrategy;
+  }
+
+  /**
+   * @return whether this buffer was created with no capacity
+   */
+  public boolean isNull() {
+    return slots.getSlots() == 0;
+  }
+
+  /**
+   * Copies the passed array into the ring buffer. Must only be called from the producer thread.
+   *
+   * @param inBuffer incoming data
+   * @return true if successful, false if full
+   */
+  public boolean tryPutBuffer(final byte[] inBuffer) {
+    assert !isNull() : "Attempted putBuffer() on 'null' ring buffer.";
+    validateBuffer(inBuffer);
+    final long put = tail.getPlain();
+    final boolean success = put - head.getAcquire() < capacity;
+    if (success) {
+      slots.write((int) put & mask, inBuffer);
+      tail.setRelease(put + 1);
+    }
+    return success;
+  }
+
+  /**
+   * Passes back a copy of the current buffer in the given <code>byte</code> array. Blocks until the
+   * buffer becomes available. Must only be called from the consumer thread.
+   *
+   * @param out array to copy the next buffer into
+   * @throws InterruptedException if the thread is interrupted while waiting
+   */
+  public void getBuffer(final byte[] out) throws InterruptedException {
+    assert !isNull() : "Attempted getBuffer() on 'null' ring buffer.";
+    validateBuffer(out);
+    final long get = head.getPlain();
+    while (tail.getAcquire() == get) {
+      waitForPut();
+    }
+    slots.read((int) get & mask, out);
+    head.setRelease(get + 1);
+  }
+
+  private void validateBuffer(final byte[] inbuffer) {
+    if (inbuffer == null) {
+      throw new IllegalArgumentException("null buffer reference");
+    }
+    if (inbuffer.length != geometry.getBufferSize()) {
+      throw new IllegalArgumentException(
+          "buffer capacity expected to be " + geometry.getBufferSize());
+    }
+  }
+
+  private void waitForPut() throws InterruptedException {
+    if (Thread.interrupted()) {
+      throw new InterruptedException("Interrupted while waiting on empty ring buffer.");
+    }
+    switch (waitStrategy) {
+      case SPIN:
+        Thread.onSpinWait();
+        break;
+      case PARK:
+        LockSupport.parkNanos(this, PARK_NANOS);
+        break;
+      default:
+        Thread.yield();
+    }
+  }
+
+  /** Clear all buffers from the ring. For test purposes only. */
+  public void clear() {
+    head.setRelease(tail.getAcquire());
+  }
+
+  /**
+   * Tells you if the ring buffer is empty. Used to check if you have read all the buffers in the
+   * ring.
+   *
+   * @return true if there are no buffers in the ring.
+   */
+  public boolean isEmpty() {
+    return getUsedBuffers() == 0;
+  }
+
+  /**
+   * Tells if the ring buffer is full.
+   *
+   * @return <code>true</code> if there are no more available buffers
+   */
+  public boolean isFull() {
+    return getAvailableBuffers() == 0;
+  }
+
+  /**
+   * Get the number of buffers available to have data put in them.
+   *
+   * @return the number of available buffers
+   */
+  public int getAvailableBuffers() {
+    return isNull() ? 0 : capacity - getUsedBuffers();
+  }
+
+  /**
+   * Gets whether the ring buffer is close to filling, defined as approximately 97% full.
+   *
+   * @return <code>true</code> if the ring buffer is close to filling
+   */
+  public boolean isCloseToFull() {
+    return getAvailableBuffers() < geometry.getCloseToCapacity();
+  }
+
+  /**
+   * Gets the number of buffers filled with data. Since the sequences are read one after the other,
+   * this is a snapshot which may already be stale when called from a third thread.
+   *
+   * @return the number of used buffers
+   */
+  public int getUsedBuffers() {
+    final int result;
+    if (isNull()) {
+      result = 0;
+    } else {
+      final long get = head.getAcquire();
+      final long used = tail.getAcquire() - get;
+      result = (int) Math.max(0, Math.min(capacity, used));
+    }
+    return result;
+  }
+
+  /** Padding to keep a sequence off the cache line of whatever precedes it. */
+  @SuppressWarnings("unused")
+  private static class LeftPadding {
+    protected long p01, p02, p03, p04, p05, p06, p07; // NOPMD
+  }
+
+  /** The sequence value itself. */
+  private static class Value extends LeftPadding {
+    protected long value; // NOPMD
+  }
+
+  /**
+   * A monotonically increasing counter padded on both sides, so that the head and tail of the ring
+   * never share a cache line.
+   */
+  @SuppressWarnings("unused")
+  private static final class Sequence extends Value {
+    private static final VarHandle VALUE;
+
+    static {
+      try {
+        VALUE = MethodHandles.lookup().findVarHandle(Value.class, "value", long.class);
+      } catch (ReflectiveOperationException e) {
+        throw new ExceptionInInitializerError(e);
+      }
+    }
+
+    protected long p11, p12, p13, p14, p15, p16, p17; // NOPMD
+
+    long getPlain() {
+      return (long) VALUE.get(this);
+    }
+
+    long getAcquire() {
+      return (long) VALUE.getAcquire(this);
+    }
+
+    void setRelease(final long newValue) {
+      VALUE.setRelease(this, newValue);
+    }
+  }
+}
@@ -36,6 +36,9 @@ public final class NetDaemon extends GoodThread {
 
   private transient int notStorCount = 0; // number of packets not stored
 
+  /** measurements of the acquisition pipeline */
+  private transient PipelineMetrics metrics = new PipelineMetrics();
+
   /**
    * Constructor passed both storage and sorting pipes.
    *
@@ -137,7 +140,8 @@ public final class NetDaemon extends GoodThread {
 
   /**
    * Runs in an infinite loop receiving data from the local net and stuffing it into a couple of
-   * pipes.
+   * pipes. If both pipes are <code>HandoffRingBuffer</code>'s, each packet is received directly
+   * into a pooled buffer, which is then shared by reference with both pipes.
    *
    * @exception IOException if there's a problem storing the data
    * @exception SortException if there's a problem sorting the data
@@ -147,22 +151,32 @@ public final class NetDaemon extends GoodThread {
       throw new SortException("Could not start netDeamon, socket null {NetDaemon]");
     }
     // bufferOut and dataIn keep getting re-used
-    final byte[] bufferOut = GuiceInjector.getObjectInstance(RingBufferFactory.class).freshBuffer();
+    final byte[] bufferOut = new byte[sortingRing.getGeometry().getBufferSize()];
     final DatagramPacket dataIn = new DatagramPacket(bufferOut, bufferOut.length);
+    final BufferPool pool = getBufferPool();
     while (checkState()) { // loop as long as state is RUN
+      /* null if not handing off, or in the unlikely event the pool is exhausted */
+      final PooledBuffer pooled = (pool == null) ? null : pool.tryAcquire();
+      dataIn.setData((pooled == null) ? bufferOut : pooled.array());
       /* wait for packet */
       dataSocket.receive(dataIn);
+      final long received = System.nanoTime();
       if (checkState()) {
-        dataIn.getData(); // data goes to bufferOut
+        dataIn.getData(); // data goes to bufferOut or pooled
         packetCount++;
+        metrics.packetReceived();
         /* Put buffer into to sorting ring with sample fraction */
-        if (!sortingRing.tryPutBuffer(bufferOut)) {
+        if (putBuffer(sortingRing, pooled, bufferOut)) {
+          metrics.bufferQueued(received);
+        } else {
           notSortCount++;
+          metrics.sortBufferLost();
           setEmptyBefore(true);
         }
         /* put buffer into to storage ring */
-        if (writerOn && !storageRing.tryPutBuffer(bufferOut)) {
+        if (writerOn && !putBuffer(storageRing, pooled, bufferOut)) {
           notStorCount++;
+          metrics.storageBufferLost();
           LOGGER.severe("Lost a storage buffer.");
         }
       } else { // received a packet while thread state not RUN
@@ -171,9 +185,40 @@ public final class NetDaemon extends GoodThread {
                 + " state was not RUN: state="
                 + this);
       }
+      if (pooled != null) {
+        pooled.release(); // rings hold their own references
+      }
     } // end RUN loop
   }
 
+  /**
+   * @return the pool to receive packets into, or <code>null</code> if the rings copy data
+   */
+  private BufferPool getBufferPool() {
+    BufferPool result = null;
+    if (sortingRing instanceof HandoffRingBuffer && storageRing instanceof HandoffRingBuffer) {
+      result = ((HandoffRingBuffer) sortingRing).getPool();
+    }
+    return result;
+  }
+
+  private static boolean putBuffer(
+      final RingBuffer ring, final PooledBuffer pooled, final byte[] buffer) {
+    return (pooled == null)
+        ? ring.tryPutBuffer(buffer)
+        : ((HandoffRingBuffer) ring).tryPut(pooled);
+  }
+
+  /**
+   * Sets where to record measurements of receiving packets. Must be called before this thread is
+   * started.
+   *
+   * @param metrics measurements of the acquisition pipeline
+   */
+  public void setMetrics(final PipelineMetrics metrics) {
+    this.metrics = metrics;
+  }
+
   /**
    * Sets whether to write out events to the storage pipe.
    *
@@ -1,5 +1,8 @@
 package jam.sort;
 
+import java.io.File;
+import java.util.List;
+
 /**
  * Interface for offline sorting.
  *
@@ -13,4 +16,21 @@ public interface OfflineController extends Controller {
    * @return <code>true</code> if there was a next file and it's open now
    */
   boolean openNextFile();
+
+  /**
+   * Called by <code>SortDaemon</code> when it will sort the remaining files itself, several at a
+   * time, instead of through <code>openNextFile()</code>.
+   *
+   * @return the files which haven't been opened yet, which <code>openNextFile()</code> will no
+   *     longer open
+   */
+  List<File> takeRemainingFiles();
+
+  /**
+   * Called by <code>SortDaemon</code> each time it finishes sorting one of the files from <code>
+   * takeRemainingFiles()</code>. May be called from several threads.
+   *
+   * @param file the file which was sorted
+   */
+  void atFileSorted(File file);
 }
@@ -0,0 +1,189 @@
+package jam.sort;
+
+import jam.data.EventBlock;
+import jam.data.HistogramShards;
+import jam.data.Monitor;
+import jam.data.Sorter;
+import jam.sort.stream.AbstractEventInputStream;
+import jam.sort.stream.AbstractEventInputStream.EventInputStatus;
+import jam.sort.stream.EventException;
+import jam.sort.stream.MappedEventFile;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Sorts a list of event files for <code>SortDaemon</code> on a pool of threads, one file per
+ * thread at a time. Each file is read with its own instance of the event stream class. Each thread
+ * sorts into its own <code>HistogramShards</code>, kept for as long as the thread lives, which are
+ * added into the sort group's histograms once per monitor update interval and whenever a file is
+ * done. Event and buffer counts are reported back to the daemon as each file finishes.
+ *
+ * <p>Scaler values read from the files are not summed, so they reflect whichever file was read
+ * last.
+ *
+ * @author Dale Visser
+ * @see StatelessSorter
+ */
+final class ParallelFileSorter {
+
+  private static final Logger LOGGER =
+      Logger.getLogger(ParallelFileSorter.class.getPackage().getName());
+
+  private final transient SortDaemon daemon;
+
+  private final transient int threads;
+
+  private final transient AbstractEventInputStream template;
+
+  private final transient Sorter sorter;
+
+  /**
+   * Creates a new sorter of files.
+   *
+   * @param daemon the daemon to report counts back to
+   * @param threads number of files to sort at once
+   * @param template event stream whose class and settings are used for each file
+   * @param sorter the sort routine, which must be safe for concurrent use
+   */
+  ParallelFileSorter(
+      final SortDaemon daemon,
+      final int threads,
+      final AbstractEventInputStream template,
+      final Sorter sorter) {
+    super();
+    this.daemon = daemon;
+    this.threads = threads;
+    this.template = template;
+    this.sorter = sorter;
+  }
+
+  /**
+   * Sorts the given files, returning when all are sorted or sorting is canceled.
+   *
+   * @param files to sort
+   * @param controller told as each file finishes
+   * @throws InterruptedException if interrupted while waiting for the files to be sorted
+   * @throws SortException if a file couldn't be sorted due to an unrecoverable error
+   */
+  void sort(final List<File> files, final OfflineController controller)
+      throws InterruptedException, SortException {
+    final AtomicInteger threadNumber = new AtomicInteger();
+    final ExecutorService executor =
+        Executors.newFixedThreadPool(
+            Math.min(threads, Math.max(1, files.size())),
+            runnable -> {
+              final Thread thread =
+                  new Thread(
+                      () -> sortWithShards(runnable),
+                      "Sort File Worker " + threadNumber.incrementAndGet());
+              thread.setPriority(ThreadPriorities.SORT);
+              thread.setDaemon(true);
+              return thread;
+            });
+    try {
+      final List<Callable<Void>> tasks = new ArrayList<>();
+      for (File file : files) {
+        tasks.add(
+            () -> {
+              sortFile(file);
+              controller.atFileSorted(file);
+              return null;
+            });
+      }
+      for (Future<Void> future : executor.invokeAll(tasks)) {
+        try {
+          future.get();
+        } catch (ExecutionException ee) {
+          throw new SortException("Sort worker stopped due to exception.", ee.getCause());
+        }
+      }
+    } finally {
+      /* every file's counts were flushed when it finished, so the workers needn't be waited on */
+      executor.shutdownNow();
+    }
+  }
+
+  /*
+   * non-javadoc: Runs a worker thread's tasks with the thread attached to its own shards, which are
+   * only allocated once however many files the thread sorts.
+   */
+  private static void sortWithShards(final Runnable worker) {
+    final HistogramShards shards = HistogramShards.attach();
+    try {
+      worker.run();
+    } finally {
+      shards.detach();
+    }
+  }
+
+  private void sortFile(final File file) throws Exception { // NOPMD
+    if (daemon.offlineSortingCanceled()) {
+      return;
+    }
+    final AbstractEventInputStream stream = SortWorkers.newStream(template);
+    /* already attached when the thread started, so this just gets its shards */
+    final HistogramShards shards = HistogramShards.attach();
+    try (InputStream input = new MappedEventFile(file)) {
+      stream.setInputStream(input);
+      if (stream.readHeader()) {
+        sortEvents(file, stream, shards);
+      } else {
+        LOGGER.severe("File does not have correct header. File: " + file.getAbsolutePath());
+      }
+    } catch (IOException | EventException e) {
+      throw new SortException("Unable to sort file: " + file.getPath(), e);
+    } finally {
+      shards.flush();
+    }
+  }
+
+  private void sortEvents(
+      final File file, final AbstractEventInputStream stream, final HistogramShards shards)
+      throws Exception { // NOPMD
+    final long flushNanos = TimeUnit.SECONDS.toNanos(Math.max(1, Monitor.getInterval()));
+    long lastFlush = System.nanoTime();
+    final EventBlock block = new EventBlock(stream.getEventSize());
+    int events = 0;
+    int buffers = 0;
+    boolean atBuffer = false;
+    boolean endSort = false;
+    while (!endSort && !daemon.offlineSortingCanceled()) {
+      final EventInputStatus status = stream.readBlock(block);
+      if (block.size() > 0) {
+        sorter.sortBlock(block);
+        events += block.size();
+        atBuffer = false;
+      }
+      if (status == EventInputStatus.END_BUFFER) {
+        if (!atBuffer) {
+          atBuffer = true;
+          buffers++;
+          /* checked once a buffer, so that the histograms keep up with long files */
+          if (System.nanoTime() - lastFlush >= flushNanos) {
+            shards.flush();
+            lastFlush = System.nanoTime();
+          }
+        }
+      } else if (status == EventInputStatus.UNKNOWN_WORD) {
+        LOGGER.warning("Unknown word in event stream: " + file.getName());
+      } else if (status == EventInputStatus.END_RUN || status == EventInputStatus.END_FILE) {
+        endSort = true;
+      } else {
+        throw new SortException("Illegal post-readBlock() status = " + status);
+      }
+    }
+    daemon.addFileCounts(events, buffers);
+    LOGGER.info("Sorted " + events + " events in " + buffers + " buffers from " + file.getName());
+  }
+}
@@ -0,0 +1,317 @@
+package jam.sort;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Measures the online acquisition pipeline: packets received and lost by <code>NetDaemon</code>,
+ * how full the sorting ring is and how long buffers wait in it, and how long decoding and the sort
+ * routine take. Every measurement is a counter, or a histogram of counters, updated without
+ * locking, and at most once per buffer rather than per event, so the daemons aren't slowed.
+ *
+ * <p>The wait in the ring is measured by recording when each buffer is put in it in a queue of
+ * time stamps beside the ring, filled and emptied in the same order as the ring itself. Parallel
+ * sorting takes buffers from the ring as soon as a worker is free, so the wait measured includes
+ * waiting for a worker.
+ *
+ * @author Dale Visser
+ * @see #OBJECT_NAME
+ */
+@Singleton
+public final class PipelineMetrics implements PipelineMetricsMBean {
+
+  /** Name the metrics are registered under with the platform MBean server. */
+  public static final String OBJECT_NAME = "jam.sort:type=PipelineMetrics";
+
+  private static final Logger LOGGER =
+      Logger.getLogger(PipelineMetrics.class.getPackage().getName());
+
+  private static final int FILL_BINS = 16;
+
+  private static final int LATENCY_BINS = 32;
+
+  private static final double NANOS_PER_MILLI = 1e6;
+
+  private final transient LongAdder packets = new LongAdder();
+
+  private final transient LongAdder sortLost = new LongAdder();
+
+  private final transient LongAdder storageLost = new LongAdder();
+
+  private final transient LongAdder sampleIncreases = new LongAdder();
+
+  private final transient LongAdder taken = new LongAdder();
+
+  private final transient LongAdder fillSum = new LongAdder();
+
+  private final transient AtomicLongArray fill = new AtomicLongArray(FILL_BINS);
+
+  private final transient AtomicLongArray latency = new AtomicLongArray(LATENCY_BINS);
+
+  private final transient LongAdder latencyCount = new LongAdder();
+
+  private final transient LongAdder latencyNanos = new LongAdder();
+
+  private final transient AtomicLong maxLatencyNanos = new AtomicLong();
+
+  private final transient LongAdder decoded = new LongAdder();
+
+  private final transient LongAdder decodeNanos = new LongAdder();
+
+  private final transient LongAdder sorted = new LongAdder();
+
+  private final transient LongAdder sortNanos = new LongAdder();
+
+  private transient volatile long startNanos = System.nanoTime();
+
+  private transient volatile int capacity = RingBuffer.NUMBER_BUFFERS;
+
+  /* time stamps of buffers in the sorting ring, written only by NetDaemon */
+  private transient volatile long[] stamps = new long[0];
+
+  private final transient AtomicLong putIndex = new AtomicLong();
+
+  /* read and written only by the thread taking buffers from the ring */
+  private transient long takeIndex;
+
+  /** Creates a new set of metrics, with nothing counted yet. */
+  @Inject
+  public PipelineMetrics() {
+    super();
+  }
+
+  /**
+   * Registers these metrics with the platform MBean server, unless some already are. Failure is
+   * logged, since the metrics are still shown in the counters dialog.
+   */
+  public void register() {
+    final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    try {
+      final ObjectName name = new ObjectName(OBJECT_NAME);
+      if (!server.isRegistered(name)) {
+        server.registerMBean(this, name);
+      }
+    } catch (JMException e) {
+      LOGGER.log(Level.WARNING, "Couldn't register pipeline metrics with JMX.", e);
+    }
+  }
+
+  /**
+   * Prepares for measuring a new sorting ring, and resets the counts. Must be called before the
+   * daemons using the ring are started.
+   *
+   * @param geometry of the sorting ring
+   */
+  public void start(final RingGeometry geometry) {
+    capacity = geometry.getNumberBuffers();
+    /* room for everything in the ring, and for stamps put while a buffer is being taken */
+    stamps = new long[Integer.highestOneBit(Math.max(1, capacity)) << 2];
+    putIndex.set(0);
+    takeIndex = 0;
+    reset();
+  }
+
+  @Override
+  public void reset() {
+    for (LongAdder adder :
+        new LongAdder[] {
+          packets, sortLost, storageLost, sampleIncreases, taken, fillSum, latencyCount,
+          latencyNanos, decoded, decodeNanos, sorted, sortNanos
+        }) {
+      adder.reset();
+    }
+    for (int i = 0; i < FILL_BINS; i++) {
+      fill.set(i, 0);
+    }
+    for (int i = 0; i < LATENCY_BINS; i++) {
+      latency.set(i, 0);
+    }
+    maxLatencyNanos.set(0);
+    startNanos = System.nanoTime();
+  }
+
+  /** Counts a packet received. Called by <code>NetDaemon</code>. */
+  void packetReceived() {
+    packets.increment();
+  }
+
+  /**
+   * Records when a buffer was put in the sorting ring. Called by <code>NetDaemon</code>, the only
+   * thread putting buffers in the ring, after each buffer is put.
+   *
+   * @param nanos <code>System.nanoTime()</code> when the buffer was received
+   */
+  void bufferQueued(final long nanos) {
+    final long[] current = stamps;
+    if (current.length > 0) {
+      final long index = putIndex.get();
+      current[(int) index & (current.length - 1)] = nanos;
+      putIndex.set(index + 1);
+    }
+  }
+
+  /** Counts a buffer lost because the sorting ring was full. */
+  void sortBufferLost() {
+    sortLost.increment();
+  }
+
+  /** Counts a buffer lost because the storage ring was full. */
+  void storageBufferLost() {
+    storageLost.increment();
+  }
+
+  /** Counts an increase of the sort interval. */
+  void sampleIncreased() {
+    sampleIncreases.increment();
+  }
+
+  /**
+   * Records a buffer taken from the sorting ring, and how full the ring was. Called by the only
+   * thread taking buffers from the ring, after each buffer is taken. A buffer taken before its time
+   * stamp was put has no wait recorded.
+   *
+   * @param used buffers left in the ring
+   */
+  void bufferTaken(final int used) {
+    final long now = System.nanoTime();
+    taken.increment();
+    fillSum.add(used);
+    final int ringCapacity = Math.max(1, capacity);
+    fill.incrementAndGet(Math.min(FILL_BINS - 1, (int) ((long) used * FILL_BINS / ringCapacity)));
+    final long[] current = stamps;
+    if (current.length > 0) {
+      final long index = takeIndex;
+      takeIndex = index + 1;
+      if (index < putIndex.get()) {
+        final long wait = Math.max(0, now - current[(int) index & (current.length - 1)]);
+        final long micros = TimeUnit.NANOSECONDS.toMicros(wait);
+        final int bin = Long.SIZE - Long.numberOfLeadingZeros(micros);
+        latency.incrementAndGet(Math.min(LATENCY_BINS - 1, bin));
+        latencyCount.increment();
+        latencyNanos.add(wait);
+        maxLatencyNanos.accumulateAndGet(wait, Math::max);
+      }
+    }
+  }
+
+  /**
+   * Records the decoding and sorting of one buffer. May be called by several threads at once.
+   *
+   * @param events number of events decoded
+   * @param decodeTime nanoseconds spent decoding
+   * @param eventsSorted number of events passed to the sort routine
+   * @param sortTime nanoseconds spent in the sort routine
+   */
+  void bufferSorted(
+      final int events, final long decodeTime, final int eventsSorted, final long sortTime) {
+    decoded.add(events);
+    decodeNanos.add(decodeTime);
+    sorted.add(eventsSorted);
+    sortNanos.add(sortTime);
+  }
+
+  @Override
+  public double getSeconds() {
+    return (System.nanoTime() - startNanos) / (NANOS_PER_MILLI * 1000);
+  }
+
+  @Override
+  public long getPacketsReceived() {
+    return packets.sum();
+  }
+
+  @Override
+  public double getPacketRate() {
+    return perSecond(packets.sum(), getSeconds());
+  }
+
+  @Override
+  public long getSortBuffersLost() {
+    return sortLost.sum();
+  }
+
+  @Override
+  public long getStorageBuffersLost() {
+    return storageLost.sum();
+  }
+
+  @Override
+  public long getSampleIncreases() {
+    return sampleIncreases.sum();
+  }
+
+  @Override
+  public long getBuffersTaken() {
+    return taken.sum();
+  }
+
+  @Override
+  public long[] getRingFillHistogram() {
+    return toArray(fill);
+  }
+
+  @Override
+  public double getMeanRingFill() {
+    final long count = taken.sum();
+    return count == 0 ? 0.0 : (double) fillSum.sum() / count / Math.max(1, capacity);
+  }
+
+  @Override
+  public long[] getLatencyHistogram() {
+    return toArray(latency);
+  }
+
+  @Override
+  public double getMeanLatencyMillis() {
+    final long count = latencyCount.sum();
+    return count == 0 ? 0.0 : latencyNanos.sum() / NANOS_PER_MILLI / count;
+  }
+
+  @Override
+  public double getMaxLatencyMillis() {
+    return maxLatencyNanos.get() / NANOS_PER_MILLI;
+  }
+
+  @Override
+  public long getEventsDecoded() {
+    return decoded.sum();
+  }
+
+  @Override
+  public double getDecodeRate() {
+    return perSecond(decoded.sum(), decodeNanos.sum() / (NANOS_PER_MILLI * 1000));
+  }
+
+  @Override
+  public long getEventsSorted() {
+    return sorted.sum();
+  }
+
+  @Override
+  public double getSortMicrosPerEvent() {
+    final long count = sorted.sum();
+    return count == 0 ? 0.0 : sortNanos.sum() / 1000.0 / count;
+  }
+
+  private static double perSecond(final long count, final double seconds) {
+    return seconds > 0.0 ? count / seconds : 0.0;
+  }
+
+  private static long[] toArray(final AtomicLongArray array) {
+    final long[] rval = new long[array.length()];
+    for (int i = 0; i < rval.length; i++) {
+      rval[i] = array.get(i);
+    }
+    return rval;
+  }
+}
@@ -0,0 +1,96 @@
+package jam.sort;
+
+/**
+ * The attributes and operations of <code>PipelineMetrics</code> exposed through JMX. Counts are
+ * since the last reset, and rates are averages over the same time.
+ *
+ * @author Dale Visser
+ * @see PipelineMetrics#OBJECT_NAME
+ */
+public interface PipelineMetricsMBean {
+
+  /**
+   * @return seconds since the metrics were last reset
+   */
+  double getSeconds();
+
+  /**
+   * @return number of UDP packets received
+   */
+  long getPacketsReceived();
+
+  /**
+   * @return average UDP packets received per second
+   */
+  double getPacketRate();
+
+  /**
+   * @return number of buffers lost because the sorting ring was full
+   */
+  long getSortBuffersLost();
+
+  /**
+   * @return number of buffers lost because the storage ring was full
+   */
+  long getStorageBuffersLost();
+
+  /**
+   * @return number of times sampling was increased because the sorting ring was close to full
+   */
+  long getSampleIncreases();
+
+  /**
+   * @return number of buffers taken from the sorting ring
+   */
+  long getBuffersTaken();
+
+  /**
+   * @return number of sorting ring buffers in use when each buffer was taken, as counts in
+   *     sixteenths of the ring's capacity, the last including a full ring
+   */
+  long[] getRingFillHistogram();
+
+  /**
+   * @return mean fraction of the sorting ring in use when buffers were taken
+   */
+  double getMeanRingFill();
+
+  /**
+   * @return counts of buffers by microseconds from being put in the sorting ring to being taken
+   *     out, in powers of two: element <i>n</i> counts latencies below 2<sup><i>n</i></sup> &micro;s
+   */
+  long[] getLatencyHistogram();
+
+  /**
+   * @return mean milliseconds from a buffer being put in the sorting ring to being taken out
+   */
+  double getMeanLatencyMillis();
+
+  /**
+   * @return longest milliseconds from a buffer being put in the sorting ring to being taken out
+   */
+  double getMaxLatencyMillis();
+
+  /**
+   * @return number of events decoded from buffers
+   */
+  long getEventsDecoded();
+
+  /**
+   * @return events decoded per second spent decoding
+   */
+  double getDecodeRate();
+
+  /**
+   * @return number of events passed to the sort routine
+   */
+  long getEventsSorted();
+
+  /**
+   * @return mean microseconds the sort routine took per event
+   */
+  double getSortMicrosPerEvent();
+
+  /** Zeroes all counts and histograms. */
+  void reset();
+}
@@ -0,0 +1,75 @@
+package jam.sort;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A reference-counted data buffer belonging to a <code>BufferPool</code>. Whoever acquires a
+ * buffer from the pool holds one reference to it. Each consumer the buffer is handed to takes its
+ * own reference with <code>retain()</code>, and gives it up with <code>release()</code> when done
+ * reading. When the last reference is released, the buffer goes back into the pool.
+ *
+ * @author Dale Visser
+ * @see BufferPool
+ * @see HandoffRingBuffer
+ */
+public final class PooledBuffer {
+
+  private final transient BufferPool pool;
+
+  private final transient byte[] array;
+
+  private final transient AtomicInteger references = new AtomicInteger();
+
+  PooledBuffer(final BufferPool pool, final int size) {
+    super();
+    this.pool = pool;
+    this.array = new byte[size];
+  }
+
+  /**
+   * Gets the backing array. Callers must not keep it after releasing their reference.
+   *
+   * @return the backing array
+   */
+  public byte[] array() {
+    return array;
+  }
+
+  /**
+   * @return the number of outstanding references
+   */
+  public int getReferenceCount() {
+    return references.get();
+  }
+
+  /** Called by the pool when handing this buffer out. */
+  void acquired() {
+    references.set(1);
+  }
+
+  /**
+   * Takes another reference to this buffer.
+   *
+   * @return this buffer
+   */
+  public PooledBuffer retain() {
+    int count;
+    do {
+      count = references.get();
+      if (count <= 0) {
+        throw new IllegalStateException("Attempted to retain a buffer that has been released.");
+      }
+    } while (!references.compareAndSet(count, count + 1));
+    return this;
+  }
+
+  /** Gives up a reference to this buffer, returning it to its pool if it was the last one. */
+  public void release() {
+    final int remaining = references.decrementAndGet();
+    if (remaining == 0) {
+      pool.giveBack(this);
+    } else if (remaining < 0) {
+      throw new IllegalStateException("Released a buffer more times than it was retained.");
+    }
+  }
+}
@@ -1,21 +1,30 @@
 package jam.sort;
 
 /**
+ * Passes buffers of event data from one thread to another. The constants give the default
+ * geometry; a particular ring's actual geometry is given by <code>getGeometry()</code>.
+ *
  * @author Dale Visser
+ * @see RingGeometry
  */
 public interface RingBuffer {
-  /** Size in bytes of a single buffer. */
+  /** Default size in bytes of a single buffer. */
   int BUFFER_SIZE = 0x2000; // 8k
 
-  /** Total memory this ring buffer can take. */
+  /** Default total memory this ring buffer can take. */
   int MEMORY_FOOTPRINT = 0x400 * 0x400 * 2; // 2 MB
 
-  /** Number of buffers in ring, must be a power of 2. */
+  /** Default number of buffers in ring, must be a power of 2. */
   int NUMBER_BUFFERS = MEMORY_FOOTPRINT / BUFFER_SIZE;
 
-  /** We are close to capacity if available buffers is less than this. */
+  /** By default, we are close to capacity if available buffers is less than this. */
   int CLOSE_TO_CAPACITY = Math.max(2, NUMBER_BUFFERS / 16);
 
+  /**
+   * @return the size, number and threshold of buffers in this ring
+   */
+  RingGeometry getGeometry();
+
   /**
    * Passes back a copy of the current buffer in the given <code>byte</code> array. Blocks until the
    * buffer becomes available.
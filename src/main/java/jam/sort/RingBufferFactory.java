@@ -2,16 +2,21 @@ package jam.sort;
 
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import jam.global.JamProperties;
+import jam.global.PropertyKeys;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
- * Generates RingBuffer instances appropriate to whether J2SE 6 java.util.concurrent is on the
- * classpath or not.
+ * Generates RingBuffer instances. The implementation is given by the <code>ring.class</code>
+ * property, and defaults to <code>LinkedBlockingDequeRingBuffer</code>. If the configured
+ * implementation can't be loaded, <code>SimpleRingBuffer</code> is used instead. The size and
+ * number of buffers are given by the other <code>ring.*</code> properties.
  *
  * @author Dale Visser
+ * @see PropertyKeys#RING_BUFFER_CLASS
  */
 @Singleton
 public final class RingBufferFactory {
@@ -19,17 +24,27 @@ public final class RingBufferFactory {
   private static final Logger LOGGER =
       Logger.getLogger(RingBufferFactory.class.getPackage().getName());
 
+  private static final String DEFAULT_CLASS = "jam.sort.LinkedBlockingDequeRingBuffer";
+
   private final transient Constructor<? extends RingBuffer> ringConstructor;
 
+  private final transient RingGeometry geometry;
+
   @Inject
   public RingBufferFactory() {
+    geometry = RingGeometry.fromProperties(JamProperties.getProperties());
+    LOGGER.fine("Ring buffer geometry: " + geometry);
     Constructor<? extends RingBuffer> result = null;
+    final String className =
+        JamProperties.getProperties().getProperty(PropertyKeys.RING_BUFFER_CLASS, DEFAULT_CLASS);
     final ClassLoader loader = RingBufferFactory.class.getClassLoader();
     try {
-      final Class<?> clazz = loader.loadClass("jam.sort.LinkedBlockingDequeRingBuffer");
-      final Class<? extends RingBuffer> ringClass = clazz.asSubclass(RingBuffer.class);
-      result = (Constructor<? extends RingBuffer>) ringClass.getDeclaredConstructor(boolean.class);
-    } catch (ClassNotFoundException | IllegalArgumentException | NoSuchMethodException e) {
+      final Class<?> clazz = loader.loadClass(className.trim());
+      result = getConstructor(clazz.asSubclass(RingBuffer.class));
+    } catch (ClassNotFoundException
+        | ClassCastException
+        | IllegalArgumentException
+        | NoSuchMethodException e) {
       final String warning =
           "Could not load expected RingBuffer implementation. Loading an alternate implemetation"
               + " instead.";
@@ -38,13 +53,25 @@ public final class RingBufferFactory {
     this.ringConstructor = result;
   }
 
+  private static Constructor<? extends RingBuffer> getConstructor(
+      final Class<? extends RingBuffer> ringClass) throws NoSuchMethodException {
+    return ringClass.getDeclaredConstructor(boolean.class, RingGeometry.class);
+  }
+
   /**
    * Allocates a fresh buffer array of the correct size, for use by clients of this class.
    *
    * @return a fresh byte array equal in size to one of the buffers
    */
   public byte[] freshBuffer() {
-    return new byte[RingBuffer.BUFFER_SIZE];
+    return new byte[geometry.getBufferSize()];
+  }
+
+  /**
+   * @return the configured size and number of buffers in each ring
+   */
+  public RingGeometry getGeometry() {
+    return geometry;
   }
 
   /**
@@ -61,13 +88,83 @@ public final class RingBufferFactory {
    * @return a RingBuffer implementation instance
    */
   public RingBuffer create(final boolean empty) {
+    return create(this.ringConstructor, empty, geometry);
+  }
+
+  /**
+   * Creates a new ring buffer of the given implementation, bypassing the configured one. Used for
+   * comparing implementations.
+   *
+   * @param ringClass the implementation to create
+   * @param empty whether this is a no-capacity ring buffer
+   * @return a RingBuffer implementation instance, or a <code>SimpleRingBuffer</code> if the given
+   *     one can't be created
+   */
+  public RingBuffer create(final Class<? extends RingBuffer> ringClass, final boolean empty) {
+    return create(ringClass, empty, geometry);
+  }
+
+  /**
+   * Creates a new ring buffer of the given implementation and geometry, bypassing the configured
+   * ones.
+   *
+   * @param ringClass the implementation to create
+   * @param empty whether this is a no-capacity ring buffer
+   * @param ringGeometry size and number of buffers
+   * @return a RingBuffer implementation instance, or a <code>SimpleRingBuffer</code> if the given
+   *     one can't be created
+   */
+  public RingBuffer create(
+      final Class<? extends RingBuffer> ringClass,
+      final boolean empty,
+      final RingGeometry ringGeometry) {
+    Constructor<? extends RingBuffer> constructor = null;
+    try {
+      constructor = getConstructor(ringClass);
+    } catch (NoSuchMethodException e) {
+      LOGGER.log(Level.WARNING, "No suitable constructor in " + ringClass.getName(), e);
+    }
+    return create(constructor, empty, ringGeometry);
+  }
+
+  /**
+   * Gets whether online data should be handed between daemons by reference, as set by the <code>
+   * ring.handoff</code> property.
+   *
+   * @return <code>true</code> if handoff rings should be used
+   * @see PropertyKeys#RING_BUFFER_HANDOFF
+   */
+  public boolean isHandoffEnabled() {
+    return Boolean.parseBoolean(
+        JamProperties.getProperties().getProperty(PropertyKeys.RING_BUFFER_HANDOFF));
+  }
+
+  /**
+   * Creates a new ring buffer which passes buffers from the given pool by reference.
+   *
+   * @param empty whether this is a no-capacity ring buffer
+   * @param pool shared by all rings fed by the same producer
+   * @return a new handoff ring buffer
+   */
+  public HandoffRingBuffer create(final boolean empty, final BufferPool pool) {
+    return new HandoffRingBuffer(empty, pool);
+  }
+
+  private RingBuffer create(
+      final Constructor<? extends RingBuffer> constructor,
+      final boolean empty,
+      final RingGeometry ringGeometry) {
     RingBuffer result = null;
-    if (this.ringConstructor != null) {
+    if (constructor != null) {
       final String warning =
           "Could not instantiate the expected RingBuffer implementation. Instantiating an alternate"
               + " implementation instead.";
       try {
-        result = ringConstructor.newInstance(empty);
+        if (constructor.getDeclaringClass() == LockFreeRingBuffer.class) {
+          result = new LockFreeRingBuffer(empty, ringGeometry, getWaitStrategy());
+        } else {
+          result = constructor.newInstance(empty, ringGeometry);
+        }
       } catch (IllegalArgumentException
           | InstantiationException
           | InvocationTargetException
@@ -77,9 +174,14 @@ public final class RingBufferFactory {
     }
 
     if (result == null) {
-      result = new SimpleRingBuffer(empty);
+      result = new SimpleRingBuffer(empty, ringGeometry);
     }
 
     return result;
   }
+
+  private static LockFreeRingBuffer.WaitStrategy getWaitStrategy() {
+    return LockFreeRingBuffer.WaitStrategy.parse(
+        JamProperties.getProperties().getProperty(PropertyKeys.RING_BUFFER_WAIT));
+  }
 }
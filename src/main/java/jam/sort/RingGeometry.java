@@ -0,0 +1,138 @@
+package jam.sort;
+
+import jam.global.PropertyKeys;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+/**
+ * The shape of a ring buffer: how big each buffer is, how many buffers the ring holds, how few free
+ * buffers count as "close to full", and whether the buffers live on or off the Java heap. Read from
+ * the <code>ring.*</code> properties by <code>RingBufferFactory</code>.
+ *
+ * @author Dale Visser
+ * @see RingBufferFactory
+ */
+public final class RingGeometry {
+
+  private static final Logger LOGGER = Logger.getLogger(RingGeometry.class.getPackage().getName());
+
+  /** The geometry Jam has always used: 256 buffers of 8 kB each. */
+  public static final RingGeometry DEFAULT =
+      new RingGeometry(
+          RingBuffer.BUFFER_SIZE, RingBuffer.NUMBER_BUFFERS, RingBuffer.CLOSE_TO_CAPACITY, false);
+
+  private final int bufferSize;
+
+  private final int numberBuffers;
+
+  private final int closeToCapacity;
+
+  private final boolean offHeap;
+
+  /**
+   * Creates a new ring geometry.
+   *
+   * @param bufferSize size in bytes of a single buffer
+   * @param numberBuffers number of buffers in the ring, rounded up to a power of 2
+   * @param closeToCapacity the ring is close to full when fewer than this many buffers are free
+   * @param offHeap whether to keep buffers in direct memory, where supported
+   */
+  public RingGeometry(
+      final int bufferSize,
+      final int numberBuffers,
+      final int closeToCapacity,
+      final boolean offHeap) {
+    super();
+    if (bufferSize <= 0) {
+      throw new IllegalArgumentException("Buffer size must be positive: " + bufferSize);
+    }
+    if (numberBuffers <= 0 || numberBuffers > 1 << 30) {
+      throw new IllegalArgumentException("Number of buffers out of range: " + numberBuffers);
+    }
+    this.bufferSize = bufferSize;
+    this.numberBuffers = roundUpToPowerOfTwo(numberBuffers);
+    this.closeToCapacity = Math.max(1, Math.min(closeToCapacity, this.numberBuffers));
+    this.offHeap = offHeap;
+  }
+
+  private static int roundUpToPowerOfTwo(final int value) {
+    final int highest = Integer.highestOneBit(value);
+    return (highest == value) ? value : highest << 1;
+  }
+
+  /**
+   * Reads a ring geometry from the given properties, using the default for anything not given.
+   *
+   * @param properties typically <code>JamProperties.getProperties()</code>
+   * @return the configured geometry
+   */
+  public static RingGeometry fromProperties(final Properties properties) {
+    final int size = getInt(properties, PropertyKeys.RING_BUFFER_SIZE, DEFAULT.bufferSize);
+    final int count = getInt(properties, PropertyKeys.RING_BUFFER_COUNT, DEFAULT.numberBuffers);
+    final int close =
+        getInt(properties, PropertyKeys.RING_BUFFER_CLOSE_TO_FULL, Math.max(2, count / 16));
+    final boolean offHeap =
+        Boolean.parseBoolean(properties.getProperty(PropertyKeys.RING_BUFFER_OFF_HEAP));
+    return new RingGeometry(size, count, close, offHeap);
+  }
+
+  private static int getInt(final Properties properties, final String key, final int defaultValue) {
+    int result = defaultValue;
+    final String value = properties.getProperty(key);
+    if (value != null) {
+      try {
+        result = Integer.parseInt(value.trim());
+      } catch (NumberFormatException nfe) {
+        LOGGER.warning("Property " + key + " is not an integer, using " + defaultValue + ".");
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return size in bytes of a single buffer
+   */
+  public int getBufferSize() {
+    return bufferSize;
+  }
+
+  /**
+   * @return number of buffers in the ring, always a power of 2
+   */
+  public int getNumberBuffers() {
+    return numberBuffers;
+  }
+
+  /**
+   * @return the ring is close to full when fewer than this many buffers are free
+   */
+  public int getCloseToCapacity() {
+    return closeToCapacity;
+  }
+
+  /**
+   * @return whether buffers should be kept in direct memory, where supported
+   */
+  public boolean isOffHeap() {
+    return offHeap;
+  }
+
+  /**
+   * @return total memory taken by a full ring, in bytes
+   */
+  public long getMemoryFootprint() {
+    return (long) bufferSize * numberBuffers;
+  }
+
+  @Override
+  public String toString() {
+    return numberBuffers
+        + " buffers x "
+        + bufferSize
+        + " bytes"
+        + (offHeap ? " off-heap" : "")
+        + ", close to full below "
+        + closeToCapacity
+        + " free";
+  }
+}
@@ -14,9 +14,11 @@ import javax.swing.*;
 public final class SimpleRingBuffer implements RingBuffer {
 
   /** Mask that makes counter less than Number buffers */
-  private static final int MASK = NUMBER_BUFFERS - 1;
+  private final transient int mask;
 
-  private final transient byte[][] buffer;
+  private final transient RingGeometry geometry;
+
+  private final transient SlotStore buffer;
 
   /** where we will put the next buffer */
   private transient int posPut = 0;
@@ -30,15 +32,34 @@ public final class SimpleRingBuffer implements RingBuffer {
    * @param empty whether to create a zero-capacity buffer or not.
    */
   protected SimpleRingBuffer(final boolean empty) {
+    this(empty, RingGeometry.DEFAULT);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param empty whether to create a zero-capacity buffer or not.
+   * @param geometry size and number of buffers
+   */
+  protected SimpleRingBuffer(final boolean empty, final RingGeometry geometry) {
     super();
-    buffer = empty ? new byte[0][0] : new byte[NUMBER_BUFFERS][BUFFER_SIZE];
+    this.geometry = geometry;
+    mask = geometry.getNumberBuffers() - 1;
+    buffer = SlotStore.create(geometry, empty);
+  }
+
+  /**
+   * @return the size, number and threshold of buffers in this ring
+   */
+  public RingGeometry getGeometry() {
+    return geometry;
   }
 
   /**
    * @return whether this buffer was created with no capacity
    */
   public boolean isNull() {
-    return buffer.length == 0;
+    return buffer.getSlots() == 0;
   }
 
   /**
@@ -57,7 +78,7 @@ public final class SimpleRingBuffer implements RingBuffer {
                 + "\" when putBuffer() called while already full.";
         System.err.println(message);
       } else {
-        System.arraycopy(inBuffer, 0, buffer[posPut & MASK], 0, inBuffer.length);
+        buffer.write(posPut & mask, inBuffer);
         final boolean emptyBeforePut = isEmpty();
         posPut++;
         /*
@@ -105,8 +126,8 @@ public final class SimpleRingBuffer implements RingBuffer {
               null, ie.getMessage(), getClass().getName(), JOptionPane.ERROR_MESSAGE);
         }
       }
-      /* & MASK serves to keep index accessed running 0..63,0..63, etc. */
-      System.arraycopy(buffer[(posGet++) & MASK], 0, out, 0, out.length);
+      /* & mask serves to keep index accessed running 0..63,0..63, etc. */
+      buffer.read((posGet++) & mask, out);
     }
   }
 
@@ -129,7 +150,7 @@ public final class SimpleRingBuffer implements RingBuffer {
    */
   public boolean isFull() {
     synchronized (this) {
-      return isNull() || (posPut - posGet + 1 > NUMBER_BUFFERS);
+      return isNull() || (posPut - posGet + 1 > geometry.getNumberBuffers());
     }
   }
 
@@ -144,7 +165,7 @@ public final class SimpleRingBuffer implements RingBuffer {
       if (isNull()) {
         rval = 0;
       } else {
-        rval = NUMBER_BUFFERS - getUsedBuffers();
+        rval = geometry.getNumberBuffers() - getUsedBuffers();
       }
       return rval;
     }
@@ -157,7 +178,7 @@ public final class SimpleRingBuffer implements RingBuffer {
    */
   public boolean isCloseToFull() {
     synchronized (this) {
-      return getAvailableBuffers() < CLOSE_TO_CAPACITY;
+      return getAvailableBuffers() < geometry.getCloseToCapacity();
     }
   }
 
@@ -0,0 +1,98 @@
+package jam.sort;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Fixed-size storage for the buffers of a ring, either as Java arrays or as one block of direct
+ * memory outside the garbage-collected heap. Not thread-safe; rings provide their own ordering.
+ *
+ * @author Dale Visser
+ */
+abstract class SlotStore {
+
+  /** Size in bytes of one slot. */
+  protected final transient int slotSize;
+
+  /** Number of slots. */
+  protected final transient int slots;
+
+  private SlotStore(final int slots, final int slotSize) {
+    super();
+    this.slots = slots;
+    this.slotSize = slotSize;
+  }
+
+  /**
+   * Creates storage with the given geometry.
+   *
+   * @param geometry size and number of slots, and whether to allocate them off-heap
+   * @param empty whether to create zero slots
+   * @return new storage
+   */
+  static SlotStore create(final RingGeometry geometry, final boolean empty) {
+    final int count = empty ? 0 : geometry.getNumberBuffers();
+    final int size = geometry.getBufferSize();
+    return geometry.isOffHeap() ? new Direct(count, size) : new Heap(count, size);
+  }
+
+  /**
+   * @return number of slots
+   */
+  final int getSlots() {
+    return slots;
+  }
+
+  /**
+   * Copies data into a slot.
+   *
+   * @param slot which slot
+   * @param source data, no longer than a slot
+   */
+  abstract void write(int slot, byte[] source);
+
+  /**
+   * Copies a slot out.
+   *
+   * @param slot which slot
+   * @param destination array to fill, no longer than a slot
+   */
+  abstract void read(int slot, byte[] destination);
+
+  private static final class Heap extends SlotStore {
+    private final transient byte[][] arrays;
+
+    Heap(final int slots, final int slotSize) {
+      super(slots, slotSize);
+      arrays = new byte[slots][slotSize];
+    }
+
+    @Override
+    void write(final int slot, final byte[] source) {
+      System.arraycopy(source, 0, arrays[slot], 0, source.length);
+    }
+
+    @Override
+    void read(final int slot, final byte[] destination) {
+      System.arraycopy(arrays[slot], 0, destination, 0, destination.length);
+    }
+  }
+
+  private static final class Direct extends SlotStore {
+    private final transient ByteBuffer memory;
+
+    Direct(final int slots, final int slotSize) {
+      super(slots, slotSize);
+      memory = ByteBuffer.allocateDirect(Math.multiplyExact(slots, slotSize));
+    }
+
+    @Override
+    void write(final int slot, final byte[] source) {
+      memory.put(slot * slotSize, source, 0, source.length);
+    }
+
+    @Override
+    void read(final int slot, final byte[] destination) {
+      memory.get(slot * slotSize, destination, 0, destination.length);
+    }
+  }
+}
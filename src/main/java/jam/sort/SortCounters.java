@@ -0,0 +1,101 @@
+package jam.sort;
+
+/**
+ * An immutable snapshot of the counters kept by <code>SortDaemon</code>. Taking one never blocks
+ * the sorting thread, so displays and run control may poll as often as they like. The counts are
+ * each read separately, so while sorting is in progress they may be a few events apart from each
+ * other.
+ *
+ * @author Dale Visser
+ * @see SortDaemon#getCounters()
+ */
+public final class SortCounters {
+
+  private final transient long events;
+
+  private final transient long sortedEvents;
+
+  private final transient long buffers;
+
+  private final transient int sortInterval;
+
+  private final transient boolean sorting;
+
+  /**
+   * Creates a snapshot with the given values.
+   *
+   * @param events number of events read
+   * @param sortedEvents number of events passed to the sort routine
+   * @param buffers number of buffers read
+   * @param sortInterval sort one event in this many
+   * @param sorting whether events are being passed to the sort routine at all
+   */
+  public SortCounters(
+      final long events,
+      final long sortedEvents,
+      final long buffers,
+      final int sortInterval,
+      final boolean sorting) {
+    super();
+    this.events = events;
+    this.sortedEvents = sortedEvents;
+    this.buffers = buffers;
+    this.sortInterval = sortInterval;
+    this.sorting = sorting;
+  }
+
+  /**
+   * @return the number of events read
+   */
+  public long getEvents() {
+    return events;
+  }
+
+  /**
+   * @return the number of events passed to the sort routine
+   */
+  public long getSortedEvents() {
+    return sortedEvents;
+  }
+
+  /**
+   * @return the number of buffers read
+   */
+  public long getBuffers() {
+    return buffers;
+  }
+
+  /**
+   * @return one event in this many is passed to the sort routine
+   */
+  public int getSortInterval() {
+    return sortInterval;
+  }
+
+  /**
+   * @return whether events are being passed to the sort routine at all
+   */
+  public boolean isSorting() {
+    return sorting;
+  }
+
+  /**
+   * @return the sort interval as shown to the user, e.g., "1/4"
+   */
+  public String getSampleText() {
+    return sortInterval > 1 ? "1/" + sortInterval : String.valueOf(sortInterval);
+  }
+
+  @Override
+  public String toString() {
+    return "Read "
+        + events
+        + " events in "
+        + buffers
+        + " buffers, sorted "
+        + sortedEvents
+        + " events, sample "
+        + getSampleText()
+        + '.';
+  }
+}
@@ -1,21 +1,26 @@
 package jam.sort;
 
 import injection.GuiceInjector;
+import jam.data.EventBlock;
 import jam.data.Sorter;
 import jam.global.BroadcastEvent;
 import jam.global.Broadcaster;
 import jam.global.GoodThread;
+import jam.global.JamProperties;
 import jam.global.JamStatus;
+import jam.global.PropertyKeys;
 import jam.sort.stream.AbstractEventInputStream;
 import jam.sort.stream.AbstractEventInputStream.EventInputStatus;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.logging.Level;
 
 /**
  * The daemon (background thread) which sorts data. It takes an <code>EventInputStream</code>, and a
  * <code>Sorter</code> class. It reads events from the <code>EventInputStream</code> and gives these
- * to the <code>Sorter</code> method <code>sort(int [])</code>. Last modified 18 December 1999 to
- * use RingInputStream KBS.
+ * to the <code>Sorter</code> method <code>sort(int [])</code>. Online, each buffer is decoded into an
+ * <code>EventBlock</code> and handed to <code>sortBlock()</code>.
  *
  * @author Ken Swartz
  * @author Dale Visser
@@ -28,15 +33,18 @@ public class SortDaemon extends GoodThread {
 
   private transient boolean atBuffer = false; // are we at a buffer word
 
-  private int bufferCount;
+  private final transient LongAdder bufferCount = new LongAdder();
 
-  private transient boolean callSort = true;
+  private transient volatile boolean callSort = true;
 
   private final transient Controller controller;
 
   private transient boolean endSort;
 
-  private int eventCount;
+  private final transient LongAdder eventCount = new LongAdder();
+
+  /** chooses events to sort when sampling, only used by the sorting thread */
+  private final transient BlockSampler sampler = new BlockSampler();
 
   /** allocate only once to avoid GC having to collect abandoned references in sortOnline() loop */
   EventInputStatus eventInputStatus; // NOPMD
@@ -46,18 +54,31 @@ public class SortDaemon extends GoodThread {
   /* event information */
   private int eventSize;
 
-  private transient int eventSortedCount;
+  private final transient LongAdder eventSortedCount = new LongAdder();
+
+  private transient volatile boolean osc = false;
+
+  /** Number of offline events to sort between updates of the counters display. */
+  private static final int COUNT_UPDATE = 1000;
 
-  private final transient Object offlineSortLock = new Object();
+  /** events to sort offline before the next counters display update */
+  private transient int eventsToUpdate = COUNT_UPDATE;
 
-  private transient boolean osc = false;
+  private transient boolean writeEnabled;
 
   /** Used for online only, holds data buffers from network. */
   private transient RingBuffer ringBuffer;
 
   private transient Sorter sorter;
 
-  private int sortInterval = 1;
+  /** written only by the sorting thread, except when set explicitly */
+  private transient volatile int sortInterval = 1;
+
+  /** measurements of the acquisition pipeline */
+  private transient PipelineMetrics metrics = new PipelineMetrics();
+
+  /** Sorts online buffers in parallel, if enabled. */
+  private transient volatile SortWorkers workers;
 
   /**
    * Creates a new <code>SortDaemon</code> process.
@@ -79,9 +100,7 @@ public class SortDaemon extends GoodThread {
    * conditions to read in the next buffer
    */
   public void cancelOfflineSorting() {
-    synchronized (offlineSortLock) {
-      osc = true;
-    }
+    osc = true;
   }
 
   /**
@@ -90,25 +109,13 @@ public class SortDaemon extends GoodThread {
    * @return <code>true</code> if there are no unsorted buffers in the ring buffer
    */
   public boolean caughtUp() {
-    return ringBuffer.isEmpty();
-  }
-
-  private void checkIntervalAndSortEvent(final int[] eventData) throws Exception { // NOPMD
-    /* Sort only the sortInterval'th events. */
-    if (isCallingSortRoutine() && getEventCount() % getSortInterval() == 0) {
-      sorter.sort(eventData);
-      incrementSortedCount();
-    }
-    incrementEventCount();
-    /* Zero event array and get ready for next event. */
-    Arrays.fill(eventData, 0);
+    return ringBuffer.isEmpty() && (workers == null || workers.caughtUp());
   }
 
   private void decreaseSortInterval() {
-    synchronized (this) {
-      if (sortInterval > 1) {
-        sortInterval--;
-      }
+    final int interval = sortInterval;
+    if (interval > 1) {
+      sortInterval = interval - 1;
     }
   }
 
@@ -117,16 +124,28 @@ public class SortDaemon extends GoodThread {
    *
    * @return the number of buffers processed
    */
-  public int getBufferCount() {
-    synchronized (this) {
-      return bufferCount;
-    }
+  public long getBufferCount() {
+    return bufferCount.sum();
   }
 
-  private boolean isCallingSortRoutine() {
-    synchronized (this) {
-      return callSort;
-    }
+  /**
+   * Returns a snapshot of all the counters, without blocking the sorting thread.
+   *
+   * @return the current counters
+   */
+  public SortCounters getCounters() {
+    return new SortCounters(
+        eventCount.sum(), eventSortedCount.sum(), bufferCount.sum(), sortInterval, callSort);
+  }
+
+  /**
+   * Gets whether events are currently being passed to the sort routine at all. This is
+   * <code>false</code> while the ring buffer is close to full.
+   *
+   * @return whether the sort routine is being called
+   */
+  boolean isCallingSortRoutine() {
+    return callSort;
   }
 
   /**
@@ -134,10 +153,8 @@ public class SortDaemon extends GoodThread {
    *
    * @return the number of events processed
    */
-  public int getEventCount() {
-    synchronized (this) {
-      return eventCount;
-    }
+  public long getEventCount() {
+    return eventCount.sum();
   }
 
   /**
@@ -154,10 +171,8 @@ public class SortDaemon extends GoodThread {
    *
    * @return number of events actually sorted
    */
-  public int getSortedCount() {
-    synchronized (this) {
-      return eventSortedCount;
-    }
+  public long getSortedCount() {
+    return eventSortedCount.sum();
   }
 
   /**
@@ -167,16 +182,14 @@ public class SortDaemon extends GoodThread {
    * @return the total number of packets sent
    */
   public int getSortInterval() {
-    synchronized (this) {
-      return sortInterval;
-    }
+    return sortInterval;
   }
 
   private void handleStatusOffline() {
     if (eventInputStatus == EventInputStatus.END_BUFFER) {
       if (!atBuffer) {
         atBuffer = true;
-        incrementBufferCount();
+        bufferCount.increment();
       }
       endSort = false;
     } else if (eventInputStatus == EventInputStatus.END_RUN) {
@@ -197,72 +210,70 @@ public class SortDaemon extends GoodThread {
     }
   }
 
-  private void handleStatusOnline() throws SortException {
-    if (eventInputStatus == EventInputStatus.END_BUFFER) {
+  /**
+   * Handles the status the event stream returned at the end of a buffer.
+   *
+   * @param status the status which ended the buffer
+   * @throws SortException if the status can't be recovered from
+   */
+  void handleStatusOnline(final EventInputStatus status) throws SortException {
+    if (status == EventInputStatus.END_BUFFER) {
       /* We have reached the end of a buffer. */
-      incrementBufferCount();
+      bufferCount.increment();
       Thread.yield();
-    } else if (eventInputStatus == EventInputStatus.END_RUN) {
-      incrementBufferCount();
+    } else if (status == EventInputStatus.END_RUN) {
+      bufferCount.increment();
       Thread.yield();
-    } else if (eventInputStatus == EventInputStatus.UNKNOWN_WORD) {
+    } else if (status == EventInputStatus.UNKNOWN_WORD) {
       LOGGER.warning("Unknown word in event stream.");
-    } else if (eventInputStatus == EventInputStatus.END_FILE) {
+    } else if (status == EventInputStatus.END_FILE) {
       LOGGER.warning("Tried to read past end of event input stream.");
     } else { // we have unknown status
       /* unrecoverable error should not be here */
-      throw new SortException("Sorter stopped due to unknown status: " + eventInputStatus);
+      throw new SortException("Sorter stopped due to unknown status: " + status);
     }
   }
 
   private void increaseSortInterval() {
-    synchronized (this) {
-      sortInterval++;
-      LOGGER.warning(
-          "Sorting ring buffer half-full." + " Sort interval increased to " + sortInterval + ".");
-    }
+    final int interval = sortInterval + 1;
+    sortInterval = interval;
+    metrics.sampleIncreased();
+    LOGGER.warning(
+        "Sorting ring buffer half-full." + " Sort interval increased to " + interval + ".");
   }
 
-  private void incrementBufferCount() {
-    synchronized (this) {
-      bufferCount++;
-    }
-  }
-
-  private void incrementEventCount() {
-    synchronized (this) {
-      eventCount++;
-    }
+  /**
+   * Adds the counts from one buffer sorted by a worker thread.
+   *
+   * @param events number of events read
+   * @param sorted number of events sorted
+   */
+  void addCounts(final int events, final int sorted) {
+    eventCount.add(events);
+    eventSortedCount.add(sorted);
   }
 
-  private void incrementSortedCount() {
-    synchronized (this) {
-      eventSortedCount++;
-    }
+  /**
+   * Adds the counts from one file sorted by a worker thread, and updates the counters display.
+   *
+   * @param events number of events read and sorted
+   * @param buffers number of buffers read
+   */
+  void addFileCounts(final int events, final int buffers) {
+    eventCount.add(events);
+    eventSortedCount.add(events);
+    bufferCount.add(buffers);
+    updateCounters();
   }
 
   /* Called to check if sort was canceled. */
-  private boolean offlineSortingCanceled() {
-    synchronized (offlineSortLock) {
-      return osc;
-    }
-  }
-
-  /** */
-  private void periodicallyUpdateCounters() {
-    // Number of events to occur before updating counters.
-    final int COUNT_UPDATE = 1000;
-    if (getEventCount() % COUNT_UPDATE == 0) {
-      updateCounters();
-      Thread.yield();
-    }
+  boolean offlineSortingCanceled() {
+    return osc;
   }
 
   /** Called to resume sort */
   private void resumeOfflineSorting() {
-    synchronized (offlineSortLock) {
-      osc = false;
-    }
+    osc = false;
   }
 
   /** Reads events from the event stream. */
@@ -280,32 +291,15 @@ public class SortDaemon extends GoodThread {
     }
   }
 
-  /**
-   * Sets the number of buffers processed.
-   *
-   * @param count the number of buffers processed
-   */
-  public void setBufferCount(final int count) {
-    synchronized (this) {
-      bufferCount = count;
-    }
+  /** Zeroes the event, sorted event and buffer counters. */
+  public void resetCounters() {
+    eventCount.reset();
+    eventSortedCount.reset();
+    bufferCount.reset();
   }
 
   private void setIsCallingSort(final boolean state) {
-    synchronized (this) {
-      callSort = state;
-    }
-  }
-
-  /**
-   * Sets the number of events processed.
-   *
-   * @param count the number of events processed
-   */
-  public void setEventCount(final int count) {
-    synchronized (this) {
-      eventCount = count;
-    }
+    callSort = state;
   }
 
   /**
@@ -318,23 +312,28 @@ public class SortDaemon extends GoodThread {
   }
 
   /**
-   * Sets the ring buffer to pull event data from.
+   * Sets where to record measurements of sorting. Must be called before this thread is started.
    *
-   * @param ringBuffer the source of event data
+   * @param metrics measurements of the acquisition pipeline
    */
-  public void setRingBuffer(final RingBuffer ringBuffer) {
-    this.ringBuffer = ringBuffer;
+  public void setMetrics(final PipelineMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  /**
+   * @return where measurements of sorting are recorded
+   */
+  PipelineMetrics getMetrics() {
+    return metrics;
   }
 
   /**
-   * Set the number of events actually sorted.
+   * Sets the ring buffer to pull event data from.
    *
-   * @param count new value
+   * @param ringBuffer the source of event data
    */
-  public void setSortedCount(final int count) {
-    synchronized (this) {
-      eventSortedCount = count;
-    }
+  public void setRingBuffer(final RingBuffer ringBuffer) {
+    this.ringBuffer = ringBuffer;
   }
 
   /**
@@ -353,9 +352,7 @@ public class SortDaemon extends GoodThread {
    * @param sample the sample interval
    */
   public void setSortInterval(final int sample) {
-    synchronized (this) {
-      sortInterval = sample;
-    }
+    sortInterval = Math.max(1, sample);
   }
 
   /**
@@ -369,7 +366,7 @@ public class SortDaemon extends GoodThread {
     setEventSize(eventSize);
     /* Set the event size for the stream. */
     eventInputStream.setEventSize(eventSize);
-    setEventCount(0);
+    resetCounters();
     setState(GoodThread.State.SUSPEND);
   }
 
@@ -379,9 +376,20 @@ public class SortDaemon extends GoodThread {
    * @param state whether writing of selected events to disk is enabled
    */
   public void setWriteEnabled(final boolean state) {
+    writeEnabled = state;
     sorter.setWriteEnabled(state);
   }
 
+  /** Updates the counters display every <code>COUNT_UPDATE</code> events sorted offline. */
+  private void periodicallyUpdateCounters() {
+    eventsToUpdate--;
+    if (eventsToUpdate <= 0) {
+      eventsToUpdate = COUNT_UPDATE;
+      updateCounters();
+      Thread.yield();
+    }
+  }
+
   /**
    * @param eventData data to sort
    * @throws Exception if an unrecoverable error occurs
@@ -392,8 +400,8 @@ public class SortDaemon extends GoodThread {
       eventInputStatus = EventInputStatus.END_RUN;
     } else if (eventInputStatus == EventInputStatus.EVENT) {
       sorter.sort(eventData);
-      incrementEventCount();
-      incrementSortedCount();
+      eventCount.increment();
+      eventSortedCount.increment();
       /*
        * Zero event array and get ready for next event.
        */
@@ -439,6 +447,12 @@ public class SortDaemon extends GoodThread {
       /* suspends this thread when we're done sorting all files */
       this.setState(GoodThread.State.SUSPEND);
       this.resumeOfflineSorting(); // after we come out of suspend
+      final int threads = getSortThreads();
+      if (threads > 1 && sorter instanceof StatelessSorter && !writeEnabled) {
+        LOGGER.info("Sorting event files with " + threads + " threads.");
+        new ParallelFileSorter(this, threads, eventInputStream, sorter)
+            .sort(offlineController.takeRemainingFiles(), offlineController);
+      }
       /* Loop for each new sort file. */
       while (!this.offlineSortingCanceled() && offlineController.openNextFile()) {
         /*
@@ -463,40 +477,130 @@ public class SortDaemon extends GoodThread {
    * @exception Exception thrown if an unrecoverable error occurs during sorting
    */
   public void sortOnline() throws Exception { // NOPMD
-    final RingInputStream ringInputStream = new RingInputStream();
-    final int[] eventData = new int[eventSize];
-    final byte[] buffer = GuiceInjector.getObjectInstance(RingBufferFactory.class).freshBuffer();
+    final int threads = getSortThreads();
+    if (threads > 1 && sorter instanceof StatelessSorter) {
+      sortOnlineParallel(threads);
+      return;
+    }
+    final EventBlock block = new EventBlock(eventSize);
+    final byte[] buffer = new byte[ringBuffer.getGeometry().getBufferSize()];
+    final HandoffRingBuffer handoffRing =
+        (ringBuffer instanceof HandoffRingBuffer) ? (HandoffRingBuffer) ringBuffer : null;
     while (true) { // loop while acquisition on
       /* Get a new buffer and make an input stream out of it. */
-      if (ringBuffer.isCloseToFull()) {
-        increaseSortInterval();
-        setIsCallingSort(false);
+      adjustSortInterval();
+      if (handoffRing == null) {
+        ringBuffer.getBuffer(buffer);
+        metrics.bufferTaken(ringBuffer.getUsedBuffers());
+        sortBuffer(buffer, block);
       } else {
-        setIsCallingSort(true);
-        if (ringBuffer.isEmpty()) {
-          decreaseSortInterval();
-        }
-      }
-      ringBuffer.getBuffer(buffer);
-      ringInputStream.setBuffer(buffer);
-      eventInputStream.setInputStream(ringInputStream);
-      /* Zero event array. */
-      Arrays.fill(eventData, 0);
-      eventInputStatus = eventInputStream.readEvent(eventData);
-      while (((eventInputStatus == EventInputStatus.EVENT)
-          || (eventInputStatus == EventInputStatus.SCALER_VALUE)
-          || (eventInputStatus == EventInputStatus.IGNORE))) {
-        if (eventInputStatus == EventInputStatus.EVENT) {
-          checkIntervalAndSortEvent(eventData);
+        final PooledBuffer pooled = handoffRing.take();
+        metrics.bufferTaken(ringBuffer.getUsedBuffers());
+        try {
+          sortBuffer(pooled.array(), block);
+        } finally {
+          pooled.release();
         }
-        // else SCALER_VALUE, assume sort stream took care and move on
-        eventInputStatus = eventInputStream.readEvent(eventData);
       }
-      handleStatusOnline();
       Thread.yield();
     } // end infinite loop
   }
 
+  private void adjustSortInterval() {
+    if (ringBuffer.isCloseToFull()) {
+      increaseSortInterval();
+      setIsCallingSort(false);
+    } else {
+      setIsCallingSort(true);
+      if (ringBuffer.isEmpty()) {
+        decreaseSortInterval();
+      }
+    }
+  }
+
+  /**
+   * Performs online sorting by handing whole buffers to worker threads, until an unrecoverable
+   * error occurs.
+   *
+   * @param threads number of worker threads
+   * @throws Exception if a worker can't be created, or stops due to an exception
+   */
+  private void sortOnlineParallel(final int threads) throws Exception { // NOPMD
+    LOGGER.info("Sorting online buffers with " + threads + " threads.");
+    final HandoffRingBuffer handoffRing =
+        (ringBuffer instanceof HandoffRingBuffer) ? (HandoffRingBuffer) ringBuffer : null;
+    workers =
+        new SortWorkers(this, threads, ringBuffer.getGeometry(), eventInputStream, sorter);
+    try {
+      while (true) { // loop while acquisition on
+        adjustSortInterval();
+        if (handoffRing == null) {
+          workers.copyAndSubmit(ringBuffer);
+          metrics.bufferTaken(ringBuffer.getUsedBuffers());
+        } else {
+          final PooledBuffer pooled = handoffRing.take();
+          metrics.bufferTaken(ringBuffer.getUsedBuffers());
+          try {
+            workers.submit(pooled);
+          } finally {
+            pooled.release();
+          }
+        }
+      } // end infinite loop
+    } finally {
+      workers.shutdown();
+    }
+  }
+
+  /**
+   * Gets the most buffers taken from the sorting ring that online sorting holds on to at once,
+   * which is more than one when sorting on several threads.
+   *
+   * @param sorter the sort routine to be used
+   * @return the number of buffers, at least 1
+   */
+  public static int getBuffersHeld(final Sorter sorter) {
+    final int threads = getSortThreads();
+    return (threads > 1 && sorter instanceof StatelessSorter)
+        ? SortWorkers.getCapacity(threads)
+        : 1;
+  }
+
+  /**
+   * Gets the number of threads to sort with, given by the <code>sort.threads</code> property.
+   * Values greater than 1 only take effect for sort routines implementing <code>StatelessSorter
+   * </code>, and offline only when events aren't being written out.
+   *
+   * @return the number of sorting threads, at least 1
+   * @see PropertyKeys#SORT_THREADS
+   */
+  public static int getSortThreads() {
+    int result = 1;
+    final String value = JamProperties.getProperties().getProperty(PropertyKeys.SORT_THREADS);
+    if (value != null) {
+      try {
+        result = Math.max(1, Integer.parseInt(value.trim()));
+      } catch (NumberFormatException nfe) {
+        LOGGER.warning("Invalid value for " + PropertyKeys.SORT_THREADS + ": " + value);
+      }
+    }
+    return result;
+  }
+
+  private void sortBuffer(final byte[] buffer, final EventBlock block) throws Exception { // NOPMD
+    /* Sampling only changes between buffers, so read it once. */
+    final boolean sampling = isCallingSortRoutine();
+    final int interval = getSortInterval();
+    final long start = System.nanoTime();
+    eventInputStatus = eventInputStream.readBlock(ByteBuffer.wrap(buffer), block);
+    final long decoded = System.nanoTime();
+    final int sorted = sampler.sort(sorter, block, sampling, interval);
+    metrics.bufferSorted(block.size(), decoded - start, sorted, System.nanoTime() - decoded);
+    addCounts(block.size(), sorted);
+    handleStatusOnline(eventInputStatus);
+  }
+
+
   /** Update the counters display. */
   private void updateCounters() {
     broadcaster.broadcast(BroadcastEvent.Command.COUNTERS_UPDATE);
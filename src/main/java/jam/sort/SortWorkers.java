@@ -0,0 +1,252 @@
+package jam.sort;
+
+import jam.data.EventBlock;
+import jam.data.HistogramShards;
+import jam.data.Monitor;
+import jam.data.Sorter;
+import jam.sort.stream.AbstractEventInputStream;
+import jam.sort.stream.AbstractEventInputStream.EventInputStatus;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A pool of threads which sort whole online buffers in parallel for <code>SortDaemon</code>. The
+ * daemon's thread remains the only consumer of the sorting ring, and passes each buffer on to the
+ * next free worker. Each worker decodes with its own instance of the event stream class, and counts
+ * into its own <code>HistogramShards</code>, which it flushes into the visible histograms once per
+ * monitor update interval, and whenever it runs out of buffers to sort.
+ *
+ * @author Dale Visser
+ * @see StatelessSorter
+ */
+final class SortWorkers {
+
+  private static final Logger LOGGER = Logger.getLogger(SortWorkers.class.getPackage().getName());
+
+  /** How long a worker waits for a buffer before flushing its shards anyway. */
+  private static final long IDLE_MILLIS = 100L;
+
+  /** Buffers queued for the workers, per worker. */
+  private static final int QUEUED_PER_THREAD = 2;
+
+  private final transient SortDaemon daemon;
+
+  private final transient Sorter sorter;
+
+  private final transient BlockingQueue<PooledBuffer> queue;
+
+  /** buffers for the copying rings, since their contents must be copied out of the ring */
+  private final transient BufferPool copies;
+
+  private final transient List<Thread> threads = new ArrayList<>();
+
+  /** buffers handed to the workers whose counts aren't in the visible histograms yet */
+  private final transient AtomicInteger unmerged = new AtomicInteger();
+
+  private transient volatile Exception failure;
+
+  private transient volatile boolean stopped;
+
+  /**
+   * Creates and starts the given number of workers.
+   *
+   * @param daemon the daemon to report counts back to
+   * @param threads number of worker threads
+   * @param geometry the geometry of the ring buffers will arrive from
+   * @param stream template for the workers' event streams
+   * @param sorter the sort routine, which must be safe for concurrent use
+   * @throws SortException if the event stream can't be instantiated
+   */
+  SortWorkers(
+      final SortDaemon daemon,
+      final int threads,
+      final RingGeometry geometry,
+      final AbstractEventInputStream stream,
+      final Sorter sorter)
+      throws SortException {
+    super();
+    this.daemon = daemon;
+    this.sorter = sorter;
+    queue = new ArrayBlockingQueue<>(QUEUED_PER_THREAD * threads);
+    copies = new BufferPool(getCapacity(threads), geometry);
+    for (int i = 0; i < threads; i++) {
+      final Thread thread = new Thread(new Worker(newStream(stream)), "Sort Worker " + (i + 1));
+      thread.setPriority(ThreadPriorities.SORT);
+      thread.setDaemon(true);
+      this.threads.add(thread);
+    }
+    for (Thread thread : this.threads) {
+      thread.start();
+    }
+  }
+
+  /**
+   * Gets the most buffers the given number of workers hold on to at once.
+   *
+   * @param threads number of worker threads
+   * @return every queue slot, one for each worker and one for the dispatcher
+   */
+  static int getCapacity(final int threads) {
+    return QUEUED_PER_THREAD * threads + threads + 1;
+  }
+
+  /**
+   * Creates a new event stream of the same class and settings as the given one, so that each
+   * thread can decode independently.
+   *
+   * @param template the stream to copy
+   * @return a new event stream
+   * @throws SortException if the event stream can't be instantiated
+   */
+  static AbstractEventInputStream newStream(final AbstractEventInputStream template)
+      throws SortException {
+    try {
+      final AbstractEventInputStream result =
+          template.getClass().getDeclaredConstructor().newInstance();
+      result.setConsoleExists(true);
+      result.setBufferSize(template.getBufferSize());
+      result.setEventSize(template.getEventSize());
+      return result;
+    } catch (InstantiationException
+        | IllegalAccessException
+        | InvocationTargetException
+        | NoSuchMethodException e) {
+      throw new SortException("Couldn't create event stream for sort worker.", e);
+    }
+  }
+
+  /**
+   * Copies the next buffer out of a copying ring and queues it for sorting, blocking while all
+   * workers are busy.
+   *
+   * @param ring the sorting ring
+   * @throws InterruptedException if interrupted while waiting
+   * @throws SortException if a worker has failed
+   * @throws IllegalStateException if every copy is still held, which the capacity should prevent
+   */
+  void copyAndSubmit(final RingBuffer ring) throws InterruptedException, SortException {
+    final PooledBuffer buffer = copies.tryAcquire();
+    if (buffer == null) {
+      throw new IllegalStateException(
+          "All " + copies.getCapacity() + " buffers for copying into are still being sorted.");
+    }
+    try {
+      ring.getBuffer(buffer.array());
+    } catch (InterruptedException ie) {
+      buffer.release();
+      throw ie;
+    }
+    submit(buffer);
+    buffer.release();
+  }
+
+  /**
+   * Queues a buffer for sorting, blocking while all workers are busy. A reference is retained until
+   * the buffer is sorted.
+   *
+   * @param buffer to sort
+   * @throws InterruptedException if interrupted while waiting
+   * @throws SortException if a worker has failed
+   */
+  void submit(final PooledBuffer buffer) throws InterruptedException, SortException {
+    if (failure != null) {
+      throw new SortException("Sort worker stopped due to exception.", failure);
+    }
+    buffer.retain();
+    unmerged.incrementAndGet();
+    queue.put(buffer);
+  }
+
+  /**
+   * @return whether every queued buffer has been sorted and merged into the visible histograms
+   */
+  boolean caughtUp() {
+    return unmerged.get() == 0;
+  }
+
+  /** Stops the workers. Buffers still queued are discarded without being sorted. */
+  void shutdown() {
+    stopped = true;
+    for (Thread thread : threads) {
+      thread.interrupt();
+    }
+    final List<PooledBuffer> discarded = new ArrayList<>();
+    queue.drainTo(discarded);
+    for (PooledBuffer buffer : discarded) {
+      buffer.release();
+    }
+    unmerged.addAndGet(-discarded.size());
+  }
+
+  private final class Worker implements Runnable {
+
+    private final transient AbstractEventInputStream stream;
+
+    private final transient EventBlock block;
+
+    private final transient BlockSampler sampler = new BlockSampler();
+
+    Worker(final AbstractEventInputStream stream) {
+      this.stream = stream;
+      block = new EventBlock(stream.getEventSize());
+    }
+
+    public void run() {
+      final HistogramShards shards = HistogramShards.attach();
+      int buffersSinceFlush = 0;
+      long lastFlush = System.nanoTime();
+      try {
+        while (!stopped) {
+          final PooledBuffer buffer = queue.poll(IDLE_MILLIS, TimeUnit.MILLISECONDS);
+          if (buffer != null) {
+            buffersSinceFlush++;
+            try {
+              sortBuffer(buffer.array());
+            } finally {
+              buffer.release();
+            }
+          }
+          final long flushNanos = TimeUnit.SECONDS.toNanos(Math.max(1, Monitor.getInterval()));
+          if (buffersSinceFlush > 0
+              && (buffer == null || System.nanoTime() - lastFlush >= flushNanos)) {
+            shards.flush();
+            unmerged.addAndGet(-buffersSinceFlush);
+            buffersSinceFlush = 0;
+            lastFlush = System.nanoTime();
+          }
+        }
+      } catch (InterruptedException ie) {
+        LOGGER.fine(Thread.currentThread().getName() + " interrupted.");
+      } catch (Exception e) { // NOPMD
+        failure = e;
+        LOGGER.log(Level.SEVERE, "Sort worker stopped due to exception.", e);
+      } finally {
+        shards.detach();
+        unmerged.addAndGet(-buffersSinceFlush);
+      }
+    }
+
+    private void sortBuffer(final byte[] buffer) throws Exception { // NOPMD
+      /* Sampling only changes between buffers, so read it once. */
+      final boolean sampling = daemon.isCallingSortRoutine();
+      final int interval = daemon.getSortInterval();
+      final long start = System.nanoTime();
+      final EventInputStatus status = stream.readBlock(ByteBuffer.wrap(buffer), block);
+      final long decoded = System.nanoTime();
+      final int sorted = sampler.sort(sorter, block, sampling, interval);
+      daemon
+          .getMetrics()
+          .bufferSorted(block.size(), decoded - start, sorted, System.nanoTime() - decoded);
+      daemon.addCounts(block.size(), sorted);
+      daemon.handleStatusOnline(status);
+    }
+  }
+}
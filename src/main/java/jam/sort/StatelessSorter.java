@@ -0,0 +1,20 @@
+package jam.sort;
+
+/**
+ * Marker interface for sort routines whose <code>sort(int[])</code> keeps no state from one event to
+ * the next, other than incrementing histograms, and so may be called from several threads at once.
+ * Online sorting only spreads buffers over more than one thread, as set by the <code>sort.threads
+ * </code> property, when the sort routine implements this interface. Each thread then counts into
+ * its own private copies of the integer histograms, which are merged into the visible histograms at
+ * each monitor update interval.
+ *
+ * <p>Gates, scalers and any fields of the sort routine are still shared, so <code>sort()</code>
+ * must only read them. The event stream must also be able to decode each buffer on its own.
+ *
+ * @author Dale Visser
+ * @see jam.data.HistogramShards
+ * @see jam.global.PropertyKeys#SORT_THREADS
+ */
+public interface StatelessSorter {
+  // marker interface
+}
@@ -43,8 +43,20 @@ public final class ThreadPriorities {
    */
   public static final int STORAGE = 6;
 
+  /**
+   * Priority value for <code>jam.plot.PlotRenderer</code>, which draws plots for the GUI, and so
+   * should keep up while sorting.
+   */
+  public static final int RENDER = 4;
+
   /**
    * Priority value for <code>jam.sort.SortDaemon</code>, which qualifies as background computation.
    */
   public static final int SORT = 3;
+
+  /**
+   * Priority value for <code>jam.io.hdf.HDFAutosave</code>, which should yield to sorting whenever
+   * both are ready to run.
+   */
+  public static final int AUTOSAVE = 2;
 }
@@ -7,6 +7,8 @@ import jam.global.Broadcaster;
 import jam.global.JamStatus;
 import jam.sort.AbstractStorageDaemon;
 import jam.sort.NetDaemon;
+import jam.sort.PipelineMetrics;
+import jam.sort.SortCounters;
 import jam.sort.SortDaemon;
 import java.awt.BorderLayout;
 import java.awt.Container;
@@ -15,6 +17,7 @@ import java.awt.Frame;
 import java.awt.GridLayout;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
+import java.util.Locale;
 import javax.swing.JButton;
 import javax.swing.JDialog;
 import javax.swing.JPanel;
@@ -22,7 +25,8 @@ import javax.swing.border.EmptyBorder;
 
 /**
  * Displays buffer counters of sort threads. Gives the number of buffers and events received and
- * sorted.
+ * sorted. Online, also shows the averages measured by <code>PipelineMetrics</code> since the
+ * counters were last cleared.
  *
  * @author Ken Swartz
  * @version 05 newest done 9-98
@@ -56,15 +60,34 @@ public final class DisplayCounters extends JDialog implements PropertyChangeList
 
   private final transient CounterPanel pSortSample = new CounterPanel("Current sampling fraction");
 
+  private final transient CounterPanel pPacketRate = new CounterPanel("Packets per second");
+
+  private final transient CounterPanel pLost = new CounterPanel("Buffers lost, sort/store");
+
+  private final transient CounterPanel pRingFill = new CounterPanel("Mean ring fill (%)");
+
+  private final transient CounterPanel pLatency = new CounterPanel("Ring wait, mean/max (ms)");
+
+  private final transient CounterPanel pDecodeRate = new CounterPanel("Events decoded per second");
+
+  private final transient CounterPanel pSortTime =
+      new CounterPanel("Sort time per event (\u03bcs)");
+
+  private final transient PipelineMetrics metrics;
+
   private transient SortDaemon sortDaemon;
 
   private transient AbstractStorageDaemon storeDaemon;
 
   @Inject
   private DisplayCounters(
-      final JamStatus status, final Frame frame, final Broadcaster broadcaster) {
+      final JamStatus status,
+      final Frame frame,
+      final Broadcaster broadcaster,
+      final PipelineMetrics metrics) {
     super(frame, "Buffer Counters", false);
     this.status = status;
+    this.metrics = metrics;
     final int xpos = 20;
     final int ypos = 50;
     final int maingap = 10;
@@ -98,13 +121,9 @@ public final class DisplayCounters extends JDialog implements PropertyChangeList
           if (status.getSortMode().isOnline()) {
             broadcaster.broadcast(BroadcastEvent.Command.COUNTERS_ZERO);
             pBuffSort.setText(space);
-            sortDaemon.setBufferCount(0);
-            pBuffSort.setText(String.valueOf(sortDaemon.getBufferCount()));
             pEvntSent.setText(space);
-            sortDaemon.setEventCount(0);
-            sortDaemon.setSortedCount(0);
-            pEvntRecv.setText(String.valueOf(sortDaemon.getEventCount()));
-            pEvntSort.setText(String.valueOf(sortDaemon.getSortedCount()));
+            sortDaemon.resetCounters();
+            showSortCounters(sortDaemon.getCounters());
             pBuffSent.setText(space); // value update method
             pEvntSent.setText(space); // value update method
             pBuffRecv.setText(space);
@@ -114,16 +133,15 @@ public final class DisplayCounters extends JDialog implements PropertyChangeList
             storeDaemon.setBufferCount(0);
             pBuffWrit.setText(String.valueOf(storeDaemon.getBufferCount()));
             pSortSample.setText(space);
+            metrics.reset();
+            showPipeline();
             broadcaster.broadcast(BroadcastEvent.Command.COUNTERS_READ);
 
           } else { // offline
             pBuffSort.setText(space);
-            sortDaemon.setBufferCount(0);
-            pBuffSort.setText(String.valueOf(sortDaemon.getBufferCount()));
             pEvntSent.setText(space);
-            sortDaemon.setEventCount(0);
-            sortDaemon.setSortedCount(0);
-            pEvntSort.setText(String.valueOf(sortDaemon.getEventCount()));
+            sortDaemon.resetCounters();
+            showSortCounters(sortDaemon.getCounters());
             pFileRead.setText(space);
             storeDaemon.setFileCount(0);
             pFileRead.setText(String.valueOf(storeDaemon.getFileCount()));
@@ -139,14 +157,11 @@ public final class DisplayCounters extends JDialog implements PropertyChangeList
           if (status.getSortMode().isOnline()) {
             broadcaster.broadcast(BroadcastEvent.Command.COUNTERS_READ);
             pBuffRecv.setText(String.valueOf(netDaemon.getPacketCount()));
-            pBuffSort.setText(String.valueOf(sortDaemon.getBufferCount()));
             pBuffWrit.setText(String.valueOf(storeDaemon.getBufferCount()));
-            pEvntRecv.setText(String.valueOf(sortDaemon.getEventCount()));
-            pEvntSort.setText(String.valueOf(sortDaemon.getSortedCount()));
-            updateSample();
+            showSortCounters(sortDaemon.getCounters());
+            showPipeline();
           } else { // offline
-            pEvntSort.setText(String.valueOf(sortDaemon.getSortedCount()));
-            pBuffSort.setText(String.valueOf(sortDaemon.getBufferCount()));
+            showSortCounters(sortDaemon.getCounters());
             pFileRead.setText(String.valueOf(storeDaemon.getFileCount()));
           }
         });
@@ -195,6 +210,12 @@ public final class DisplayCounters extends JDialog implements PropertyChangeList
     pCenter.add(pEvntRecv);
     pCenter.add(pEvntSort);
     pCenter.add(pSortSample);
+    pCenter.add(pPacketRate);
+    pCenter.add(pLost);
+    pCenter.add(pRingFill);
+    pCenter.add(pLatency);
+    pCenter.add(pDecodeRate);
+    pCenter.add(pSortTime);
     pack();
   }
 
@@ -211,22 +232,39 @@ public final class DisplayCounters extends JDialog implements PropertyChangeList
         pBuffSent.setText(String.valueOf(vmeCounters[iBufferCt]));
         pEvntSent.setText(String.valueOf(vmeCounters[iEventCount]));
         updateSample();
+        showPipeline();
       } else {
         /* update fields used in OFFLINE mode */
-        pBuffSort.setText(String.valueOf(sortDaemon.getBufferCount()));
-        pEvntSort.setText(String.valueOf(sortDaemon.getSortedCount()));
+        showSortCounters(sortDaemon.getCounters());
         pFileRead.setText(String.valueOf(storeDaemon.getFileCount()));
       }
     }
   }
 
+  /* Shows the sorting counters, all from one snapshot. */
+  private void showSortCounters(final SortCounters counters) {
+    pBuffSort.setText(String.valueOf(counters.getBuffers()));
+    pEvntRecv.setText(String.valueOf(counters.getEvents()));
+    pEvntSort.setText(String.valueOf(counters.getSortedEvents()));
+    pSortSample.setText(counters.getSampleText());
+  }
+
+  /* Shows the pipeline measurements. */
+  private void showPipeline() {
+    pPacketRate.setText(format("%.0f", metrics.getPacketRate()));
+    pLost.setText(metrics.getSortBuffersLost() + "/" + metrics.getStorageBuffersLost());
+    pRingFill.setText(format("%.1f", 100.0 * metrics.getMeanRingFill()));
+    pLatency.setText(
+        format("%.1f/%.1f", metrics.getMeanLatencyMillis(), metrics.getMaxLatencyMillis()));
+    pDecodeRate.setText(format("%.0f", metrics.getDecodeRate()));
+    pSortTime.setText(format("%.2f", metrics.getSortMicrosPerEvent()));
+  }
+
+  private static String format(final String format, final Object... values) {
+    return String.format(Locale.US, format, values);
+  }
+
   private void updateSample() {
-    final int sample = sortDaemon.getSortInterval();
-    final StringBuilder buffer = new StringBuilder();
-    if (sample > 1) {
-      buffer.append("1/");
-    }
-    buffer.append(sample);
-    pSortSample.setText(buffer.toString());
+    pSortSample.setText(sortDaemon.getCounters().getSampleText());
   }
 }
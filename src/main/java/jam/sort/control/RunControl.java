@@ -333,6 +333,7 @@ public final class RunControl extends JDialog implements Controller, RunControll
     diskDaemon.resetReachedRunEnd();
     netDaemon.setState(State.SUSPEND);
     sortDaemon.userEnd();
+    LOGGER.info("Run " + RunInfo.getInstance().runNumber + ": " + sortDaemon.getCounters());
     // histogram file name constructed using run name and number
     final String histFileName =
         RunInfo.getInstance().experimentName + RunInfo.getInstance().runNumber + ".hdf";
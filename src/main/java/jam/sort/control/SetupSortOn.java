@@ -83,6 +83,8 @@ public final class SetupSortOn extends AbstractSetup {
 
   private final transient RingBufferFactory ringFactory;
 
+  private final transient PipelineMetrics metrics;
+
   @Inject
   private SetupSortOn(
       final ConsoleLog console,
@@ -92,9 +94,12 @@ public final class SetupSortOn extends AbstractSetup {
       final FrontEndCommunication frontEnd,
       final ScalerCommunication scaler,
       final Broadcaster broadcaster,
-      final RingBufferFactory ringFactory) {
+      final RingBufferFactory ringFactory,
+      final PipelineMetrics metrics) {
     super("Setup Online", broadcaster);
     this.ringFactory = ringFactory;
+    this.metrics = metrics;
+    metrics.register();
     this.frontEnd = frontEnd;
     this.scaler = scaler;
     initCheckLock();
@@ -501,11 +506,23 @@ public final class SetupSortOn extends AbstractSetup {
     final boolean useDisk = cdisk.isSelected();
     sortDaemon.setup(inStream, sortRoutine.getEventSize());
     /* interprocess buffering between daemons */
-    final RingBuffer sortingRing = this.ringFactory.create();
+    final RingBuffer sortingRing;
+    final RingBuffer storageRing;
+    if (this.ringFactory.isHandoffEnabled()) {
+      /* both rings share one pool of buffers, passed by reference */
+      final int held = SortDaemon.getBuffersHeld(sortRoutine) + 1; // one for storage
+      final BufferPool pool = BufferPool.forRings(2, this.ringFactory.getGeometry(), held);
+      sortingRing = this.ringFactory.create(false, pool);
+      storageRing = this.ringFactory.create(!useDisk, pool);
+    } else {
+      sortingRing = this.ringFactory.create();
+      // if disk not selected than storage ring is made in "null/empty" state
+      storageRing = this.ringFactory.create(!useDisk);
+    }
+    metrics.start(this.ringFactory.getGeometry());
     sortDaemon.setRingBuffer(sortingRing);
     sortDaemon.setSorter(sortRoutine);
-    // if disk not selected than storage ring is made in "null/empty" state
-    final RingBuffer storageRing = this.ringFactory.create(!cdisk.isSelected());
+    sortDaemon.setMetrics(metrics);
     // create storage daemon
     if (cdisk.isSelected()) { // don't create storage daemon otherwise
       diskDaemon = new DiskDaemon(runControl);
@@ -516,6 +533,7 @@ public final class SetupSortOn extends AbstractSetup {
     final String hostDataIP = JamProperties.getPropString(PropertyKeys.HOST_DATA_IP);
     final int hostDataPort = JamProperties.getPropInt(PropertyKeys.HOST_DATA_P_RECV);
     netDaemon = new NetDaemon(sortingRing, storageRing, hostDataIP, hostDataPort);
+    netDaemon.setMetrics(metrics);
 
     /* Tell control about everything. */
     final String exptName = textExpName.getText().trim();
@@ -25,6 +25,7 @@ import java.awt.GridLayout;
 import java.awt.event.ActionEvent;
 import java.io.BufferedReader;
 import java.io.File;
+import java.util.List;
 import java.util.logging.Logger;
 import javax.swing.AbstractAction;
 import javax.swing.Action;
@@ -258,7 +259,7 @@ public final class SortControl extends javax.swing.JDialog implements OfflineCon
   /**
    * @return the number of events that have been sorted
    */
-  public int getEventsSorted() {
+  public long getEventsSorted() {
     return this.sortDaemon.getSortedCount();
   }
 
@@ -280,6 +281,17 @@ public final class SortControl extends javax.swing.JDialog implements OfflineCon
     return sortNext;
   }
 
+  public List<File> takeRemainingFiles() {
+    return inputDaemon.takeRemainingFiles();
+  }
+
+  public void atFileSorted(final File file) {
+    synchronized (this) {
+      inputDaemon.setFileCount(inputDaemon.getFileCount() + 1);
+    }
+    LOGGER.info("Sorted file: " + file.getPath());
+  }
+
   /**
    * Scripting. Reads a list of event files from a text file.
    *
@@ -1,9 +1,12 @@
 package jam.sort.stream;
 
+import jam.data.EventBlock;
 import jam.global.RunInfo;
 import java.io.DataInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.swing.*;
@@ -70,6 +73,9 @@ public abstract class AbstractEventInputStream {
   /** Stream events are read from */
   protected transient DataInputStream dataInput;
 
+  /** The same input as <code>dataInput</code>, if it is a memory-mapped file, else null. */
+  protected transient MappedEventFile mappedInput;
+
   /** */
   protected transient int eventCount;
 
@@ -100,6 +106,15 @@ public abstract class AbstractEventInputStream {
   /** */
   protected int numberEvents;
 
+  /** Event filled by the default <code>readBlock()</code>, reused from block to block. */
+  private transient int[] scratchEvent = new int[0];
+
+  /** Input reset to each buffer given to <code>readBlock(ByteBuffer, EventBlock)</code>. */
+  private final transient ByteBufferInputStream bufferInput = new ByteBufferInputStream();
+
+  /** Reads <code>bufferInput</code>, becoming <code>dataInput</code> while decoding a buffer. */
+  private final transient DataInputStream bufferData = new DataInputStream(bufferInput);
+
   /**
    * Make sure to issue a setConsole() after using this constructor It is here to satisfy the
    * requirements of Class.newInstance()
@@ -194,7 +209,27 @@ public abstract class AbstractEventInputStream {
    * @see #setInputStream
    */
   public short readDataWord() throws IOException {
-    return dataInput.readShort();
+    return nextShort();
+  }
+
+  /**
+   * Reads the next <code>short</code> from the input, straight from memory if it is a mapped file.
+   *
+   * @return a <code>short</code> read from the input stream
+   * @exception IOException thrown if ther's a problem reading from the stream
+   */
+  protected final short nextShort() throws IOException {
+    return mappedInput == null ? dataInput.readShort() : mappedInput.readShort();
+  }
+
+  /**
+   * Reads the next <code>int</code> from the input, straight from memory if it is a mapped file.
+   *
+   * @return an <code>int</code> read from the input stream
+   * @exception IOException thrown if ther's a problem reading from the stream
+   */
+  protected final int nextInt() throws IOException {
+    return mappedInput == null ? dataInput.readInt() : mappedInput.readInt();
   }
 
   /**
@@ -215,6 +250,55 @@ public abstract class AbstractEventInputStream {
    */
   public abstract EventInputStatus readEvent(int[] event) throws EventException;
 
+  /**
+   * Reads events into the given block until something other than an event, a scaler value or an
+   * ignorable word is read, usually the end of a buffer, and returns that status. By default, this
+   * calls <code>readEvent()</code> repeatedly. Streams may override it to decode more directly.
+   *
+   * @param block emptied, then filled with the events read
+   * @return the status which ended the block
+   * @exception EventException thrown if an error condition cannot be handled
+   * @see #readEvent(int[])
+   */
+  public EventInputStatus readBlock(final EventBlock block) throws EventException {
+    block.clear();
+    if (scratchEvent.length != eventSize) {
+      scratchEvent = new int[eventSize];
+    }
+    final int[] event = scratchEvent;
+    Arrays.fill(event, 0);
+    EventInputStatus result = readEvent(event);
+    while (result == EventInputStatus.EVENT
+        || result == EventInputStatus.SCALER_VALUE
+        || result == EventInputStatus.IGNORE) {
+      if (result == EventInputStatus.EVENT) {
+        block.addEvent(event, eventSize);
+        Arrays.fill(event, 0);
+      }
+      result = readEvent(event);
+    }
+    return result;
+  }
+
+  /**
+   * Decodes events from a buffer held in memory, starting at its current position, as for <code>
+   * readBlock(EventBlock)</code>. The buffer's position is left after the last word read. By
+   * default, the buffer becomes this stream's input. Streams able to decode straight from the
+   * buffer override this, and need not leave it set as their input.
+   *
+   * @param buffer data to decode, in big-endian order
+   * @param block emptied, then filled with the events read
+   * @return the status which ended the block
+   * @exception EventException thrown if an error condition cannot be handled
+   */
+  public EventInputStatus readBlock(final ByteBuffer buffer, final EventBlock block)
+      throws EventException {
+    bufferInput.reset(buffer);
+    dataInput = bufferData;
+    mappedInput = null; // NOPMD
+    return readBlock(block);
+  }
+
   /**
    * Reads a header and return a status flag.
    *
@@ -256,12 +340,43 @@ public abstract class AbstractEventInputStream {
   }
 
   /**
-   * Sets the input stream which will be used as the source of events (and headers).
+   * Sets the input stream which will be used as the source of events (and headers). If it is a
+   * <code>MappedEventFile</code>, streams using <code>nextShort()</code> and <code>nextInt()</code>
+   * decode straight from the mapped memory.
    *
    * @param inputStream source of event data
    */
   public void setInputStream(final InputStream inputStream) {
     dataInput = new DataInputStream(inputStream);
+    mappedInput =
+        (inputStream instanceof MappedEventFile) ? (MappedEventFile) inputStream : null;
+  }
+
+  /** Reads from a <code>ByteBuffer</code>, advancing its position. */
+  private static final class ByteBufferInputStream extends InputStream {
+
+    private transient ByteBuffer buffer = ByteBuffer.allocate(0);
+
+    void reset(final ByteBuffer next) {
+      buffer = next;
+    }
+
+    @Override
+    public int read() {
+      return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+    }
+
+    @Override
+    public int read(final byte[] out, final int off, final int len) {
+      int rval = -1;
+      if (len == 0) {
+        rval = 0;
+      } else if (buffer.hasRemaining()) {
+        rval = Math.min(len, buffer.remaining());
+        buffer.get(out, off, rval);
+      }
+      return rval;
+    }
   }
 
   /**
@@ -1,7 +1,9 @@
 package jam.sort.stream;
 
+import jam.data.EventBlock;
 import java.io.EOFException;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.logging.Level;
@@ -30,6 +32,9 @@ public final class Kmax6InputStream extends AbstractEventInputStream {
 
   private transient boolean newBlock = true; // NOPMD
 
+  /** reused to read whole blocks at once in <code>readBlock()</code> */
+  private transient byte[] blockBytes = new byte[0];
+
   /** Default constructor. */
   public Kmax6InputStream() {
     super();
@@ -76,8 +81,8 @@ public final class Kmax6InputStream extends AbstractEventInputStream {
   private boolean readBlockHeader() throws EventException {
     boolean rval;
     try {
-      blockEventType = dataInput.readInt();
-      blockNumEvnt = dataInput.readInt();
+      blockEventType = nextInt();
+      blockNumEvnt = nextInt();
       rval = true;
     } catch (EOFException eof) {
       rval = false;
@@ -120,7 +125,7 @@ public final class Kmax6InputStream extends AbstractEventInputStream {
         } else if (blockEventType < 5) {
           final short size = eventsze.get(blockEventType - 1);
           for (int parameter = 0; parameter < size; parameter++) {
-            dataInput.readInt(); // header padding
+            nextInt(); // header padding
           }
           eventInputStatus = EventInputStatus.ERROR;
         } else {
@@ -138,11 +143,61 @@ public final class Kmax6InputStream extends AbstractEventInputStream {
     }
   }
 
+  /**
+   * Reads one whole Kmax block with a single read, then decodes its events from memory. Blocks of
+   * event types other than 5 are skipped. Returns <code>END_BUFFER</code> at the end of the block,
+   * or <code>END_FILE</code>.
+   *
+   * @param block emptied, then filled with the events read
+   * @exception EventException thrown for errors in the event stream
+   * @return status resulting after read attempt
+   */
+  @Override
+  public EventInputStatus readBlock(final EventBlock block) throws EventException {
+    synchronized (this) {
+      block.clear();
+      newBlock = true;
+      EventInputStatus rval = EventInputStatus.END_FILE;
+      if (readBlockHeader()) {
+        if (blockEventType < 1 || blockEventType > 5) {
+          throw new EventException(
+              getClass().getName() + ": Block Event Type out of range: " + blockEventType);
+        }
+        final int size = eventsze.get(blockEventType - 1);
+        final int length = blockNumEvnt * size * Integer.BYTES;
+        if (blockBytes.length < length) {
+          blockBytes = new byte[length];
+        }
+        try {
+          dataInput.readFully(blockBytes, 0, length);
+          if (blockEventType == 5) {
+            decodeTypeFiveBlock(ByteBuffer.wrap(blockBytes, 0, length), size, block);
+          }
+          rval = EventInputStatus.END_BUFFER;
+        } catch (EOFException e) {
+          LOGGER.warning(getClass().getName() + ": End of file reached in middle of block.");
+        } catch (IOException ioe) {
+          throw new EventException("Reading block," + ioe.getMessage() + " [KmaxInputStream]", ioe);
+        }
+      }
+      return rval;
+    }
+  }
+
+  private void decodeTypeFiveBlock(final ByteBuffer bytes, final int size, final EventBlock block) {
+    for (int event = 0; event < blockNumEvnt; event++) {
+      for (int parameter = 0; parameter < size; parameter++) {
+        block.add(parameter, bytes.getInt());
+      }
+      block.endEvent();
+    }
+  }
+
   private void readTypeFiveParams(int[] input) throws IOException {
     final short size = eventsze.get(4);
     for (int parameter = 0; parameter < size; parameter++) {
       // read parameter word
-      input[parameter] = dataInput.readInt();
+      input[parameter] = nextInt();
     }
   }
 
@@ -164,11 +219,11 @@ public final class Kmax6InputStream extends AbstractEventInputStream {
     try {
       final byte[] headerStart = new byte[354]; // KMax Header
       dataInput.readFully(headerStart); // Header to be ignored
-      eventsze.add(0, dataInput.readShort());
-      eventsze.add(1, dataInput.readShort());
-      eventsze.add(2, dataInput.readShort());
-      eventsze.add(3, dataInput.readShort());
-      eventsze.add(4, dataInput.readShort());
+      eventsze.add(0, nextShort());
+      eventsze.add(1, nextShort());
+      eventsze.add(2, nextShort());
+      eventsze.add(3, nextShort());
+      eventsze.add(4, nextShort());
       final byte[] junk = new byte[54];
       dataInput.readFully(junk);
       final int paramsPerEvent = eventsze.get(4); // SRQ event size is
@@ -2,7 +2,10 @@ package jam.sort.stream;
 
 import static jam.sort.stream.L002Parameters.*;
 
+import jam.data.EventBlock;
 import java.io.EOFException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
 
 /**
  * This class knows how to handle Oak Ridge tape format. It extends <code>EventInputStream</code>,
@@ -56,16 +59,16 @@ public class L002InputStream extends AbstractL002HeaderReader {
   public EventInputStatus readEvent(int[] input) throws EventException {
     synchronized (this) {
       try {
-        while (isParameter(dataInput.readShort())) {
+        while (isParameter(nextShort())) {
           // could be event or scaler parameter
           if (status == EventInputStatus.PARTIAL_EVENT) {
-            final short possibleData = dataInput.readShort();
+            final short possibleData = nextShort();
             if (parameter < eventSize) {
               // within array bounds
               input[parameter] = possibleData;
             }
           } else if (status == EventInputStatus.SCALER_VALUE) {
-            dataInput.readInt(); // throw away scaler value
+            nextInt(); // throw away scaler value
           }
         }
       } catch (EOFException eofe) {
@@ -77,6 +80,42 @@ public class L002InputStream extends AbstractL002HeaderReader {
     }
   }
 
+  /**
+   * Decodes events straight from the buffer, taking this stream's lock once for the whole buffer
+   * instead of once per event.
+   *
+   * @exception EventException thrown for errors in the event stream
+   */
+  @Override
+  public EventInputStatus readBlock(final ByteBuffer buffer, final EventBlock block)
+      throws EventException {
+    synchronized (this) {
+      block.clear();
+      try {
+        boolean inBlock = true;
+        while (inBlock) {
+          if (isParameter(buffer.getShort())) {
+            // could be event or scaler parameter
+            if (status == EventInputStatus.PARTIAL_EVENT) {
+              block.add(parameter, buffer.getShort());
+            } else if (status == EventInputStatus.SCALER_VALUE) {
+              buffer.getInt(); // throw away scaler value
+            }
+          } else if (status == EventInputStatus.EVENT) {
+            block.endEvent();
+          } else {
+            inBlock = false;
+          }
+        }
+      } catch (BufferUnderflowException bue) {
+        handleEndOfFileException();
+      } catch (Exception e) {
+        handleGeneralException(e);
+      }
+      return status;
+    }
+  }
+
   /*
    * non-javadoc: Read an event parameter.
    */
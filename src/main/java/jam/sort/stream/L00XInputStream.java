@@ -58,21 +58,21 @@ public class L00XInputStream extends AbstractL002HeaderReader {
     synchronized (this) {
       boolean gotParameter = false;
       try {
-        while (isParameter(dataInput.readShort())) { // could be event or
+        while (isParameter(nextShort())) { // could be event or
           // scaler parameter
           gotParameter = true;
           if (status == EventInputStatus.PARTIAL_EVENT) {
             if (parameter >= eventSize) { // skip, since array
               // index would be too
               // great for event array
-              dataInput.readShort();
+              nextShort();
             } else { // read into array
-              input[parameter] = dataInput.readShort(); // read
+              input[parameter] = nextShort(); // read
               // event
               // word
             }
           } else if (status == EventInputStatus.SCALER_VALUE) {
-            dataInput.readInt(); // throw away scaler value
+            nextInt(); // throw away scaler value
           }
         }
       } catch (EOFException eofe) { // we got to the end of a file or
@@ -0,0 +1,183 @@
+package jam.sort.stream;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * An event file read through memory-mapped windows, instead of being copied through a buffered
+ * stream. Each window maps <code>WINDOW_SIZE</code> bytes of the file, and the next is mapped when
+ * a read runs past its end, so files of any length may be read.
+ *
+ * <p>This is an <code>InputStream</code>, so that any event stream may read headers and events from
+ * it. When given one as input, <code>AbstractEventInputStream</code> also keeps a direct reference,
+ * so that streams may decode words straight from the mapped memory with <code>readShort()</code>
+ * and <code>readInt()</code>, which are big-endian like <code>DataInputStream</code>.
+ *
+ * @author Dale Visser
+ * @see AbstractEventInputStream#setInputStream(InputStream)
+ */
+public final class MappedEventFile extends InputStream {
+
+  /** Number of bytes mapped at a time. */
+  public static final int WINDOW_SIZE = 1 << 26;
+
+  private final transient FileChannel channel;
+
+  private final transient long length;
+
+  private final transient int windowSize;
+
+  /** file position of the start of the current window */
+  private transient long windowStart;
+
+  private transient MappedByteBuffer window;
+
+  /**
+   * Opens and maps the start of the given file.
+   *
+   * @param file to read
+   * @throws IOException if the file can't be opened or mapped
+   */
+  public MappedEventFile(final File file) throws IOException {
+    this(file, WINDOW_SIZE);
+  }
+
+  /**
+   * Opens and maps the start of the given file, with the given window size.
+   *
+   * @param file to read
+   * @param windowSize number of bytes to map at a time
+   * @throws IOException if the file can't be opened or mapped
+   */
+  public MappedEventFile(final File file, final int windowSize) throws IOException {
+    super();
+    if (windowSize < Long.BYTES) {
+      throw new IllegalArgumentException("Window size too small: " + windowSize);
+    }
+    this.windowSize = windowSize;
+    channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+    try {
+      length = channel.size();
+      map(0L);
+    } catch (IOException ioe) {
+      channel.close();
+      throw ioe;
+    }
+  }
+
+  private void map(final long start) throws IOException {
+    windowStart = start;
+    final long size = Math.min(windowSize, length - start);
+    window = channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+    window.order(ByteOrder.BIG_ENDIAN);
+  }
+
+  /**
+   * Makes sure the current window holds at least the given number of bytes, mapping a new window
+   * starting at the current position if not.
+   *
+   * @param bytes number needed
+   * @return whether there were that many bytes left in the file
+   * @throws IOException if mapping fails
+   */
+  private boolean ensure(final int bytes) throws IOException {
+    boolean rval = window.remaining() >= bytes;
+    if (!rval) {
+      final long position = getPosition();
+      if (length - position >= bytes) {
+        map(position);
+        rval = true;
+      }
+    }
+    return rval;
+  }
+
+  /**
+   * @return the position in the file of the next byte to be read
+   */
+  public long getPosition() {
+    return windowStart + window.position();
+  }
+
+  /**
+   * @return the length of the file in bytes
+   */
+  public long getLength() {
+    return length;
+  }
+
+  /**
+   * Reads a big-endian <code>short</code>.
+   *
+   * @return the next two bytes
+   * @throws EOFException if fewer than two bytes are left
+   * @throws IOException if mapping fails
+   */
+  public short readShort() throws IOException {
+    if (!ensure(Short.BYTES)) {
+      throw new EOFException();
+    }
+    return window.getShort();
+  }
+
+  /**
+   * Reads a big-endian <code>int</code>.
+   *
+   * @return the next four bytes
+   * @throws EOFException if fewer than four bytes are left
+   * @throws IOException if mapping fails
+   */
+  public int readInt() throws IOException {
+    if (!ensure(Integer.BYTES)) {
+      throw new EOFException();
+    }
+    return window.getInt();
+  }
+
+  @Override
+  public int read() throws IOException {
+    return ensure(1) ? window.get() & 0xff : -1;
+  }
+
+  @Override
+  public int read(final byte[] out, final int off, final int len) throws IOException {
+    int rval = 0;
+    if (len > 0) {
+      if (!window.hasRemaining() && !ensure(1)) {
+        rval = -1;
+      } else {
+        rval = Math.min(len, window.remaining());
+        window.get(out, off, rval);
+      }
+    }
+    return rval;
+  }
+
+  @Override
+  public long skip(final long count) throws IOException {
+    final long skipped = Math.max(0L, Math.min(count, length - getPosition()));
+    final long target = getPosition() + skipped;
+    if (target - windowStart <= window.limit()) {
+      window.position((int) (target - windowStart));
+    } else {
+      map(target);
+    }
+    return skipped;
+  }
+
+  @Override
+  public int available() {
+    return (int) Math.min(Integer.MAX_VALUE, length - getPosition());
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+}
@@ -73,10 +73,10 @@ public final class UconnInputStream extends AbstractEventInputStream {
   private boolean readBlockHeader() throws EventException {
     boolean rval = false;
     try {
-      blockFullSize = dataInput.readInt();
-      blockCurrSize = dataInput.readInt();
-      final int blockNumber = dataInput.readInt();
-      blockNumEvnt = dataInput.readInt();
+      blockFullSize = nextInt();
+      blockCurrSize = nextInt();
+      final int blockNumber = nextInt();
+      blockNumEvnt = nextInt();
       showMessage(
           "Block fullsize  "
               + blockFullSize
@@ -89,7 +89,7 @@ public final class UconnInputStream extends AbstractEventInputStream {
       /* read in scalers */
       final List<Integer> scalerValues = new ArrayList<>(UconnStreamConstants.NUMBER_SCALERS);
       for (int i = 0; i < UconnStreamConstants.NUMBER_SCALERS; i++) {
-        scalerValues.add(dataInput.readInt() & UconnStreamConstants.SCALER_MASK);
+        scalerValues.add(nextInt() & UconnStreamConstants.SCALER_MASK);
       }
       Scaler.update(scalerValues);
       rval = true;
@@ -165,10 +165,10 @@ public final class UconnInputStream extends AbstractEventInputStream {
    */
   private void readEventHeader() throws EventException {
     try {
-      final int eventId = dataInput.readInt();
-      eventSize = dataInput.readShort();
-      eventState = dataInput.readShort();
-      eventNumWord = dataInput.readShort();
+      final int eventId = nextInt();
+      eventSize = nextShort();
+      eventState = nextShort();
+      eventNumWord = nextShort();
       showMessage(
           "Event id "
               + eventId
@@ -202,7 +202,7 @@ public final class UconnInputStream extends AbstractEventInputStream {
     int vsn = 0;
     /* while there are words left in the event */
     for (int i = 0; i < eventNumWord; i++) {
-      final short dataWord = dataInput.readShort(); // read word
+      final short dataWord = nextShort(); // read word
       // if new event check we start with a vsn
       if (i == 0 && (dataWord & UconnStreamConstants.VSN_MARKER) == 0) {
         throw new EventException(" Event not started with vsn [UconnInputStream]");
@@ -1,8 +1,10 @@
 package jam.sort.stream;
 
+import jam.data.EventBlock;
 import jam.data.Scaler;
 import java.io.EOFException;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.*;
 
 /**
@@ -92,6 +94,14 @@ public class YaleCAEN_InputStream extends AbstractL002HeaderReader {
 
   private final transient int[] tempData = new int[32];
 
+  private final transient List<Integer> scalerValues = new ArrayList<>(32);
+
+  /** FIFO row of the event most recently taken, valid until the next read */
+  private transient int[] eventRow;
+
+  /** buffer being decoded by <code>readBlock()</code>, or <code>null</code> to use the stream */
+  private transient ByteBuffer source;
+
   private final transient int[] tempParams = new int[32];
 
   /**
@@ -155,11 +165,11 @@ public class YaleCAEN_InputStream extends AbstractL002HeaderReader {
     return eventNumMap.get(eventNumber);
   }
 
-  private void getFirstEvent(final int[] data) {
+  /* Takes the oldest event out of the FIFO, leaving its row in eventRow. */
+  private void takeFirstEvent() {
     final int eventNumber = eventNumbers[posGet];
     eventNumMap.remove(eventNumber);
-    final int[] rval = fifo[posGet];
-    System.arraycopy(rval, 0, data, 0, data.length);
+    eventRow = fifo[posGet];
     incrementGet();
     if (!inFlushState()) {
       internalStat = BufferStatus.FIFO_FILLING;
@@ -274,60 +284,115 @@ public class YaleCAEN_InputStream extends AbstractL002HeaderReader {
   @Override
   public EventInputStatus readEvent(final int[] data) throws EventException {
     synchronized (this) {
-      EventInputStatus rval = EventInputStatus.EVENT;
-      int lastParameterRead = 0;
-      final List<Integer> scalerValues = new ArrayList<>(32);
+      final EventInputStatus rval = readNext();
+      if (rval == EventInputStatus.EVENT) {
+        System.arraycopy(eventRow, 0, data, 0, data.length);
+      }
+      return rval;
+    }
+  }
+
+  /**
+   * Decodes events straight from the buffer into the block. The events are taken from the FIFO
+   * rows they were reconstructed in, without first being copied out to an array.
+   *
+   * @exception EventException thrown for errors in the event stream
+   */
+  @Override
+  public EventInputStatus readBlock(final ByteBuffer buffer, final EventBlock block)
+      throws EventException {
+    synchronized (this) {
+      block.clear();
+      source = buffer;
       try {
+        EventInputStatus rval = readNext();
+        while (rval == EventInputStatus.EVENT
+            || rval == EventInputStatus.SCALER_VALUE
+            || rval == EventInputStatus.IGNORE) {
+          if (rval == EventInputStatus.EVENT) {
+            block.addEvent(eventRow, eventRow.length);
+          }
+          rval = readNext();
+        }
+        return rval;
+      } finally {
+        source = null;
+      }
+    }
+  }
+
+  /*
+   * Reads the next int, from the buffer being decoded if there is one.
+   */
+  private int readInt() throws IOException {
+    final int rval;
+    if (source == null) {
+      rval = nextInt();
+    } else if (source.remaining() >= Integer.BYTES) {
+      rval = source.getInt();
+    } else {
+      throw new EOFException();
+    }
+    return rval;
+  }
+
+  /*
+   * Advances to the next event, scaler block or special word. If an event
+   * is returned, it is left in eventRow.
+   */
+  private EventInputStatus readNext() throws EventException {
+    EventInputStatus rval = EventInputStatus.EVENT;
+    int lastParameterRead = 0;
+    try {
+      /*
+       * internal_status may also be in a "flush" mode in which case
+       * we skip this read loop and go straight to flushing out
+       * another event
+       */
+      while (internalStat == BufferStatus.FIFO_FILLING) {
         /*
-         * internal_status may also be in a "flush" mode in which case
-         * we skip this read loop and go straight to flushing out
-         * another event
+         * this loop may finish if status changes to "fifo full"
+         * mode when an event index gets added below
          */
-        while (internalStat == BufferStatus.FIFO_FILLING) {
+        final int header = readInt();
+        if (isHeader(header)) {
+          lastParameterRead = readEventParameters(header);
+        } else if (header == CAEN_StreamFields.SCALER_BLOCK) {
           /*
-           * this loop may finish if status changes to "fifo full"
-           * mode when an event index gets added below
+           * Read and ignore scaler values.
            */
-          final int header = dataInput.readInt();
-          if (isHeader(header)) {
-            lastParameterRead = readEventParameters(header);
-          } else if (header == CAEN_StreamFields.SCALER_BLOCK) {
-            /*
-             * Read and ignore scaler values.
-             */
-            final int numScalers = dataInput.readInt();
-            nScalrBlocks++;
-            scalerValues.clear();
-            for (int i = 0; i < numScalers; i++) {
-              scalerValues.add(dataInput.readInt());
-            }
-            Scaler.update(scalerValues);
-            rval = EventInputStatus.SCALER_VALUE;
-            internalStat = BufferStatus.SCALER;
-          } else {
-            rval = handleSpecialHeaders(header, rval);
+          final int numScalers = readInt();
+          nScalrBlocks++;
+          scalerValues.clear();
+          for (int i = 0; i < numScalers; i++) {
+            scalerValues.add(readInt());
           }
-        } // end of while loop
-        rval = readWhenNotFilling(data, rval);
-      } catch (EOFException eofe) {
-        /*
-         * we got to the end of a file or stream
-         */
-        rval = EventInputStatus.END_FILE;
-        LOGGER.warning(
-            getClass().getName()
-                + ".readEvent(): End of File reached...file may be corrupted, or run not ended"
-                + " properly.");
-      } catch (IOException ioe) { // we got to the end of a file or stream
-        rval = EventInputStatus.UNKNOWN_WORD;
-        LOGGER.warning(getClass().getName() + ".readEvent(): Problem reading integer from stream.");
-      } catch (EventException e) {
-        //                rval = EventInputStatus.UNKNOWN_WORD;
-        throw new EventException(
-            getClass().getName() + ".readEvent() parameter = " + lastParameterRead, e);
-      }
-      return rval;
+          Scaler.update(scalerValues);
+          rval = EventInputStatus.SCALER_VALUE;
+          internalStat = BufferStatus.SCALER;
+        } else {
+          rval = handleSpecialHeaders(header, rval);
+        }
+      } // end of while loop
+      rval = readWhenNotFilling(rval);
+    } catch (EOFException eofe) {
+      /*
+       * we got to the end of a file or stream
+       */
+      rval = EventInputStatus.END_FILE;
+      LOGGER.warning(
+          getClass().getName()
+              + ".readEvent(): End of File reached...file may be corrupted, or run not ended"
+              + " properly.");
+    } catch (IOException ioe) { // we got to the end of a file or stream
+      rval = EventInputStatus.UNKNOWN_WORD;
+      LOGGER.warning(getClass().getName() + ".readEvent(): Problem reading integer from stream.");
+    } catch (EventException e) {
+      //                rval = EventInputStatus.UNKNOWN_WORD;
+      throw new EventException(
+          getClass().getName() + ".readEvent() parameter = " + lastParameterRead, e);
     }
+    return rval;
   }
 
   /**
@@ -347,7 +412,7 @@ public class YaleCAEN_InputStream extends AbstractL002HeaderReader {
     int numParams = 0;
     int endblock = 0;
     while (keepGoing) {
-      lastParameterRead = dataInput.readInt();
+      lastParameterRead = readInt();
       if (isParameter(lastParameterRead)) {
         numParams++;
         final int channel = (lastParameterRead >>> 16) & 0x3f;
@@ -375,7 +440,7 @@ public class YaleCAEN_InputStream extends AbstractL002HeaderReader {
    * encountered buffer pad or scaler) The first case is handled here, if it's
    * true.
    */
-  private EventInputStatus readWhenNotFilling(final int[] data, final EventInputStatus init) {
+  private EventInputStatus readWhenNotFilling(final EventInputStatus init) {
     EventInputStatus rval = init;
     if (inFlushState()) { // in one of the 2 flush states
       if (fifoEmpty()) {
@@ -386,7 +451,7 @@ public class YaleCAEN_InputStream extends AbstractL002HeaderReader {
         }
         internalStat = BufferStatus.FIFO_FILLING;
       } else { // all events flushed, make ready for next event
-        getFirstEvent(data);
+        takeFirstEvent();
         rval = EventInputStatus.EVENT;
       }
       /*
@@ -394,7 +459,7 @@ public class YaleCAEN_InputStream extends AbstractL002HeaderReader {
        * output an event.
        */
     } else if (internalStat == BufferStatus.FIFO_FULL) {
-      getFirstEvent(data); // routine retrieves data and updates
+      takeFirstEvent(); // routine retrieves data and updates
       // tracking variables
       rval = EventInputStatus.EVENT;
     } else { // internal status=SCALER or PADDING
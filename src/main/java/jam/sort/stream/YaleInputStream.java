@@ -55,10 +55,10 @@ public class YaleInputStream extends AbstractL002HeaderReader {
   public EventInputStatus readEvent(int[] input) throws EventException {
     synchronized (this) {
       try {
-        while (isParameter(dataInput.readShort())) { // could be event or
+        while (isParameter(nextShort())) { // could be event or
           // scaler parameter
           if (status == EventInputStatus.PARTIAL_EVENT) {
-            final int tempval = dataInput.readShort();
+            final int tempval = nextShort();
             if (parameter < eventSize) {
               /*
                * only try to store if we won't go outside the
@@ -67,7 +67,7 @@ public class YaleInputStream extends AbstractL002HeaderReader {
               input[parameter] = tempval; // read event word
             }
           } else if (status == EventInputStatus.SCALER_VALUE) {
-            dataInput.readInt(); // throw away scaler value
+            nextInt(); // throw away scaler value
           }
         }
       } catch (EOFException eofe) {
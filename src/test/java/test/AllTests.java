@@ -2,7 +2,9 @@ package test;
 
 import org.junit.platform.suite.api.SelectClasses;
 import org.junit.platform.suite.api.Suite;
+import test.data.CountsPyramidTest;
 import test.data.GateTest;
+import test.data.HistogramShardsTest;
 import test.data.HistogramTest;
 import test.data.ParameterTest;
 import test.data.func.CubicFunctionTest;
@@ -11,10 +13,21 @@ import test.global.JamPropertiesTest;
 import test.injection.CommandFinderTest;
 import test.injection.FrameTest;
 import test.io.ImpExpASCIITest;
+import test.io.hdf.HDFAutosaveTest;
 import test.io.hdf.HDFIOTest;
+import test.io.hdf.HDFSnapshotsTest;
+import test.io.hdf.ParallelHDFAdderTest;
+import test.io.hdf.ScanForScalersTest;
+import test.io.hdf.ScientificDataTest;
+import test.plot.color.ColorLookupTest;
+import test.sort.EventBlockTest;
 import test.sort.GainCalibrationTest;
+import test.sort.HandoffRingBufferTest;
+import test.sort.MappedEventFileTest;
 import test.sort.OnlineScalerTest;
+import test.sort.ParallelSortTest;
 import test.sort.RingBufferTest;
+import test.sort.RingGeometryTest;
 import test.sort.SortOfflineTest;
 import test.sort.SortOnlineTest;
 import test.ui.MultipleFileChooserTest;
@@ -28,21 +41,34 @@ import test.util.StringUtilitiesTest;
 @Suite
 @SelectClasses({
   GateTest.class,
+  CountsPyramidTest.class,
+  ColorLookupTest.class,
   HistogramTest.class,
+  HistogramShardsTest.class,
   ParameterTest.class,
   PeakTest.class,
   ImpExpASCIITest.class,
   GainCalibrationTest.class,
   RingBufferTest.class,
+  HandoffRingBufferTest.class,
+  RingGeometryTest.class,
+  EventBlockTest.class,
+  MappedEventFileTest.class,
   CubicFunctionTest.class,
   JamPropertiesTest.class,
   SortOfflineTest.class,
   SortOnlineTest.class,
   OnlineScalerTest.class,
+  ParallelSortTest.class,
   StringUtilitiesTest.class,
   FrameTest.class,
   CommandFinderTest.class,
   HDFIOTest.class,
+  ScanForScalersTest.class,
+  ParallelHDFAdderTest.class,
+  ScientificDataTest.class,
+  HDFAutosaveTest.class,
+  HDFSnapshotsTest.class,
   MultipleFileChooserTest.class
 })
 public class AllTests { // NOPMD
@@ -0,0 +1,147 @@
+package test.data;
+
+import jam.data.CountsPyramid;
+import jam.data.DataBase;
+import jam.data.Factory;
+import jam.data.Group;
+import jam.data.HistDouble2D;
+import jam.data.HistInt2D;
+import java.util.Random;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * JUnit tests for <code>jam.data.CountsPyramid</code>.
+ *
+ * @author Dale Visser
+ * @see CountsPyramid
+ */
+public final class CountsPyramidTest { // NOPMD
+
+  /* not a power of two, so that the last tiles are partial */
+  private static final int SIZE_X = 100;
+
+  private static final int SIZE_Y = 75;
+
+  private transient int[][] counts;
+
+  private transient HistInt2D hist;
+
+  /** Create a histogram of random counts. */
+  @BeforeEach
+  public void setUp() {
+    final Random random = new Random(7L);
+    counts = new int[SIZE_X][SIZE_Y];
+    for (int x = 0; x < SIZE_X; x++) {
+      for (int y = 0; y < SIZE_Y; y++) {
+        counts[x][y] = random.nextInt(1000) - 10;
+      }
+    }
+    final Group group = Factory.createGroup("TestPyramidGroup", Group.Type.FILE);
+    hist = (HistInt2D) Factory.createHistogram(group, counts, "p1");
+  }
+
+  /** Clean up after tests. */
+  @AfterEach
+  public void tearDown() {
+    DataBase.getInstance().clearAllLists();
+  }
+
+  private void assertSummary(
+      final CountsPyramid.Summary summary,
+      final int minX,
+      final int minY,
+      final int maxX,
+      final int maxY) {
+    int min = Integer.MAX_VALUE;
+    int max = Integer.MIN_VALUE;
+    long sum = 0L;
+    for (int x = minX; x <= maxX; x++) {
+      for (int y = minY; y <= maxY; y++) {
+        min = Math.min(min, counts[x][y]);
+        max = Math.max(max, counts[x][y]);
+        sum += counts[x][y];
+      }
+    }
+    final String region = "(" + minX + ", " + minY + ") to (" + maxX + ", " + maxY + ")";
+    Assertions.assertEquals(min, summary.getMinimum(), "Minimum of " + region);
+    Assertions.assertEquals(max, summary.getMaximum(), "Maximum of " + region);
+    Assertions.assertEquals(sum, summary.getSum(), "Sum of " + region);
+  }
+
+  /** Tests that the tiles of each level hold the extremes and totals of their channels. */
+  @Test
+  public void testTiles() {
+    final CountsPyramid pyramid = hist.getPyramid();
+    Assertions.assertEquals(7, pyramid.getTopLevel(), "Levels for 100 channels");
+    for (int level = 1; level <= pyramid.getTopLevel(); level++) {
+      final CountsPyramid.Tiles tiles = pyramid.getTiles(level);
+      final int side = 1 << level;
+      Assertions.assertEquals(
+          CountsPyramid.tilesSpanning(level, SIZE_X), tiles.getSizeX(), "Tiles along x");
+      for (int tileX = 0; tileX < tiles.getSizeX(); tileX++) {
+        for (int tileY = 0; tileY < tiles.getSizeY(); tileY++) {
+          final int minX = tileX * side;
+          final int minY = tileY * side;
+          final int maxX = Math.min(SIZE_X, minX + side) - 1;
+          final int maxY = Math.min(SIZE_Y, minY + side) - 1;
+          final CountsPyramid.Summary summary = pyramid.summarize(0, minX, minY, maxX, maxY);
+          Assertions.assertEquals(summary.getMinimum(), tiles.getMinimum(tileX, tileY));
+          Assertions.assertEquals(summary.getMaximum(), tiles.getMaximum(tileX, tileY));
+          Assertions.assertEquals(summary.getSum(), tiles.getSum(tileX, tileY));
+        }
+      }
+    }
+  }
+
+  /** Tests that summaries are exact whichever level is used. */
+  @Test
+  public void testSummarize() {
+    final CountsPyramid pyramid = hist.getPyramid();
+    final Random random = new Random(11L);
+    for (int i = 0; i < 50; i++) {
+      final int minX = random.nextInt(SIZE_X);
+      final int minY = random.nextInt(SIZE_Y);
+      final int maxX = minX + random.nextInt(SIZE_X - minX);
+      final int maxY = minY + random.nextInt(SIZE_Y - minY);
+      for (int level = 0; level <= pyramid.getTopLevel(); level++) {
+        assertSummary(pyramid.summarize(level, minX, minY, maxX, maxY), minX, minY, maxX, maxY);
+      }
+      assertSummary(pyramid.summarize(minX, minY, maxX, maxY), minX, minY, maxX, maxY);
+    }
+  }
+
+  /** Tests that levels are built again after the counts change. */
+  @Test
+  public void testFollowsCounts() {
+    final CountsPyramid pyramid = hist.getPyramid();
+    final CountsPyramid.Tiles before = pyramid.getTiles(3);
+    Assertions.assertSame(before, pyramid.getTiles(3), "Unchanged level should be kept.");
+    pyramid.getTiles(1);
+    hist.inc(SIZE_X - 1, SIZE_Y - 1);
+    counts[SIZE_X - 1][SIZE_Y - 1]++;
+    final CountsPyramid.Tiles after = pyramid.getTiles(3);
+    Assertions.assertNotSame(before, after, "Changed level should be built again.");
+    Assertions.assertEquals(
+        before.getSum(12, 9) + 1, after.getSum(12, 9), "Sum of tile with incremented channel");
+    assertSummary(pyramid.summarize(2, 0, 0, SIZE_X - 1, SIZE_Y - 1), 0, 0, SIZE_X - 1, SIZE_Y - 1);
+  }
+
+  /** Tests the maxima copied for drawing, including from double histograms. */
+  @Test
+  public void testCopyMaxima() {
+    final Group group = Factory.createGroup("TestPyramidGroup", Group.Type.FILE);
+    final double[][] doubles = new double[SIZE_X][SIZE_Y];
+    doubles[41][22] = 2.5;
+    final HistDouble2D histDouble = (HistDouble2D) Factory.createHistogram(group, doubles, "p2");
+    final double[][] dest = new double[4][4];
+    histDouble.getPyramid().copyMaxima(3, 4, 1, dest);
+    Assertions.assertEquals(2.5, dest[1][1], "Tile holding the channel");
+    Assertions.assertEquals(0.0, dest[0][0], "Empty tile");
+    final double[][] channels = new double[3][3];
+    hist.getPyramid().copyMaxima(0, 10, 20, channels);
+    Assertions.assertEquals(counts[12][21], channels[2][1], "Channel at level 0");
+  }
+}
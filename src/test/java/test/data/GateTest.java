@@ -1,5 +1,6 @@
 package test.data;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -7,8 +8,13 @@ import jam.data.AbstractHistogram;
 import jam.data.DataBase;
 import jam.data.Factory;
 import jam.data.Gate;
+import jam.data.GateMask;
 import jam.data.Group;
+import jam.data.HistInt1D;
+import jam.data.HistInt2D;
+import jam.data.HistogramShards;
 import java.awt.Polygon;
+import java.util.Random;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 
@@ -93,6 +99,85 @@ public class GateTest { // NOPMD
         this.getAssertMessage(GateTest.IN_GATE, GateTest.UL_PLUS_1, false));
   }
 
+  /**
+   * Test that compiled masks agree with <code>Polygon.contains()</code>, for random polygons which
+   * may be concave, self-intersecting, or partly outside the histogram.
+   *
+   * @see GateMask#fill(Polygon, int, int)
+   */
+  @Test
+  public void maskMatchesPolygon() {
+    final int size = 64;
+    final Random random = new Random(12_345L);
+    for (int trial = 0; trial < 200; trial++) {
+      final Polygon polygon = new Polygon();
+      final int npoints = 3 + random.nextInt(8);
+      for (int i = 0; i < npoints; i++) {
+        polygon.addPoint(random.nextInt(size + 20) - 10, random.nextInt(size + 20) - 10);
+      }
+      final GateMask mask = GateMask.fill(polygon, size, size);
+      for (int x = -2; x < size + 2; x++) {
+        for (int y = -2; y < size + 2; y++) {
+          final boolean expected =
+              x >= 0 && x < size && y >= 0 && y < size && polygon.contains(x, y);
+          assertEquals(expected, mask.contains(x, y), getAssertMessage(x, y, expected));
+        }
+      }
+    }
+  }
+
+  /**
+   * Test that gate areas kept while incrementing, directly and through shards, agree with the
+   * counts, and are recounted when the counts are zeroed or the limits change.
+   *
+   * @see Gate#getArea()
+   */
+  @Test
+  public void areaFollowsCounts() {
+    final HistInt1D hist1 = (HistInt1D) Factory.createHistogram(group, new int[100], "h1");
+    final Gate gate1 = new Gate("g1", hist1);
+    gate1.setLimits(LOWER_LIMIT, UPPER_LIMIT);
+    final HistInt2D hist2 = (HistInt2D) Factory.createHistogram(group, new int[100][100], "h2");
+    final Gate gate2 = new Gate("g2", hist2);
+    final int[] xpoints = {LOWER_LIMIT, UL_PLUS_1, UL_PLUS_1, LOWER_LIMIT};
+    final int[] ypoints = {LOWER_LIMIT, LOWER_LIMIT, UL_PLUS_1, UL_PLUS_1};
+    gate2.setLimits(new Polygon(xpoints, ypoints, 4));
+    assertEquals(0.0, gate1.getArea(), "Expected empty 1d gate.");
+    assertEquals(0.0, gate2.getArea(), "Expected empty 2d gate.");
+    final Random random = new Random(54_321L);
+    int inside1 = 0;
+    int inside2 = 0;
+    for (int i = 0; i < 500; i++) {
+      final int channelX = random.nextInt(100);
+      final int channelY = random.nextInt(100);
+      hist1.inc(channelX);
+      hist2.inc(channelX, channelY);
+      inside1 += gate1.inGate(channelX) ? 1 : 0;
+      inside2 += gate2.inGate(channelX, channelY) ? 1 : 0;
+    }
+    final HistogramShards shards = HistogramShards.attach();
+    try {
+      for (int i = 500; i < 1000; i++) {
+        final int channelX = random.nextInt(100);
+        final int channelY = random.nextInt(100);
+        hist1.inc(channelX);
+        hist2.inc(channelX, channelY);
+        inside1 += gate1.inGate(channelX) ? 1 : 0;
+        inside2 += gate2.inGate(channelX, channelY) ? 1 : 0;
+      }
+    } finally {
+      shards.detach();
+    }
+    assertEquals(inside1, gate1.getArea(), "Expected 1d area to count increments.");
+    assertEquals(inside2, gate2.getArea(), "Expected 2d area to count increments.");
+    gate1.setLimits(0, 99);
+    assertEquals(1000.0, gate1.getArea(), "Expected 1d area recounted for new limits.");
+    hist1.setZero();
+    hist2.setZero();
+    assertEquals(0.0, gate1.getArea(), "Expected 1d area recounted after zeroing.");
+    assertEquals(0.0, gate2.getArea(), "Expected 2d area recounted after zeroing.");
+  }
+
   /** Clear all data. */
   @AfterEach
   public void tearDown() {
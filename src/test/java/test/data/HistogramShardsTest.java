@@ -0,0 +1,177 @@
+package test.data;
+
+import jam.data.DataBase;
+import jam.data.Factory;
+import jam.data.Group;
+import jam.data.HistInt1D;
+import jam.data.HistInt2D;
+import jam.data.HistogramShards;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * JUnit tests for <code>jam.data.HistogramShards</code>.
+ *
+ * @author Dale Visser
+ * @see HistogramShards
+ */
+public final class HistogramShardsTest { // NOPMD
+
+  private static final int THREADS = 4;
+
+  private static final int INCREMENTS = 100_000;
+
+  private transient HistInt1D hist1;
+
+  private transient HistInt2D hist2;
+
+  /** Create the histograms. */
+  @BeforeEach
+  public void setUp() {
+    final Group group = Factory.createGroup("TestShardsGroup", Group.Type.FILE);
+    hist1 = (HistInt1D) Factory.createHistogram(group, new int[64], "s1");
+    hist2 = (HistInt2D) Factory.createHistogram(group, new int[32][32], "s2");
+  }
+
+  /** Clean up after tests. */
+  @AfterEach
+  public void tearDown() {
+    DataBase.getInstance().clearAllLists();
+  }
+
+  /**
+   * Tests that counts stay private to an attached thread until flushed.
+   *
+   * @throws Exception if the sharded thread fails
+   */
+  @Test
+  public void testCountsVisibleOnlyAfterFlush() throws Exception {
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      final HistogramShards shards =
+          executor
+              .submit(
+                  () -> {
+                    final HistogramShards result = HistogramShards.attach();
+                    hist1.inc(3);
+                    hist2.inc(4, 5);
+                    return result;
+                  })
+              .get();
+      Assertions.assertEquals(0.0, hist1.getArea(), "Expected no visible counts before flush.");
+      Assertions.assertEquals(0.0, hist2.getArea(), "Expected no visible counts before flush.");
+      executor.submit(shards::flush).get();
+      Assertions.assertEquals(1.0, hist1.getCounts(3), "Expected count after flush.");
+      Assertions.assertEquals(1.0, hist2.getCounts(4, 5), "Expected count after flush.");
+      hist1.inc(3);
+      Assertions.assertEquals(2.0, hist1.getCounts(3), "Unattached thread counts directly.");
+      executor.submit(shards::detach).get();
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * Tests that concurrent sharded increments all arrive once every thread detaches.
+   *
+   * @throws InterruptedException if interrupted waiting for the threads
+   * @throws ExecutionException if a thread fails
+   */
+  @Test
+  public void testConcurrentIncrements() throws InterruptedException, ExecutionException {
+    final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    try {
+      final List<Callable<Void>> tasks = new ArrayList<>();
+      for (int t = 0; t < THREADS; t++) {
+        tasks.add(
+            () -> {
+              final HistogramShards shards = HistogramShards.attach();
+              for (int i = 0; i < INCREMENTS; i++) {
+                hist1.inc(i);
+                hist2.inc(i, i >> 5);
+                if (i % 10_000 == 0) {
+                  shards.flush();
+                }
+              }
+              shards.detach();
+              return null;
+            });
+      }
+      for (Future<Void> future : executor.invokeAll(tasks)) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+    final double expected = (double) THREADS * INCREMENTS;
+    Assertions.assertEquals(expected, hist1.getArea(), "Expected every 1d increment.");
+    Assertions.assertEquals(expected, hist2.getArea(), "Expected every 2d increment.");
+  }
+
+  /**
+   * Tests that unattached threads increment without losing counts, while snapshots are taken.
+   *
+   * @throws InterruptedException if interrupted waiting for the threads
+   * @throws ExecutionException if a thread fails
+   */
+  @Test
+  public void testUnshardedIncrementsWithSnapshots()
+      throws InterruptedException, ExecutionException {
+    final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    try {
+      final List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < THREADS; t++) {
+        futures.add(
+            executor.submit(
+                () -> {
+                  for (int i = 0; i < INCREMENTS; i++) {
+                    hist1.inc(i);
+                    hist2.inc(i, i >> 5);
+                  }
+                }));
+      }
+      double area = 0.0;
+      final int[] flat = new int[hist2.getSizeX() * hist2.getSizeY()];
+      for (Future<?> future : futures) {
+        while (!future.isDone()) {
+          final double snapshot = hist1.getArea();
+          Assertions.assertTrue(snapshot >= area, "Expected counts never to decrease.");
+          area = snapshot;
+          hist2.copyCounts(flat);
+        }
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+    final double expected = (double) THREADS * INCREMENTS;
+    Assertions.assertEquals(expected, hist1.getArea(), "Expected every 1d increment.");
+    Assertions.assertEquals(expected, hist2.getArea(), "Expected every 2d increment.");
+  }
+
+  /**
+   * Tests that only the owning thread may detach.
+   *
+   * @throws Exception if the sharded thread fails
+   */
+  @Test
+  public void testDetachFromOtherThread() throws Exception {
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      final HistogramShards shards = executor.submit(HistogramShards::attach).get();
+      Assertions.assertThrows(IllegalStateException.class, shards::detach);
+      executor.submit(shards::detach).get();
+    } finally {
+      executor.shutdown();
+    }
+  }
+}
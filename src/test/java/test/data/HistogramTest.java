@@ -93,6 +93,27 @@ public final class HistogramTest { // NOPMD
         2 * area1before, histogram.getArea(), 0.001, histogram.getName() + should);
   }
 
+  /** test that the flat 2d accessors agree with the array of rows */
+  @Test
+  public void testCopyCounts2D() {
+    final int sizeX = hist2.getSizeX();
+    final int sizeY = hist2.getSizeY();
+    final int[] flat = new int[sizeX * sizeY];
+    hist2.copyCounts(flat);
+    final double[][] rows = new double[sizeX][sizeY];
+    hist2f.copyCounts(rows);
+    final int[][] counts = hist2.getCounts();
+    for (int i = 0; i < sizeX; i++) {
+      for (int j = 0; j < sizeY; j++) {
+        Assertions.assertEquals(counts[i][j], flat[i * sizeY + j], "Flat copy differs.");
+        Assertions.assertEquals(i + j, rows[i][j], 0.001, "Copy into rows differs.");
+        Assertions.assertEquals(
+            i + j, hist2f.getCountsView().get(i * sizeY + j), 0.001, "View differs.");
+      }
+    }
+    Assertions.assertTrue(hist2.getCountsView().isReadOnly(), "Expected a read-only view.");
+  }
+
   /**
    * Test for <code>getGates</code>.
    *
@@ -124,6 +145,32 @@ public final class HistogramTest { // NOPMD
         AbstractHistogram.getHistogram("notreal"), "Found nonexistent histogram named \"notreal\"");
   }
 
+  /** Test that deferred counts are read once, when first needed. */
+  @Test
+  public void testDeferredCounts() {
+    final Group group = Factory.createGroup(GROUP_NAME + "Deferred", Group.Type.FILE);
+    final int[] reads = new int[1];
+    final HistInt2D deferred =
+        (HistInt2D)
+            Factory.createHistogram(
+                group,
+                HistogramType.TWO_DIM_INT,
+                3,
+                2,
+                "deferred",
+                "deferred",
+                () -> {
+                  reads[0]++;
+                  return new int[] {0, 1, 2, 3, 4, 5};
+                });
+    Assertions.assertNotNull(deferred.getDeferredCounts(), "Expected counts to be deferred.");
+    Assertions.assertEquals(0, reads[0], "Expected no reads before counts are needed.");
+    Assertions.assertEquals(3, deferred.getCounts(1, 1), "Expected row-major counts.");
+    Assertions.assertEquals(15.0, deferred.getArea(), 0.0, "Expected area of loaded counts.");
+    Assertions.assertNull(deferred.getDeferredCounts(), "Expected counts to be loaded.");
+    Assertions.assertEquals(1, reads[0], "Expected counts to be read exactly once.");
+  }
+
   /**
    * Test for <code>hasGate(Gate)</code>.
    *
@@ -0,0 +1,127 @@
+package test.io.hdf;
+
+import injection.GuiceInjector;
+import jam.data.DataBase;
+import jam.data.Factory;
+import jam.data.Group;
+import jam.data.Scaler;
+import jam.io.hdf.HDFAutosave;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * JUnit tests for <code>jam.io.hdf.HDFAutosave</code>, which keeps earlier saves by rotating them
+ * to older names.
+ *
+ * @author Dale Visser
+ * @see HDFAutosave
+ */
+public final class HDFAutosaveTest { // NOPMD
+
+  private static final int KEEP = 3;
+
+  private static final int SAVES = 5;
+
+  private transient File directory;
+
+  private transient File file;
+
+  private transient HDFAutosave autosave;
+
+  private transient Scaler scaler;
+
+  /**
+   * Create a directory to save in, and a sort group to save.
+   *
+   * @throws IOException if the directory can't be created
+   */
+  @BeforeEach
+  public void setUp() throws IOException {
+    directory = Files.createTempDirectory("autosave").toFile();
+    file = new File(directory, "run.hdf");
+    final Group group = Factory.createGroup("TestAutosaveGroup", Group.Type.SORT);
+    Factory.createHistogram(group, new int[16], "h1");
+    scaler = Factory.createScaler(group, "s1", 0);
+    autosave = GuiceInjector.getObjectInstance(HDFAutosave.class);
+    autosave.start(file, 60, KEEP);
+  }
+
+  /** Stop saving, delete the saves and clean up. */
+  @AfterEach
+  public void tearDown() {
+    autosave.stop();
+    DataBase.getInstance().clearAllLists();
+    for (File saved : directory.listFiles()) {
+      Assertions.assertTrue(saved.delete(), "Couldn't delete " + saved);
+    }
+    Assertions.assertTrue(directory.delete(), "Couldn't delete temporary directory.");
+  }
+
+  /**
+   * Tests that after each save, the latest is in the autosave file and the ones before it in
+   * numbered files, keeping no more files than asked for.
+   *
+   * @throws IOException if a save can't be read
+   * @throws InterruptedException if interrupted while saving
+   */
+  @Test
+  public void testRotation() throws IOException, InterruptedException {
+    final List<byte[]> saves = new ArrayList<>();
+    for (int save = 0; save < SAVES; save++) {
+      scaler.setValue(1000 + save);
+      autosave.saveNow();
+      saves.add(Files.readAllBytes(file.toPath()));
+      if (save > 0) {
+        Assertions.assertFalse(
+            Arrays.equals(saves.get(save - 1), saves.get(save)), "Expected saves to differ.");
+      }
+      for (int older = 0; older < KEEP; older++) {
+        final File expected = older == 0 ? file : new File(directory, "run-" + older + ".hdf");
+        if (older <= save) {
+          Assertions.assertArrayEquals(
+              saves.get(save - older),
+              Files.readAllBytes(expected.toPath()),
+              "Unexpected contents of " + expected.getName() + " after save " + save);
+        } else {
+          Assertions.assertFalse(expected.exists(), "Didn't expect " + expected.getName());
+        }
+      }
+      Assertions.assertEquals(
+          Math.min(save + 1, KEEP), directory.list().length, "Unexpected number of files.");
+    }
+  }
+
+  /**
+   * Tests that a save which can't be written leaves the earlier saves as they were.
+   *
+   * @throws IOException if a save can't be read
+   * @throws InterruptedException if interrupted while saving
+   */
+  @Test
+  public void testFailedSaveKeepsLatest() throws IOException, InterruptedException {
+    scaler.setValue(1);
+    autosave.saveNow();
+    scaler.setValue(2);
+    autosave.saveNow();
+    final File older = new File(directory, "run-1.hdf");
+    final byte[] latest = Files.readAllBytes(file.toPath());
+    final byte[] previous = Files.readAllBytes(older.toPath());
+    /* a directory in the way of the temporary file makes the write fail */
+    final File blocker = new File(directory, "run.hdf.tmp");
+    Assertions.assertTrue(blocker.mkdir(), "Couldn't create " + blocker);
+    scaler.setValue(3);
+    autosave.saveNow();
+    Assertions.assertTrue(blocker.delete(), "Couldn't delete " + blocker);
+    Assertions.assertArrayEquals(latest, Files.readAllBytes(file.toPath()), "Latest changed.");
+    Assertions.assertArrayEquals(previous, Files.readAllBytes(older.toPath()), "Older changed.");
+    Assertions.assertEquals(2, directory.list().length, "Unexpected number of files.");
+  }
+}
@@ -0,0 +1,156 @@
+package test.io.hdf;
+
+import injection.GuiceInjector;
+import jam.data.DataBase;
+import jam.data.Factory;
+import jam.data.Gate;
+import jam.data.Group;
+import jam.data.HistInt1D;
+import jam.data.HistInt2D;
+import jam.data.Warehouse;
+import jam.io.hdf.HDFSnapshots;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * JUnit tests for <code>jam.io.hdf.HDFSnapshots</code>, which writes a full snapshot followed by
+ * deltas, and compacts them back into one file.
+ *
+ * @author Dale Visser
+ * @see HDFSnapshots
+ */
+public final class HDFSnapshotsTest { // NOPMD
+
+  private static final String GROUP_NAME = "TestSnapshotGroup";
+
+  private static final int SIZE = 64;
+
+  private static final long TIMEOUT = 60L;
+
+  private transient File directory;
+
+  private transient File file;
+
+  /**
+   * Create a directory for the snapshots.
+   *
+   * @throws IOException if the directory can't be created
+   */
+  @BeforeEach
+  public void setUp() throws IOException {
+    directory = Files.createTempDirectory("snapshots").toFile();
+    file = new File(directory, "run.hdf");
+  }
+
+  /** Delete the snapshots and clean up. */
+  @AfterEach
+  public void tearDown() {
+    DataBase.getInstance().clearAllLists();
+    for (File saved : directory.listFiles()) {
+      Assertions.assertTrue(saved.delete(), "Couldn't delete " + saved);
+    }
+    Assertions.assertTrue(directory.delete(), "Couldn't delete temporary directory.");
+  }
+
+  /**
+   * Tests that compacting a full snapshot and two deltas gives back what was in memory when the
+   * last delta was written, in the full snapshot alone.
+   *
+   * @throws InterruptedException if interrupted while waiting on the snapshots
+   */
+  @Test
+  public void testCompactedDeltasMatchMemory() throws InterruptedException {
+    final HDFSnapshots snapshots = GuiceInjector.getObjectInstance(HDFSnapshots.class);
+    final Group group = Factory.createGroup(GROUP_NAME, Group.Type.SORT);
+    final HistInt1D changed = (HistInt1D) Factory.createHistogram(group, new int[SIZE], "h1");
+    final HistInt1D zeroed = (HistInt1D) Factory.createHistogram(group, new int[SIZE], "h2");
+    final HistInt2D twoD =
+        (HistInt2D) Factory.createHistogram(group, new int[SIZE / 4][SIZE / 4], "h3");
+    final HistInt1D unchanged = (HistInt1D) Factory.createHistogram(group, new int[SIZE], "h4");
+    for (int x = 0; x < SIZE; x++) {
+      changed.setCounts(x, x);
+      zeroed.setCounts(x, 2 * x);
+      unchanged.setCounts(x, 3 * x);
+    }
+    Factory.createScaler(group, "s1", 0).setValue(100);
+    assertWritten(snapshots, group);
+    changed.setCounts(5, 999);
+    zeroed.setZero();
+    new Gate("g1", changed).setLimits(10, 20);
+    group.getScalerList().get(0).setValue(200);
+    assertWritten(snapshots, group);
+    twoD.inc(3, 4);
+    twoD.inc(3, 4);
+    assertWritten(snapshots, group);
+    Assertions.assertTrue(new File(directory, "run-delta0002.hdf").isFile(), "Expected 2 deltas.");
+    final Object[] expected = getState(group);
+    Assertions.assertEquals(999, ((int[]) expected[0])[5], "Unexpected change.");
+    DataBase.getInstance().clearAllLists();
+    final CountDownLatch done = new CountDownLatch(1);
+    final AtomicReference<String> error = new AtomicReference<>();
+    snapshots.compact(
+        file,
+        (message, errorMessage) -> {
+          error.set(errorMessage);
+          done.countDown();
+        });
+    Assertions.assertTrue(done.await(TIMEOUT, TimeUnit.SECONDS), "Timed out compacting.");
+    Assertions.assertEquals("", error.get(), "Error compacting.");
+    Assertions.assertArrayEquals(
+        expected, getState(Warehouse.getGroupCollection().get(GROUP_NAME)), "Compacted differs.");
+    Assertions.assertArrayEquals(
+        new String[] {file.getName()}, directory.list(), "Expected deltas to be removed.");
+    DataBase.getInstance().clearAllLists();
+    Assertions.assertEquals(
+        "", Utility.open(Collections.singletonList(file)), "Error reopening.");
+    Assertions.assertArrayEquals(
+        expected, getState(Warehouse.getGroupCollection().get(GROUP_NAME)), "Reopened differs.");
+  }
+
+  /*
+   * non-javadoc: Writes a snapshot, failing the test if it isn't written.
+   */
+  private void assertWritten(final HDFSnapshots snapshots, final Group group)
+      throws InterruptedException {
+    final CountDownLatch done = new CountDownLatch(1);
+    final AtomicReference<String> error = new AtomicReference<>();
+    snapshots.writeSnapshot(
+        file,
+        group,
+        (message, errorMessage) -> {
+          error.set(errorMessage);
+          done.countDown();
+        });
+    Assertions.assertTrue(done.await(TIMEOUT, TimeUnit.SECONDS), "Timed out writing snapshot.");
+    Assertions.assertEquals("", error.get(), "Error writing snapshot.");
+  }
+
+  /*
+   * non-javadoc: Copies of the counts, gate limits and scaler value of the
+   * group made by the test.
+   */
+  private static Object[] getState(final Group group) {
+    Assertions.assertNotNull(group, "Expected group to be read.");
+    final HistInt1D changed = (HistInt1D) Utility.getHistogram(group, "h1");
+    Assertions.assertEquals(1, changed.getGateCollection().getGates().size(), "Expected gate.");
+    final Gate gate = (Gate) changed.getGateCollection().getGates().get(0);
+    return new Object[] {
+      changed.getCounts(),
+      ((HistInt1D) Utility.getHistogram(group, "h2")).getCounts(),
+      ((HistInt2D) Utility.getHistogram(group, "h3")).getCounts(),
+      ((HistInt1D) Utility.getHistogram(group, "h4")).getCounts(),
+      gate.getName().trim(),
+      gate.getLimits1d(),
+      group.getScalerList().get(0).getValue()
+    };
+  }
+}
@@ -0,0 +1,190 @@
+package test.io.hdf;
+
+import jam.data.DataBase;
+import jam.data.Factory;
+import jam.data.Group;
+import jam.data.HistDouble1D;
+import jam.data.HistInt1D;
+import jam.data.HistInt2D;
+import jam.data.Scaler;
+import jam.io.FileOpenMode;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * JUnit tests for adding the counts in several HDF files at once, which <code>HDFIO</code> does
+ * with <code>jam.io.hdf.ParallelHDFAdder</code>.
+ *
+ * @author Dale Visser
+ */
+public final class ParallelHDFAdderTest { // NOPMD
+
+  private static final String GROUP_NAME = "TestAddGroup";
+
+  private static final int FILES = 5;
+
+  private static final int SIZE = 64;
+
+  private final transient List<File> files = new ArrayList<>();
+
+  /**
+   * Create the temporary files.
+   *
+   * @throws IOException if the files can't be created
+   */
+  @BeforeEach
+  public void setUp() throws IOException {
+    for (int i = 0; i < FILES; i++) {
+      files.add(File.createTempFile("add" + i, ".hdf"));
+    }
+  }
+
+  /** Delete the temporary files and clean up. */
+  @AfterEach
+  public void tearDown() {
+    DataBase.getInstance().clearAllLists();
+    for (File file : files) {
+      Assertions.assertTrue(file.delete(), "Couldn't delete temporary file.");
+    }
+  }
+
+  /**
+   * Tests that adding several files at once gives the same histograms and scalers as adding them
+   * one at a time.
+   *
+   * @throws InterruptedException if interrupted while reading
+   */
+  @Test
+  public void testMatchesSerialAdd() throws InterruptedException {
+    for (int i = 0; i < FILES; i++) {
+      final Group group = createGroup(SIZE);
+      fill(group, i + 1);
+      Utility.write(files.get(i), group);
+      DataBase.getInstance().clearAllLists();
+    }
+    Group group = createGroup(SIZE);
+    for (File file : files) {
+      Assertions.assertEquals(
+          "", Utility.read(FileOpenMode.ADD, Collections.singletonList(file)), "Serial add error.");
+    }
+    final int[] serial1d = ((HistInt1D) Utility.getHistogram(group, "h1")).getCounts();
+    final int[][] serial2d = ((HistInt2D) Utility.getHistogram(group, "h2")).getCounts();
+    final double[] serialDouble = ((HistDouble1D) Utility.getHistogram(group, "d1")).getCounts();
+    final int serialScaler = group.getScalerList().get(0).getValue();
+    Assertions.assertEquals(15 * 7, serial1d[7], "Unexpected serial sum.");
+    DataBase.getInstance().clearAllLists();
+    group = createGroup(SIZE);
+    Assertions.assertEquals("", Utility.read(FileOpenMode.ADD, files), "Parallel add error.");
+    Assertions.assertArrayEquals(
+        serial1d,
+        ((HistInt1D) Utility.getHistogram(group, "h1")).getCounts(),
+        "1-d counts differ.");
+    Assertions.assertArrayEquals(
+        serial2d,
+        ((HistInt2D) Utility.getHistogram(group, "h2")).getCounts(),
+        "2-d counts differ.");
+    Assertions.assertArrayEquals(
+        serialDouble,
+        ((HistDouble1D) Utility.getHistogram(group, "d1")).getCounts(),
+        "Double counts differ.");
+    Assertions.assertEquals(
+        serialScaler, group.getScalerList().get(0).getValue(), "Scaler values differ.");
+  }
+
+  /**
+   * Tests adding files whose histograms have fewer and more channels than the histograms in memory.
+   * Channels beyond the end of the histogram in memory are dropped.
+   *
+   * @throws InterruptedException if interrupted while reading
+   */
+  @Test
+  public void testDifferentLengths() throws InterruptedException {
+    final int[] sizes = {SIZE / 2, SIZE, SIZE * 2, SIZE / 4, SIZE + 1};
+    final int[] expected = new int[SIZE];
+    for (int i = 0; i < FILES; i++) {
+      final Group group = createGroup(sizes[i]);
+      fill(group, 1);
+      Utility.write(files.get(i), group);
+      DataBase.getInstance().clearAllLists();
+      for (int x = 0; x < Math.min(SIZE, sizes[i]); x++) {
+        expected[x] += x;
+      }
+    }
+    final Group group = createGroup(SIZE);
+    Assertions.assertEquals("", Utility.read(FileOpenMode.ADD, files), "Parallel add error.");
+    Assertions.assertArrayEquals(
+        expected, ((HistInt1D) Utility.getHistogram(group, "h1")).getCounts(), "Unexpected sums.");
+  }
+
+  /**
+   * Tests that when one file can't be read, the counts in the others are still added.
+   *
+   * @throws IOException if the file can't be truncated
+   * @throws InterruptedException if interrupted while reading
+   */
+  @Test
+  public void testFailedFileSkipped() throws IOException, InterruptedException {
+    final int bad = 2;
+    int factors = 0;
+    for (int i = 0; i < FILES; i++) {
+      final Group group = createGroup(SIZE);
+      fill(group, i + 1);
+      Utility.write(files.get(i), group);
+      DataBase.getInstance().clearAllLists();
+      if (i != bad) {
+        factors += i + 1;
+      }
+    }
+    try (RandomAccessFile truncate = new RandomAccessFile(files.get(bad), "rw")) {
+      truncate.setLength(truncate.length() / 2);
+    }
+    final Group group = createGroup(SIZE);
+    Utility.read(FileOpenMode.ADD, files);
+    final int[] counts = ((HistInt1D) Utility.getHistogram(group, "h1")).getCounts();
+    for (int x = 0; x < SIZE; x++) {
+      Assertions.assertEquals(factors * x, counts[x], "Unexpected sum in channel " + x);
+    }
+    Assertions.assertEquals(
+        factors * 1000, group.getScalerList().get(0).getValue(), "Unexpected scaler sum.");
+  }
+
+  private static Group createGroup(final int size) {
+    final Group group = Factory.createGroup(GROUP_NAME, Group.Type.FILE);
+    Factory.createHistogram(group, new int[size], "h1");
+    Factory.createHistogram(group, new int[size / 4][size / 4], "h2");
+    Factory.createHistogram(group, new double[size], "d1");
+    Factory.createScaler(group, "s1", 0);
+    return group;
+  }
+
+  /*
+   * non-javadoc: Fills every histogram with counts depending on the channel
+   * and the given factor, and sets the scaler.
+   */
+  private static void fill(final Group group, final int factor) {
+    final HistInt1D hist1 = (HistInt1D) Utility.getHistogram(group, "h1");
+    for (int x = 0; x < hist1.getSizeX(); x++) {
+      hist1.setCounts(x, factor * x);
+    }
+    final HistInt2D hist2 = (HistInt2D) Utility.getHistogram(group, "h2");
+    for (int x = 0; x < hist2.getSizeX(); x++) {
+      for (int y = 0; y < hist2.getSizeY(); y++) {
+        hist2.setCounts(x, y, factor * (x + y));
+      }
+    }
+    final HistDouble1D histD = (HistDouble1D) Utility.getHistogram(group, "d1");
+    for (int x = 0; x < histD.getSizeX(); x++) {
+      histD.setCounts(x, factor * x / 3.0);
+    }
+    final Scaler scaler = group.getScalerList().get(0);
+    scaler.setValue(factor * 1000);
+  }
+}
@@ -0,0 +1,89 @@
+package test.io.hdf;
+
+import jam.io.hdf.HDFException;
+import jam.io.hdf.ScanForScalers;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * JUnit tests for <code>jam.io.hdf.ScanForScalers</code>, which reads HDF files on whatever
+ * thread calls it.
+ *
+ * @author Dale Visser
+ * @see ScanForScalers
+ */
+public final class ScanForScalersTest { // NOPMD
+
+  private static final String SAMPLE_HDF = "sampledata/exampleGates1.hdf";
+
+  private static final int REPEATS = 20;
+
+  private transient File first;
+
+  private transient File second;
+
+  /**
+   * Copy the sample file twice, so that both files have data objects with the same tags and
+   * reference numbers.
+   *
+   * @throws IOException if the copies can't be made
+   */
+  @BeforeEach
+  public void setUp() throws IOException {
+    first = File.createTempFile("scan1", ".hdf");
+    second = File.createTempFile("scan2", ".hdf");
+    Files.copy(new File(SAMPLE_HDF).toPath(), first.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    Files.copy(new File(SAMPLE_HDF).toPath(), second.toPath(), StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  /** Delete the temporary files. */
+  @AfterEach
+  public void tearDown() {
+    Assertions.assertTrue(first.delete(), "Couldn't delete temporary file.");
+    Assertions.assertTrue(second.delete(), "Couldn't delete temporary file.");
+  }
+
+  /**
+   * Tests that two files read at once on different threads each give the same scaler values as
+   * when read alone.
+   *
+   * @throws Exception if scanning fails
+   */
+  @Test
+  public void testConcurrentScans() throws Exception {
+    final String expected1 = scan(first, 1);
+    final String expected2 = scan(second, 2);
+    Assertions.assertTrue(expected1.contains("\t"), "Expected scaler values in sample file.");
+    final ExecutorService pool = Executors.newFixedThreadPool(2);
+    try {
+      for (int i = 0; i < REPEATS; i++) {
+        final List<Callable<String>> scans = new ArrayList<>();
+        scans.add(() -> scan(first, 1));
+        scans.add(() -> scan(second, 2));
+        final List<Future<String>> results = pool.invokeAll(scans);
+        Assertions.assertEquals(expected1, results.get(0).get(), "Unexpected first file scan.");
+        Assertions.assertEquals(expected2, results.get(1).get(), "Unexpected second file scan.");
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  private static String scan(final File file, final int index) throws IOException, HDFException {
+    final StringBuffer text = new StringBuffer();
+    new ScanForScalers((message, progress) -> {}).processFile('\n', text, 1, index, file);
+    return text.toString();
+  }
+}
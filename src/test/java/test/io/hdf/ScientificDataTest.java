@@ -0,0 +1,182 @@
+package test.io.hdf;
+
+import jam.data.DataBase;
+import jam.data.Factory;
+import jam.data.Group;
+import jam.data.HistDouble1D;
+import jam.data.HistDouble2D;
+import jam.data.HistInt1D;
+import jam.data.HistInt2D;
+import jam.data.Warehouse;
+import jam.io.FileOpenMode;
+import jam.io.hdf.HDFPrefs;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * JUnit tests for writing and reading histogram counts, which HDF files hold in <code>
+ * jam.io.hdf.ScientificData</code> objects, compressed or not.
+ *
+ * @author Dale Visser
+ */
+public final class ScientificDataTest { // NOPMD
+
+  private static final String GROUP_NAME = "TestCountsGroup";
+
+  /** written before histograms could be compressed, with counts as made by createGroup() */
+  private static final String UNCOMPRESSED = "test/io/hdf/uncompressed.hdf";
+
+  private static final String FIXTURE_GROUP = "Fixture";
+
+  private transient File file;
+
+  private transient File uncompressed;
+
+  private transient boolean compress;
+
+  private transient boolean mapOnOpen;
+
+  /**
+   * Create the temporary files, and remember the preferences the tests change.
+   *
+   * @throws IOException if the files can't be created
+   */
+  @BeforeEach
+  public void setUp() throws IOException {
+    file = File.createTempFile("compressed", ".hdf");
+    uncompressed = File.createTempFile("uncompressed", ".hdf");
+    compress = HDFPrefs.PREFS.getBoolean(HDFPrefs.COMPRESS, false);
+    mapOnOpen = HDFPrefs.PREFS.getBoolean(HDFPrefs.MAP_ON_OPEN, false);
+  }
+
+  /** Delete the temporary files, restore the preferences, and clean up. */
+  @AfterEach
+  public void tearDown() {
+    HDFPrefs.PREFS.putBoolean(HDFPrefs.COMPRESS, compress);
+    HDFPrefs.PREFS.putBoolean(HDFPrefs.MAP_ON_OPEN, mapOnOpen);
+    DataBase.getInstance().clearAllLists();
+    Assertions.assertTrue(file.delete(), "Couldn't delete temporary file.");
+    Assertions.assertTrue(uncompressed.delete(), "Couldn't delete temporary file.");
+  }
+
+  /**
+   * Tests that compressed 1-d and 2-d, int and double counts read back as written.
+   *
+   * @throws InterruptedException if interrupted while reading
+   */
+  @Test
+  public void testCompressedRoundTrip() throws InterruptedException {
+    assertRoundTrip(false);
+  }
+
+  /**
+   * Tests that compressed counts read back as written when opened files are mapped, which
+   * compressed counts can't be.
+   *
+   * @throws InterruptedException if interrupted while reading
+   */
+  @Test
+  public void testCompressedRoundTripMapped() throws InterruptedException {
+    assertRoundTrip(true);
+  }
+
+  /**
+   * Tests that a file written before histograms could be compressed still reads.
+   *
+   * @throws IOException if the file can't be copied
+   * @throws InterruptedException if interrupted while reading
+   */
+  @Test
+  public void testReadUncompressed() throws IOException, InterruptedException {
+    HDFPrefs.PREFS.putBoolean(HDFPrefs.MAP_ON_OPEN, false);
+    try (InputStream stream = getClass().getClassLoader().getResourceAsStream(UNCOMPRESSED)) {
+      Assertions.assertNotNull(stream, "Couldn't find " + UNCOMPRESSED);
+      Files.copy(stream, uncompressed.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+    final Object[] expected = getCounts(createGroup(FIXTURE_GROUP, 100, 50, 20, 30, 10, 12));
+    open(uncompressed);
+    Assertions.assertArrayEquals(
+        expected, getCounts(Warehouse.getGroupCollection().get(FIXTURE_GROUP)), "Counts differ.");
+  }
+
+  private void assertRoundTrip(final boolean map) throws InterruptedException {
+    final Group group = createGroup(GROUP_NAME, 1000, 600, 64, 48, 32, 40);
+    final Object[] expected = getCounts(group);
+    HDFPrefs.PREFS.putBoolean(HDFPrefs.COMPRESS, false);
+    Utility.write(uncompressed, group);
+    HDFPrefs.PREFS.putBoolean(HDFPrefs.COMPRESS, true);
+    Utility.write(file, group);
+    Assertions.assertTrue(
+        file.length() < uncompressed.length() / 2,
+        "Expected compressed file to be much smaller than " + uncompressed.length() + " bytes.");
+    HDFPrefs.PREFS.putBoolean(HDFPrefs.MAP_ON_OPEN, map);
+    open(file);
+    Assertions.assertArrayEquals(
+        expected, getCounts(Warehouse.getGroupCollection().get(GROUP_NAME)), "Counts differ.");
+  }
+
+  /*
+   * non-javadoc: Opens a file in place of the current groups.
+   */
+  private static void open(final File hdf) throws InterruptedException {
+    Assertions.assertEquals(
+        "", Utility.read(FileOpenMode.OPEN, Collections.singletonList(hdf)), "Error opening.");
+  }
+
+  private static Group createGroup(
+      final String name,
+      final int size1d,
+      final int sizeDouble1d,
+      final int sizeX,
+      final int sizeY,
+      final int sizeDoubleX,
+      final int sizeDoubleY) {
+    final Group group = Factory.createGroup(name, Group.Type.FILE);
+    final HistInt1D int1d = (HistInt1D) Factory.createHistogram(group, new int[size1d], "i1");
+    for (int x = 0; x < size1d; x++) {
+      int1d.setCounts(x, x * 7 % 13);
+    }
+    final HistDouble1D double1d =
+        (HistDouble1D) Factory.createHistogram(group, new double[sizeDouble1d], "d1");
+    for (int x = 0; x < sizeDouble1d; x++) {
+      double1d.setCounts(x, x / 4.0);
+    }
+    final HistInt2D int2d =
+        (HistInt2D) Factory.createHistogram(group, new int[sizeX][sizeY], "i2");
+    for (int x = 0; x < sizeX; x++) {
+      for (int y = 0; y < sizeY; y++) {
+        int2d.setCounts(x, y, 100 * x + y);
+      }
+    }
+    final HistDouble2D double2d =
+        (HistDouble2D) Factory.createHistogram(group, new double[sizeDoubleX][sizeDoubleY], "d2");
+    for (int x = 0; x < sizeDoubleX; x++) {
+      for (int y = 0; y < sizeDoubleY; y++) {
+        double2d.setCounts(x, y, x + y / 8.0);
+      }
+    }
+    return group;
+  }
+
+  /*
+   * non-javadoc: Copies of the counts of the histograms made by
+   * createGroup(), which opening a file clears.
+   */
+  private static Object[] getCounts(final Group group) {
+    Assertions.assertNotNull(group, "Expected group to be read.");
+    return new Object[] {
+      ((HistInt1D) Utility.getHistogram(group, "i1")).getCounts(),
+      ((HistDouble1D) Utility.getHistogram(group, "d1")).getCounts(),
+      ((HistInt2D) Utility.getHistogram(group, "i2")).getCounts(),
+      ((HistDouble2D) Utility.getHistogram(group, "d2")).getCounts()
+    };
+  }
+}
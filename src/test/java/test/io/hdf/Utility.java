@@ -0,0 +1,97 @@
+package test.io.hdf;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import injection.GuiceInjector;
+import jam.data.AbstractHistogram;
+import jam.data.Group;
+import jam.data.Warehouse;
+import jam.io.FileOpenMode;
+import jam.io.hdf.HDFIO;
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+final class Utility {
+
+  private static final long TIMEOUT = 60L;
+
+  private Utility() {
+    // make no instances
+  }
+
+  /**
+   * @param group to look in
+   * @param name of a histogram in the group
+   * @return the histogram, or <code>null</code> if there is none by that name
+   */
+  static AbstractHistogram getHistogram(final Group group, final String name) {
+    AbstractHistogram rval = null;
+    for (AbstractHistogram histogram : group.histograms.getList()) {
+      if (histogram.getName().trim().equals(name)) {
+        rval = histogram;
+      }
+    }
+    return rval;
+  }
+
+  /**
+   * Writes a group, failing the test if it can't be written.
+   *
+   * @param file to write to
+   * @param group to write
+   */
+  static void write(final File file, final Group group) {
+    final HDFIO hdfio = GuiceInjector.getObjectInstance(HDFIO.class);
+    assertEquals("", hdfio.writeGroup(file, group), "Expected no error writing " + file);
+  }
+
+  /**
+   * Reads files into the existing groups, waiting until done.
+   *
+   * @param mode how to read the files
+   * @param files to read
+   * @return error message, empty if all were read
+   * @throws InterruptedException if interrupted while waiting
+   */
+  static String read(final FileOpenMode mode, final List<File> files)
+      throws InterruptedException {
+    return read(mode, files, Warehouse.getGroupCollection().getList());
+  }
+
+  /**
+   * Opens files in place of the current groups, reading every group in them, waiting until done.
+   *
+   * @param files to open
+   * @return error message, empty if all were read
+   * @throws InterruptedException if interrupted while waiting
+   */
+  static String open(final List<File> files) throws InterruptedException {
+    return read(FileOpenMode.OPEN, files, null);
+  }
+
+  /*
+   * non-javadoc: Reads the given groups in the files, or all of them if
+   * null, waiting until done.
+   */
+  private static String read(
+      final FileOpenMode mode, final List<File> files, final List<Group> groups)
+      throws InterruptedException {
+    final HDFIO hdfio = GuiceInjector.getObjectInstance(HDFIO.class);
+    final CountDownLatch done = new CountDownLatch(1);
+    final AtomicReference<String> error = new AtomicReference<>();
+    hdfio.setListener(
+        (message, errorMessage) -> {
+          error.set(errorMessage);
+          done.countDown();
+        });
+    assertTrue(
+        hdfio.readFile(mode, files, groups, null),
+        "Expected HDF files to be found.");
+    assertTrue(done.await(TIMEOUT, TimeUnit.SECONDS), "Timed out reading HDF files.");
+    return error.get();
+  }
+}
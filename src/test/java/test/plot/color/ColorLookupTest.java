@@ -0,0 +1,61 @@
+package test.plot.color;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import jam.plot.color.ColorLookup;
+import jam.plot.color.DiscreteColorScale;
+import jam.plot.color.GradientColorScale;
+import jam.plot.common.Scale;
+import java.awt.Color;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that precomputed color scales give the same colors as the scales themselves.
+ *
+ * @author Dale Visser
+ * @see ColorLookup
+ */
+public final class ColorLookupTest { // NOPMD
+
+  private static final int MAX_COUNTS = 5000;
+
+  /** Test that discrete scales are looked up exactly. */
+  @Test
+  public void discreteMatchesScale() {
+    for (Scale scale : new Scale[] {Scale.LINEAR, Scale.LOG}) {
+      final DiscreteColorScale colors = DiscreteColorScale.getScale(scale);
+      colors.setRange(0, MAX_COUNTS);
+      final ColorLookup lookup = ColorLookup.of(colors);
+      for (int counts = 1; counts <= 2 * MAX_COUNTS; counts++) {
+        assertEquals(
+            colors.getColor(counts).getRGB(),
+            lookup.getRGB(counts),
+            "Expected same color for " + counts + " counts on " + scale + " scale.");
+      }
+    }
+  }
+
+  /** Test that gradient scales are sampled closely enough not to be seen. */
+  @Test
+  public void gradientCloseToScale() {
+    for (Scale scale : new Scale[] {Scale.LINEAR, Scale.LOG}) {
+      final GradientColorScale colors = GradientColorScale.getScale(scale);
+      colors.setRange(1, MAX_COUNTS);
+      final ColorLookup lookup = ColorLookup.of(colors, scale, 1, MAX_COUNTS);
+      for (int counts = 1; counts <= MAX_COUNTS; counts++) {
+        final Color expected = colors.getColor(counts);
+        final Color actual = new Color(lookup.getRGB(counts));
+        final int difference =
+            Math.max(
+                Math.abs(expected.getRed() - actual.getRed()),
+                Math.max(
+                    Math.abs(expected.getGreen() - actual.getGreen()),
+                    Math.abs(expected.getBlue() - actual.getBlue())));
+        assertTrue(
+            difference <= 2,
+            "Expected close color for " + counts + " counts on " + scale + " scale.");
+      }
+    }
+  }
+}
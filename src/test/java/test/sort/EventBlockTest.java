@@ -0,0 +1,241 @@
+package test.sort;
+
+import jam.data.EventBlock;
+import jam.data.Sorter;
+import jam.sort.stream.AbstractEventInputStream;
+import jam.sort.stream.AbstractEventInputStream.EventInputStatus;
+import jam.sort.stream.EventException;
+import jam.sort.stream.Kmax6InputStream;
+import jam.sort.stream.L002InputStream;
+import jam.sort.stream.YaleCAEN_InputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that decoding whole buffers into an <code>EventBlock</code> gives the same events as
+ * reading them one at a time.
+ *
+ * @author Dale Visser
+ * @see EventBlock
+ */
+public final class EventBlockTest { // NOPMD
+
+  private static final int L002_EVENT_SIZE = 8;
+
+  private static final int KMAX_EVENT_SIZE = 3;
+
+  private static boolean continues(final EventInputStatus status) {
+    return status == EventInputStatus.EVENT
+        || status == EventInputStatus.SCALER_VALUE
+        || status == EventInputStatus.IGNORE
+        || status == EventInputStatus.END_BUFFER
+        || status == EventInputStatus.UNKNOWN_WORD;
+  }
+
+  private static List<int[]> readEvents(final AbstractEventInputStream stream)
+      throws EventException {
+    final List<int[]> result = new ArrayList<>();
+    final int[] event = new int[stream.getEventSize()];
+    EventInputStatus status = stream.readEvent(event);
+    while (continues(status)) {
+      if (status == EventInputStatus.EVENT) {
+        result.add(event.clone());
+        Arrays.fill(event, 0);
+      }
+      status = stream.readEvent(event);
+    }
+    return result;
+  }
+
+  private static void addBlock(final List<int[]> result, final EventBlock block) {
+    for (int i = 0; i < block.size(); i++) {
+      result.add(block.expand(i).clone());
+      block.clearExpanded(i);
+    }
+  }
+
+  private static List<int[]> readBlocks(
+      final AbstractEventInputStream stream, final ByteBuffer buffer) throws EventException {
+    final List<int[]> result = new ArrayList<>();
+    final EventBlock block = new EventBlock(stream.getEventSize());
+    EventInputStatus status;
+    do {
+      status = stream.readBlock(buffer, block);
+      addBlock(result, block);
+    } while (continues(status));
+    return result;
+  }
+
+  private static void assertSameEvents(final List<int[]> expected, final List<int[]> actual) {
+    Assertions.assertEquals(expected.size(), actual.size(), "Expected same number of events.");
+    for (int i = 0; i < expected.size(); i++) {
+      Assertions.assertArrayEquals(expected.get(i), actual.get(i), "Event " + i + " differs.");
+    }
+  }
+
+  private static byte[] createL002Buffer() throws IOException {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    final DataOutputStream out = new DataOutputStream(bytes);
+    for (int i = 0; i < 100; i++) {
+      out.writeShort(0x8001);
+      out.writeShort(i);
+      out.writeShort(0x8000 + 2 + i % 5);
+      out.writeShort(1000 + i);
+      if (i % 10 == 0) {
+        out.writeShort(0x8801); // scaler
+        out.writeInt(12_345);
+      }
+      out.writeShort(0x8000 + L002_EVENT_SIZE + 1); // beyond event size, dropped
+      out.writeShort(7);
+      out.writeShort(0xFFFF);
+      if (i % 25 == 24) {
+        out.writeShort(0xFFF0);
+      }
+    }
+    out.writeShort(0xFF03);
+    out.flush();
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Tests the L002 stream's direct buffer decoding.
+   *
+   * @throws IOException if creating the data fails
+   * @throws EventException if decoding fails
+   */
+  @Test
+  public void testL002() throws IOException, EventException {
+    final byte[] data = createL002Buffer();
+    final L002InputStream single = new L002InputStream(true, L002_EVENT_SIZE);
+    single.setInputStream(new ByteArrayInputStream(data));
+    final List<int[]> expected = readEvents(single);
+    Assertions.assertEquals(100, expected.size(), "Expected 100 events.");
+    final L002InputStream blocks = new L002InputStream(true, L002_EVENT_SIZE);
+    assertSameEvents(expected, readBlocks(blocks, ByteBuffer.wrap(data)));
+  }
+
+  /**
+   * Tests the YaleCAEN stream's direct buffer decoding, using the sample event file.
+   *
+   * @throws IOException if reading the file fails
+   * @throws EventException if decoding fails
+   */
+  @Test
+  public void testYaleCAEN() throws IOException, EventException {
+    final byte[] data;
+    try (InputStream input =
+        getClass().getClassLoader().getResourceAsStream("test/sort/YaleCAENTestData.evn")) {
+      data = input.readAllBytes();
+    }
+    final int eventSize = YaleCAEN_InputStream.ZEROS.length;
+    final YaleCAEN_InputStream single = new YaleCAEN_InputStream(true, eventSize);
+    single.setInputStream(new ByteArrayInputStream(data));
+    Assertions.assertTrue(single.readHeader(), "Expected a valid header.");
+    final List<int[]> expected = readEvents(single);
+    Assertions.assertEquals(302, expected.size(), "Expected every event in the file.");
+    final YaleCAEN_InputStream blocks = new YaleCAEN_InputStream(true, eventSize);
+    final ByteArrayInputStream header = new ByteArrayInputStream(data);
+    blocks.setInputStream(header);
+    Assertions.assertTrue(blocks.readHeader(), "Expected a valid header.");
+    final ByteBuffer buffer = ByteBuffer.wrap(data);
+    buffer.position(data.length - header.available());
+    assertSameEvents(expected, readBlocks(blocks, buffer));
+  }
+
+  /**
+   * Tests that the Kmax stream reads whole blocks, skipping blocks of other event types.
+   *
+   * @throws IOException if creating the data fails
+   * @throws EventException if decoding fails
+   */
+  @Test
+  public void testKmax6() throws IOException, EventException {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    final DataOutputStream out = new DataOutputStream(bytes);
+    out.write(new byte[354]);
+    for (int type = 1; type <= 5; type++) {
+      out.writeShort(type == 5 ? KMAX_EVENT_SIZE : 2);
+    }
+    out.write(new byte[54 + 316]);
+    out.writeInt(5); // event type
+    out.writeInt(4); // number of events
+    for (int i = 0; i < 4 * KMAX_EVENT_SIZE; i++) {
+      out.writeInt(i);
+    }
+    out.writeInt(1); // skipped block
+    out.writeInt(2);
+    out.write(new byte[2 * 2 * Integer.BYTES]);
+    out.flush();
+    final Kmax6InputStream stream = new Kmax6InputStream(true, KMAX_EVENT_SIZE);
+    stream.setInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    Assertions.assertTrue(stream.readHeader(), "Expected a valid header.");
+    final EventBlock block = new EventBlock(KMAX_EVENT_SIZE);
+    Assertions.assertEquals(EventInputStatus.END_BUFFER, stream.readBlock(block));
+    final List<int[]> events = new ArrayList<>();
+    addBlock(events, block);
+    Assertions.assertEquals(4, events.size(), "Expected 4 events in first block.");
+    Assertions.assertArrayEquals(new int[] {9, 10, 11}, events.get(3), "Unexpected last event.");
+    Assertions.assertEquals(EventInputStatus.END_BUFFER, stream.readBlock(block));
+    Assertions.assertEquals(0, block.size(), "Expected other event types to be skipped.");
+    Assertions.assertEquals(EventInputStatus.END_FILE, stream.readBlock(block));
+  }
+
+  /** Sort routine which writes a calculated parameter, and notes any left from the last event. */
+  private static final class CalculatingSorter implements Sorter {
+
+    private transient int stale;
+
+    public int getBufferSize() {
+      return 0;
+    }
+
+    public int getEventSize() {
+      return L002_EVENT_SIZE;
+    }
+
+    public void initialize() {
+      // nothing to set up
+    }
+
+    public double monitor(final String name) {
+      return 0.0;
+    }
+
+    public void setWriteEnabled(final boolean enable) {
+      // never writes events
+    }
+
+    public void sort(final int[] dataWords) {
+      final int calculated = L002_EVENT_SIZE - 1;
+      if (dataWords[calculated] != 0) {
+        stale++;
+      }
+      dataWords[calculated] = dataWords[1] + dataWords[2];
+    }
+  }
+
+  /**
+   * Tests that by default, values a sort routine writes into an event don't carry into the next.
+   *
+   * @throws Exception if decoding or sorting fails
+   */
+  @Test
+  public void testSortBlockClearsCalculated() throws Exception { // NOPMD
+    final L002InputStream stream = new L002InputStream(true, L002_EVENT_SIZE);
+    final EventBlock block = new EventBlock(L002_EVENT_SIZE);
+    stream.readBlock(ByteBuffer.wrap(createL002Buffer()), block);
+    Assertions.assertTrue(block.size() > 1, "Expected several events in block.");
+    final CalculatingSorter sorter = new CalculatingSorter();
+    sorter.sortBlock(block);
+    Assertions.assertEquals(0, sorter.stale, "Calculated parameter carried into later events.");
+  }
+}
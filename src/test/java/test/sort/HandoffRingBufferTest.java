@@ -0,0 +1,103 @@
+package test.sort;
+
+import injection.GuiceInjector;
+import jam.sort.BufferPool;
+import jam.sort.HandoffRingBuffer;
+import jam.sort.PooledBuffer;
+import jam.sort.RingBufferFactory;
+import java.util.Arrays;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * JUnit tests for <code>jam.sort.HandoffRingBuffer</code> and its buffer pool.
+ *
+ * @author Dale Visser
+ * @see HandoffRingBuffer
+ */
+public final class HandoffRingBufferTest { // NOPMD
+
+  private final transient RingBufferFactory ringFactory =
+      GuiceInjector.getObjectInstance(RingBufferFactory.class);
+
+  private transient BufferPool pool;
+
+  private transient HandoffRingBuffer sortRing, storeRing;
+
+  /** Set up the test. */
+  @BeforeEach
+  public void setUp() {
+    pool = BufferPool.forRings(2, ringFactory.getGeometry());
+    sortRing = ringFactory.create(false, pool);
+    storeRing = ringFactory.create(false, pool);
+  }
+
+  /**
+   * Tests that one buffer handed to two rings is shared, and only returns to the pool once both
+   * consumers release it.
+   *
+   * @throws InterruptedException if a take operation fails
+   */
+  @Test
+  public void testSharedBufferReturnsToPool() throws InterruptedException {
+    final int capacity = pool.getCapacity();
+    final PooledBuffer received = pool.tryAcquire();
+    Arrays.fill(received.array(), (byte) 7);
+    Assertions.assertTrue(sortRing.tryPut(received), "Expected success putting into sort ring.");
+    Assertions.assertTrue(storeRing.tryPut(received), "Expected success putting into store ring.");
+    received.release();
+    Assertions.assertEquals(2, received.getReferenceCount(), "Expected one reference per ring.");
+    final PooledBuffer sorted = sortRing.take();
+    final PooledBuffer stored = storeRing.take();
+    Assertions.assertSame(received, sorted, "Expected the same instance, not a copy.");
+    Assertions.assertSame(received, stored, "Expected the same instance, not a copy.");
+    sorted.release();
+    Assertions.assertEquals(capacity - 1, pool.getAvailable(), "Still held by storage.");
+    stored.release();
+    Assertions.assertEquals(capacity, pool.getAvailable(), "Expected buffer back in pool.");
+  }
+
+  /** Tests that a full ring refuses a buffer without keeping a reference to it. */
+  @Test
+  public void testFullRingReleasesReference() {
+    for (int i = 0; i < sortRing.getGeometry().getNumberBuffers(); i++) {
+      final PooledBuffer buffer = pool.tryAcquire();
+      Assertions.assertTrue(sortRing.tryPut(buffer), "Expected success putting buffer.");
+      buffer.release();
+    }
+    Assertions.assertTrue(sortRing.isFull(), "Expected full ring buffer.");
+    final PooledBuffer extra = pool.tryAcquire();
+    Assertions.assertFalse(sortRing.tryPut(extra), "Expected failure putting into full ring.");
+    Assertions.assertEquals(1, extra.getReferenceCount(), "Only the producer holds it.");
+    extra.release();
+    sortRing.clear();
+    Assertions.assertTrue(sortRing.isEmpty(), "Expected empty ring buffer.");
+    Assertions.assertEquals(pool.getCapacity(), pool.getAvailable(), "Expected all in pool.");
+  }
+
+  /**
+   * Tests that the copying <code>RingBuffer</code> methods still work.
+   *
+   * @throws InterruptedException if a get operation fails
+   */
+  @Test
+  public void testCopyingMethods() throws InterruptedException {
+    final byte[] input = ringFactory.freshBuffer();
+    final byte[] output = ringFactory.freshBuffer();
+    Arrays.fill(input, (byte) 3);
+    Assertions.assertTrue(sortRing.tryPutBuffer(input), "Expected success putting buffer.");
+    Assertions.assertEquals(1, sortRing.getUsedBuffers(), "Expected 1 buffer used.");
+    sortRing.getBuffer(output);
+    Assertions.assertArrayEquals(input, output, "Arrays should have been equal.");
+    Assertions.assertEquals(pool.getCapacity(), pool.getAvailable(), "Expected all in pool.");
+  }
+
+  /** Tests that releasing too many times is caught. */
+  @Test
+  public void testOverRelease() {
+    final PooledBuffer buffer = pool.tryAcquire();
+    buffer.release();
+    Assertions.assertThrows(IllegalStateException.class, buffer::retain);
+  }
+}
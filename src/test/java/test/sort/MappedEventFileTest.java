@@ -0,0 +1,129 @@
+package test.sort;
+
+import jam.sort.stream.AbstractEventInputStream.EventInputStatus;
+import jam.sort.stream.EventException;
+import jam.sort.stream.MappedEventFile;
+import jam.sort.stream.YaleCAEN_InputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * JUnit tests for <code>jam.sort.stream.MappedEventFile</code>.
+ *
+ * @author Dale Visser
+ * @see MappedEventFile
+ */
+public final class MappedEventFileTest { // NOPMD
+
+  /** small, and not a multiple of 4, so that words straddle windows */
+  private static final int WINDOW = 10;
+
+  private transient File file;
+
+  /**
+   * Create the temporary file.
+   *
+   * @throws IOException if the file can't be created
+   */
+  @BeforeEach
+  public void setUp() throws IOException {
+    file = File.createTempFile("mapped", ".evn");
+  }
+
+  /** Delete the temporary file. */
+  @AfterEach
+  public void tearDown() {
+    Assertions.assertTrue(file.delete(), "Couldn't delete temporary file.");
+  }
+
+  /**
+   * Tests reading words and bytes across window boundaries.
+   *
+   * @throws IOException if reading or writing fails
+   */
+  @Test
+  public void testReadAcrossWindows() throws IOException {
+    try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+      out.writeByte(0x7f);
+      for (int i = 0; i < 100; i++) {
+        out.writeShort(-i);
+        out.writeInt(100_000 * i);
+      }
+    }
+    try (MappedEventFile mapped = new MappedEventFile(file, WINDOW)) {
+      Assertions.assertEquals(601, mapped.getLength(), "Unexpected length.");
+      Assertions.assertEquals(0x7f, mapped.read(), "Unexpected first byte.");
+      for (int i = 0; i < 100; i++) {
+        Assertions.assertEquals((short) -i, mapped.readShort(), "Unexpected short.");
+        Assertions.assertEquals(100_000 * i, mapped.readInt(), "Unexpected int.");
+      }
+      Assertions.assertEquals(-1, mapped.read(), "Expected end of file.");
+      Assertions.assertThrows(EOFException.class, mapped::readShort);
+    }
+    try (DataInputStream input = new DataInputStream(new MappedEventFile(file, WINDOW))) {
+      Assertions.assertEquals(1, input.skip(1), "Expected to skip first byte.");
+      final byte[] rest = new byte[600];
+      input.readFully(rest);
+      Assertions.assertEquals(-1, input.read(), "Expected end of file.");
+    }
+  }
+
+  /**
+   * Tests that an event stream given a mapped file reads the same events as from a stream.
+   *
+   * @throws IOException if reading the file fails
+   * @throws EventException if decoding fails
+   */
+  @Test
+  public void testSameEventsAsStream() throws IOException, EventException {
+    final byte[] data;
+    try (InputStream input =
+        getClass().getClassLoader().getResourceAsStream("test/sort/YaleCAENTestData.evn")) {
+      data = input.readAllBytes();
+    }
+    Files.write(file.toPath(), data);
+    final int eventSize = YaleCAEN_InputStream.ZEROS.length;
+    final YaleCAEN_InputStream fromBytes = new YaleCAEN_InputStream(true, eventSize);
+    fromBytes.setInputStream(new ByteArrayInputStream(data));
+    Assertions.assertTrue(fromBytes.readHeader(), "Expected a valid header.");
+    final List<Integer> expected = readChecksums(fromBytes, eventSize);
+    try (MappedEventFile mapped = new MappedEventFile(file, 4096)) {
+      final YaleCAEN_InputStream fromMapped = new YaleCAEN_InputStream(true, eventSize);
+      fromMapped.setInputStream(mapped);
+      Assertions.assertTrue(fromMapped.readHeader(), "Expected a valid header.");
+      Assertions.assertEquals(expected, readChecksums(fromMapped, eventSize), "Events differ.");
+    }
+  }
+
+  private static List<Integer> readChecksums(final YaleCAEN_InputStream stream, final int size)
+      throws EventException {
+    final List<Integer> result = new ArrayList<>();
+    final int[] event = new int[size];
+    EventInputStatus status = stream.readEvent(event);
+    while (status != EventInputStatus.END_RUN && status != EventInputStatus.END_FILE) {
+      if (status == EventInputStatus.EVENT) {
+        int sum = 0;
+        for (int i = 0; i < size; i++) {
+          sum = 31 * sum + event[i];
+          event[i] = 0;
+        }
+        result.add(sum);
+      }
+      status = stream.readEvent(event);
+    }
+    return result;
+  }
+}
@@ -0,0 +1,404 @@
+package test.sort;
+
+import injection.GuiceInjector;
+import jam.data.DataBase;
+import jam.data.Factory;
+import jam.data.Group;
+import jam.data.HistInt1D;
+import jam.data.HistInt2D;
+import jam.data.Sorter;
+import jam.global.Broadcaster;
+import jam.global.GoodThread;
+import jam.global.JamProperties;
+import jam.global.PropertyKeys;
+import jam.sort.OfflineController;
+import jam.sort.RingBuffer;
+import jam.sort.RingBufferFactory;
+import jam.sort.SortDaemon;
+import jam.sort.StatelessSorter;
+import jam.sort.stream.AbstractEventInputStream;
+import jam.sort.stream.EventException;
+import jam.sort.stream.L002Parameters;
+import jam.sort.stream.MappedEventFile;
+import jam.sort.stream.YaleCAEN_InputStream;
+import jam.sort.stream.YaleInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * JUnit tests sorting the sample event files with <code>sort.threads=2</code>, which sorts files,
+ * and online buffers, on more than one thread when the sort routine is a <code>StatelessSorter
+ * </code>. The histograms and event counts should be the same as when sorted on one thread.
+ *
+ * @author Dale Visser
+ * @see jam.sort.StatelessSorter
+ */
+public final class ParallelSortTest { // NOPMD
+
+  private static final String YALE_FILE = "sampledata/example.evn";
+
+  private static final String CAEN_FILE = "test/sort/YaleCAENTestData.evn";
+
+  private static final int EVENT_SIZE = 16;
+
+  private static final int REPEATS = 4;
+
+  private static final long TIMEOUT = 60L;
+
+  private transient String threadsBefore;
+
+  /** Remember the number of sort threads, which the tests change. */
+  @BeforeEach
+  public void setUp() {
+    threadsBefore = JamProperties.getProperties().getProperty(PropertyKeys.SORT_THREADS);
+  }
+
+  /** Restore the number of sort threads, and clean up. */
+  @AfterEach
+  public void tearDown() {
+    if (threadsBefore == null) {
+      JamProperties.getProperties().remove(PropertyKeys.SORT_THREADS);
+    } else {
+      JamProperties.getProperties().setProperty(PropertyKeys.SORT_THREADS, threadsBefore);
+    }
+    DataBase.getInstance().clearAllLists();
+  }
+
+  /**
+   * Tests that Yale event files sorted two at a time give the same histograms and counts as sorted
+   * one after another.
+   *
+   * @throws Exception if sorting fails
+   */
+  @Test
+  public void testOfflineYale() throws Exception { // NOPMD
+    assertOfflineMatchesSerial(YaleInputStream.class, new File(YALE_FILE));
+  }
+
+  /**
+   * Tests that YaleCAEN event files sorted two at a time give the same histograms and counts as
+   * sorted one after another.
+   *
+   * @throws Exception if sorting fails
+   */
+  @Test
+  public void testOfflineYaleCAEN() throws Exception { // NOPMD
+    final Object[] serial =
+        assertOfflineMatchesSerial(YaleCAEN_InputStream.class, getResource(CAEN_FILE));
+    Assertions.assertEquals(302L * REPEATS, serial[0], "Unexpected number of events.");
+  }
+
+  /**
+   * Tests that online buffers sorted by two workers give the same histograms and counts as sorted
+   * by the sort daemon alone.
+   *
+   * @throws Exception if sorting fails
+   */
+  @Test
+  public void testOnlineYale() throws Exception { // NOPMD
+    final List<byte[]> buffers = readBuffers(new File(YALE_FILE));
+    Assertions.assertFalse(buffers.isEmpty(), "Expected whole buffers in " + YALE_FILE);
+    final Object[] serial = sortOnline(1, buffers);
+    Assertions.assertTrue((Long) serial[0] > 0L, "Expected events to be sorted.");
+    Assertions.assertArrayEquals(serial, sortOnline(2, buffers), "Parallel sort differs.");
+  }
+
+  /*
+   * non-javadoc: Sorts the file several times over on one, then two threads,
+   * returning the results sorted on one thread.
+   */
+  private static Object[] assertOfflineMatchesSerial(
+      final Class<? extends AbstractEventInputStream> streamClass, final File file)
+      throws Exception { // NOPMD
+    final List<File> files = new ArrayList<>();
+    for (int i = 0; i < REPEATS; i++) {
+      files.add(file);
+    }
+    final Object[] serial = sortOffline(1, streamClass, files);
+    Assertions.assertTrue((Long) serial[0] > 0L, "Expected events to be sorted.");
+    Assertions.assertArrayEquals(
+        serial, sortOffline(2, streamClass, files), "Parallel sort differs.");
+    return serial;
+  }
+
+  /*
+   * non-javadoc: Sorts the files with the given number of threads, returning
+   * the counters and a copy of every histogram's counts.
+   */
+  private static Object[] sortOffline(
+      final int threads,
+      final Class<? extends AbstractEventInputStream> streamClass,
+      final List<File> files)
+      throws Exception { // NOPMD
+    setSortThreads(threads);
+    final TestSorter sorter = new TestSorter();
+    final AbstractEventInputStream stream = streamClass.getDeclaredConstructor().newInstance();
+    stream.setConsoleExists(true);
+    stream.setBufferSize(RingBuffer.BUFFER_SIZE);
+    final FileController controller = new FileController(stream, files);
+    final SortDaemon daemon =
+        new SortDaemon(controller, GuiceInjector.getObjectInstance(Broadcaster.class));
+    daemon.setSorter(sorter);
+    daemon.setup(stream, EVENT_SIZE);
+    daemon.start();
+    /* it suspends itself before sorting, so wait for that before resuming it */
+    final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT);
+    while (daemon.getState() != Thread.State.WAITING && System.nanoTime() < deadline) {
+      Thread.sleep(10L);
+    }
+    daemon.setState(GoodThread.State.RUN);
+    Assertions.assertTrue(controller.done.await(TIMEOUT, TimeUnit.SECONDS), "Timed out sorting.");
+    daemon.setState(GoodThread.State.STOP);
+    daemon.join(TimeUnit.SECONDS.toMillis(TIMEOUT));
+    Assertions.assertNull(controller.failure.get(), "Error opening event file.");
+    Assertions.assertEquals(files.size(), controller.opened + controller.sorted, "Files sorted.");
+    return getResults(daemon, sorter);
+  }
+
+  /*
+   * non-javadoc: Sorts the buffers online with the given number of threads,
+   * returning the counters and a copy of every histogram's counts.
+   */
+  private static Object[] sortOnline(final int threads, final List<byte[]> buffers)
+      throws Exception { // NOPMD
+    setSortThreads(threads);
+    final TestSorter sorter = new TestSorter();
+    final AbstractEventInputStream stream = new YaleInputStream();
+    stream.setConsoleExists(true);
+    stream.setBufferSize(RingBuffer.BUFFER_SIZE);
+    final RingBuffer ring = GuiceInjector.getObjectInstance(RingBufferFactory.class).create();
+    final SortDaemon daemon =
+        new SortDaemon(
+            new FileController(stream, new ArrayList<>()),
+            GuiceInjector.getObjectInstance(Broadcaster.class));
+    daemon.setRingBuffer(ring);
+    daemon.setSorter(sorter);
+    daemon.setup(stream, EVENT_SIZE);
+    final AtomicReference<Exception> failure = new AtomicReference<>();
+    final Thread thread =
+        new Thread(
+            () -> {
+              try {
+                daemon.sortOnline();
+              } catch (InterruptedException ie) {
+                // stopped by the test
+              } catch (Exception e) { // NOPMD
+                failure.set(e);
+              }
+            },
+            "Test Sort Online");
+    thread.setDaemon(true);
+    thread.start();
+    try {
+      for (int i = 0; i < REPEATS; i++) {
+        for (byte[] buffer : buffers) {
+          Assertions.assertTrue(ring.tryPutBuffer(buffer), "Expected room in the ring.");
+        }
+      }
+      final long expected = (long) REPEATS * buffers.size();
+      final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT);
+      while (failure.get() == null
+          && (daemon.getBufferCount() < expected || !daemon.caughtUp())
+          && System.nanoTime() < deadline) {
+        Thread.sleep(10L);
+      }
+      Assertions.assertNull(failure.get(), "Sorting failed.");
+      Assertions.assertEquals(expected, daemon.getBufferCount(), "Buffers sorted.");
+      Assertions.assertTrue(daemon.caughtUp(), "Expected every buffer merged.");
+    } finally {
+      thread.interrupt();
+      thread.join(TimeUnit.SECONDS.toMillis(TIMEOUT));
+    }
+    return getResults(daemon, sorter);
+  }
+
+  private static void setSortThreads(final int threads) {
+    JamProperties.getProperties().setProperty(PropertyKeys.SORT_THREADS, String.valueOf(threads));
+    DataBase.getInstance().clearAllLists();
+  }
+
+  private static Object[] getResults(final SortDaemon daemon, final TestSorter sorter) {
+    final List<Object> results = new ArrayList<>();
+    results.add(daemon.getEventCount());
+    results.add(daemon.getSortedCount());
+    results.add(daemon.getBufferCount());
+    for (HistInt1D hist : sorter.params) {
+      results.add(hist.getCounts());
+    }
+    results.add(sorter.pair.getCounts());
+    return results.toArray();
+  }
+
+  /*
+   * non-javadoc: The whole events of an event file, after its header, packed
+   * into buffers ending with an end-of-buffer marker, as they would have
+   * arrived online.
+   */
+  private static List<byte[]> readBuffers(final File file) throws IOException {
+    final ByteBuffer words = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+    words.position(L002Parameters.HEADER_LENGTH);
+    final List<byte[]> rval = new ArrayList<>();
+    ByteBuffer buffer = ByteBuffer.allocate(RingBuffer.BUFFER_SIZE);
+    final ByteBuffer event = ByteBuffer.allocate(RingBuffer.BUFFER_SIZE);
+    while (words.remaining() >= Short.BYTES) {
+      final short word = words.getShort();
+      if (word == L002Parameters.RUN_END_MARKER) {
+        break;
+      } else if (word != L002Parameters.BUFFER_END_MARKER) {
+        event.putShort(word);
+      }
+      if (word == L002Parameters.EVENT_END_MARKER) {
+        if (buffer.remaining() < event.position() + Short.BYTES) {
+          rval.add(endBuffer(buffer));
+          buffer = ByteBuffer.allocate(RingBuffer.BUFFER_SIZE);
+        }
+        buffer.put(event.flip());
+        event.clear();
+      }
+    }
+    if (buffer.position() > 0) {
+      rval.add(endBuffer(buffer));
+    }
+    return rval;
+  }
+
+  private static byte[] endBuffer(final ByteBuffer buffer) {
+    while (buffer.hasRemaining()) {
+      buffer.putShort(L002Parameters.BUFFER_END_MARKER);
+    }
+    return buffer.array();
+  }
+
+  private static File getResource(final String name) throws URISyntaxException {
+    return Paths.get(ParallelSortTest.class.getClassLoader().getResource(name).toURI()).toFile();
+  }
+
+  /** Histograms each parameter, and a pair of them, keeping nothing between events. */
+  private static final class TestSorter implements Sorter, StatelessSorter {
+
+    private final transient List<HistInt1D> params = new ArrayList<>();
+
+    private final transient HistInt2D pair;
+
+    TestSorter() {
+      final Group group = Factory.createGroup("ParallelSortTest", Group.Type.SORT);
+      for (int i = 0; i < EVENT_SIZE; i++) {
+        params.add((HistInt1D) Factory.createHistogram(group, new int[4096], "p" + i));
+      }
+      pair = (HistInt2D) Factory.createHistogram(group, new int[256][256], "pair");
+    }
+
+    public int getBufferSize() {
+      return RingBuffer.BUFFER_SIZE;
+    }
+
+    public int getEventSize() {
+      return EVENT_SIZE;
+    }
+
+    public void initialize() {
+      // histograms made by constructor
+    }
+
+    public double monitor(final String name) {
+      return 0.0;
+    }
+
+    public void setWriteEnabled(final boolean enable) {
+      // never writes events
+    }
+
+    public void sort(final int[] dataWords) {
+      for (int i = 0; i < EVENT_SIZE; i++) {
+        params.get(i).inc(dataWords[i]);
+      }
+      pair.inc(dataWords[0] >> 4, dataWords[1] >> 4);
+    }
+  }
+
+  /** Opens the files one at a time for the sort daemon, or hands them all over at once. */
+  private static final class FileController implements OfflineController {
+
+    private final transient AbstractEventInputStream stream;
+
+    private final transient List<File> remaining;
+
+    private final transient CountDownLatch done = new CountDownLatch(1);
+
+    private final transient AtomicReference<Exception> failure = new AtomicReference<>();
+
+    private transient InputStream input;
+
+    private transient int opened;
+
+    private transient volatile int sorted; // NOPMD
+
+    FileController(final AbstractEventInputStream stream, final List<File> files) {
+      this.stream = stream;
+      remaining = new ArrayList<>(files);
+    }
+
+    public boolean openNextFile() {
+      boolean rval = false;
+      try {
+        closeInput();
+        if (!remaining.isEmpty()) {
+          input = new MappedEventFile(remaining.remove(0));
+          stream.setInputStream(input);
+          rval = stream.readHeader();
+          opened++;
+        }
+      } catch (IOException | EventException e) {
+        failure.set(e);
+      }
+      return rval;
+    }
+
+    public List<File> takeRemainingFiles() {
+      final List<File> rval = new ArrayList<>(remaining);
+      remaining.clear();
+      return rval;
+    }
+
+    public void atFileSorted(final File file) {
+      synchronized (this) {
+        sorted++;
+      }
+    }
+
+    public void atSortEnd() {
+      try {
+        closeInput();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      done.countDown();
+    }
+
+    public void atWriteEnd() {
+      // never writes events
+    }
+
+    private void closeInput() throws IOException {
+      if (input != null) {
+        input.close();
+        input = null; // NOPMD
+      }
+    }
+  }
+}
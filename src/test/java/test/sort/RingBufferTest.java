@@ -1,8 +1,12 @@
 package test.sort;
 
 import injection.GuiceInjector;
+import jam.sort.LinkedBlockingDequeRingBuffer;
+import jam.sort.LockFreeRingBuffer;
 import jam.sort.RingBuffer;
 import jam.sort.RingBufferFactory;
+import jam.sort.SimpleRingBuffer;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
@@ -24,6 +28,10 @@ public final class RingBufferTest { // NOPMD
 
   private static final String ARRAYS_NOT_EQUAL = "Arrays should have been equal.";
 
+  private static final int BUFFERS_TO_PASS = 2_000;
+
+  private static final long TIMEOUT_SECONDS = 60L;
+
   private transient RingBuffer ring, emptyRing;
 
   private final transient RingBufferFactory ringFactory =
@@ -213,6 +221,98 @@ public final class RingBufferTest { // NOPMD
     }
   }
 
+  /**
+   * Passes <code>BUFFERS_TO_PASS</code> numbered buffers from one thread to another, checking that
+   * every one arrives, in order.
+   *
+   * @param ringClass the implementation to pass buffers through
+   */
+  private void assertHandoffInOrder(final Class<? extends RingBuffer> ringClass) {
+    final RingBuffer ring2 = ringFactory.create(ringClass, false);
+    Assertions.assertEquals(ringClass, ring2.getClass(), "Expected a certain class.");
+    final Future<Integer> consumer =
+        executor.submit(
+            () -> {
+              final byte[] out = ringFactory.freshBuffer();
+              int outOfOrder = 0;
+              for (int i = 0; i < BUFFERS_TO_PASS; i++) {
+                ring2.getBuffer(out);
+                if (ByteBuffer.wrap(out).getInt() != i) {
+                  outOfOrder++;
+                }
+              }
+              return outOfOrder;
+            });
+    final byte[] buffer = ringFactory.freshBuffer();
+    final ByteBuffer stamp = ByteBuffer.wrap(buffer);
+    for (int i = 0; i < BUFFERS_TO_PASS; i++) {
+      stamp.putInt(0, i);
+      while (!ring2.tryPutBuffer(buffer) && !consumer.isDone()) {
+        Thread.yield();
+      }
+    }
+    try {
+      Assertions.assertEquals(
+          0,
+          consumer.get(TIMEOUT_SECONDS, TimeUnit.SECONDS).intValue(),
+          "Expected all buffers to arrive in order.");
+    } catch (InterruptedException ie) {
+      Assertions.fail("Test interrupted.\n" + ie.getMessage());
+    } catch (TimeoutException te) {
+      Assertions.fail("Test timed out.\n" + te.getMessage());
+    } catch (ExecutionException ee) {
+      Assertions.fail("Consumer threw an exception.\n" + ee.getMessage());
+    }
+    Assertions.assertTrue(ring2.isEmpty(), "Expected empty ring buffer.");
+  }
+
+  /** Tests handing buffers between threads through the synchronized implementation. */
+  @Test
+  public void testSimpleRingBufferInOrder() {
+    assertHandoffInOrder(SimpleRingBuffer.class);
+  }
+
+  /** Tests handing buffers between threads through the java.util.concurrent implementation. */
+  @Test
+  public void testLinkedBlockingDequeRingBufferInOrder() {
+    assertHandoffInOrder(LinkedBlockingDequeRingBuffer.class);
+  }
+
+  /** Tests handing buffers between threads through the lock-free implementation. */
+  @Test
+  public void testLockFreeRingBufferInOrder() {
+    assertHandoffInOrder(LockFreeRingBuffer.class);
+  }
+
+  /** Test the properties of a 'null' lock-free ring. */
+  @Test
+  public void testLockFreeIsNull() {
+    final RingBuffer nullRing = ringFactory.create(LockFreeRingBuffer.class, true);
+    Assertions.assertTrue(nullRing.isNull(), "nullRing explicitly 'null'");
+    Assertions.assertTrue(nullRing.isFull(), "'null' rings are full.");
+    Assertions.assertTrue(nullRing.isCloseToFull(), "'null' rings are nearly full.");
+    Assertions.assertTrue(nullRing.isEmpty(), "'null' rings are empty.");
+    Assertions.assertEquals(0, nullRing.getAvailableBuffers(), "No available buffers.");
+  }
+
+  /** Test that a lock-free ring refuses buffers once full. */
+  @Test
+  public void testLockFreeFull() {
+    final RingBuffer ring2 = ringFactory.create(LockFreeRingBuffer.class, false);
+    final byte[] buffer = ringFactory.freshBuffer();
+    final int capacity = ring2.getGeometry().getNumberBuffers();
+    for (int i = 0; i < capacity; i++) {
+      putBuffer(ring2, buffer, true);
+    }
+    Assertions.assertTrue(ring2.isFull(), "Expected full ring buffer.");
+    Assertions.assertTrue(ring2.isCloseToFull(), "Expected buffer to be close to full.");
+    putBuffer(ring2, buffer, false);
+    ring2.clear();
+    Assertions.assertTrue(ring2.isEmpty(), "Expected empty ring buffer.");
+    Assertions.assertEquals(
+        capacity, ring2.getAvailableBuffers(), "Expected all buffers available.");
+  }
+
   static class Getter implements Callable<byte[]> {
     private final transient RingBuffer ring;
     private static final byte[] buffer =
@@ -0,0 +1,112 @@
+package test.sort;
+
+import injection.GuiceInjector;
+import jam.global.PropertyKeys;
+import jam.sort.LinkedBlockingDequeRingBuffer;
+import jam.sort.LockFreeRingBuffer;
+import jam.sort.RingBuffer;
+import jam.sort.RingBufferFactory;
+import jam.sort.RingGeometry;
+import jam.sort.SimpleRingBuffer;
+import java.util.Arrays;
+import java.util.Properties;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * JUnit tests for configurable ring buffer geometry.
+ *
+ * @author Dale Visser
+ * @see RingGeometry
+ */
+public final class RingGeometryTest { // NOPMD
+
+  private final transient RingBufferFactory ringFactory =
+      GuiceInjector.getObjectInstance(RingBufferFactory.class);
+
+  /** Test that the default geometry matches the interface constants. */
+  @Test
+  public void testDefault() {
+    final RingGeometry geometry = RingGeometry.fromProperties(new Properties());
+    Assertions.assertEquals(RingBuffer.BUFFER_SIZE, geometry.getBufferSize(), "buffer size");
+    Assertions.assertEquals(RingBuffer.NUMBER_BUFFERS, geometry.getNumberBuffers(), "buffers");
+    Assertions.assertEquals(
+        RingBuffer.CLOSE_TO_CAPACITY, geometry.getCloseToCapacity(), "close to capacity");
+    Assertions.assertEquals(RingBuffer.MEMORY_FOOTPRINT, geometry.getMemoryFootprint(), "memory");
+  }
+
+  /** Test reading geometry from properties, with rounding up to a power of 2. */
+  @Test
+  public void testFromProperties() {
+    final Properties properties = new Properties();
+    properties.setProperty(PropertyKeys.RING_BUFFER_SIZE, "16384");
+    properties.setProperty(PropertyKeys.RING_BUFFER_COUNT, "3000");
+    properties.setProperty(PropertyKeys.RING_BUFFER_CLOSE_TO_FULL, "100");
+    properties.setProperty(PropertyKeys.RING_BUFFER_OFF_HEAP, "true");
+    final RingGeometry geometry = RingGeometry.fromProperties(properties);
+    Assertions.assertEquals(16384, geometry.getBufferSize(), "buffer size");
+    Assertions.assertEquals(4096, geometry.getNumberBuffers(), "rounded up to power of 2");
+    Assertions.assertEquals(100, geometry.getCloseToCapacity(), "close to capacity");
+    Assertions.assertTrue(geometry.isOffHeap(), "off-heap");
+  }
+
+  private void assertGeometryHonored(final Class<? extends RingBuffer> ringClass) {
+    final RingGeometry geometry = new RingGeometry(1024, 8, 3, true);
+    final RingBuffer ring = ringFactory.create(ringClass, false, geometry);
+    Assertions.assertEquals(ringClass, ring.getClass(), "Expected a certain class.");
+    Assertions.assertSame(geometry, ring.getGeometry(), "Expected the given geometry.");
+    final byte[] buffer = new byte[geometry.getBufferSize()];
+    for (int i = 0; i < geometry.getNumberBuffers(); i++) {
+      Assertions.assertEquals(
+          i > geometry.getNumberBuffers() - geometry.getCloseToCapacity(),
+          ring.isCloseToFull(),
+          "close to full after " + i + " buffers");
+      Arrays.fill(buffer, (byte) i);
+      Assertions.assertTrue(ring.tryPutBuffer(buffer), "Expected success putting buffer.");
+    }
+    Assertions.assertTrue(ring.isFull(), "Expected full ring buffer.");
+    Assertions.assertFalse(ring.tryPutBuffer(buffer), "Expected failure putting into full ring.");
+    final byte[] out = new byte[geometry.getBufferSize()];
+    final byte[] expected = new byte[geometry.getBufferSize()];
+    try {
+      for (int i = 0; i < geometry.getNumberBuffers(); i++) {
+        ring.getBuffer(out);
+        Arrays.fill(expected, (byte) i);
+        Assertions.assertArrayEquals(expected, out, "Arrays should have been equal.");
+      }
+    } catch (InterruptedException ie) {
+      Assertions.fail("Test interrupted.\n" + ie.getMessage());
+    }
+    Assertions.assertTrue(ring.isEmpty(), "Expected empty ring buffer.");
+  }
+
+  /** Test a small, off-heap synchronized ring. */
+  @Test
+  public void testSimpleRingBuffer() {
+    assertGeometryHonored(SimpleRingBuffer.class);
+  }
+
+  /** Test a small java.util.concurrent ring, which stays on the heap. */
+  @Test
+  public void testLinkedBlockingDequeRingBuffer() {
+    assertGeometryHonored(LinkedBlockingDequeRingBuffer.class);
+  }
+
+  /** Test a small, off-heap lock-free ring. */
+  @Test
+  public void testLockFreeRingBuffer() {
+    assertGeometryHonored(LockFreeRingBuffer.class);
+  }
+
+  /** Test that a lock-free ring refuses buffers of the wrong size, rather than spill into a slot. */
+  @Test
+  public void testLockFreeBufferSize() {
+    final RingGeometry geometry = new RingGeometry(1024, 8, 3, true);
+    final RingBuffer ring = ringFactory.create(LockFreeRingBuffer.class, false, geometry);
+    Assertions.assertThrows(
+        IllegalArgumentException.class, () -> ring.tryPutBuffer(new byte[1025]), "oversized");
+    Assertions.assertThrows(
+        IllegalArgumentException.class, () -> ring.tryPutBuffer(new byte[1023]), "short");
+    Assertions.assertTrue(ring.isEmpty(), "Expected nothing put in ring.");
+  }
+}